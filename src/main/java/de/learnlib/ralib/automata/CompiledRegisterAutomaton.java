@@ -0,0 +1,512 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.automata;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.learnlib.ralib.automata.guards.AtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.Conjunction;
+import de.learnlib.ralib.automata.guards.ConstantGuardExpression;
+import de.learnlib.ralib.automata.guards.Disjunction;
+import de.learnlib.ralib.automata.guards.FalseGuardExpression;
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.automata.guards.Negation;
+import de.learnlib.ralib.automata.guards.Relation;
+import de.learnlib.ralib.automata.guards.TrueGuardExpression;
+import de.learnlib.ralib.automata.output.OutputMapping;
+import de.learnlib.ralib.automata.output.OutputTransition;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.Mapping;
+import de.learnlib.ralib.data.SymbolicDataExpression;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.data.SymbolicDataValue.Constant;
+import de.learnlib.ralib.data.SymbolicDataValue.Parameter;
+import de.learnlib.ralib.data.SymbolicDataValue.Register;
+import de.learnlib.ralib.data.VarValuation;
+import de.learnlib.ralib.data.util.SymbolicDataValueGenerator.ParameterGenerator;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+
+/**
+ * A register automaton lowered for fast simulation. 
+ * 
+ * Locations and symbols are numbered and transitions are stored in arrays 
+ * per location and symbol. Registers, parameters and constants are 
+ * assigned slots in an array of data values (a valuation), guards and 
+ * assignments are compiled to operations on these slots. Simulating a 
+ * step does not allocate, apart from guards and output expressions 
+ * that have no compiled form and are evaluated on a mapping built from 
+ * the valuation.
+ * 
+ * A compiled automaton is immutable and can be shared. It does not 
+ * reflect later changes to the automaton it was compiled from.
+ */
+public final class CompiledRegisterAutomaton {
+
+    /**
+     * A compiled condition on a valuation.
+     */
+    private interface Condition {
+        boolean isSatisfied(DataValue<?>[] valuation);
+    }
+
+    /**
+     * A compiled transition.
+     */
+    public final class CompiledTransition {
+
+        private final Transition transition;
+
+        private final Condition guard;
+
+        private final int destination;
+
+        private final int[] assignTo;
+
+        private final int[] assignFrom;
+
+        /**
+         * slots of output values or -1 for fresh values, null if this is 
+         * not an output transition.
+         */
+        private final int[] outputFrom;
+
+        /**
+         * expressions of outputs without a slot.
+         */
+        private final SymbolicDataExpression[] outputExpressions;
+
+        private CompiledTransition(Transition t) {
+            this.transition = t;
+            this.guard = compile(t.getGuard().getCondition());
+            this.destination = locationIds.get(t.getDestination());
+            
+            Collection<? extends Entry<Register, ? extends SymbolicDataValue>> assignment = 
+                    t.getAssignment().getAssignment().entrySet();
+            this.assignTo = new int[assignment.size()];
+            this.assignFrom = new int[assignment.size()];
+            int i = 0;
+            for (Entry<Register, ? extends SymbolicDataValue> e : assignment) {
+                assignTo[i] = slot(e.getKey());
+                assignFrom[i] = slot(e.getValue());
+                i++;
+            }
+            maxAssignment = Math.max(maxAssignment, assignTo.length);
+
+            if (t instanceof OutputTransition) {
+                OutputMapping mapping = ((OutputTransition) t).getOutput();
+                ParameterGenerator pgen = new ParameterGenerator();
+                DataType[] types = t.getLabel().getPtypes();
+                this.outputFrom = new int[types.length];
+                this.outputExpressions = new SymbolicDataExpression[types.length];
+                for (int j = 0; j < types.length; j++) {
+                    Parameter p = pgen.next(types[j]);
+                    SymbolicDataExpression sv = mapping.getOutput().get(p);
+                    if (!mapping.getOutput().keySet().contains(p)) {
+                        outputFrom[j] = -1;
+                    } else if (sv instanceof SymbolicDataValue) {
+                        outputFrom[j] = slot((SymbolicDataValue) sv);
+                    } else {
+                        outputFrom[j] = -2;
+                        outputExpressions[j] = sv;
+                        slot(sv.getSDV());
+                    }
+                }
+            } else {
+                this.outputFrom = null;
+                this.outputExpressions = null;
+            }
+        }
+
+        public boolean isEnabled(DataValue<?>[] valuation) {
+            return guard.isSatisfied(valuation);
+        }
+
+        /**
+         * updates the registers in a valuation.
+         * 
+         * @param valuation 
+         */
+        public void execute(DataValue<?>[] valuation) {
+            int scratch = scratchBase;
+            for (int i = 0; i < assignTo.length; i++) {
+                valuation[scratch + i] = valuation[assignFrom[i]];
+            }
+            for (int i = 0; i < assignTo.length; i++) {
+                valuation[assignTo[i]] = valuation[scratch + i];
+                valuation[scratch + i] = null;
+            }
+        }
+
+        public int getDestination() {
+            return destination;
+        }
+
+        public Transition getTransition() {
+            return transition;
+        }
+
+        public boolean isOutput() {
+            return outputFrom != null;
+        }
+
+        /**
+         * checks if the value of a parameter of this output transition 
+         * is fresh.
+         * 
+         * @param position position of the parameter
+         * @return 
+         */
+        public boolean isFresh(int position) {
+            return outputFrom[position] == -1;
+        }
+
+        /**
+         * computes the value of a parameter of this output transition that 
+         * is not fresh. Values of earlier parameters have to be set 
+         * (see {@link CompiledRegisterAutomaton#setParameter}).
+         * 
+         * @param position position of the parameter
+         * @param valuation
+         * @return 
+         */
+        public DataValue<?> getOutput(int position, DataValue<?>[] valuation) {
+            int from = outputFrom[position];
+            if (from >= 0) {
+                return valuation[from];
+            }
+            return outputExpressions[position].instantiateExprForValuation(toMapping(valuation));
+        }
+
+        @Override
+        public String toString() {
+            return transition.toString();
+        }
+    }
+
+    private static final CompiledTransition[] NO_TRANSITIONS = new CompiledTransition[0];
+
+    private final RALocation[] locations;
+
+    private final Map<RALocation, Integer> locationIds = new LinkedHashMap<>();
+
+    private final Map<ParameterizedSymbol, Integer> symbolIds = new LinkedHashMap<>();
+
+    /**
+     * transitions by location and symbol.
+     */
+    private final CompiledTransition[][][] transitions;
+
+    /**
+     * all transitions by location, in the order of {@link RALocation#getOut()}.
+     */
+    private final CompiledTransition[][] allTransitions;
+
+    private final Map<SymbolicDataValue, Integer> slots = new LinkedHashMap<>();
+
+    private final List<SymbolicDataValue> slotVars = new ArrayList<>();
+
+    private final Constants consts;
+
+    private final int initial;
+
+    private int maxAssignment = 0;
+
+    /**
+     * first slot after the slots of data values, used for assignments.
+     */
+    private int scratchBase;
+
+    private int[] parameterSlots;
+
+    private int[] parameterPositions;
+
+    private DataType[] parameterTypes;
+
+    /**
+     * slots of registers, initial registers first.
+     */
+    private int[] registerSlots;
+
+    private DataValue<?>[] initialValuation;
+
+    public CompiledRegisterAutomaton(RegisterAutomaton ra, Constants consts) {
+        this.consts = consts;
+        Collection<RALocation> states = ra.getStates();
+        this.locations = states.toArray(new RALocation[] {});
+        for (RALocation l : locations) {
+            locationIds.put(l, locationIds.size());
+        }
+        this.initial = ra.getInitialState() == null ? -1 : locationIds.get(ra.getInitialState());
+
+        this.allTransitions = new CompiledTransition[locations.length][];
+        List<Map<Integer, List<CompiledTransition>>> bySymbol = new ArrayList<>();
+        for (int l = 0; l < locations.length; l++) {
+            List<Transition> out = new ArrayList<>(locations[l].getOut());
+            Map<Integer, List<CompiledTransition>> map = new LinkedHashMap<>();
+            allTransitions[l] = new CompiledTransition[out.size()];
+            for (int i = 0; i < out.size(); i++) {
+                Transition t = out.get(i);
+                CompiledTransition ct = new CompiledTransition(t);
+                allTransitions[l][i] = ct;
+                Integer sid = symbolIds.computeIfAbsent(t.getLabel(), k -> symbolIds.size());
+                map.computeIfAbsent(sid, k -> new ArrayList<>()).add(ct);
+            }
+            bySymbol.add(map);
+        }
+
+        this.transitions = new CompiledTransition[locations.length][symbolIds.size()][];
+        for (int l = 0; l < locations.length; l++) {
+            for (int s = 0; s < symbolIds.size(); s++) {
+                List<CompiledTransition> list = bySymbol.get(l).get(s);
+                transitions[l][s] = (list == null) ? NO_TRANSITIONS : list.toArray(NO_TRANSITIONS);
+            }
+        }
+
+        for (Register r : ra.getInitialRegisters().keySet()) {
+            slot(r);
+        }
+        initSlots(ra);
+    }
+
+    private void initSlots(RegisterAutomaton ra) {
+        List<Integer> pSlots = new ArrayList<>();
+        scratchBase = slots.size();
+        initialValuation = new DataValue<?>[slots.size() + maxAssignment];
+        for (int i = 0; i < slotVars.size(); i++) {
+            SymbolicDataValue sv = slotVars.get(i);
+            if (sv instanceof Register) {
+                initialValuation[i] = ra.getInitialRegisters().get(sv);
+            } else if (sv instanceof Constant) {
+                initialValuation[i] = consts.get(sv);
+            } else if (sv instanceof Parameter) {
+                pSlots.add(i);
+            }
+        }
+        List<Integer> rSlots = new ArrayList<>();
+        for (Register r : ra.getInitialRegisters().keySet()) {
+            rSlots.add(slots.get(r));
+        }
+        for (int i = 0; i < slotVars.size(); i++) {
+            if (slotVars.get(i) instanceof Register && !rSlots.contains(i)) {
+                rSlots.add(i);
+            }
+        }
+        registerSlots = rSlots.stream().mapToInt(Integer::intValue).toArray();
+        parameterSlots = new int[pSlots.size()];
+        parameterPositions = new int[pSlots.size()];
+        parameterTypes = new DataType[pSlots.size()];
+        for (int i = 0; i < pSlots.size(); i++) {
+            SymbolicDataValue p = slotVars.get(pSlots.get(i));
+            parameterSlots[i] = pSlots.get(i);
+            parameterPositions[i] = p.getId() - 1;
+            parameterTypes[i] = p.getType();
+        }
+    }
+
+    public int getInitialLocation() {
+        return initial;
+    }
+
+    public RALocation getLocation(int id) {
+        return locations[id];
+    }
+
+    /**
+     * returns a new valuation with the initial registers and the constants.
+     * 
+     * @return 
+     */
+    public DataValue<?>[] newValuation() {
+        return initialValuation.clone();
+    }
+
+    /**
+     * resets a valuation to the initial registers.
+     * 
+     * @param valuation 
+     */
+    public void reset(DataValue<?>[] valuation) {
+        System.arraycopy(initialValuation, 0, valuation, 0, initialValuation.length);
+    }
+
+    /**
+     * returns the transitions of a location for a symbol.
+     * 
+     * @param location
+     * @param ps
+     * @return 
+     */
+    public CompiledTransition[] getTransitions(int location, ParameterizedSymbol ps) {
+        Integer sid = symbolIds.get(ps);
+        return (sid == null) ? NO_TRANSITIONS : transitions[location][sid];
+    }
+
+    /**
+     * returns all transitions of a location.
+     * 
+     * @param location
+     * @return 
+     */
+    public CompiledTransition[] getTransitions(int location) {
+        return allTransitions[location];
+    }
+
+    /**
+     * returns the registers that have a value in a valuation, initial 
+     * registers first (as in {@link RARun#getRegisters()}).
+     * 
+     * @param valuation
+     * @return 
+     */
+    public VarValuation getRegisters(DataValue<?>[] valuation) {
+        VarValuation vars = new VarValuation();
+        for (int s : registerSlots) {
+            if (valuation[s] != null) {
+                vars.put((Register) slotVars.get(s), valuation[s]);
+            }
+        }
+        return vars;
+    }
+
+    /**
+     * sets the parameters of a valuation to the values of a symbol.
+     * 
+     * @param psi
+     * @param valuation 
+     */
+    public void setParameters(PSymbolInstance psi, DataValue<?>[] valuation) {
+        DataValue<?>[] vals = psi.getParameterValues();
+        for (int i = 0; i < parameterSlots.length; i++) {
+            int pos = parameterPositions[i];
+            valuation[parameterSlots[i]] = (pos < vals.length && vals[pos].getType().equals(parameterTypes[i])) 
+                    ? vals[pos] : null;
+        }
+    }
+
+    /**
+     * sets one parameter of a valuation.
+     * 
+     * @param position position of the parameter
+     * @param dv
+     * @param valuation 
+     */
+    public void setParameter(int position, DataValue<?> dv, DataValue<?>[] valuation) {
+        for (int i = 0; i < parameterSlots.length; i++) {
+            if (parameterPositions[i] == position) {
+                valuation[parameterSlots[i]] = dv.getType().equals(parameterTypes[i]) ? dv : null;
+            }
+        }
+    }
+
+    /**
+     * removes the values of all parameters from a valuation.
+     * 
+     * @param valuation 
+     */
+    public void clearParameters(DataValue<?>[] valuation) {
+        for (int s : parameterSlots) {
+            valuation[s] = null;
+        }
+    }
+
+    private int slot(SymbolicDataValue sv) {
+        Integer slot = slots.get(sv);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(sv, slot);
+            slotVars.add(sv);
+        }
+        return slot;
+    }
+
+    private Mapping<SymbolicDataValue, DataValue<?>> toMapping(DataValue<?>[] valuation) {
+        Mapping<SymbolicDataValue, DataValue<?>> mapping = new Mapping<>();
+        for (int i = 0; i < slotVars.size(); i++) {
+            if (valuation[i] != null) {
+                mapping.put(slotVars.get(i), valuation[i]);
+            }
+        }
+        return mapping;
+    }
+
+    private Condition compile(GuardExpression expr) {
+        if (expr instanceof TrueGuardExpression) {
+            return v -> true;
+        } else if (expr instanceof FalseGuardExpression) {
+            return v -> false;
+        } else if (expr instanceof Negation) {
+            Condition c = compile(((Negation) expr).getNegated());
+            return v -> !c.isSatisfied(v);
+        } else if (expr instanceof Conjunction) {
+            Condition[] cs = compile(((Conjunction) expr).getConjuncts());
+            return v -> {
+                for (Condition c : cs) {
+                    if (!c.isSatisfied(v)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        } else if (expr instanceof Disjunction) {
+            Condition[] cs = compile(((Disjunction) expr).getDisjuncts());
+            return v -> {
+                for (Condition c : cs) {
+                    if (c.isSatisfied(v)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        } else if (expr instanceof AtomicGuardExpression) {
+            AtomicGuardExpression<?, ?> atom = (AtomicGuardExpression<?, ?>) expr;
+            int l = slot(atom.getLeft());
+            int r = slot(atom.getRight());
+            if (atom.getClass() == AtomicGuardExpression.class && atom.getRelation() == Relation.EQUALS) {
+                return v -> v[l].equals(v[r]);
+            } else if (atom.getClass() == AtomicGuardExpression.class && atom.getRelation() == Relation.NOT_EQUALS) {
+                return v -> !v[l].equals(v[r]);
+            }
+            return v -> atom.isSatisfied(v[l], v[r]);
+        } else if (expr instanceof ConstantGuardExpression) {
+            ConstantGuardExpression ce = (ConstantGuardExpression) expr;
+            int s = slot(ce.getVariable());
+            DataValue<?> c = ce.getConstant();
+            return v -> v[s].equals(c);
+        }
+        // no compiled form
+        for (SymbolicDataValue sv : expr.getSymbolicDataValues()) {
+            slot(sv);
+        }
+        return v -> expr.isSatisfied(toMapping(v));
+    }
+
+    private Condition[] compile(GuardExpression[] exprs) {
+        Condition[] cs = new Condition[exprs.length];
+        for (int i = 0; i < exprs.length; i++) {
+            cs[i] = compile(exprs[i]);
+        }
+        return cs;
+    }
+}
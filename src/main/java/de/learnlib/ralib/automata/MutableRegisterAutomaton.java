@@ -16,17 +16,14 @@
  */
 package de.learnlib.ralib.automata;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import net.automatalib.automata.MutableDeterministic;
 import net.automatalib.words.Word;
 import de.learnlib.ralib.data.Constants;
-import de.learnlib.ralib.data.ParValuation;
 import de.learnlib.ralib.data.VarValuation;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
@@ -47,6 +44,10 @@ public class MutableRegisterAutomaton extends RegisterAutomaton
     
     private final Set<RALocation> locations = new LinkedHashSet<>();
     
+    private CompiledRegisterAutomaton compiled = null;
+    
+    private Constants compiledConsts = null;
+    
     public MutableRegisterAutomaton(Constants consts, VarValuation initialRegisters) {
         super(initialRegisters);
         this.constants = consts;
@@ -87,99 +88,62 @@ public class MutableRegisterAutomaton extends RegisterAutomaton
     }
     
     protected List<Transition> getTransitions(Word<PSymbolInstance> dw) {
-        VarValuation vars = new VarValuation(getInitialRegisters());
-        RALocation current = initial;
-        List<Transition> tseq = new ArrayList<>();
-        for (PSymbolInstance psi : dw) {
-            
-            ParValuation pars = new ParValuation(psi);
-            
-            Collection<Transition> candidates = 
-                    current.getOut(psi.getBaseSymbol());
-                        
-            if (candidates == null) {
-                return null;
-            }
-            
-            final VarValuation fVars = vars; 
-            List<Transition> enabledTransitions = candidates.stream().
-            		filter(t -> t.isEnabled(fVars, pars, this.constants)).collect(Collectors.toList());
-//            if (enabledTransitions.size() > 1) {
-//            	tseq.forEach(tr -> System.out.println(tr + "\n"));
-//            	throw new RuntimeException("Multiple enabled transitions found\n regs: " + vars +  "\n guards: " + 
-//            enabledTransitions.stream().map(tr -> tr.guard).collect(Collectors.toList()) + 
-//            			"\n symbols to path: "+ dw.prefix(dw.asList().indexOf(psi)));
-//            }
-//            
-//            else 
-            	if (enabledTransitions.size() == 0) 
-            	return null;
-            else {
-            	Transition t = enabledTransitions.get(0);
-            	vars = t.execute(vars, pars, this.constants);
-                current = t.getDestination();
-                tseq.add(t);
-            }
-        }
-        return tseq;        
+        RARun run = getRun(dw);
+        return (run == null) ? null : run.getTransitions();
     }
     
     public VarValuation getRegisterValuation(Word<PSymbolInstance> dw) {
-        VarValuation vars = new VarValuation(getInitialRegisters());
-        RALocation current = initial;
-        for (PSymbolInstance psi : dw) {
-            
-            ParValuation pars = new ParValuation(psi);
-            
-            Collection<Transition> candidates = 
-                    current.getOut(psi.getBaseSymbol());
-                        
-            if (candidates == null) {
-                return null;
-            }
-            
-            final VarValuation fVars = vars; 
-            List<Transition> enabledTransitions = candidates.stream().
-            		filter(t -> t.isEnabled(fVars, pars, this.constants)).collect(Collectors.toList());
-            
-            if (enabledTransitions.size() == 0) 
-            	return null;
-            else {
-            	Transition t = enabledTransitions.get(0);
-            	vars = t.execute(vars, pars, this.constants);
-                current = t.getDestination();
-            }
-        }
-        return vars;        
+        RARun run = getRun(dw);
+        return (run == null) ? null : new VarValuation(run.getRegisters());
     }
     
     @Override
     public RALocation getLocation(Word<PSymbolInstance> dw) {
-        List<Transition> tseq = getTransitions(dw);
-        if (tseq == null) {
-            return null;
-        }
-        if (tseq.isEmpty()) {
-            return initial;
-        } else {
-            Transition last = tseq.get(tseq.size() -1);
-            return last.getDestination();
+        RARun run = getRun(dw);
+        return (run == null) ? null : run.getLocation();
+    }
+
+    @Override
+    public RARun getInitialRun() {
+        return new RARun(initial, getInitialRegisters(), constants);
+    }
+
+    /**
+     * returns the compiled automaton, which is kept until the automaton 
+     * is modified.
+     */
+    @Override
+    public synchronized CompiledRegisterAutomaton compile(Constants consts) {
+        if (compiled == null || consts != compiledConsts) {
+            compiled = super.compile(consts);
+            compiledConsts = consts;
         }
+        return compiled;
+    }
+
+    /**
+     * called whenever the automaton is modified. Subclasses that keep runs 
+     * have to discard them.
+     */
+    protected synchronized void modified() {
+        compiled = null;
     }
 
     @Override
     public boolean accepts(Word<PSymbolInstance> dw) {        
-        RALocation dest = getLocation(dw);
-        return (dest != null && dest.isAccepting());
+        RARun run = getRun(dw);
+        return (run != null && run.isAccepting());
     }
 
     @Override
     public void setInitialState(RALocation s) {
+        modified();
         this.initial = s;
     }
 
     @Override
     public void setTransition(RALocation s, ParameterizedSymbol i, Transition t) {
+        modified();
         s.addOut(t);
     }
 
@@ -212,6 +176,7 @@ public class MutableRegisterAutomaton extends RegisterAutomaton
 
     @Override
     public RALocation addInitialState(Boolean sp) {
+        modified();
         this.initial = addState(sp);
         return this.initial;
     }
@@ -228,6 +193,7 @@ public class MutableRegisterAutomaton extends RegisterAutomaton
 
     @Override
     public void setInitial(RALocation s, boolean bln) {
+        modified();
         if (bln) {
             this.initial = s;
         }
@@ -255,6 +221,7 @@ public class MutableRegisterAutomaton extends RegisterAutomaton
 
     @Override
     public void addTransition(RALocation s, ParameterizedSymbol i, Transition t) {
+        modified();
         s.addOut(t);
     }
 
@@ -274,11 +241,13 @@ public class MutableRegisterAutomaton extends RegisterAutomaton
 
     @Override
     public void removeTransition(RALocation s, ParameterizedSymbol i, Transition t) {
+        modified();
         s.getOut(i).remove(t);
     }
 
     @Override
     public void removeAllTransitions(RALocation s, ParameterizedSymbol i) {
+        modified();
         Collection<Transition> cltn = s.getOut(i);
         if (cltn != null) {
             cltn.clear();
@@ -287,6 +256,7 @@ public class MutableRegisterAutomaton extends RegisterAutomaton
 
     @Override
     public void removeAllTransitions(RALocation s) {
+        modified();
         s.clear();
     }
 
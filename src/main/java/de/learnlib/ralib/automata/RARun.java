@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.automata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.ParValuation;
+import de.learnlib.ralib.data.VarValuation;
+import de.learnlib.ralib.words.PSymbolInstance;
+
+/**
+ * A run of a register automaton on a data word: the location reached 
+ * and the valuation of the registers. 
+ * 
+ * Runs are immutable. A run is advanced by {@link #step(PSymbolInstance)}, 
+ * which returns a new run and leaves this one unchanged, so a run can be 
+ * kept for a prefix and advanced with several continuations.
+ */
+public final class RARun {
+
+    private final RARun parent;
+
+    private final Transition transition;
+
+    private final RALocation location;
+
+    private final VarValuation registers;
+
+    private final Constants consts;
+
+    private final int length;
+
+    private RARun(RARun parent, Transition transition, RALocation location, 
+            VarValuation registers, Constants consts, int length) {
+        this.parent = parent;
+        this.transition = transition;
+        this.location = location;
+        this.registers = registers;
+        this.consts = consts;
+        this.length = length;
+    }
+
+    /**
+     * creates a run of length 0.
+     * 
+     * @param initial
+     * @param registers
+     * @param consts
+     */
+    public RARun(RALocation initial, VarValuation registers, Constants consts) {
+        this(null, null, initial, registers, consts, 0);
+    }
+
+    /**
+     * extends the run by a symbol, taking the first enabled transition.
+     * 
+     * @param psi
+     * @return the extended run or null if no transition is enabled
+     */
+    public RARun step(PSymbolInstance psi) {
+        ParValuation pars = new ParValuation(psi);
+        for (Transition t : location.getOut(psi.getBaseSymbol())) {
+            if (t.isEnabled(registers, pars, consts)) {
+                return new RARun(this, t, t.getDestination(), 
+                        t.execute(registers, pars, consts), consts, length + 1);
+            }
+        }
+        return null;
+    }
+
+    public RALocation getLocation() {
+        return location;
+    }
+
+    /**
+     * the register valuation after the run. The valuation is shared by 
+     * all users of the run and must not be modified.
+     * 
+     * @return 
+     */
+    public VarValuation getRegisters() {
+        return registers;
+    }
+
+    /**
+     * the transition taken last or null for a run of length 0.
+     * 
+     * @return 
+     */
+    public Transition getTransition() {
+        return transition;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * the transitions taken by the run, in order.
+     * 
+     * @return 
+     */
+    public List<Transition> getTransitions() {
+        List<Transition> tseq = new ArrayList<>(length);
+        for (RARun r = this; r.parent != null; r = r.parent) {
+            tseq.add(r.transition);
+        }
+        Collections.reverse(tseq);
+        return tseq;
+    }
+
+    public boolean isAccepting() {
+        return location.isAccepting();
+    }
+}
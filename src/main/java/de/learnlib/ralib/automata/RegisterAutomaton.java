@@ -25,6 +25,7 @@ import java.util.Set;
 import net.automatalib.automata.DeterministicAutomaton;
 import net.automatalib.words.Word;
 import de.learnlib.ralib.automata.output.OutputTransition;
+import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.SymbolicDataValue.Register;
 import de.learnlib.ralib.data.VarValuation;
 import de.learnlib.ralib.words.PSymbolInstance;
@@ -59,7 +60,41 @@ public abstract class RegisterAutomaton
     public abstract RALocation getLocation(Word<PSymbolInstance> dw);
     
     public abstract VarValuation getRegisterValuation(Word<PSymbolInstance> dw);
+
+    /**
+     * Returns the run of length 0 from the initial location.
+     * 
+     * @return the initial run 
+     */
+    public abstract RARun getInitialRun();
+
+    /**
+     * Runs the automaton on a data word. 
+     * 
+     * @param dw a data word
+     * @return the run or null if dw cannot be executed 
+     */
+    public RARun getRun(Word<PSymbolInstance> dw) {
+        RARun run = getInitialRun();
+        for (PSymbolInstance psi : dw) {
+            if (run == null) {
+                return null;
+            }
+            run = run.step(psi);
+        }
+        return run;
+    }
     
+    /**
+     * Lowers the automaton for fast simulation.
+     * 
+     * @param consts values of the constants
+     * @return the compiled automaton
+     */
+    public CompiledRegisterAutomaton compile(Constants consts) {
+        return new CompiledRegisterAutomaton(this, consts);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -59,6 +59,17 @@ public class AtomicGuardExpression<Left extends SymbolicDataValue, Right extends
         return isSatisfied;
     }
     
+    /**
+     * Checks the relation for values of the left and the right data value.
+     * 
+     * @param lv value of the left data value
+     * @param rv value of the right data value
+     * @return true if the relation holds
+     */
+    public boolean isSatisfied(DataValue<?> lv, DataValue<?> rv) {
+        return isSatisfied(lv, rv, relation);
+    }
+    
     protected boolean isSatisfied(DataValue lv, DataValue rv, Relation relation) {
     	 switch (relation) {
          case EQUALS: 
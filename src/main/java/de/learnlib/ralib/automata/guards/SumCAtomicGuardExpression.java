@@ -33,6 +33,11 @@ public class SumCAtomicGuardExpression<Left extends SymbolicDataValue, Right ext
        return super.isSatisfied(lv, rv, super.relation);
     }
                
+    @Override
+    public boolean isSatisfied(DataValue<?> lv, DataValue<?> rv) {
+        return super.isSatisfied(DataValue.add(lv, lConst), DataValue.add(rv, rConst), super.relation);
+    }
+
     @Override
     public GuardExpression relabel(VarMapping relabelling) {
         SymbolicDataValue newLeft = (SymbolicDataValue) relabelling.get(left);
@@ -1,6 +1,15 @@
 package de.learnlib.ralib.equivalence;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import de.learnlib.logging.LearnLogger;
@@ -15,18 +24,21 @@ public abstract class BoundedIOEquivalenceOracle implements IOEquivalenceOracle
 	private static final LearnLogger log = LearnLogger.getLogger(BoundedIOEquivalenceOracle.class);
 	private long maxRuns;
 	private boolean resetRuns;
-	private int runs;
+	private final AtomicLong runs = new AtomicLong();
 	private TraceGenerator hypTraceGenerator;
 	private IOOracle target;
 	private TraceCanonizer traceCanonizer;
 	private TestPurpose testPurpose = (w) -> true;
+	
+	private List<TraceGenerator> workerGenerators;
+	private List<IOOracle> workerTargets;
+	private ExecutorService workerPool;
 
 	public BoundedIOEquivalenceOracle(IOOracle target,  TraceCanonizer traceCanonizer, long maxRuns, boolean resetRuns) {
 	
 		this.maxRuns = maxRuns;
 		this.resetRuns = resetRuns;
 		this.target = target;
-		this.runs = 0;
 		this.traceCanonizer = traceCanonizer;
 	}
 	
@@ -45,17 +57,54 @@ public abstract class BoundedIOEquivalenceOracle implements IOEquivalenceOracle
 		this.hypTraceGenerator = hypTraceGenerator;
 	}
 
+	/**
+	 * Runs tests in parallel. Every worker generates traces with its own generator and runs them on its own 
+	 * target. Generators should use independently seeded random number generators. The workers stop once 
+	 * a counterexample has been found, the shortest counterexample found by a worker until then is returned. 
+	 * The workers of an earlier call are shut down.
+	 */
+	public void setParallelTesting(List<TraceGenerator> generators, List<IOOracle> targets) {
+		if (generators.size() != targets.size()) {
+			throw new IllegalArgumentException("Need one target per trace generator");
+		}
+		shutdown();
+		this.workerGenerators = new ArrayList<>(generators);
+		this.workerTargets = new ArrayList<>(targets);
+		AtomicInteger ids = new AtomicInteger();
+		this.workerPool = Executors.newFixedThreadPool(generators.size(), r -> {
+			Thread t = new Thread(r, "test-worker-" + ids.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Shuts down the workers. Tests are run sequentially afterwards.
+	 */
+	public void shutdown() {
+		if (workerPool != null) {
+			workerPool.shutdown();
+			workerPool = null;
+			workerGenerators = null;
+			workerTargets = null;
+		}
+	}
+
 	@Override
 	public DefaultQuery<PSymbolInstance, Boolean> findCounterExample(RegisterAutomaton hyp,
 			Collection<? extends PSymbolInstance> clctn) {
 
 		// reset the counter for number of runs after every equiv query?
 		if (resetRuns) {
-			runs = 0;
+			runs.set(0);
+		}
+		
+		if (workerGenerators != null) {
+			return findCounterExampleInParallel(hyp);
 		}
 
 		// find counterexample ...
-		while (runs < maxRuns) {
+		while (runs.get() < maxRuns) {
 			Word<PSymbolInstance> hypTrace = hypTraceGenerator.generateTrace(hyp);
 			if (!testPurpose.isSatisfied(hypTrace)) {
 				continue;
@@ -63,22 +112,102 @@ public abstract class BoundedIOEquivalenceOracle implements IOEquivalenceOracle
 			hypTrace = traceCanonizer.canonize(hypTrace);
 			Word<PSymbolInstance> sulTrace = target.trace(hypTrace);
 			if (!hypTrace.equals(sulTrace)) {
-				log.log(Level.INFO, "SUL Trace {0}", sulTrace.toString());
-				log.log(Level.INFO, "HYP Trace {0}", hypTrace.toString());
-				// System.out.println("HYP Trace " + hypTrace.toString());
-				Word<PSymbolInstance> newSulTrace = target.trace(sulTrace);
-				assert newSulTrace.equals(sulTrace);
-				int j;
-				for(j=0; hypTrace.getSymbol(j).equals(sulTrace.getSymbol(j)); j++);
-				log.log(Level.FINE, "HYP Run: {0}", hypRun(hyp, sulTrace.prefix(j+1)));
-				return new DefaultQuery<>(sulTrace.prefix(j+1), Boolean.TRUE);
+				return counterexample(hyp, hypTrace, sulTrace, target);
 			}
-			runs ++;
+			runs.incrementAndGet();
 			
 		}
 		return null;
 	}
 	
+	private DefaultQuery<PSymbolInstance, Boolean> findCounterExampleInParallel(RegisterAutomaton hyp) {
+		AtomicBoolean stop = new AtomicBoolean(false);
+		// counterexamples by worker, ties are broken by the worker index
+		List<DefaultQuery<PSymbolInstance, Boolean>> found = new ArrayList<>();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < workerGenerators.size(); i++) {
+			TraceGenerator generator = workerGenerators.get(i);
+			IOOracle workerTarget = workerTargets.get(i);
+			int worker = i;
+			found.add(null);
+			futures.add(workerPool.submit(() -> {
+				try {
+					DefaultQuery<PSymbolInstance, Boolean> ce = test(hyp, generator, workerTarget, stop);
+					synchronized (found) {
+						found.set(worker, ce);
+					}
+				} finally {
+					stop.set(true);
+				}
+			}));
+		}
+		
+		RuntimeException failure = null;
+		for (Future<?> f : futures) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() 
+							: new RuntimeException(e.getCause());
+				}
+			} catch (InterruptedException e) {
+				stop.set(true);
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		
+		DefaultQuery<PSymbolInstance, Boolean> shortest = null;
+		for (DefaultQuery<PSymbolInstance, Boolean> ce : found) {
+			if (ce != null && (shortest == null || ce.getInput().length() < shortest.getInput().length())) {
+				shortest = ce;
+			}
+		}
+		return shortest;
+	}
+	
+	/**
+	 * Runs tests of one worker until a counterexample is found, the maximum number of runs is reached 
+	 * or another worker stops.
+	 */
+	private DefaultQuery<PSymbolInstance, Boolean> test(RegisterAutomaton hyp, TraceGenerator generator, 
+			IOOracle workerTarget, AtomicBoolean stop) {
+		while (!stop.get() && runs.get() < maxRuns) {
+			Word<PSymbolInstance> hypTrace = generator.generateTrace(hyp);
+			if (!testPurpose.isSatisfied(hypTrace)) {
+				continue;
+			}
+			if (runs.getAndIncrement() >= maxRuns) {
+				break;
+			}
+			hypTrace = traceCanonizer.canonize(hypTrace);
+			Word<PSymbolInstance> sulTrace = workerTarget.trace(hypTrace);
+			if (!hypTrace.equals(sulTrace)) {
+				// only passed tests are counted
+				runs.decrementAndGet();
+				return counterexample(hyp, hypTrace, sulTrace, workerTarget);
+			}
+		}
+		return null;
+	}
+	
+	private DefaultQuery<PSymbolInstance, Boolean> counterexample(RegisterAutomaton hyp, 
+			Word<PSymbolInstance> hypTrace, Word<PSymbolInstance> sulTrace, IOOracle target) {
+		log.log(Level.INFO, "SUL Trace {0}", sulTrace.toString());
+		log.log(Level.INFO, "HYP Trace {0}", hypTrace.toString());
+		// System.out.println("HYP Trace " + hypTrace.toString());
+		Word<PSymbolInstance> newSulTrace = target.trace(sulTrace);
+		assert newSulTrace.equals(sulTrace);
+		int j;
+		for(j=0; hypTrace.getSymbol(j).equals(sulTrace.getSymbol(j)); j++);
+		log.log(Level.FINE, "HYP Run: {0}", hypRun(hyp, sulTrace.prefix(j+1)));
+		return new DefaultQuery<>(sulTrace.prefix(j+1), Boolean.TRUE);
+	}
+	
 	private String hypRun(RegisterAutomaton hyp, Word<PSymbolInstance> trace) {
 		StringBuilder builder = new StringBuilder();
 		Word<PSymbolInstance> crtTrace = Word.epsilon();
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.equivalence;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+
+import de.learnlib.logging.LearnLogger;
+import de.learnlib.oracles.DefaultQuery;
+import de.learnlib.ralib.learning.Hypothesis;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Applies counterexample optimizers one after another. The optimizers share 
+ * a counterexample tester, so SUL traces and verdicts of the hypothesis are 
+ * memoized across all of them. The cost of every optimizer is recorded.
+ */
+public class CounterExampleReducer implements IOCounterExampleOptimizer {
+
+	private static class Stage {
+		private final String name;
+		private final String message;
+		private final IOCounterExampleOptimizer optimizer;
+		private long queries;
+		private long symbols;
+		private long inputs;
+		private long millis;
+		private long removed;
+
+		private Stage(String name, String message, IOCounterExampleOptimizer optimizer) {
+			this.name = name;
+			this.message = message;
+			this.optimizer = optimizer;
+		}
+	}
+
+	private final CounterExampleTester tester;
+	private final List<Stage> stages = new ArrayList<>();
+	private LongSupplier sulInputs = () -> 0L;
+	private PrintStream out;
+
+	private static final LearnLogger log = LearnLogger.getLogger(CounterExampleReducer.class);
+
+	public CounterExampleReducer(CounterExampleTester tester) {
+		this.tester = tester;
+	}
+
+	public CounterExampleTester getTester() {
+		return tester;
+	}
+
+	/**
+	 * Adds an optimizer, which should use the tester of this reducer.
+	 */
+	public void addOptimizer(String name, IOCounterExampleOptimizer optimizer) {
+		addOptimizer(name, "CE after " + name + ": ", optimizer);
+	}
+
+	/**
+	 * Adds an optimizer. The message is printed with the counterexample 
+	 * after the optimizer has run, if an output is set.
+	 */
+	public void addOptimizer(String name, String message, IOCounterExampleOptimizer optimizer) {
+		stages.add(new Stage(name, message, optimizer));
+	}
+
+	/**
+	 * Sets a stream the counterexample is printed to after every optimizer.
+	 */
+	public void setOutput(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Sets a counter of the inputs run on the SUL, which are recorded as part 
+	 * of the cost of the optimizers.
+	 */
+	public void setInputCounter(LongSupplier sulInputs) {
+		this.sulInputs = sulInputs;
+	}
+
+	@Override
+	public DefaultQuery<PSymbolInstance, Boolean> optimizeCE(Word<PSymbolInstance> ce, Hypothesis hyp) {
+		DefaultQuery<PSymbolInstance, Boolean> query = new DefaultQuery<>(ce, Boolean.TRUE);
+		for (Stage stage : stages) {
+			long queries = tester.getQueries();
+			long symbols = tester.getSymbols();
+			long inputs = sulInputs.getAsLong();
+			long start = System.currentTimeMillis();
+			int length = query.getInput().length();
+
+			query = stage.optimizer.optimizeCE(query.getInput(), hyp);
+
+			stage.millis += System.currentTimeMillis() - start;
+			stage.queries += tester.getQueries() - queries;
+			stage.symbols += tester.getSymbols() - symbols;
+			stage.inputs += sulInputs.getAsLong() - inputs;
+			stage.removed += length - query.getInput().length();
+			log.log(Level.INFO, "CE after {0}: {1}", new Object[] {stage.name, query});
+			if (out != null) {
+				out.println(stage.message + query);
+			}
+		}
+		return query;
+	}
+
+	/**
+	 * The cost of the optimizers, one line per optimizer.
+	 */
+	public String getStatistics() {
+		StringBuilder b = new StringBuilder();
+		for (Stage stage : stages) {
+			b.append("CE Optimizer ").append(stage.name)
+				.append(": queries ").append(stage.queries)
+				.append(", symbols ").append(stage.symbols)
+				.append(", inputs ").append(stage.inputs)
+				.append(", time ").append(stage.millis).append("ms")
+				.append(", removed symbols ").append(stage.removed)
+				.append("\n");
+		}
+		return b.toString();
+	}
+}
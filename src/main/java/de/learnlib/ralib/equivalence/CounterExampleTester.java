@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.equivalence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.learnlib.oracles.DefaultQuery;
+import de.learnlib.ralib.learning.Hypothesis;
+import de.learnlib.ralib.oracles.io.IOOracle;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Tests candidates for shorter counterexamples on the SUL and the hypothesis.
+ * 
+ * Candidates are traced in batches of a given size, the first candidate of a 
+ * batch that is a counterexample is taken. Optimizers generate candidates in 
+ * the order they would test them one at a time, so the counterexample found 
+ * does not depend on the batch size. With worker oracles, the candidates of a 
+ * batch are traced in parallel.
+ * 
+ * SUL traces and the verdicts of the hypothesis are memoized until the 
+ * hypothesis changes, so optimizers sharing a tester do not repeat each 
+ * other's tests.
+ */
+public class CounterExampleTester {
+
+	private final IOOracle sulOracle;
+	private final HypVerifier hypVerifier;
+	private final int batchSize;
+
+	private Hypothesis hypothesis;
+	private final Map<Word<PSymbolInstance>, Word<PSymbolInstance>> traces = new HashMap<>();
+	private final Map<Word<PSymbolInstance>, Boolean> verdicts = new HashMap<>();
+
+	private List<IOOracle> workerOracles;
+	private ExecutorService workerPool;
+
+	private long queries;
+	private long symbols;
+
+	public CounterExampleTester(IOOracle sulOracle, HypVerifier hypVerifier, int batchSize) {
+		this.sulOracle = sulOracle;
+		this.hypVerifier = hypVerifier;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Traces the candidates of a batch in parallel, each worker on its own oracle.
+	 * The workers of an earlier call are shut down.
+	 */
+	public void setParallelTraces(List<IOOracle> workerOracles) {
+		shutdown();
+		this.workerOracles = new ArrayList<>(workerOracles);
+		AtomicInteger ids = new AtomicInteger();
+		this.workerPool = Executors.newFixedThreadPool(workerOracles.size(), r -> {
+			Thread t = new Thread(r, "ce-worker-" + ids.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Shuts down the workers. Candidates are traced sequentially afterwards.
+	 */
+	public void shutdown() {
+		if (workerPool != null) {
+			workerPool.shutdown();
+			workerPool = null;
+			workerOracles = null;
+		}
+	}
+
+	/**
+	 * Number of candidates an optimizer should generate at once.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Number of traces passed on to the SUL oracle.
+	 */
+	public long getQueries() {
+		return queries;
+	}
+
+	/**
+	 * Number of symbols in the traces passed on to the SUL oracle.
+	 */
+	public long getSymbols() {
+		return symbols;
+	}
+
+	public Word<PSymbolInstance> trace(Word<PSymbolInstance> query) {
+		return traces(List.of(query)).get(0);
+	}
+
+	public List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> queries) {
+		List<Word<PSymbolInstance>> missing = new ArrayList<>(new LinkedHashSet<>(queries));
+		missing.removeIf(traces::containsKey);
+		if (!missing.isEmpty()) {
+			List<Word<PSymbolInstance>> results = traceOnSUL(missing);
+			for (int i = 0; i < missing.size(); i++) {
+				traces.put(missing.get(i), results.get(i));
+				this.queries++;
+				this.symbols += missing.get(i).length();
+			}
+		}
+		List<Word<PSymbolInstance>> answers = new ArrayList<>(queries.size());
+		for (Word<PSymbolInstance> q : queries) {
+			answers.add(traces.get(q));
+		}
+		return answers;
+	}
+
+	public boolean isCounterExample(Word<PSymbolInstance> trace, Hypothesis hyp) {
+		if (trace == null) {
+			return false;
+		}
+		setHypothesis(hyp);
+		return verdicts.computeIfAbsent(trace, 
+				t -> hypVerifier.isCEForHyp(new DefaultQuery<>(t, Boolean.TRUE), hyp));
+	}
+
+	/**
+	 * Traces the candidates as one batch and returns the index of the first 
+	 * candidate whose trace is a counterexample, or -1 if there is none.
+	 */
+	public int findCounterExample(List<Word<PSymbolInstance>> candidates, Hypothesis hyp) {
+		setHypothesis(hyp);
+		List<Word<PSymbolInstance>> traced = traces(candidates);
+		for (int i = 0; i < traced.size(); i++) {
+			if (isCounterExample(traced.get(i), hyp)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void setHypothesis(Hypothesis hyp) {
+		if (hyp != hypothesis) {
+			hypothesis = hyp;
+			traces.clear();
+			verdicts.clear();
+		}
+	}
+
+	private List<Word<PSymbolInstance>> traceOnSUL(List<Word<PSymbolInstance>> queries) {
+		if (workerOracles == null || queries.size() < 2) {
+			return sulOracle.traces(queries);
+		}
+
+		int workers = Math.min(workerOracles.size(), queries.size());
+		List<Future<List<Word<PSymbolInstance>>>> futures = new ArrayList<>(workers);
+		for (int w = 0; w < workers; w++) {
+			List<Word<PSymbolInstance>> chunk = queries.subList(w * queries.size() / workers, 
+					(w + 1) * queries.size() / workers);
+			IOOracle oracle = workerOracles.get(w);
+			futures.add(workerPool.submit(() -> oracle.traces(chunk)));
+		}
+		List<Word<PSymbolInstance>> results = new ArrayList<>(queries.size());
+		try {
+			for (Future<List<Word<PSymbolInstance>>> f : futures) {
+				results.addAll(f.get());
+			}
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() 
+					: new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		return results;
+	}
+}
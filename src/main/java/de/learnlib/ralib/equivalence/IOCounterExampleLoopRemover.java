@@ -25,6 +25,7 @@ import java.util.Map;
 
 import de.learnlib.oracles.DefaultQuery;
 import de.learnlib.ralib.automata.RALocation;
+import de.learnlib.ralib.automata.RARun;
 import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.learning.Hypothesis;
 import de.learnlib.ralib.oracles.io.IOOracle;
@@ -52,13 +53,15 @@ public class IOCounterExampleLoopRemover implements IOCounterExampleOptimizer {
         }
     }
 
-    private final IOOracle sulOracle;
+    private final CounterExampleTester tester;
     private RegisterAutomaton hypothesis;
-	private HypVerifier hypVerifier;
 
     public IOCounterExampleLoopRemover(IOOracle sulOracle, HypVerifier hypVerifier) {
-        this.sulOracle = sulOracle;
-        this.hypVerifier = hypVerifier;
+        this(new CounterExampleTester(sulOracle, hypVerifier, 1));
+    }
+
+    public IOCounterExampleLoopRemover(CounterExampleTester tester) {
+        this.tester = tester;
     }
 
     @Override
@@ -92,22 +95,27 @@ public class IOCounterExampleLoopRemover implements IOCounterExampleOptimizer {
 
         Collections.sort(sizes);
         Collections.reverse(sizes);
+        List<Word<PSymbolInstance>> candidates = new ArrayList<>();
         for (Integer i : sizes) {
             //System.out.println("Checking length " + i);            
             List<Loop> list = loops.get(i);
             for (Loop loop : list) {
-                Word<PSymbolInstance> shorter = shorten(ce, loop);
-                // System.out.println("shorter:" + shorter);
-                Word<PSymbolInstance> candidate = sulOracle.trace(shorter);
+                candidates.add(shorten(ce, loop));
+            }
+        }
+        
+        for (int from = 0; from < candidates.size(); from += tester.getBatchSize()) {
+            List<Word<PSymbolInstance>> batch = candidates.subList(from, 
+                    Math.min(candidates.size(), from + tester.getBatchSize()));
+            int found = tester.findCounterExample(batch, hyp);
+            if (found >= 0) {
+                Word<PSymbolInstance> candidate = tester.trace(batch.get(found));
                 // System.out.println("candidate:" + candidate);
-                DefaultQuery<PSymbolInstance, Boolean> ceQuery = new DefaultQuery<PSymbolInstance, Boolean>(candidate, Boolean.TRUE);
-                if (hypVerifier.isCEForHyp(ceQuery, hypothesis)) {
-                	Word<PSymbolInstance> optimized = optimize(candidate);
-                    return removeLoops(optimized, hyp);
-                }
+            	Word<PSymbolInstance> optimized = optimize(candidate);
+                return removeLoops(optimized, hyp);
             }
         }
-        return sulOracle.trace(ce);
+        return tester.trace(ce);
     }
 
     private Word<PSymbolInstance> shorten(Word<PSymbolInstance> ce, Loop loop) {
@@ -122,10 +130,12 @@ public class IOCounterExampleLoopRemover implements IOCounterExampleOptimizer {
      */
     private Word<PSymbolInstance> optimize(Word<PSymbolInstance> ce) {
     	int i;
+    	RARun run = hypothesis.getInitialRun();
     	for (i=0; i < ce.length(); i += 2) {
-    		Word<PSymbolInstance> prefix = ce.prefix(i);
-    		RALocation location = hypothesis.getLocation(prefix);
-    		if (location == null)  
+    		if (i > 0) {
+    			run = step(run, ce.getSymbol(i-2), ce.getSymbol(i-1));
+    		}
+    		if (run == null)  
     			break;
     	}
     	return ce.prefix(i-1);
@@ -133,12 +143,25 @@ public class IOCounterExampleLoopRemover implements IOCounterExampleOptimizer {
 
     private RALocation[] execute(Word<PSymbolInstance> ce) {
         List<RALocation> trace = new ArrayList<>();
+        RARun run = hypothesis.getInitialRun();
         for (int i = 0; i < ce.length(); i += 2) {
-            Word<PSymbolInstance> prefix = ce.prefix(i);
-            trace.add(hypothesis.getLocation(prefix));
+            if (i > 0) {
+                run = step(run, ce.getSymbol(i-2), ce.getSymbol(i-1));
+            }
+            trace.add(run == null ? null : run.getLocation());
         }
 
         return trace.toArray(new RALocation[]{});
     }
 
+    private RARun step(RARun run, PSymbolInstance in, PSymbolInstance out) {
+        if (run != null) {
+            run = run.step(in);
+        }
+        if (run != null) {
+            run = run.step(out);
+        }
+        return run;
+    }
+
 }
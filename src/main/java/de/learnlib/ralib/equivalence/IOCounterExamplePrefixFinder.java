@@ -16,6 +16,9 @@
  */
 package de.learnlib.ralib.equivalence;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.learnlib.oracles.DefaultQuery;
 import de.learnlib.ralib.learning.Hypothesis;
 import de.learnlib.ralib.oracles.io.IOOracle;
@@ -28,12 +31,14 @@ import net.automatalib.words.Word;
  */
 public class IOCounterExamplePrefixFinder implements IOCounterExampleOptimizer {
 
-    private final IOOracle sulOracle;
-	private HypVerifier hypVerifier;
+    private final CounterExampleTester tester;
 
     public IOCounterExamplePrefixFinder(IOOracle sulOracle, HypVerifier hypVerifier) {
-        this.sulOracle = sulOracle;
-        this.hypVerifier = hypVerifier;
+        this(new CounterExampleTester(sulOracle, hypVerifier, 1));
+    }
+
+    public IOCounterExamplePrefixFinder(CounterExampleTester tester) {
+        this.tester = tester;
     }
 
     @Override
@@ -49,15 +54,15 @@ public class IOCounterExamplePrefixFinder implements IOCounterExampleOptimizer {
 
         while (prefixLength < ce.length()) {
 
-            Word<PSymbolInstance> prefix = ce.prefix(prefixLength);
-            Word<PSymbolInstance> candidate = sulOracle.trace(prefix);
-            DefaultQuery<PSymbolInstance, Boolean> ceQuery = 
-            		new DefaultQuery<PSymbolInstance, Boolean>(candidate, Boolean.TRUE);
-
-            if (hypVerifier.isCEForHyp(ceQuery, hypothesis)) {
-                return candidate;
+            List<Word<PSymbolInstance>> candidates = new ArrayList<>();
+            for (int l = prefixLength; l < ce.length() && candidates.size() < tester.getBatchSize(); l += 2) {
+                candidates.add(ce.prefix(l));
+            }
+            int found = tester.findCounterExample(candidates, hypothesis);
+            if (found >= 0) {
+                return tester.trace(candidates.get(found));
             }
-            prefixLength += 2;
+            prefixLength += 2 * candidates.size();
         }
         return ce;
     }
@@ -16,6 +16,9 @@
  */
 package de.learnlib.ralib.equivalence;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.learnlib.oracles.DefaultQuery;
 import de.learnlib.ralib.learning.Hypothesis;
 import de.learnlib.ralib.oracles.io.IOOracle;
@@ -28,12 +31,14 @@ import net.automatalib.words.Word;
  */
 public class IOCounterExamplePrefixReplacer implements IOCounterExampleOptimizer {
 
-    private final IOOracle sulOracle;
-	private HypVerifier hypVerifier;
+    private final CounterExampleTester tester;
 
     public IOCounterExamplePrefixReplacer(IOOracle sulOracle, HypVerifier hypVerifier) {
-        this.sulOracle = sulOracle;
-        this.hypVerifier = hypVerifier;
+        this(new CounterExampleTester(sulOracle, hypVerifier, 1));
+    }
+
+    public IOCounterExamplePrefixReplacer(CounterExampleTester tester) {
+        this.tester = tester;
     }
 
     @Override
@@ -49,22 +54,27 @@ public class IOCounterExamplePrefixReplacer implements IOCounterExampleOptimizer
         int suffixLength = ce.length() - 2;
         while (suffixLength > 2) {
 
-            int prefixLength = ce.length() - suffixLength;
-
-            Word<PSymbolInstance> prefix = ce.prefix(prefixLength);
-            Word<PSymbolInstance> suffix = ce.suffix(suffixLength);
-
-            prefix = hypothesis.transformAccessSequence(prefix);
-            if (prefix == null) {
-                return ce;
+            // candidates for decreasing suffix lengths, until the access sequence is undefined
+            List<Word<PSymbolInstance>> candidates = new ArrayList<>();
+            boolean undefined = false;
+            for (int l = suffixLength; l > 2 && candidates.size() < tester.getBatchSize(); l -= 2) {
+                Word<PSymbolInstance> prefix = hypothesis.transformAccessSequence(ce.prefix(ce.length() - l));
+                if (prefix == null) {
+                    undefined = true;
+                    break;
+                }
+                candidates.add(prefix.concat(ce.suffix(l)));
             }
-            Word<PSymbolInstance> candidate = sulOracle.trace(prefix.concat(suffix));
-            DefaultQuery<PSymbolInstance, Boolean> ceQuery = new DefaultQuery<PSymbolInstance, Boolean>(candidate, Boolean.TRUE);
 
-            if (candidate != null && hypVerifier.isCEForHyp(ceQuery, hypothesis)) {
-                ce = candidate;
+            int found = tester.findCounterExample(candidates, hypothesis);
+            if (found >= 0) {
+                ce = tester.trace(candidates.get(found));
+                suffixLength -= 2 * (found + 1);
+            } else if (undefined) {
+                return ce;
+            } else {
+                suffixLength -= 2 * candidates.size();
             }
-            suffixLength -= 2;
         }
         return ce;
     }
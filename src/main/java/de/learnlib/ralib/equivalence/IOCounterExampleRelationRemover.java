@@ -18,10 +18,10 @@ package de.learnlib.ralib.equivalence;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import de.learnlib.oracles.DefaultQuery;
-import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
 import de.learnlib.ralib.data.DataValue;
@@ -47,11 +47,9 @@ public class IOCounterExampleRelationRemover implements IOCounterExampleOptimize
     
     private final Map<DataType, Theory> teachers;
 
-    private final IOOracle sulOracle;
+    private final CounterExampleTester tester;
     
-    private RegisterAutomaton hypothesis;
-
-	private HypVerifier hypVerifier;
+    private Hypothesis hypothesis;
     
         
     public IOCounterExampleRelationRemover(
@@ -60,12 +58,19 @@ public class IOCounterExampleRelationRemover implements IOCounterExampleOptimize
             ConstraintSolver solver,
             IOOracle sulOracle, 
             HypVerifier hypVerifier) {
+        this(teachers, constants, solver, new CounterExampleTester(sulOracle, hypVerifier, 1));
+    }
+        
+    public IOCounterExampleRelationRemover(
+            Map<DataType, Theory> teachers,
+            Constants constants, 
+            ConstraintSolver solver,
+            CounterExampleTester tester) {
         
         this.teachers = teachers;
         this.solver = solver;
-        this.sulOracle = sulOracle;
+        this.tester = tester;
         this.builder = new SliceBuilder(teachers, constants, solver);
-        this.hypVerifier = hypVerifier;
     }
     
     @Override
@@ -85,35 +90,38 @@ public class IOCounterExampleRelationRemover implements IOCounterExampleOptimize
             dvals.put(idx++, v);
         }
         
-        for (int i=startIdx; i<= dvals.size(); i++) {
-            Map<Integer, DataValue> instMap = new HashMap<>(dvals);
-            DataType type = dvals.get(i).getType();
-            Theory theory = teachers.get(type);            
-            DataValue fresh = theory.getFreshValue(theory.getPotential(
-                    new ArrayList<>(DataWords.valSet(ce, type))));
+        int i = startIdx;
+        while (i <= dvals.size()) {
+            List<Word<PSymbolInstance>> candidates = new ArrayList<>();
+            for (; i <= dvals.size() && candidates.size() < tester.getBatchSize(); i++) {
+                Map<Integer, DataValue> instMap = new HashMap<>(dvals);
+                DataType type = dvals.get(i).getType();
+                Theory theory = teachers.get(type);            
+                DataValue fresh = theory.getFreshValue(theory.getPotential(
+                        new ArrayList<>(DataWords.valSet(ce, type))));
 
-            instMap.put(i, fresh);           
-            Word<PSymbolInstance> cand = DataWords.instantiate(DataWords.actsOf(ce), instMap);
-            // System.out.println(cand);            
-            Word<PSymbolInstance> candidate = sulOracle.trace(cand);
-            
-            // System.out.println("---");
-            // System.out.println("CE " + builder.sliceFromWord(Word.epsilon(), ce));
-            // System.out.println("CA " + builder.sliceFromWord(Word.epsilon(), candidate));
-            
-            if (builder.sliceFromWord(Word.epsilon(), ce).equals(
-                    builder.sliceFromWord(Word.epsilon(), candidate))) {
-                // System.out.println("eq");
-                continue;
+                instMap.put(i, fresh);           
+                candidates.add(DataWords.instantiate(DataWords.actsOf(ce), instMap));
             }
+            // System.out.println(candidates);            
             
-            DefaultQuery<PSymbolInstance, Boolean> ceQuery = new DefaultQuery<PSymbolInstance, Boolean>(candidate, Boolean.TRUE);
-            
-           //System.out.println(candidate);
-            if (hypVerifier.isCEForHyp(ceQuery, hypothesis)) {
-                //System.out.println("Found Prefix CE!!!");
-                return reduceCe(candidate, startIdx+1);
-            }            
+            for (Word<PSymbolInstance> candidate : tester.traces(candidates)) {
+                // System.out.println("---");
+                // System.out.println("CE " + builder.sliceFromWord(Word.epsilon(), ce));
+                // System.out.println("CA " + builder.sliceFromWord(Word.epsilon(), candidate));
+                
+                if (builder.sliceFromWord(Word.epsilon(), ce).equals(
+                        builder.sliceFromWord(Word.epsilon(), candidate))) {
+                    // System.out.println("eq");
+                    continue;
+                }
+                
+               //System.out.println(candidate);
+                if (tester.isCounterExample(candidate, hypothesis)) {
+                    //System.out.println("Found Prefix CE!!!");
+                    return reduceCe(candidate, startIdx+1);
+                }            
+            }
         }
                         
         return ce;
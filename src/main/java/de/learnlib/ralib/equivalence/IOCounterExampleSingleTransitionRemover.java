@@ -1,5 +1,8 @@
 package de.learnlib.ralib.equivalence;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.learnlib.oracles.DefaultQuery;
 import de.learnlib.ralib.learning.Hypothesis;
 import de.learnlib.ralib.oracles.io.IOOracle;
@@ -8,27 +11,30 @@ import net.automatalib.words.Word;
 
 public class IOCounterExampleSingleTransitionRemover implements IOCounterExampleOptimizer {
 
-	private IOOracle sulOracle;
-	private HypVerifier hypVerifier;
+	private final CounterExampleTester tester;
 
 	public IOCounterExampleSingleTransitionRemover(IOOracle sulOracle, HypVerifier hypVerifier) {
-		this.sulOracle = sulOracle;
-		this.hypVerifier = hypVerifier;
+		this(new CounterExampleTester(sulOracle, hypVerifier, 1));
+	}
+
+	public IOCounterExampleSingleTransitionRemover(CounterExampleTester tester) {
+		this.tester = tester;
 	}
 
 	public DefaultQuery<PSymbolInstance, Boolean> optimizeCE(Word<PSymbolInstance> ce, Hypothesis hyp) {
 		Word<PSymbolInstance> reducedCe = ce;
 		int transIndex = 0;
 		while (transIndex < reducedCe.length()) {
-			Word<PSymbolInstance> testCe = reducedCe.subWord(0, transIndex)
-					.concat(reducedCe.subWord(transIndex + 2, reducedCe.length()));
-			Word<PSymbolInstance> tracedCe = sulOracle.trace(testCe);
-			DefaultQuery<PSymbolInstance, Boolean> ceQuery = new DefaultQuery<PSymbolInstance, Boolean>(tracedCe,
-					Boolean.TRUE);
-			if (hypVerifier.isCEForHyp(ceQuery, hyp)) {
-				reducedCe = tracedCe;
+			List<Word<PSymbolInstance>> candidates = new ArrayList<>();
+			for (int i = transIndex; i < reducedCe.length() && candidates.size() < tester.getBatchSize(); i += 2) {
+				candidates.add(reducedCe.subWord(0, i).concat(reducedCe.subWord(i + 2, reducedCe.length())));
+			}
+			int found = tester.findCounterExample(candidates, hyp);
+			if (found >= 0) {
+				reducedCe = tester.trace(candidates.get(found));
+				transIndex += 2 * found;
 			} else {
-				transIndex += 2;
+				transIndex += 2 * candidates.size();
 			}
 		}
 		return new DefaultQuery<>(reducedCe, Boolean.TRUE);
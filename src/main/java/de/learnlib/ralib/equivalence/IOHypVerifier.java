@@ -7,7 +7,7 @@ import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
-import de.learnlib.ralib.sul.SimulatorSUL;
+import de.learnlib.ralib.sul.CompiledSimulatorSUL;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.words.PSymbolInstance;
 import net.automatalib.words.Word;
@@ -30,7 +30,7 @@ public class IOHypVerifier implements HypVerifier {
 		if (!sulQuery.getOutput()) {
 			return hyp.accepts(sulQuery.getInput());
 		} else {
-			SimulatorSUL hypSim = new SimulatorSUL(hyp, teachers, constants);
+			CompiledSimulatorSUL hypSim = new CompiledSimulatorSUL(hyp, teachers, constants);
 			int i = 0;
 			Word<PSymbolInstance> sulTrace = sulQuery.getInput();
 			hypSim.pre();
@@ -6,7 +6,7 @@ import java.util.Random;
 import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
-import de.learnlib.ralib.sul.SimulatorSUL;
+import de.learnlib.ralib.sul.CompiledSimulatorSUL;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
@@ -21,7 +21,7 @@ public class IORandomWalkTraceGenerator implements TraceGenerator{
 	private ParameterizedSymbol[] inputs;
 	protected Random rand;
 	private ParameterizedSymbol error;
-	private SimulatorSUL target;
+	private CompiledSimulatorSUL target;
 	private InputSelector inpSelector;
 
 	public IORandomWalkTraceGenerator(Random rand, double stopProbability, int maxDepth,
@@ -53,7 +53,7 @@ public class IORandomWalkTraceGenerator implements TraceGenerator{
 	 */
 	protected Word<PSymbolInstance> randomTraceFromPrefix( Word<PSymbolInstance> inLocPrefix, RegisterAutomaton hyp) {
 		int depth = 0;
-		this.target = new SimulatorSUL(hyp, teachers, constants);
+		this.target = new CompiledSimulatorSUL(hyp, teachers, constants);
 		target.pre();
 		
 		for (int i=0; i<inLocPrefix.length(); i=i+2) {
@@ -63,7 +63,7 @@ public class IORandomWalkTraceGenerator implements TraceGenerator{
 		Word<PSymbolInstance> trace = inLocPrefix;
 		PSymbolInstance out;
 		do {
-			PSymbolInstance next = this.inpSelector.nextInput(trace, hyp);
+			PSymbolInstance next = this.inpSelector.nextInput(trace, hyp, target);
 			if (next == null) {
 				break;
 			}
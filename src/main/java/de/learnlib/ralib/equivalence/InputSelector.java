@@ -6,6 +6,7 @@ import java.util.Random;
 import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.sul.CompiledSimulatorSUL;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
@@ -30,4 +31,14 @@ public abstract class InputSelector {
 	
 	
 	protected abstract PSymbolInstance nextInput(Word<PSymbolInstance> run,  RegisterAutomaton hyp);
+	
+	/**
+	 * Selects the next input of a walk that is simulated on the hypothesis 
+	 * by state, which has been stepped along run. Selectors can take the 
+	 * location, registers and seen values from state instead of running 
+	 * the hypothesis on run. The default ignores state.
+	 */
+	protected PSymbolInstance nextInput(Word<PSymbolInstance> run,  RegisterAutomaton hyp, CompiledSimulatorSUL state) {
+		return nextInput(run, hyp);
+	}
 }
@@ -6,12 +6,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.Function;
 
 import de.learnlib.ralib.automata.RALocation;
 import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
 import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.VarValuation;
+import de.learnlib.ralib.sul.CompiledSimulatorSUL;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.words.DataWords;
 import de.learnlib.ralib.words.PSymbolInstance;
@@ -28,7 +31,6 @@ public class RandomSymbolSelector extends InputSelector{
 	private double drawHistory;
 	private double drawRelated;
 	private boolean uniform;
-	private RegisterAutomaton hyp;
 
 	public RandomSymbolSelector(Random rand, Map<DataType, Theory> teachers, Constants constants,
 			boolean uniform, double regProb, double hisProb, double relatedProb,
@@ -42,16 +44,27 @@ public class RandomSymbolSelector extends InputSelector{
 
 	
 	protected PSymbolInstance nextInput(Word<PSymbolInstance> run, RegisterAutomaton hyp) {
-		this.hyp = hyp;
 		ParameterizedSymbol ps = nextSymbol(run);
-		RALocation location = this.hyp.getLocation(run);
+		RALocation location = hyp.getLocation(run);
 		if (location == null)
 			return null;
-		PSymbolInstance psi = nextDataValues(run, ps, rand);
+		VarValuation registers = hyp.getRegisterValuation(run);
+		PSymbolInstance psi = nextDataValues(ps, t -> DataWords.valSet(run, t), registers, rand);
+		return psi;
+	}
+
+	@Override
+	protected PSymbolInstance nextInput(Word<PSymbolInstance> run, RegisterAutomaton hyp, CompiledSimulatorSUL state) {
+		ParameterizedSymbol ps = nextSymbol(run);
+		RALocation location = state.getLocation();
+		if (location == null)
+			return null;
+		PSymbolInstance psi = nextDataValues(ps, state::getValues, state.getRegisterValuation(), rand);
 		return psi;
 	}
 	
-	private PSymbolInstance nextDataValues(Word<PSymbolInstance> run, ParameterizedSymbol ps, Random rand) {
+	private PSymbolInstance nextDataValues(ParameterizedSymbol ps, Function<DataType, Set<? extends DataValue<?>>> seen, 
+			VarValuation registers, Random rand) {
 
 		DataValue[] vals = new DataValue[ps.getArity()];
 
@@ -60,9 +73,9 @@ public class RandomSymbolSelector extends InputSelector{
 			Theory teacher = teachers.get(t);
 			// TODO: generics hack?
 			// TODO: add constants?
-			final Set<DataValue<Object>> oldSet = DataWords.valSet(run, t);
+			final Set<? extends DataValue<?>> oldSet = seen.apply(t);
 			
-			List<DataValue<?>> regs = getRegisterValuesForType(run, t);
+			List<DataValue<?>> regs = getRegisterValuesForType(registers, t);
 			Double draw = rand.nextDouble();
 			if (draw <= drawRegister && !regs.isEmpty()) {
 				vals[i] = pick(regs);
@@ -97,9 +110,9 @@ public class RandomSymbolSelector extends InputSelector{
 		return list.get(rand.nextInt(list.size()));
 	}
 
-	private List<DataValue<?>> getRegisterValuesForType(Word<PSymbolInstance> run, DataType t) {
+	private List<DataValue<?>> getRegisterValuesForType(VarValuation registers, DataType t) {
 		List<DataValue<?>> values = new ArrayList<>();
-		values.addAll(hyp.getRegisterValuation(run).values(t));
+		values.addAll(registers.values(t));
 		values.addAll(constants.values(t));
 		return values;
 	}
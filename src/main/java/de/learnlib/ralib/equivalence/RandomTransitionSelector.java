@@ -7,12 +7,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import de.learnlib.ralib.automata.RALocation;
 import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.automata.Transition;
 import de.learnlib.ralib.automata.TransitionGuard;
+import de.learnlib.ralib.automata.output.OutputTransition;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
 import de.learnlib.ralib.data.DataValue;
@@ -20,8 +22,8 @@ import de.learnlib.ralib.data.ParValuation;
 import de.learnlib.ralib.data.SymbolicDataValue;
 import de.learnlib.ralib.data.SymbolicDataValue.Parameter;
 import de.learnlib.ralib.data.VarValuation;
-import de.learnlib.ralib.data.util.SymbolicDataValueGenerator;
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
+import de.learnlib.ralib.sul.CompiledSimulatorSUL;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.words.DataWords;
 import de.learnlib.ralib.words.PSymbolInstance;
@@ -50,26 +52,33 @@ public class RandomTransitionSelector extends InputSelector{
 
 	protected PSymbolInstance nextInput(Word<PSymbolInstance> run, RegisterAutomaton hyp) {
 		RALocation location = hyp.getLocation(run);
-		List<Transition> transitions = hyp.getInputTransitions().stream()
-				.filter(tr -> tr.getSource().equals(location)).collect(Collectors.toList());
+		return nextInput(location, t -> DataWords.valSet(run, t), hyp.getRegisterValuation(run));
+	}
+
+	@Override
+	protected PSymbolInstance nextInput(Word<PSymbolInstance> run, RegisterAutomaton hyp, CompiledSimulatorSUL state) {
+		return nextInput(state.getLocation(), state::getValues, state.getRegisterValuation());
+	}
+
+	private PSymbolInstance nextInput(RALocation location, Function<DataType, Set<? extends DataValue<?>>> seen, 
+			VarValuation regVal) {
+		List<Transition> transitions = location.getOut().stream()
+				.filter(tr -> !(tr instanceof OutputTransition)).collect(Collectors.toList());
 		Transition trans = transitions.get(rand.nextInt(transitions.size()));
-		PSymbolInstance input = concretizeInputTransition(trans, run, hyp);
+		PSymbolInstance input = concretizeInputTransition(trans, seen, regVal);
 		return input;
 	}
 
-	private PSymbolInstance concretizeInputTransition(Transition trans, Word<PSymbolInstance> run, RegisterAutomaton hyp) {
-		Set<DataValue> values = DataWords.valSet(run);
+	private PSymbolInstance concretizeInputTransition(Transition trans, Function<DataType, Set<? extends DataValue<?>>> seen, 
+			VarValuation regVal) {
 		ParameterizedSymbol input = trans.getLabel();
-		DataType[] types = input.getPtypes();
-		VarValuation regVal = hyp.getRegisterValuation(run);
 		ParValuation parVal = new ParValuation();
-		SymbolicDataValueGenerator.ParameterGenerator pgen = new SymbolicDataValueGenerator.ParameterGenerator();
-		PSymbolInstance cInput = computeRandomValuationForTrans(input, run, teachers, trans.getGuard(), regVal, parVal, this.constants, 0);
+		PSymbolInstance cInput = computeRandomValuationForTrans(input, seen, teachers, trans.getGuard(), regVal, parVal, this.constants, 0);
 		return cInput;
 	}
 
 
-	private PSymbolInstance computeRandomValuationForTrans(ParameterizedSymbol ps, Word<PSymbolInstance> run, Map<DataType, Theory> teachers, 
+	private PSymbolInstance computeRandomValuationForTrans(ParameterizedSymbol ps, Function<DataType, Set<? extends DataValue<?>>> seen, Map<DataType, Theory> teachers, 
 			TransitionGuard transGuard, VarValuation regValuation, ParValuation currentValuation, Constants consts, int crtParam) {
 		if (crtParam ==ps.getArity()) {
 			transGuard.getCondition();
@@ -82,7 +91,7 @@ public class RandomTransitionSelector extends InputSelector{
 		} else {
 			DataType paramType = ps.getPtypes()[crtParam];
 			Theory teacher = teachers.get(paramType);
-			List<DataValue<Object>> historyValues = new ArrayList<>(DataWords.valSet(run, paramType));
+			List<DataValue> historyValues = new ArrayList<>(seen.apply(paramType));
 			historyValues.addAll(currentValuation.values(paramType));
 			historyValues.addAll(consts.values(paramType));
 			List hisList = new ArrayList<>(historyValues);
@@ -139,7 +148,7 @@ public class RandomTransitionSelector extends InputSelector{
 				if (nextVal != null) {
 					ParValuation parValuation = new ParValuation(currentValuation);
 					parValuation.put(param, nextVal);
-					PSymbolInstance inst = computeRandomValuationForTrans( ps, run,teachers, transGuard, regValuation, parValuation, consts, crtParam+1);
+					PSymbolInstance inst = computeRandomValuationForTrans( ps, seen, teachers, transGuard, regValuation, parValuation, consts, crtParam+1);
 					if (inst != null)
 						return inst;
 				}
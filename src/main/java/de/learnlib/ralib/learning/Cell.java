@@ -23,6 +23,7 @@ import de.learnlib.ralib.data.VarMapping;
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
 import de.learnlib.ralib.oracles.TreeOracle;
 import de.learnlib.ralib.oracles.TreeQueryResult;
+import de.learnlib.ralib.oracles.mto.SDTLeaf;
 import de.learnlib.ralib.solver.ConstraintSolver;
 import de.learnlib.ralib.words.PSymbolInstance;
 import java.util.Collection;
@@ -93,10 +94,22 @@ final class Cell {
      * @return
      */
     boolean couldBeEquivalentTo(Cell other) {
-        return this.parsInVars.typedSize().equals(other.parsInVars.typedSize());
+        // leaves are never equivalent to inner SDTs
+        return this.parsInVars.typedSize().equals(other.parsInVars.typedSize())
+                && (this.sdt instanceof SDTLeaf) == (other.sdt instanceof SDTLeaf);
         //TODO: call preliminary checks on SDTs
     }
 
+    /**
+     * returns a hash code that is equal for cells that could be equivalent 
+     * (see {@link #couldBeEquivalentTo(Cell)}).
+     *
+     * @return
+     */
+    int fingerprint() {
+        return 31 * this.parsInVars.typedSize().hashCode() + (this.sdt instanceof SDTLeaf ? 1 : 0);
+    }
+
     /**
      * computes a cell for a prefix and a symbolic suffix.
      *
@@ -130,6 +143,20 @@ final class Cell {
     	}
     }
 
+    /**
+     * creates a cell from the result of a tree query for a prefix 
+     * and a symbolic suffix.
+     *
+     * @param prefix
+     * @param suffix
+     * @param tqr
+     * @return
+     */
+    static Cell fromTreeQueryResult(Word<PSymbolInstance> prefix, 
+            GeneralizedSymbolicSuffix suffix, TreeQueryResult tqr) {
+        return new Cell(prefix, suffix, tqr.getSdt(), tqr.getPiv());
+    }
+
     GeneralizedSymbolicSuffix getSuffix() {
         return this.suffix;
     }
@@ -19,6 +19,7 @@ package de.learnlib.ralib.learning;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,7 +33,6 @@ import de.learnlib.ralib.data.DataType;
 import de.learnlib.ralib.data.PIV;
 import de.learnlib.ralib.data.SymbolicDataValue.Parameter;
 import de.learnlib.ralib.data.VarMapping;
-import de.learnlib.ralib.data.util.PIVRemappingIterator;
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
 import de.learnlib.ralib.oracles.Branching;
 import de.learnlib.ralib.oracles.TreeOracle;
@@ -97,16 +97,12 @@ class Component {
             return false;
         }
 
-        PIVRemappingIterator iterator = new PIVRemappingIterator(
-                r.getParsInVars(), primeRow.getParsInVars());
-
-        for (VarMapping m : iterator) {
-            if (r.isEquivalentTo(primeRow, m, solver)) {
-                this.otherRows.put(r, m);
-                return true; 
-            }
+        VarMapping m = r.findRemapping(primeRow, solver);
+        if (m == null) {
+            return false;
         }
-        return false;
+        this.otherRows.put(r, m);
+        return true;
     }
 
     void start(TreeOracle oracle, ParameterizedSymbol... inputs) {
@@ -129,27 +125,46 @@ class Component {
         }
     }
 
-    void addSuffix(GeneralizedSymbolicSuffix suffix, TreeOracle oracle) {
+    /**
+     * adds the branching of this component to an exception raised while
+     * extending its rows.
+     */
+    DecoratedRuntimeException decorate(DecoratedRuntimeException exc) {
+        return exc.addDecoration("branching", this.branching);
+    }
+
+    /**
+     * returns the rows of this component that have to be extended 
+     * by a new suffix.
+     *
+     * @param suffix
+     * @return 
+     */
+    List<Row> getRowsForSuffix(GeneralizedSymbolicSuffix suffix) {
 
         if (ioMode && suffix.getActions().length() > 0 && 
                 getAccessSequence().length() > 0 && !isAccepting()) {
             // log.log(Level.INFO, "Not adding suffix " + suffix + " to error component " + getAccessSequence());
-            return;
+            return Collections.emptyList();
         }
         
-        try {
-        	primeRow.addSuffix(suffix, oracle);
-        } catch(DecoratedRuntimeException exc) { 
-        	throw exc.addDecoration("branching", this.branching)
-//        	.addDecoration("observation table", obs)
-        	;
-        }
+        List<Row> rows = new ArrayList<>(otherRows.size() + 1);
+        rows.add(primeRow);
+        rows.addAll(otherRows.keySet());
+        return rows;
+    }
+
+    /**
+     * re-checks the other rows of this component after a suffix has been 
+     * added to all rows of the component. Rows that are no longer equivalent
+     * to the prime row are moved to new components.
+     */
+    void splitRows() {
         Map<Row, VarMapping> otherOld = new LinkedHashMap<>(otherRows);
         otherRows.clear();
         List<Component> newComponents = new ArrayList<>();
 
         for (Row r : otherOld.keySet()) {
-            r.addSuffix(suffix, oracle);
             if (addRow(r)) {
                 continue;
             }
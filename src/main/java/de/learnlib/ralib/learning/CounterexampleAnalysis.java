@@ -16,7 +16,8 @@
  */
 package de.learnlib.ralib.learning;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -38,11 +39,13 @@ import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.words.DataWords;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.commons.util.Pair;
 import net.automatalib.words.Word;
 
 /**
  * Analyzes Counterexamples in a binary search
- * as described in SEFM 2014.
+ * as described in SEFM 2014. Uses a linear search 
+ * from the end of the counterexample by default.
  * 
  * @author falk
  */
@@ -64,8 +67,37 @@ public class CounterexampleAnalysis {
 
     private final ConstraintSolver solver;
     
+    private Search search = Search.LINEAR;
+    
+    private int probes = 1;
+    
+    /**
+     * Searches for the index of a counterexample at which the hypothesis is refined.
+     */
+    public static enum Search {LINEAR, BINARY, EXPONENTIAL, PARALLEL};
+    
     private static enum IndexStatus {HAS_CE_AND_REFINES, HAS_CE_NO_REFINE, NO_CE};
 
+    private static class IndexQuery {
+        
+        private final int idx;
+        private final Word<PSymbolInstance> prefix;
+        private final Word<PSymbolInstance> location;
+        private final Word<PSymbolInstance> transition;
+        private final Slice slice;
+        private final GeneralizedSymbolicSuffix symSuffix;
+
+        private IndexQuery(int idx, Word<PSymbolInstance> prefix, Word<PSymbolInstance> location, 
+                Word<PSymbolInstance> transition, Slice slice, GeneralizedSymbolicSuffix symSuffix) {
+            this.idx = idx;
+            this.prefix = prefix;
+            this.location = location;
+            this.transition = transition;
+            this.slice = slice;
+            this.symSuffix = symSuffix;
+        }
+    }
+
     private static class IndexResult {
         
         private final int idx;
@@ -110,7 +142,7 @@ public class CounterexampleAnalysis {
     }
     
     Optional<CEAnalysisResult> analyzeCounterexample(Word<PSymbolInstance> ce) {
-        IndexResult result  = linearBackWardsSearch(ce);
+        IndexResult result  = search(ce);
 
         if (result.idx < 0) {
             return Optional.empty();
@@ -131,8 +163,16 @@ public class CounterexampleAnalysis {
         return Optional.of(new CEAnalysisResult(prefix, symSuffix));
     } 
 
-    
-    private IndexResult computeIndex(Word<PSymbolInstance> ce, int idx) {
+    /**
+     * Sets the search for an index of the counterexample. The parallel search
+     * probes the given number of indices at once.
+     */
+    void setSearch(Search search, int probes) {
+        this.search = search;
+        this.probes = Math.max(1, probes);
+    }
+
+    private IndexQuery prepareIndex(Word<PSymbolInstance> ce, int idx) {
         
         Word<PSymbolInstance> prefix = ce.prefix(idx);
         // System.out.println(idx + "  " + prefix);        
@@ -140,7 +180,7 @@ public class CounterexampleAnalysis {
         Word<PSymbolInstance> transition = hypothesis.transformTransitionSequence(
             ce.prefix(idx+1)); 
         if (transition == null)
-        	return  new IndexResult(idx, IndexStatus.NO_CE, null);
+        	return null;
         
         Word<PSymbolInstance> suffix = ce.suffix(ce.length() -idx);        
         
@@ -153,51 +193,82 @@ public class CounterexampleAnalysis {
         
         // System.out.println("exhaustive suffix: " + symSuffix);
         // System.out.println("location: " + location);
-        TreeQueryResult resHyp = hypOracle.treeQuery(location, symSuffix);
-        TreeQueryResult resSul = sulOracle.treeQuery(location, symSuffix);
+        return new IndexQuery(idx, prefix, location, transition, slice, symSuffix);
+    }
+    
+    private IndexResult evaluateIndex(IndexQuery q, TreeQueryResult resHyp, TreeQueryResult resSul) {
         
         // System.out.println("HYP (initial suffix): " + resHyp);
         // System.out.println("SUL (initial suffix): " + resSul);
                 
         log.log(Level.FINE,"------------------------------------------------------");
-        log.log(Level.FINE,"Computing index: " + idx);
-        log.log(Level.FINE,"Prefix: " + prefix);
-        log.log(Level.FINE,"SymSuffix: " + symSuffix);
-        log.log(Level.FINE,"Location: " + location);
-        log.log(Level.FINE,"Transition: " + transition);
+        log.log(Level.FINE,"Computing index: " + q.idx);
+        log.log(Level.FINE,"Prefix: " + q.prefix);
+        log.log(Level.FINE,"SymSuffix: " + q.symSuffix);
+        log.log(Level.FINE,"Location: " + q.location);
+        log.log(Level.FINE,"Transition: " + q.transition);
         log.log(Level.FINE,"PIV HYP: " + resHyp.getPiv());
         log.log(Level.FINE,"SDT HYP: " + resHyp.getSdt());
         log.log(Level.FINE,"PIV SYS: " + resSul.getPiv());
         log.log(Level.FINE,"SDT SYS: " + resSul.getSdt());        
         log.log(Level.FINE,"------------------------------------------------------");
         
-        Component c = components.get(location);
-        ParameterizedSymbol act = transition.lastSymbol().getBaseSymbol();
-        TransitionGuard g = c.getBranching(act).getBranches().get(transition);
+        Component c = components.get(q.location);
+        ParameterizedSymbol act = q.transition.lastSymbol().getBaseSymbol();
+        TransitionGuard g = c.getBranching(act).getBranches().get(q.transition);
         
-        boolean hasCE = sdtOracle.hasCounterexample(location, 
+        boolean hasCE = sdtOracle.hasCounterexample(q.location, 
                 resHyp.getSdt(), resHyp.getPiv(), //new PIV(location, resHyp.getParsInVars()), 
                 resSul.getSdt(), resSul.getPiv(), //new PIV(location, resSul.getParsInVars()), 
-                g, transition);
+                g, q.transition);
         // System.out.println("hasCE: " + hasCE);
         if (!hasCE) {
-            return new IndexResult(idx, IndexStatus.NO_CE, null);
+            return new IndexResult(q.idx, IndexStatus.NO_CE, null);
         }
         
         PIV pivSul = resSul.getPiv();
         PIV pivHyp = c.getPrimeRow().getParsInVars();
         boolean sulHasMoreRegs = !pivHyp.keySet().containsAll(pivSul.keySet());         
         boolean hypRefinesTransition = 
-                hypRefinesTransitions(location, act, resSul.getSdt(), pivSul);
+                hypRefinesTransitions(q.location, act, resSul.getSdt(), pivSul);
         
-        IndexResult indx = new IndexResult(idx, (sulHasMoreRegs || !hypRefinesTransition) ? 
+        IndexResult indx = new IndexResult(q.idx, (sulHasMoreRegs || !hypRefinesTransition) ? 
                 IndexStatus.HAS_CE_AND_REFINES : IndexStatus.HAS_CE_NO_REFINE,
-                slice);
-        indx.setSuffix(symSuffix);
+                q.slice);
+        indx.setSuffix(q.symSuffix);
         // System.out.println("CE Status: " + indx.status.name());
         return indx;
     }
     
+    /**
+     * Computes the results for several indices. The tree queries of all 
+     * indices are posed as one batch, so oracles answering batches in 
+     * parallel probe the indices at the same time.
+     */
+    private void computeIndices(Word<PSymbolInstance> ce, IndexResult[] results, int ... idxs) {
+        List<IndexQuery> queries = new ArrayList<>(idxs.length);
+        List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> batch = new ArrayList<>(idxs.length);
+        for (int idx : idxs) {
+            IndexQuery q = prepareIndex(ce, idx);
+            if (q == null) {
+                results[idx] = new IndexResult(idx, IndexStatus.NO_CE, null);
+            } else {
+                queries.add(q);
+                batch.add(new Pair<>(q.location, q.symSuffix));
+            }
+        }
+        if (queries.isEmpty()) {
+            return;
+        }
+        
+        List<TreeQueryResult> resHyp = hypOracle.treeQueries(batch);
+        List<TreeQueryResult> resSul = sulOracle.treeQueries(batch);
+        for (int i = 0; i < queries.size(); i++) {
+            IndexQuery q = queries.get(i);
+            results[q.idx] = evaluateIndex(q, resHyp.get(i), resSul.get(i));
+        }
+    }
+    
     private boolean hypRefinesTransitions(Word<PSymbolInstance> prefix, 
             ParameterizedSymbol action, SymbolicDecisionTree sdtSUL, PIV pivSUL) {
         
@@ -228,23 +299,32 @@ public class CounterexampleAnalysis {
         return true;
     }
     
-    private IndexResult linearBackWardsSearch(Word<PSymbolInstance> ce) {
+    /**
+     * Searches an index at which the counterexample is a counterexample for
+     * the hypothesis while it is none at the next index. The last index is 
+     * assumed to have no counterexample.
+     */
+    private IndexResult search(Word<PSymbolInstance> ce) {
         
         assert ce.length() > 1;
         
         IndexResult[] results = new IndexResult[ce.length()];
         results[ce.length()-1] = 
                 new IndexResult(ce.length()-1, IndexStatus.NO_CE, null);
-
-        int idx = ce.length()-2;
         
-        while (idx >= 0) {
-            IndexResult res = computeIndex(ce, idx);
-            results[idx] = res;
-            if (res.status != IndexStatus.NO_CE) {
-                break;
-            }
-            idx--;
+        int idx;
+        switch (search) {
+        case BINARY:
+            idx = binarySearch(ce, results, 0, ce.length()-1);
+            break;
+        case EXPONENTIAL:
+            idx = exponentialSearch(ce, results);
+            break;
+        case PARALLEL:
+            idx = parallelSearch(ce, results);
+            break;
+        default:
+            idx = linearBackWardsSearch(ce, results);
         }
         
         // Acutally not counterexample? 
@@ -253,85 +333,120 @@ public class CounterexampleAnalysis {
             return new IndexResult(-1, IndexStatus.NO_CE, null);
         }
         
-        // if in the last step there was no counterexample, 
-        // we have to move one step to the left
-        if (results[idx].status == IndexStatus.NO_CE) {
-            assert idx > 0;
-            idx--;
-        }
-                
+        assert results[idx].status != IndexStatus.NO_CE;
+        assert results[idx+1].status == IndexStatus.NO_CE;
+        
         // if the current index has no refinement use the 
         // suffix of the next index
         if (results[idx].status == IndexStatus.HAS_CE_NO_REFINE) {
-        	if (results[idx+1].status == IndexStatus.NO_CE) {
-                int arity = ce.getSymbol(idx).getBaseSymbol().getArity();
-                Slice s = results[idx].slice.suffix(arity);
-                // System.out.println("Suffix slice: " + s);
-                IndexResult old = results[idx+1];
-                results[idx+1] = new IndexResult(old.idx, old.status, s);
-            }
+            int arity = ce.getSymbol(idx).getBaseSymbol().getArity();
+            Slice s = results[idx].slice.suffix(arity);
+            // System.out.println("Suffix slice: " + s);
+            IndexResult old = results[idx+1];
+            results[idx+1] = new IndexResult(old.idx, old.status, s);
             idx++;
         }
 
         return results[idx];        
     }
     
-    private IndexResult binarySearch(Word<PSymbolInstance> ce) {
-        
-        assert ce.length() > 1;
-        
-        IndexResult[] results = new IndexResult[ce.length()];
-        //results[0] = IndexResult.HAS_CE_NO_REFINE;
-        //results[ce.length()-1] = IndexResult.NO_CE;
-        
-        int min = 0;
-        int max = ce.length() - 1;
-        int mid = -1;
-        
-        while (max >= min) {
-
-            mid = (max+min+1) / 2;
-         
-            IndexResult res = computeIndex(ce, mid);
-            log.log(Level.FINEST, "" + res);
-            
-            results[mid] = res;
-            if (res.status == IndexStatus.NO_CE) {
-                max = mid -1;
+    /**
+     * Computes the indices from the end of the counterexample until one has a 
+     * counterexample. Needs as many index computations as the returned suffix 
+     * is long.
+     */
+    private int linearBackWardsSearch(Word<PSymbolInstance> ce, IndexResult[] results) {
+        for (int idx = ce.length()-2; idx >= 0; idx--) {
+            computeIndices(ce, results, idx);
+            if (results[idx].status != IndexStatus.NO_CE) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Searches between an index assumed to have a counterexample and one 
+     * without counterexample (Rivest and Schapire). Needs a logarithmic number 
+     * of index computations, the index found need not be the last one with a 
+     * counterexample.
+     */
+    private int binarySearch(Word<PSymbolInstance> ce, IndexResult[] results, int low, int high) {
+        while (high - low > 1) {
+            int mid = (low + high) / 2;
+            computeIndices(ce, results, mid);
+            log.log(Level.FINEST, "" + results[mid]);
+            if (results[mid].status == IndexStatus.NO_CE) {
+                high = mid;
             } else {
-                min = mid +1;
-            }            
+                low = mid;
+            }
         }
-        
-        assert mid >= 0;
-        
-        int idx = mid;
-        
-        //System.out.println(Arrays.toString(results));
-        //System.out.println(idx + " : " + results[idx]);
-        
-        // if in the last step there was no counterexample, 
-        // we have to move one step to the left
-        if (results[idx].status == IndexStatus.NO_CE) {
-            assert idx > 0;
-            idx--;
-        }      
-
-        // if the current index has no refinement use the 
-        // suffix of the next index
-        if (results[idx].status == IndexStatus.HAS_CE_NO_REFINE) {
-            if (results[idx+1].status == IndexStatus.NO_CE) {
-                int arity = ce.getSymbol(idx).getBaseSymbol().getArity();
-                Slice s = results[idx].slice.suffix(arity);
-                // System.out.println("Suffix slice: " + s);                
-                IndexResult old = results[idx+1];
-                results[idx+1] = new IndexResult(old.idx, old.status, s);
+        return checkLow(ce, results, low);
+    }
+    
+    /**
+     * Computes indices from the end with doubling distances until one has a 
+     * counterexample, then searches the last interval in a binary search. 
+     * Favors short suffixes like the linear search with a logarithmic number 
+     * of index computations.
+     */
+    private int exponentialSearch(Word<PSymbolInstance> ce, IndexResult[] results) {
+        int high = ce.length()-1;
+        int step = 1;
+        while (true) {
+            int idx = Math.max(0, high - step);
+            computeIndices(ce, results, idx);
+            if (results[idx].status != IndexStatus.NO_CE) {
+                return binarySearch(ce, results, idx, high);
             }
-            idx++;
+            if (idx == 0) {
+                return -1;
+            }
+            high = idx;
+            step *= 2;
         }
-
-        //System.out.println("IDX: " + idx);        
-        return results[idx];
+    }
+    
+    /**
+     * Splits the interval of the binary search at several indices which are 
+     * computed at once and continues with the interval following the last
+     * index with a counterexample.
+     */
+    private int parallelSearch(Word<PSymbolInstance> ce, IndexResult[] results) {
+        int low = 0;
+        int high = ce.length()-1;
+        while (high - low > 1) {
+            int k = Math.min(probes, high - low - 1);
+            int[] idxs = new int[k];
+            for (int j = 0; j < k; j++) {
+                idxs[j] = low + (int) ((long) (j+1) * (high - low) / (k+1));
+            }
+            computeIndices(ce, results, idxs);
+            
+            int next = high;
+            high = idxs[0];
+            for (int j = k-1; j >= 0; j--) {
+                if (results[idxs[j]].status != IndexStatus.NO_CE) {
+                    low = idxs[j];
+                    high = next;
+                    break;
+                }
+                next = idxs[j];
+            }
+        }
+        return checkLow(ce, results, low);
+    }
+    
+    /**
+     * The first index is not computed by the searches unless no other index 
+     * has a counterexample.
+     */
+    private int checkLow(Word<PSymbolInstance> ce, IndexResult[] results, int low) {
+        if (results[low] == null) {
+            computeIndices(ce, results, low);
+        }
+        return results[low].status == IndexStatus.NO_CE ? -1 : low;
     }
     
 }
@@ -19,10 +19,14 @@ package de.learnlib.ralib.learning;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.learnlib.api.AccessSequenceTransformer;
 import de.learnlib.ralib.automata.MutableRegisterAutomaton;
 import de.learnlib.ralib.automata.RALocation;
+import de.learnlib.ralib.automata.RARun;
 import de.learnlib.ralib.automata.Transition;
 import de.learnlib.ralib.automata.TransitionSequenceTransformer;
 import de.learnlib.ralib.data.Constants;
@@ -30,6 +34,13 @@ import de.learnlib.ralib.words.PSymbolInstance;
 import net.automatalib.words.Word;
 
 /**
+ * A hypothesis constructed by the learner. 
+ * 
+ * Runs on words are kept in a trie of bounded size, so words that share 
+ * a prefix with a word executed before only execute the rest of the word. 
+ * The trie is dropped when the hypothesis is modified or when it grows 
+ * beyond its bound. It can be used by several threads without locking, 
+ * threads racing for the same successor may both compute it.
  *
  * @author falk
  */
@@ -40,9 +51,56 @@ implements AccessSequenceTransformer<PSymbolInstance>, TransitionSequenceTransfo
 
     private final Map<Transition, Word<PSymbolInstance>> transitionSequences = new LinkedHashMap<>();
     
+    private static final int MAX_CACHED_RUNS = 100000;
+    
+    private static class RunNode {
+        private final RARun run;
+        private final ConcurrentMap<PSymbolInstance, RunNode> next = new ConcurrentHashMap<>();
+
+        private RunNode(RARun run) {
+            this.run = run;
+        }
+    }
+    
+    private volatile RunNode runs = null;
+    
+    private final AtomicInteger cachedRuns = new AtomicInteger();
+    
     public Hypothesis(Constants consts) {
         super(consts);
     }
+
+    @Override
+    public RARun getRun(Word<PSymbolInstance> dw) {
+        RunNode node = runs;
+        if (node == null || cachedRuns.get() > MAX_CACHED_RUNS) {
+            node = new RunNode(getInitialRun());
+            runs = node;
+            cachedRuns.set(1);
+        }
+        for (PSymbolInstance psi : dw) {
+            if (node.run == null) {
+                return null;
+            }
+            RunNode succ = node.next.get(psi);
+            if (succ == null) {
+                RunNode computed = new RunNode(node.run.step(psi));
+                succ = node.next.putIfAbsent(psi, computed);
+                if (succ == null) {
+                    succ = computed;
+                    cachedRuns.incrementAndGet();
+                }
+            }
+            node = succ;
+        }
+        return node.run;
+    }
+
+    @Override
+    protected synchronized void modified() {
+        super.modified();
+        runs = null;
+    }
     
     public void setAccessSequence(RALocation loc, Word<PSymbolInstance> as) {
         accessSequences.put(loc, as);
@@ -19,18 +19,23 @@ package de.learnlib.ralib.learning;
 import de.learnlib.logging.LearnLogger;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
 import de.learnlib.ralib.oracles.TreeOracle;
 import de.learnlib.ralib.solver.ConstraintSolver;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.automatalib.words.Word;
 
@@ -110,7 +115,7 @@ class ObservationTable {
         
         if (!newPrefixes.isEmpty()) {
         	// System.out.println("new prefix: " + newPrefixes.peek());
-            processNewPrefix();
+            processNewPrefixes();
             done = "newPrefix";
             return false;
         }
@@ -167,22 +172,61 @@ class ObservationTable {
         log.logEvent("Adding suffix to obs: " + suffix);
 //        System.out.println("Adding suffix to obs: " + suffix);
         suffixes.add(suffix);
+        List<Component> extended = new ArrayList<>();
+        List<Row> rows = new ArrayList<>();
         for (Component c : components.values()) {
-            c.addSuffix(suffix, oracle);
+            List<Row> cRows = c.getRowsForSuffix(suffix);
+            if (!cRows.isEmpty()) {
+                extended.add(c);
+                rows.addAll(cRows);
+            }
+        }
+        try {
+            Row.addSuffix(suffix, rows, oracle);
+        } catch(DecoratedRuntimeException exc) {
+            for (Component c : extended) {
+                c.decorate(exc);
+            }
+            throw exc;
+        }
+        for (Component c : extended) {
+            c.splitRows();
         }
     }
 
-    private void processNewPrefix() {
-        Word<PSymbolInstance> prefix = newPrefixes.poll();
-        log.logEvent("Adding prefix to obs: " + prefix);
-        Row r = Row.computeRow(oracle, prefix, suffixes, ioMode);
+    /**
+     * processes all queued prefixes as one batch. Rows are assigned to 
+     * components in the order of the prefixes.
+     */
+    private void processNewPrefixes() {
+        Set<Word<PSymbolInstance>> prefixes = new LinkedHashSet<>(newPrefixes);
+        newPrefixes.clear();
+        log.logEvent("Adding prefixes to obs: " + prefixes);
+        List<Row> rows = Row.computeRows(oracle, prefixes, suffixes, ioMode);
+
+        // components by the fingerprint of their prime row, only components 
+        // with the fingerprint of a row can take the row
+        Map<Integer, List<Component>> index = new HashMap<>();
         for (Component c : components.values()) {
+            index.computeIfAbsent(c.getPrimeRow().fingerprint(), k -> new ArrayList<>()).add(c);
+        }
+        for (Component c : newComponents) {
+            index.computeIfAbsent(c.getPrimeRow().fingerprint(), k -> new ArrayList<>()).add(c);
+        }
+        for (Row r : rows) {
+            addRow(r, index.computeIfAbsent(r.fingerprint(), k -> new ArrayList<>()));
+        }
+    }
+
+    private void addRow(Row r, List<Component> candidates) {
+        for (Component c : candidates) {
             if (c.addRow(r)) {
                 return;
             }
         }
         Component c = new Component(r, this, ioMode, consts, teachers, solver);
         addComponent(c);
+        candidates.add(c);
     }
 
     private void processNewComponent() {
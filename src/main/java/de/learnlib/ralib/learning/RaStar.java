@@ -72,6 +72,10 @@ public class RaStar {
     private final ConstraintSolver solver;
 
 	private HypVerifier hypVerifier;
+
+    private CounterexampleAnalysis.Search ceSearch = CounterexampleAnalysis.Search.LINEAR;
+
+    private int ceProbes = 1;
     
     private static final LearnLogger log = LearnLogger.getLogger(RaStar.class);
 
@@ -167,6 +171,7 @@ public class RaStar {
         CounterexampleAnalysis analysis = new CounterexampleAnalysis(
                 ceSulOracle, hypOracle, hyp, sdtLogicOracle, obs.getComponents(), 
                         consts, teachers, solver);
+        analysis.setSearch(ceSearch, ceProbes);
         
         DefaultQuery<PSymbolInstance, Boolean> ce = counterexamples.peek();    
         
@@ -201,5 +206,14 @@ public class RaStar {
     public void setHypVerifier(HypVerifier hypVerifier) {
         this.hypVerifier = hypVerifier;
     }
+
+    /**
+     * Sets the search for the index of a counterexample. The parallel search 
+     * probes the given number of indices at once.
+     */
+    public void setCounterexampleSearch(CounterexampleAnalysis.Search search, int probes) {
+        this.ceSearch = search;
+        this.ceProbes = probes;
+    }
     
 }
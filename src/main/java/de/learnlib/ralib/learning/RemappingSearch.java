@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.learning;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.learnlib.ralib.data.PIV;
+import de.learnlib.ralib.data.SymbolicDataValue.Parameter;
+import de.learnlib.ralib.data.VarMapping;
+import de.learnlib.ralib.solver.ConstraintSolver;
+
+/**
+ * Searches a renaming under which a row is equivalent to another row.
+ * 
+ * Instead of enumerating all permutations of the memorable parameters, 
+ * parameters are assigned one after another. A cell only depends on the 
+ * renaming of its own memorable parameters, so it is checked as soon as 
+ * all of them are assigned, and the search backtracks on the first cell 
+ * that does not match. Parameters are ordered such that cells with few 
+ * memorable parameters are checked first.
+ */
+class RemappingSearch {
+
+    private final PIV replace;
+
+    private final PIV by;
+
+    private final ConstraintSolver solver;
+
+    /**
+     * parameters of {@code replace} in the order they are assigned.
+     */
+    private final Parameter[] order;
+
+    /**
+     * candidates of {@code by} for each parameter in {@code order}.
+     */
+    private final Parameter[][] candidates;
+
+    /**
+     * pairs of cells checked once the parameter at the same position 
+     * in {@code order} has been assigned.
+     */
+    private final List<List<Cell[]>> checks;
+
+    private final Set<Parameter> used = new LinkedHashSet<>();
+
+    private final VarMapping mapping = new VarMapping();
+
+    private RemappingSearch(PIV replace, PIV by, ConstraintSolver solver, 
+            Parameter[] order, List<List<Cell[]>> checks) {
+        this.replace = replace;
+        this.by = by;
+        this.solver = solver;
+        this.order = order;
+        this.checks = checks;
+        this.candidates = new Parameter[order.length][];
+        for (int i = 0; i < order.length; i++) {
+            candidates[i] = by.asTypedArrays().get(order[i].getType());
+        }
+    }
+
+    /**
+     * returns a renaming from the memorable parameters in {@code replace} 
+     * to the memorable parameters in {@code by} under which all pairs of 
+     * cells are equivalent or null if there is no such renaming. Assumes 
+     * that the cells could be equivalent.
+     *
+     * @param replace
+     * @param by
+     * @param pairs pairs of cells for the same suffix
+     * @param solver
+     * @return 
+     */
+    static VarMapping findRemapping(PIV replace, PIV by, 
+            Collection<Cell[]> pairs, ConstraintSolver solver) {
+
+        List<Cell[]> sorted = new ArrayList<>(pairs);
+        sorted.sort(Comparator.comparingInt(p -> p[0].getParsInVars().size()));
+
+        // assign the parameters of small cells first
+        Set<Parameter> ordered = new LinkedHashSet<>();
+        for (Cell[] p : sorted) {
+            ordered.addAll(p[0].getMemorable());
+        }
+        ordered.addAll(replace.keySet());
+        Parameter[] order = ordered.toArray(new Parameter[] {});
+
+        List<List<Cell[]>> checks = new ArrayList<>();
+        for (int i = 0; i < order.length; i++) {
+            checks.add(new ArrayList<>());
+        }
+        List<Cell[]> initial = new ArrayList<>();
+        for (Cell[] p : sorted) {
+            int last = -1;
+            for (int i = 0; i < order.length; i++) {
+                if (p[0].getParsInVars().containsKey(order[i])) {
+                    last = i;
+                }
+            }
+            if (last < 0) {
+                initial.add(p);
+            } else {
+                checks.get(last).add(p);
+            }
+        }
+
+        RemappingSearch search = new RemappingSearch(replace, by, solver, order, checks);
+        if (!search.check(initial)) {
+            return null;
+        }
+        return search.assign(0) ? search.mapping : null;
+    }
+
+    private boolean assign(int idx) {
+        if (idx == order.length) {
+            return true;
+        }
+        Parameter p = order[idx];
+        for (Parameter q : candidates[idx]) {
+            if (used.contains(q)) {
+                continue;
+            }
+            used.add(q);
+            mapping.put(p, q);
+            mapping.put(replace.get(p), by.get(q));
+            if (check(checks.get(idx)) && assign(idx + 1)) {
+                return true;
+            }
+            mapping.remove(p);
+            mapping.remove(replace.get(p));
+            used.remove(q);
+        }
+        return false;
+    }
+
+    private boolean check(List<Cell[]> pairs) {
+        for (Cell[] p : pairs) {
+            if (!p[0].isEquivalentTo(p[1], mapping, solver)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
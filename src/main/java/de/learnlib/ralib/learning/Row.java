@@ -24,17 +24,21 @@ import de.learnlib.ralib.data.VarMapping;
 import de.learnlib.ralib.data.util.SymbolicDataValueGenerator.RegisterGenerator;
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
 import de.learnlib.ralib.oracles.TreeOracle;
+import de.learnlib.ralib.oracles.TreeQueryResult;
 import de.learnlib.ralib.solver.ConstraintSolver;
 import de.learnlib.ralib.words.InputSymbol;
 import de.learnlib.ralib.words.OutputSymbol;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
+import net.automatalib.commons.util.Pair;
 import net.automatalib.words.Word;
 
 /**
@@ -76,24 +80,60 @@ class Row {
         }
     }
 
-    void addSuffix(GeneralizedSymbolicSuffix suffix, TreeOracle oracle) {
+    /**
+     * adds a suffix to a number of rows. The tree queries of all rows are 
+     * submitted to the oracle as one batch.
+     *
+     * @param suffix
+     * @param rows
+     * @param oracle
+     */
+    static void addSuffix(GeneralizedSymbolicSuffix suffix, List<Row> rows, TreeOracle oracle) {
+        List<Row> batchRows = new ArrayList<>();
+        Map<Word<PSymbolInstance>, Integer> index = new LinkedHashMap<>();
+        for (Row r : rows) {
+            if (r.needsCell(suffix)) {
+                batchRows.add(r);
+                index.putIfAbsent(r.getPrefix(), index.size());
+            }
+        }
+        if (batchRows.isEmpty()) {
+            return;
+        }
+
+        List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> queries = 
+                new ArrayList<>(index.size());
+        for (Word<PSymbolInstance> prefix : index.keySet()) {
+            queries.add(new Pair<>(prefix, suffix));
+        }
+        List<TreeQueryResult> results = oracle.treeQueries(queries);
+
+        for (Row r : batchRows) {
+            TreeQueryResult tqr = results.get(index.get(r.getPrefix()));
+            r.addCell(Cell.fromTreeQueryResult(r.getPrefix(), suffix, tqr));
+        }
+    }
+
+    /**
+     * checks if this row needs a cell for a suffix. In io mode, error rows
+     * and suffixes that do not match the prefix are not queried.
+     */
+    private boolean needsCell(GeneralizedSymbolicSuffix suffix) {
         if (ioMode && suffix.getActions().length() > 0) {
             // error row
             if (getPrefix().length() > 0 && !isAccepting()) {
                 // log.log(Level.INFO, "Not adding suffix " + suffix + " to error row " + getPrefix());
-                return;
+                return false;
             }
             // unmatching suffix                 
             if ((getPrefix().length() < 1 && (suffix.getActions().firstSymbol() instanceof OutputSymbol))
                     || (prefix.length() > 0 && !(prefix.lastSymbol().getBaseSymbol() instanceof InputSymbol
                     ^ suffix.getActions().firstSymbol() instanceof InputSymbol))) {
                 // log.log(Level.INFO, "Not adding suffix " + suffix + " to unmatching row " + getPrefix());
-                return;
+                return false;
             }
         }
-
-        Cell c = Cell.computeCell(oracle, prefix, suffix);
-        addCell(c);
+        return true;
     }
 
     private void addCell(Cell c) {
@@ -207,6 +247,30 @@ class Row {
         return true;
     }
 
+    /**
+     * searches a renaming under which this row is equivalent to the 
+     * {@code other} row (see {@link #isEquivalentTo(Row, VarMapping, ConstraintSolver)}).
+     *
+     * @param other
+     * @param solver
+     * @return the renaming or null if the rows are not equivalent
+     */
+    VarMapping findRemapping(Row other, ConstraintSolver solver) {
+        if (!couldBeEquivalentTo(other)) {
+            return null;
+        }
+
+        List<Cell[]> pairs = new ArrayList<>();
+        for (GeneralizedSymbolicSuffix s : this.cells.keySet()) {
+            Cell c1 = this.cells.get(s);
+            Cell c2 = other.cells.get(s);
+            if (c1 != null) {
+                pairs.add(new Cell[] {c1, c2});
+            }
+        }
+        return RemappingSearch.findRemapping(this.memorable, other.memorable, pairs, solver);
+    }
+
     /**
      *
      * @param r
@@ -242,6 +306,22 @@ class Row {
         return true;
     }
 
+    /**
+     * returns a hash code that is equal for rows that could be equivalent 
+     * (see {@link #couldBeEquivalentTo(Row)}) under any renaming. 
+     *
+     * @return
+     */
+    int fingerprint() {
+        int hash = this.memorable.typedSize().hashCode();
+        // cells are combined independently of their order
+        for (Map.Entry<GeneralizedSymbolicSuffix, Cell> e : this.cells.entrySet()) {
+            Cell c = e.getValue();
+            hash += 31 * e.getKey().hashCode() + (c == null ? 0 : 1 + c.fingerprint());
+        }
+        return hash;
+    }
+
     /**
      * computes a new row object from a prefix and a set of symbolic suffixes.
      *
@@ -253,25 +333,30 @@ class Row {
     static Row computeRow(TreeOracle oracle,
             Word<PSymbolInstance> prefix, List<GeneralizedSymbolicSuffix> suffixes, boolean ioMode) {
 
-        Row r = new Row(prefix, ioMode);
+        return computeRows(oracle, Collections.singletonList(prefix), suffixes, ioMode).get(0);
+    }
+
+    /**
+     * computes new row objects from a number of prefixes and a set of symbolic 
+     * suffixes. The tree queries for one suffix are submitted to the oracle 
+     * as one batch.
+     *
+     * @param oracle
+     * @param prefixes
+     * @param suffixes
+     * @return
+     */
+    static List<Row> computeRows(TreeOracle oracle, Collection<Word<PSymbolInstance>> prefixes, 
+            List<GeneralizedSymbolicSuffix> suffixes, boolean ioMode) {
+
+        List<Row> rows = new ArrayList<>(prefixes.size());
+        for (Word<PSymbolInstance> prefix : prefixes) {
+            rows.add(new Row(prefix, ioMode));
+        }
         for (GeneralizedSymbolicSuffix s : suffixes) {
-            if (ioMode && s.getActions().length() > 0) {
-                // error row
-                if (r.getPrefix().length() > 0 && !r.isAccepting()) {
-                    // log.log(Level.INFO, "Not adding suffix " + s + " to error row " + r.getPrefix());
-                    continue;
-                }
-                // unmatching suffix                 
-                if ((r.getPrefix().length() < 1 && (s.getActions().firstSymbol() instanceof OutputSymbol))
-                        || (prefix.length() > 0 && !(prefix.lastSymbol().getBaseSymbol() instanceof InputSymbol
-                        ^ s.getActions().firstSymbol() instanceof InputSymbol))) {
-                    // log.log(Level.INFO, "Not adding suffix " + s + " to unmatching row " + r.getPrefix());
-                    continue;
-                }
-            }
-            r.addCell(Cell.computeCell(oracle, prefix, s));
+            addSuffix(s, rows, oracle);
         }
-        return r;
+        return rows;
     }
 
     boolean isAccepting() {
@@ -73,13 +73,31 @@ public class MultiTheoryDeterminizer {
 	}
 	
 	public Word<PSymbolInstance> canonize(Word<PSymbolInstance> trace, boolean inverse) {
-		Word<PSymbolInstance> newTrace = Word.epsilon();
+		PSymbolInstance[] newTrace = new PSymbolInstance[trace.length()];
+		int i = 0;
 		for (PSymbolInstance sym : trace) {
-			PSymbolInstance canSym = this.canonize(sym, inverse);
-			newTrace = newTrace.append(canSym);
+			newTrace[i++] = this.canonize(sym, inverse);
 		}
 
-		return newTrace;
+		return Word.fromSymbols(newTrace);
+	}
+	
+	/**
+	 * Restores the mapping established by canonizing a symbol, given the canonized symbol. 
+	 * Replaying the symbols of a prefix and their canonized counterparts puts the determinizer in the 
+	 * state it had after canonizing the prefix, without matching any values.
+	 */
+	public void restore(PSymbolInstance symbol, PSymbolInstance canonized) {
+		DataValue [] dvs = symbol.getParameterValues();
+		DataValue [] canDvs = canonized.getParameterValues();
+		for (int i = 0; i < dvs.length; i ++) {
+			if (determinizers.containsKey(dvs[i].getType())) {
+				BiMap<DataValue, DataValue> inverseMap = getOrCreateBucket(dvs[i]).inverse();
+				if (!inverseMap.containsKey(dvs[i])) {
+					inverseMap.put(dvs[i], canDvs[i]);
+				}
+			}
+		}
 	}
 	
 	
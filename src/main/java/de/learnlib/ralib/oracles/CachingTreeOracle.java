@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.learnlib.ralib.data.PIV;
+import de.learnlib.ralib.learning.GeneralizedSymbolicSuffix;
+import de.learnlib.ralib.learning.SymbolicDecisionTree;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.commons.util.Pair;
+import net.automatalib.words.Word;
+
+/**
+ * Memoizes the results of tree queries. Results are kept for the least
+ * recently used pairs of prefix and suffix, up to a maximum number of entries.
+ *
+ * If a trace canonizer is given, prefixes are canonized before they are
+ * looked up, so prefixes that only differ in data values yielding the same
+ * canonical trace share a result. The PIV of a result refers to prefix
+ * parameters by position and is therefore valid for all of them.
+ *
+ * Results are shared, so the SDTs returned must not be modified.
+ */
+public class CachingTreeOracle implements TreeOracle {
+
+	private final TreeOracle treeOracle;
+	private final TraceCanonizer canonizer;
+	private final Map<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>, TreeQueryResult> results;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public CachingTreeOracle(TreeOracle treeOracle, int capacity) {
+		this(treeOracle, capacity, null);
+	}
+
+	public CachingTreeOracle(TreeOracle treeOracle, int capacity, TraceCanonizer canonizer) {
+		this.treeOracle = treeOracle;
+		this.canonizer = canonizer;
+		this.results = new LinkedHashMap<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>, TreeQueryResult>(
+				16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>, TreeQueryResult> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	@Override
+	public TreeQueryResult treeQuery(Word<PSymbolInstance> prefix, GeneralizedSymbolicSuffix suffix) {
+		Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> key = key(prefix, suffix);
+		TreeQueryResult result = lookup(key);
+		if (result == null) {
+			result = treeOracle.treeQuery(prefix, suffix);
+			store(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Answers the queries found in the cache and passes the others on as one
+	 * batch.
+	 */
+	@Override
+	public List<TreeQueryResult> treeQueries(List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> queries) {
+		List<TreeQueryResult> answers = new ArrayList<>(queries.size());
+		Map<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>, Integer> missing = new LinkedHashMap<>();
+		List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> batch = new ArrayList<>();
+		List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> keys = new ArrayList<>(queries.size());
+		for (Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> q : queries) {
+			Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> key = key(q.getFirst(), q.getSecond());
+			TreeQueryResult result = null;
+			if (missing.containsKey(key)) {
+				// answered by the same batch
+				hits.incrementAndGet();
+			} else {
+				result = lookup(key);
+				if (result == null) {
+					missing.put(key, batch.size());
+					batch.add(q);
+				}
+			}
+			keys.add(key);
+			answers.add(result);
+		}
+		if (batch.isEmpty()) {
+			return answers;
+		}
+
+		List<TreeQueryResult> batchResults = treeOracle.treeQueries(batch);
+		for (Map.Entry<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>, Integer> e : missing.entrySet()) {
+			store(e.getKey(), batchResults.get(e.getValue()));
+		}
+		for (int i = 0; i < answers.size(); i++) {
+			if (answers.get(i) == null) {
+				answers.set(i, batchResults.get(missing.get(keys.get(i))));
+			}
+		}
+		return answers;
+	}
+
+	@Override
+	public Branching getInitialBranching(Word<PSymbolInstance> prefix, ParameterizedSymbol ps, PIV piv,
+			SymbolicDecisionTree... sdts) {
+		return treeOracle.getInitialBranching(prefix, ps, piv, sdts);
+	}
+
+	@Override
+	public Branching updateBranching(Word<PSymbolInstance> prefix, ParameterizedSymbol ps, Branching current, PIV piv,
+			SymbolicDecisionTree... sdts) {
+		return treeOracle.updateBranching(prefix, ps, current, piv, sdts);
+	}
+
+	/**
+	 * Number of tree queries answered from the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Number of tree queries passed on to the wrapped oracle.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> key(Word<PSymbolInstance> prefix,
+			GeneralizedSymbolicSuffix suffix) {
+		Word<PSymbolInstance> canonical = canonizer == null ? prefix : canonizer.canonize(prefix);
+		return new Pair<>(canonical, suffix);
+	}
+
+	private TreeQueryResult lookup(Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> key) {
+		TreeQueryResult result;
+		synchronized (results) {
+			result = results.get(key);
+		}
+		if (result == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return result;
+	}
+
+	private void store(Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> key, TreeQueryResult result) {
+		synchronized (results) {
+			results.put(key, result);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package de.learnlib.ralib.oracles;
 
 import java.util.Collection;
+import java.util.List;
 
 import de.learnlib.api.Query;
 import de.learnlib.ralib.oracles.io.DataWordIOOracle;
@@ -26,4 +27,9 @@ public class CountingDataWordOracle implements DataWordIOOracle{
 		Word<PSymbolInstance> trace = this.oracle.trace(query);
 		return trace;
 	}
-}
\ No newline at end of file
+
+	public List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> queries) {
+		List<Word<PSymbolInstance>> traces = this.oracle.traces(queries);
+		return traces;
+	}
+}
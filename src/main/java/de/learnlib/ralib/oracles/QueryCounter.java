@@ -16,20 +16,22 @@
  */
 package de.learnlib.ralib.oracles;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  *
  * @author falk
  */
 public class QueryCounter {
  
-    private int queryCount = 0;
+    private final AtomicLong queryCount = new AtomicLong();
     
     protected void countQueries(int n) {
-        queryCount += n;
+        queryCount.addAndGet(n);
     }
     
     public long getQueryCount() {
-        return queryCount;
+        return queryCount.get();
     }
     
             
@@ -16,11 +16,16 @@
  */
 package de.learnlib.ralib.oracles;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import de.learnlib.ralib.data.PIV;
+import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
 import de.learnlib.ralib.learning.GeneralizedSymbolicSuffix;
 import de.learnlib.ralib.learning.SymbolicDecisionTree;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.commons.util.Pair;
 import net.automatalib.words.Word;
 
 /**
@@ -42,6 +47,27 @@ public interface TreeOracle {
      */
     public TreeQueryResult treeQuery(
             Word<PSymbolInstance> prefix, GeneralizedSymbolicSuffix suffix);    
+
+    /**
+     * performs a batch of tree queries, returning the results in the 
+     * order of the queries. By default, queries are answered sequentially,
+     * one at a time.
+     * 
+     * @param queries pairs of prefix and suffix
+     * @return 
+     */
+    public default List<TreeQueryResult> treeQueries(
+            List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> queries) {
+        List<TreeQueryResult> results = new ArrayList<>(queries.size());
+        for (Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> q : queries) {
+            try {
+                results.add(treeQuery(q.getFirst(), q.getSecond()));
+            } catch(DecoratedRuntimeException exc) {
+                throw exc.addDecoration("prefix", q.getFirst()).addDecoration("suffix", q.getSecond());
+            }
+        }
+        return results;
+    }
      
     /**
      * Computes a Branching from a set of SymbolicDecisionTrees.
@@ -21,7 +21,10 @@ package de.learnlib.ralib.oracles.io;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 import de.learnlib.api.Query;
@@ -30,7 +33,6 @@ import de.learnlib.ralib.data.DataValue;
 import de.learnlib.ralib.data.FreshValue;
 import de.learnlib.ralib.oracles.QueryCounter;
 import de.learnlib.ralib.oracles.io.IOCache.CacheNode;
-import de.learnlib.ralib.words.OutputSymbol;
 import de.learnlib.ralib.words.PSymbolInstance;
 import net.automatalib.words.Word;
 
@@ -58,31 +60,28 @@ public class BasicIOCacheOracle extends QueryCounter implements DataWordIOOracle
     	this.cache = cache;
     }
 
+    /**
+     * Submits the queries not answered by the cache to the SUL oracle as 
+     * one batch (see {@link IOOracle#traces(List)}), then answers all 
+     * queries from the cache.
+     */
     @Override
     public void processQueries(Collection<? extends Query<PSymbolInstance, Boolean>> clctn) {
         countQueries(clctn.size());
+        Set<Word<PSymbolInstance>> missing = new LinkedHashSet<>();
+        for (Query<PSymbolInstance, Boolean> q : clctn) {
+            if (answerFromCache(q.getInput()) == null) {
+                missing.add(CacheBatches.pad(q.getInput()));
+            }
+        }
+        CacheBatches.fill(missing, sul, cache);
         for (Query<PSymbolInstance, Boolean> q : clctn) {
             log.log(Level.FINEST, "MQ: {0}", q.getInput());
-            boolean accepted = traceBoolean(q.getInput());
+            boolean accepted = answerFromCache(q.getInput());
             q.answer(accepted);
         }
     }
 
-    private boolean traceBoolean(Word<PSymbolInstance> query) {
-        Boolean ret = answerFromCache(query);
-        if (ret != null) {
-            return ret;
-        }
-        Word<PSymbolInstance> test = query;
-        if (query.length() % 2 != 0) {
-            test = query.append(new PSymbolInstance(new OutputSymbol("__cache_dummy")));
-        }
-        Word<PSymbolInstance> trace = sul.trace(test);
-        cache.addToCache(trace);
-        ret = answerFromCache(query);
-        return ret;
-    }
-
     private Boolean answerFromCache(Word<PSymbolInstance> query) {
         Iterator<PSymbolInstance> iter = query.iterator();
         PSymbolInstance out = null;
@@ -114,7 +113,7 @@ public class BasicIOCacheOracle extends QueryCounter implements DataWordIOOracle
 
             in = new PSymbolInstance(in.getBaseSymbol(), dvInRepl);
 
-            out = cur.output.get(in);
+            out = cur.getOutput(in);
             if (out == null) {
                 return null;
             }
@@ -125,7 +124,7 @@ public class BasicIOCacheOracle extends QueryCounter implements DataWordIOOracle
 
             PSymbolInstance ref = iter.next();
 
-            cur = cur.next.get(in);
+            cur = cur.getNext(in);
 
             if (!out.getBaseSymbol().equals(ref.getBaseSymbol())) {
                 return Boolean.FALSE;
@@ -157,9 +156,7 @@ public class BasicIOCacheOracle extends QueryCounter implements DataWordIOOracle
 
     @Override
     public Word<PSymbolInstance> trace(Word<PSymbolInstance> query) {
-        if (query.length() % 2 != 0) {
-            query = query.append(new PSymbolInstance(new OutputSymbol("__cache_dummy")));
-        }
+        query = CacheBatches.pad(query);
 
         Word<PSymbolInstance> trace = cache.traceFromCache(query);
         if (trace != null) {
@@ -169,4 +166,13 @@ public class BasicIOCacheOracle extends QueryCounter implements DataWordIOOracle
         cache.addToCache(trace);
         return trace;
     }
+
+    /**
+     * Answers the queries found in the cache and submits the others
+     * to the SUL oracle as one batch.
+     */
+    @Override
+    public List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> queries) {
+        return CacheBatches.traces(queries, CacheBatches::pad, cache::traceFromCache, sul, cache);
+    }
 }
@@ -0,0 +1,525 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.locks.Lock;
+
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.FreshValue;
+import de.learnlib.ralib.data.SumConstants;
+import de.learnlib.ralib.data.SymbolicDataValue.Constant;
+import de.learnlib.ralib.data.SymbolicDataValue.SumConstant;
+import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
+import de.learnlib.ralib.oracles.io.IOCache.CacheNode;
+import de.learnlib.ralib.theory.inequality.IntervalDataValue;
+import de.learnlib.ralib.theory.inequality.SumCDataValue;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+
+/**
+ * A cache manager streaming the cache trie to a compact binary format.
+ * 
+ * The file starts with a magic number, a format version and a layout, followed
+ * by tables of all data types and parameterized symbols used in the cache. 
+ * In the stream layout written by this manager, the trie is then written depth
+ * first, each node as the number of its children followed by the input, output
+ * and sub-trie of every child. Symbols are written as indices into the symbol
+ * table, integral data values as zig-zag encoded varints. 
+ * 
+ * Loading builds the cache nodes directly from the stream, symbols and data 
+ * types are shared by all nodes.
+ */
+class BinaryCacheManager implements IOCacheManager {
+
+	static final int MAGIC = 0x52414c43;
+
+	static final int VERSION = 1;
+
+	static final int LAYOUT_STREAM = 0;
+
+	static final int LAYOUT_INDEXED = 1;
+
+	static final int LAYOUT_JOURNAL = 2;
+
+	private static final int DV_NULL = 0;
+	private static final int DV_PLAIN = 1;
+	private static final int DV_FRESH = 2;
+	private static final int DV_CONSTANT = 3;
+	private static final int DV_SUMC = 4;
+	private static final int DV_INTERVAL = 5;
+
+	private static final int ID_INTEGER = 0;
+	private static final int ID_LONG = 1;
+	private static final int ID_DOUBLE = 2;
+	private static final int ID_BOOLEAN = 3;
+	private static final int ID_STRING = 4;
+	private static final int ID_DECIMAL = 5;
+
+	private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+	static {
+		for (Class<?> c : new Class<?>[] { boolean.class, byte.class, char.class, short.class, 
+			int.class, long.class, float.class, double.class }) {
+			PRIMITIVES.put(c.getName(), c);
+		}
+	}
+
+	@Override
+	public IOCache loadCacheFromFile(String fileName, Constants consts) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+			readHeader(in, LAYOUT_STREAM);
+			Decoder decoder = new Decoder(consts);
+			decoder.readTables(in);
+			return new IOCache(readNode(in, decoder));
+		}
+	}
+
+	@Override
+	public void dumpCacheToFile(String fileName, IOCache cache, Constants consts) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			Lock lock = cache.getTraversalLock();
+			lock.lock();
+			try {
+				Encoder encoder = new Encoder(consts);
+				encoder.collect(cache.getRoot());
+				writeHeader(out, LAYOUT_STREAM);
+				encoder.writeTables(out);
+				writeNode(out, encoder, cache.getRoot());
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private static CacheNode readNode(DataInputStream in, Decoder decoder) throws IOException {
+		CacheNode node = new CacheNode();
+		int children = readVarInt(in);
+		for (int i = 0; i < children; i++) {
+			PSymbolInstance input = decoder.readSymbolInstance(in);
+			PSymbolInstance output = decoder.readSymbolInstance(in);
+			node.addChild(input, output, readNode(in, decoder));
+		}
+		return node;
+	}
+
+	private static void writeNode(DataOutputStream out, Encoder encoder, CacheNode node) throws IOException {
+		writeVarInt(out, node.childCount());
+		for (int pos = 0; pos < node.childCount(); pos++) {
+			encoder.writeSymbolInstance(out, node.inputAt(pos));
+			encoder.writeSymbolInstance(out, node.outputAt(pos));
+			writeNode(out, encoder, node.childAt(pos));
+		}
+	}
+
+	static void writeHeader(DataOutputStream out, int layout) throws IOException {
+		out.writeInt(MAGIC);
+		writeVarInt(out, VERSION);
+		out.writeByte(layout);
+	}
+
+	static void readHeader(DataInputStream in, int layout) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a binary cache file");
+		}
+		int version = readVarInt(in);
+		if (version != VERSION) {
+			throw new IOException("Unsupported binary cache version " + version);
+		}
+		int fileLayout = in.readByte();
+		if (fileLayout != layout) {
+			throw new IOException("Binary cache has layout " + fileLayout + ", expected " + layout 
+					+ ". Use the cache system the file was written with.");
+		}
+	}
+
+	/**
+	 * Writes symbols and data values using the symbol and type tables.
+	 */
+	static class Encoder {
+		private final Constants consts;
+		private final Map<DataType, Integer> types = new LinkedHashMap<>();
+		private final Map<ParameterizedSymbol, Integer> symbols = new LinkedHashMap<>();
+		private final Map<DataValue<?>, Integer> sumConstants = new HashMap<>();
+
+		Encoder(Constants consts) {
+			this.consts = consts;
+			SumConstants sumCs = consts.getSumCs();
+			if (sumCs != null) {
+				for (Entry<SumConstant, DataValue<?>> e : sumCs.entrySet()) {
+					sumConstants.putIfAbsent(e.getValue(), e.getKey().getId());
+				}
+			}
+		}
+
+		/**
+		 * Creates an encoder whose tables start with the tables of a decoder,
+		 * so encoded data of the decoder's file remains valid.
+		 */
+		Encoder(Constants consts, Decoder tables) {
+			this(consts);
+			for (DataType t : tables.types) {
+				types.put(t, types.size());
+			}
+			for (ParameterizedSymbol ps : tables.symbols) {
+				symbols.put(ps, symbols.size());
+			}
+		}
+
+		/**
+		 * Adds the symbols and types of the loaded part of a trie to the tables. 
+		 */
+		void collect(CacheNode node) {
+			if (!node.isLoaded()) {
+				return;
+			}
+			for (int pos = 0; pos < node.childCount(); pos++) {
+				collect(node.inputAt(pos));
+				collect(node.outputAt(pos));
+				collect(node.childAt(pos));
+			}
+		}
+
+		void collect(PSymbolInstance psi) {
+			ParameterizedSymbol ps = psi.getBaseSymbol();
+			if (!symbols.containsKey(ps)) {
+				symbols.put(ps, symbols.size());
+				for (DataType t : ps.getPtypes()) {
+					types.putIfAbsent(t, types.size());
+				}
+			}
+			for (DataValue<?> dv : psi.getParameterValues()) {
+				if (dv != null) {
+					types.putIfAbsent(dv.getType(), types.size());
+				}
+			}
+		}
+
+		void writeTables(DataOutputStream out) throws IOException {
+			writeVarInt(out, types.size());
+			for (DataType t : types.keySet()) {
+				writeType(out, t);
+			}
+			writeVarInt(out, symbols.size());
+			for (ParameterizedSymbol ps : symbols.keySet()) {
+				writeSymbol(out, ps);
+			}
+		}
+
+		int typeCount() {
+			return types.size();
+		}
+
+		int symbolCount() {
+			return symbols.size();
+		}
+
+		/**
+		 * Returns the types added to the table after the first {@code from} types.
+		 */
+		List<DataType> typesFrom(int from) {
+			return new ArrayList<>(types.keySet()).subList(from, types.size());
+		}
+
+		/**
+		 * Returns the symbols added to the table after the first {@code from} symbols.
+		 */
+		List<ParameterizedSymbol> symbolsFrom(int from) {
+			return new ArrayList<>(symbols.keySet()).subList(from, symbols.size());
+		}
+
+		void writeType(DataOutputStream out, DataType t) throws IOException {
+			out.writeUTF(t.getName());
+			out.writeUTF(t.getBase().getName());
+		}
+
+		void writeSymbol(DataOutputStream out, ParameterizedSymbol ps) throws IOException {
+			out.writeBoolean(ps instanceof InputSymbol);
+			out.writeUTF(ps.getName());
+			writeVarInt(out, ps.getArity());
+			for (DataType t : ps.getPtypes()) {
+				writeVarInt(out, types.get(t));
+			}
+		}
+
+		void writeSymbolInstance(DataOutputStream out, PSymbolInstance psi) throws IOException {
+			writeVarInt(out, symbols.get(psi.getBaseSymbol()));
+			for (DataValue<?> dv : psi.getParameterValues()) {
+				writeDataValue(out, dv);
+			}
+		}
+
+		private void writeDataValue(DataOutputStream out, DataValue<?> dv) throws IOException {
+			if (dv == null) {
+				out.writeByte(DV_NULL);
+			} else if (dv instanceof Constant) {
+				out.writeByte(DV_CONSTANT);
+				writeVarInt(out, ((Constant) dv).getId());
+			} else if (dv instanceof SumCDataValue) {
+				SumCDataValue<?> sumc = (SumCDataValue<?>) dv;
+				Integer cIdx = sumConstants.get(sumc.getConstant());
+				if (cIdx == null) {
+					throw new DecoratedRuntimeException("Sum constant not found in constants")
+					.addDecoration("value", sumc).addDecoration("constants", consts);
+				}
+				out.writeByte(DV_SUMC);
+				writeDataValue(out, sumc.getOperand());
+				writeVarInt(out, cIdx);
+			} else if (dv instanceof FreshValue) {
+				out.writeByte(DV_FRESH);
+				writeTypedId(out, dv);
+			} else if (dv instanceof IntervalDataValue) {
+				IntervalDataValue<?> idv = (IntervalDataValue<?>) dv;
+				out.writeByte(DV_INTERVAL);
+				writeTypedId(out, dv);
+				writeDataValue(out, idv.getLeft());
+				writeDataValue(out, idv.getRight());
+			} else if (dv.getClass() == DataValue.class) {
+				out.writeByte(DV_PLAIN);
+				writeTypedId(out, dv);
+			} else {
+				throw new RuntimeException("Serialization not implemented for DataValue of subtype: " + dv.getClass());
+			}
+		}
+
+		private void writeTypedId(DataOutputStream out, DataValue<?> dv) throws IOException {
+			writeVarInt(out, types.get(dv.getType()));
+			Object id = dv.getId();
+			if (id instanceof Integer) {
+				out.writeByte(ID_INTEGER);
+				writeVarLong(out, (Integer) id);
+			} else if (id instanceof Long) {
+				out.writeByte(ID_LONG);
+				writeVarLong(out, (Long) id);
+			} else if (id instanceof Double) {
+				out.writeByte(ID_DOUBLE);
+				out.writeDouble((Double) id);
+			} else if (id instanceof Boolean) {
+				out.writeByte(ID_BOOLEAN);
+				out.writeBoolean((Boolean) id);
+			} else if (id instanceof String) {
+				out.writeByte(ID_STRING);
+				out.writeUTF((String) id);
+			} else if (id instanceof BigDecimal) {
+				out.writeByte(ID_DECIMAL);
+				out.writeUTF(id.toString());
+			} else {
+				throw new RuntimeException("Serialization not implemented for data values of class: " + id.getClass());
+			}
+		}
+	}
+
+	/**
+	 * Reads symbols and data values using the symbol and type tables.
+	 */
+	static class Decoder {
+		private final Constants consts;
+		private final List<DataType> types = new ArrayList<>();
+		private final List<ParameterizedSymbol> symbols = new ArrayList<>();
+
+		Decoder(Constants consts) {
+			this.consts = consts;
+		}
+
+		void readTables(DataInputStream in) throws IOException {
+			int numTypes = readVarInt(in);
+			for (int i = 0; i < numTypes; i++) {
+				readType(in);
+			}
+			int numSymbols = readVarInt(in);
+			for (int i = 0; i < numSymbols; i++) {
+				readSymbol(in);
+			}
+		}
+
+		void readType(DataInputStream in) throws IOException {
+			String name = in.readUTF();
+			types.add(new DataType(name, loadClass(in.readUTF())));
+		}
+
+		void readSymbol(DataInputStream in) throws IOException {
+			boolean input = in.readBoolean();
+			String name = in.readUTF();
+			DataType[] ptypes = new DataType[readVarInt(in)];
+			for (int j = 0; j < ptypes.length; j++) {
+				ptypes[j] = types.get(readVarInt(in));
+			}
+			symbols.add(input ? new InputSymbol(name, ptypes) : new OutputSymbol(name, ptypes));
+		}
+
+		PSymbolInstance readSymbolInstance(DataInputStream in) throws IOException {
+			ParameterizedSymbol ps = symbols.get(readVarInt(in));
+			DataValue<?>[] dvs = new DataValue<?>[ps.getArity()];
+			for (int i = 0; i < dvs.length; i++) {
+				dvs[i] = readDataValue(in);
+			}
+			return new PSymbolInstance(ps, dvs);
+		}
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private DataValue<?> readDataValue(DataInputStream in) throws IOException {
+			int tag = in.readByte();
+			switch (tag) {
+			case DV_NULL:
+				return null;
+			case DV_PLAIN:
+				return readTypedId(in);
+			case DV_FRESH:
+				DataValue<?> fresh = readTypedId(in);
+				return new FreshValue(fresh.getType(), fresh.getId());
+			case DV_CONSTANT:
+				return constant(readVarInt(in));
+			case DV_SUMC:
+				DataValue operand = readDataValue(in);
+				return new SumCDataValue(operand, sumConstant(readVarInt(in)));
+			case DV_INTERVAL:
+				DataValue val = readTypedId(in);
+				DataValue left = readDataValue(in);
+				DataValue right = readDataValue(in);
+				return new IntervalDataValue(val, left, right);
+			default:
+				throw new IOException("Corrupt binary cache, unknown data value tag " + tag);
+			}
+		}
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private DataValue<?> readTypedId(DataInputStream in) throws IOException {
+			DataType type = types.get(readVarInt(in));
+			int kind = in.readByte();
+			Object id;
+			switch (kind) {
+			case ID_INTEGER:
+				id = (int) readVarLong(in);
+				break;
+			case ID_LONG:
+				id = readVarLong(in);
+				break;
+			case ID_DOUBLE:
+				id = in.readDouble();
+				break;
+			case ID_BOOLEAN:
+				id = in.readBoolean();
+				break;
+			case ID_STRING:
+				id = in.readUTF();
+				break;
+			case ID_DECIMAL:
+				id = new BigDecimal(in.readUTF());
+				break;
+			default:
+				throw new IOException("Corrupt binary cache, unknown data value class " + kind);
+			}
+			return new DataValue(type, id);
+		}
+
+		private DataValue<?> constant(int cIdx) {
+			for (Constant c : consts.keySet()) {
+				if (c.getId() == cIdx) {
+					return c;
+				}
+			}
+			throw new DecoratedRuntimeException("Constant with id " + cIdx + " not found in constants. " 
+					+ "Ensure that the current configuration uses the same constant setup as the previous")
+			.addDecoration("constants", consts);
+		}
+
+		private DataValue<?> sumConstant(int cIdx) {
+			SumConstants sumCs = consts.getSumCs();
+			for (SumConstant c : sumCs.keySet()) {
+				if (c.getId() == cIdx) {
+					return sumCs.get(c);
+				}
+			}
+			throw new DecoratedRuntimeException("Constant with id " + cIdx + " not found in constants. " 
+					+ "Ensure that the current configuration uses the same constant setup as the previous")
+			.addDecoration("constants", consts);
+		}
+
+		private static Class<?> loadClass(String name) throws IOException {
+			Class<?> c = PRIMITIVES.get(name);
+			if (c != null) {
+				return c;
+			}
+			try {
+				return Class.forName(name);
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Unknown data type base " + name, e);
+			}
+		}
+	}
+
+	static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	static int readVarInt(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Corrupt binary cache, varint too long");
+	}
+
+	/**
+	 * Writes a zig-zag encoded varint, so small negative values stay short.
+	 */
+	static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7fL) != 0) {
+			out.writeByte((int) ((zigzag & 0x7f) | 0x80));
+			zigzag >>>= 7;
+		}
+		out.writeByte((int) zigzag);
+	}
+
+	static long readVarLong(DataInputStream in) throws IOException {
+		long zigzag = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			int b = in.readUnsignedByte();
+			zigzag |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		throw new IOException("Corrupt binary cache, varint too long");
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Batch handling shared by the cache oracles.
+ */
+final class CacheBatches {
+
+    private CacheBatches() {
+    }
+
+    /**
+     * Completes a query ending in an input with a dummy output, so it can be 
+     * looked up in the cache.
+     */
+    static Word<PSymbolInstance> pad(Word<PSymbolInstance> query) {
+        return (query.length() % 2 != 0) 
+                ? query.append(CanonizingIOCacheOracle.CACHE_DUMMY) : query;
+    }
+
+    /**
+     * Answers the queries found in the cache and submits the others to the 
+     * SUL oracle as one batch, adding their traces to the cache.
+     * 
+     * @param queries
+     * @param prepare turns a query into the padded query that is looked up 
+     * and executed
+     * @param lookup returns the cached trace of a prepared query or null
+     * @param sul
+     * @param cache
+     * @return the traces, in the order of the queries
+     */
+    static List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> queries,
+            UnaryOperator<Word<PSymbolInstance>> prepare, UnaryOperator<Word<PSymbolInstance>> lookup,
+            IOOracle sul, IOCache cache) {
+        List<Word<PSymbolInstance>> traces = new ArrayList<>(queries.size());
+        List<Word<PSymbolInstance>> missing = new ArrayList<>();
+        List<Integer> missingIdx = new ArrayList<>();
+        for (Word<PSymbolInstance> query : queries) {
+            Word<PSymbolInstance> prepared = prepare.apply(query);
+            Word<PSymbolInstance> trace = lookup.apply(prepared);
+            if (trace == null) {
+                missing.add(prepared);
+                missingIdx.add(traces.size());
+            }
+            traces.add(trace);
+        }
+        if (!missing.isEmpty()) {
+            List<Word<PSymbolInstance>> sulTraces = sul.traces(missing);
+            for (int i = 0; i < sulTraces.size(); i++) {
+                cache.addToCache(sulTraces.get(i));
+                traces.set(missingIdx.get(i), sulTraces.get(i));
+            }
+        }
+        return traces;
+    }
+
+    /**
+     * Submits queries missing from the cache to the SUL oracle as one batch 
+     * and adds their traces to the cache.
+     * 
+     * @param missing prepared queries, without duplicates
+     * @param sul
+     * @param cache
+     */
+    static void fill(Collection<Word<PSymbolInstance>> missing, IOOracle sul, IOCache cache) {
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Word<PSymbolInstance> trace : sul.traces(new ArrayList<>(missing))) {
+            cache.addToCache(trace);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import de.learnlib.logging.LearnLogger;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.oracles.io.BinaryCacheManager.Decoder;
+import de.learnlib.ralib.oracles.io.BinaryCacheManager.Encoder;
+import de.learnlib.ralib.oracles.io.IOCache.CacheNode;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.words.Word;
+
+/**
+ * An append-only journal of the traces added to a cache. Traces are written
+ * as they are added, so a learning run that is killed keeps its queries
+ * without dumping the whole cache at exit.
+ *
+ * The journal uses the binary cache format with the journal layout. Types
+ * and symbols are defined by a record before their first use, so every
+ * complete prefix of the file can be read. A record that was only partly
+ * written when the process died is dropped on the next open.
+ *
+ * Writes are buffered. The buffer is flushed and synced to disk at most
+ * once per sync interval, an interval of 0 syncs every trace. If a scheduled
+ * sync fails, syncing stops and the failure is thrown by the next append and
+ * by close.
+ */
+public class CacheJournal implements Closeable {
+
+	private static final int REC_TYPE = 1;
+	private static final int REC_SYMBOL = 2;
+	private static final int REC_TRACE = 3;
+
+	private final Path file;
+	private final Constants consts;
+	private final long syncMillis;
+
+	private FileOutputStream fileOut;
+	private DataOutputStream out;
+	private Encoder encoder;
+	private long lastSync;
+	private boolean dirty;
+	private ScheduledExecutorService syncer;
+	private IOException syncFailure;
+
+	private static LearnLogger log = LearnLogger.getLogger(CacheJournal.class);
+
+	private CacheJournal(Path file, Constants consts, long syncMillis) {
+		this.file = file;
+		this.consts = consts;
+		this.syncMillis = syncMillis;
+	}
+
+	/**
+	 * Opens a journal, replaying its traces into the cache. The journal is
+	 * compacted to the maximal traces it contains before new traces are
+	 * appended. A journal that does not exist is created.
+	 */
+	public static CacheJournal open(String fileName, IOCache cache, Constants consts, long syncMillis)
+			throws IOException {
+		CacheJournal journal = new CacheJournal(Paths.get(fileName), consts, syncMillis);
+		IOCache replayed = new IOCache();
+		if (new File(fileName).exists()) {
+			for (Word<PSymbolInstance> trace : journal.replay()) {
+				replayed.addToCache(trace);
+				cache.addToCache(trace);
+			}
+		}
+		journal.rewrite(replayed.getRoot());
+		if (syncMillis > 0) {
+			journal.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "cache-journal-sync");
+				t.setDaemon(true);
+				return t;
+			});
+			journal.syncer.scheduleWithFixedDelay(journal::syncIfDirty, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+		}
+		return journal;
+	}
+
+	/**
+	 * Appends a trace to the journal.
+	 */
+	public synchronized void append(Word<PSymbolInstance> trace) throws IOException {
+		if (out == null) {
+			throw new IOException("Cache journal " + file + " is closed");
+		}
+		checkSyncFailure();
+		writeTrace(trace);
+		dirty = true;
+		if (System.currentTimeMillis() - lastSync >= syncMillis) {
+			sync();
+		}
+	}
+
+	/**
+	 * Discards the journaled traces. Used once the traces are contained in
+	 * a dumped cache.
+	 */
+	public synchronized void reset() throws IOException {
+		closeStreams();
+		rewrite(new CacheNode());
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (syncer != null) {
+			syncer.shutdownNow();
+		}
+		closeStreams();
+		checkSyncFailure();
+	}
+
+	private List<Word<PSymbolInstance>> replay() throws IOException {
+		List<Word<PSymbolInstance>> traces = new ArrayList<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.toFile())))) {
+			BinaryCacheManager.readHeader(in, BinaryCacheManager.LAYOUT_JOURNAL);
+			Decoder decoder = new Decoder(consts);
+			while (true) {
+				int tag = in.read();
+				if (tag == -1) {
+					break;
+				}
+				switch (tag) {
+				case REC_TYPE:
+					decoder.readType(in);
+					break;
+				case REC_SYMBOL:
+					decoder.readSymbol(in);
+					break;
+				case REC_TRACE:
+					int length = BinaryCacheManager.readVarInt(in);
+					PSymbolInstance[] symbols = new PSymbolInstance[length];
+					for (int i = 0; i < length; i++) {
+						symbols[i] = decoder.readSymbolInstance(in);
+					}
+					traces.add(Word.fromSymbols(symbols));
+					break;
+				default:
+					throw new IOException("Corrupt cache journal " + file + ": unknown record " + tag);
+				}
+			}
+		} catch (EOFException e) {
+			// the process died while writing the last record
+		}
+		return traces;
+	}
+
+	/**
+	 * Replaces the journal by one containing the maximal traces of a trie and
+	 * opens it for appending.
+	 */
+	private void rewrite(CacheNode root) throws IOException {
+		Path tmp = Paths.get(file + ".tmp");
+		encoder = new Encoder(consts);
+		try (FileOutputStream tmpOut = new FileOutputStream(tmp.toFile())) {
+			out = new DataOutputStream(new BufferedOutputStream(tmpOut));
+			BinaryCacheManager.writeHeader(out, BinaryCacheManager.LAYOUT_JOURNAL);
+			writeLeaves(root, Word.epsilon());
+			out.flush();
+			tmpOut.getFD().sync();
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		fileOut = new FileOutputStream(file.toFile(), true);
+		out = new DataOutputStream(new BufferedOutputStream(fileOut));
+		lastSync = System.currentTimeMillis();
+		dirty = false;
+	}
+
+	private void writeLeaves(CacheNode node, Word<PSymbolInstance> prefix) throws IOException {
+		for (int pos = 0; pos < node.childCount(); pos++) {
+			Word<PSymbolInstance> trace = prefix.append(node.inputAt(pos)).append(node.outputAt(pos));
+			if (node.childAt(pos).childCount() == 0) {
+				writeTrace(trace);
+			} else {
+				writeLeaves(node.childAt(pos), trace);
+			}
+		}
+	}
+
+	private void writeTrace(Word<PSymbolInstance> trace) throws IOException {
+		int types = encoder.typeCount();
+		int symbols = encoder.symbolCount();
+		for (PSymbolInstance psi : trace) {
+			encoder.collect(psi);
+		}
+		for (DataType t : encoder.typesFrom(types)) {
+			out.writeByte(REC_TYPE);
+			encoder.writeType(out, t);
+		}
+		for (ParameterizedSymbol ps : encoder.symbolsFrom(symbols)) {
+			out.writeByte(REC_SYMBOL);
+			encoder.writeSymbol(out, ps);
+		}
+		out.writeByte(REC_TRACE);
+		BinaryCacheManager.writeVarInt(out, trace.length());
+		for (PSymbolInstance psi : trace) {
+			encoder.writeSymbolInstance(out, psi);
+		}
+	}
+
+	private synchronized void syncIfDirty() {
+		if (dirty && out != null) {
+			try {
+				sync();
+			} catch (IOException e) {
+				log.log(Level.SEVERE, "Sync of cache journal " + file + " failed", e);
+				syncFailure = e;
+				syncer.shutdown();
+			}
+		}
+	}
+
+	private void checkSyncFailure() throws IOException {
+		if (syncFailure != null) {
+			throw new IOException("Cache journal " + file + " is not durable", syncFailure);
+		}
+	}
+
+	private void sync() throws IOException {
+		out.flush();
+		fileOut.getFD().sync();
+		lastSync = System.currentTimeMillis();
+		dirty = false;
+	}
+
+	private void closeStreams() throws IOException {
+		if (out != null) {
+			sync();
+			out.close();
+			out = null;
+			fileOut = null;
+		}
+	}
+}
@@ -8,14 +8,19 @@ import net.automatalib.words.Word;
 
 
 /**
- * A very inefficient cache SUL implementation. However inefficient, it doesn't break IOCache encapsulation.
+ * A SUL answering from a cache where it can. A cursor descends the cache trie
+ * one step at a time. The wrapped SUL is only started at the first input that
+ * is not cached, replaying the cached prefix, and runs on from there, adding
+ * its outputs to the cache. Queries answered from the cache entirely do not
+ * reach the wrapped SUL.
  */
 public class CachingSUL extends DataWordSUL{
 	
 	private DataWordSUL sul;
 	private IOCache cache;
-	private Word<PSymbolInstance> trace;
+	private IOCache.Cursor cursor;
 	private boolean found = true;
+	private boolean started = false;
 
 	public CachingSUL(DataWordSUL sul, IOCache cache) {
 		this.sul = sul;
@@ -24,43 +29,81 @@ public class CachingSUL extends DataWordSUL{
 
 	@Override
 	public void pre() {
-		this.sul.pre();
-		this.trace = Word.epsilon();
+		this.cursor = cache.cursor();
 		this.found = true;
+		this.started = false;
 	}
 
 	@Override
 	public void post() {
-		this.sul.post();
+		this.cursor.close();
+		if (started) {
+			this.sul.post();
+		}
+	}
+
+	@Override
+	public boolean canSnapshot() {
+		return sul.canSnapshot();
+	}
+
+	@Override
+	public Object snapshot() {
+		return new Object[] {cursor.getTrace(), found, found ? null : sul.snapshot()};
+	}
+
+	/**
+	 * Moves a new cursor to the cached position of the snapshot. The wrapped 
+	 * SUL is only restored if it was running at the snapshot, otherwise it 
+	 * is replayed at the next input that is not cached.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void restore(Object snapshot) {
+		Object[] s = (Object[]) snapshot;
+		Word<PSymbolInstance> trace = (Word<PSymbolInstance>) s[0];
+		this.cursor.close();
+		this.cursor = cache.cursor();
+		for (int i = 0; i < trace.length(); i = i + 2) {
+			cursor.step(trace.getSymbol(i));
+		}
+		this.found = (Boolean) s[1];
+		if (!found) {
+			sul.restore(s[2]);
+		}
 	}
 
 	@Override
 	public PSymbolInstance step(PSymbolInstance in) throws SULException {
-		PSymbolInstance out = null;
-		trace = this.trace.append(in);
 		if (found) {
-			Word<PSymbolInstance> trWithResp = this.cache.traceFromCache(trace.append(CanonizingIOCacheOracle.CACHE_DUMMY));
-			if (trWithResp != null)
-				out = trWithResp.lastSymbol();
-			else {
-				found = false;
-				for (int i=0; i< trace.length(); i=i+2) {
-					out = sul.step(trace.getSymbol(i));
-					if (i+1 < trace.length()) {
-						PSymbolInstance expected = trace.getSymbol(i+1);
-						if (!out.equals(expected)) 
-							throw new NonDeterminismException(trace.prefix(i), expected, out);
-					}
-				}
+			PSymbolInstance out = cursor.step(in);
+			if (out != null) {
+				return out;
 			}
+			found = false;
+			replay();
 		}
-		else
-			out = sul.step(in);
-		trace = trace.append(out);
-		if (!found) {
-			this.cache.addToCache(trace);
-		}
+		PSymbolInstance out = sul.step(in);
+		cursor.add(in, out);
 		return out;
 	}
 
+	/**
+	 * Starts the wrapped SUL and brings it to the end of the cached prefix.
+	 */
+	private void replay() {
+		if (started) {
+			sul.post();
+		}
+		sul.pre();
+		started = true;
+		Word<PSymbolInstance> prefix = cursor.getTrace();
+		for (int i = 0; i < prefix.length(); i = i + 2) {
+			PSymbolInstance out = sul.step(prefix.getSymbol(i));
+			PSymbolInstance expected = prefix.getSymbol(i + 1);
+			if (!out.equals(expected)) {
+				throw new NonDeterminismException(prefix.prefix(i + 1), expected, out);
+			}
+		}
+	}
 }
@@ -16,7 +16,12 @@
  */
 package de.learnlib.ralib.oracles.io;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 
 import de.learnlib.api.Query;
@@ -59,47 +64,44 @@ public class CanonizingIOCacheOracle implements DataWordIOOracle {
         this.traceCanonizer = sul.getTraceCanonizer();
     }
 
+    /**
+     * Canonizes the queries and submits those not answered by the cache to 
+     * the SUL oracle as one batch (see {@link IOOracle#traces(List)}), then 
+     * answers all queries from the cache.
+     */
     @Override
     public void processQueries(Collection<? extends Query<PSymbolInstance, Boolean>> clctn) {
+        List<Word<PSymbolInstance>> fixedQueries = new ArrayList<>(clctn.size());
+        Set<Word<PSymbolInstance>> missing = new LinkedHashSet<>();
+        for (Query<PSymbolInstance, Boolean> q : clctn) {
+        	Word<PSymbolInstance> fixedQuery = traceCanonizer.canonize(q.getInput()); 
+            fixedQueries.add(fixedQuery);
+            if (ioCache.answerFromCache(fixedQuery) == null) {
+                missing.add(CacheBatches.pad(fixedQuery));
+            }
+        }
+        CacheBatches.fill(missing, sul, ioCache);
+        Iterator<Word<PSymbolInstance>> fixed = fixedQueries.iterator();
         for (Query<PSymbolInstance, Boolean> q : clctn) {
             log.log(Level.FINEST, "MQ: {0}", q.getInput());
-            boolean accepted = traceBoolean(q.getInput());
+            boolean accepted = answerFromCache(fixed.next(), q.getInput());
             q.answer(accepted);
         }
     }
 
-    private boolean traceBoolean(Word<PSymbolInstance> query) {
-    	Word<PSymbolInstance> fixedQuery = traceCanonizer.canonize(query); 
+    private boolean answerFromCache(Word<PSymbolInstance> fixedQuery, Word<PSymbolInstance> query) {
         Boolean ret = ioCache.answerFromCache(fixedQuery);
-        if (ret != null) {
-            return ret;
-        }
-        Word<PSymbolInstance> test = fixedQuery;
-        if (fixedQuery.length() % 2 != 0) {
-            test = fixedQuery.append(CACHE_DUMMY);
-        }
-        Word<PSymbolInstance> trace  = null;
-        boolean added = false;
-	    trace = sul.trace(test);
-	    added = ioCache.addToCache(trace);
-	
-        //assert added;
-        ret = ioCache.answerFromCache(fixedQuery);
         if (ret == null)  {
         	throw new DecoratedRuntimeException("Could not find answer for query, even after "
         			+ "it had been added to cache")
-        	.addDecoration("fixedQuery", fixedQuery).addDecoration("original query", query)
-        	.addDecoration("trace", trace);
+        	.addDecoration("fixedQuery", fixedQuery).addDecoration("original query", query);
         }
         return ret;
     }
 
     
     public Word<PSymbolInstance> trace(Word<PSymbolInstance> query) {
-    	Word<PSymbolInstance> fixedQuery = traceCanonizer.canonize(query); 
-        if (fixedQuery.length() % 2 != 0) {
-        	fixedQuery = fixedQuery.append(new PSymbolInstance(new OutputSymbol("__cache_dummy")));
-        }
+    	Word<PSymbolInstance> fixedQuery = CacheBatches.pad(traceCanonizer.canonize(query)); 
 
         Word<PSymbolInstance> trace = ioCache.traceFromCache(fixedQuery, traceCanonizer);
         if (trace != null) {
@@ -110,4 +112,14 @@ public class CanonizingIOCacheOracle implements DataWordIOOracle {
 //        assert added;
         return trace;
     }
+
+    /**
+     * Answers the queries found in the cache and submits the others
+     * to the SUL oracle as one batch.
+     */
+    @Override
+    public List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> queries) {
+        return CacheBatches.traces(queries, q -> CacheBatches.pad(traceCanonizer.canonize(q)), 
+                q -> ioCache.traceFromCache(q, traceCanonizer), sul, ioCache);
+    }
 }
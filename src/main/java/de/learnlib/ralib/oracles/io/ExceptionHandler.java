@@ -11,12 +11,22 @@ public interface ExceptionHandler {
 	public static final int NON_DET_ATTEMPTS =3; // how many attempts are made before non determinism is signaled
 	public static final int SUL_RESTART_ATTEMPTS =20; // sul restart is normal and should never be a problem
 	
+	/**
+	 * The attempts and waits used by {@link #exceptionHandler(Supplier)}.
+	 */
+	public default RecoveryPolicy getRecoveryPolicy() {
+		return RecoveryPolicy.DEFAULT;
+	}
+	
 	public default <O> O exceptionHandler(Supplier<O> fun) {
+		RecoveryPolicy policy = getRecoveryPolicy();
 		int nonDet = 0, sulRest = 0;
 		DecoratedRuntimeException lastExc = null;
 		
-		while (nonDet < NON_DET_ATTEMPTS && sulRest < SUL_RESTART_ATTEMPTS) {
+		while (nonDet < policy.getNonDetAttempts() && sulRest < policy.getRestartAttempts()) {
 			try {
+				if (lastExc != null)
+					policy.backoff(nonDet + sulRest);
 				//o..processQueries(queries);
 				O result = fun.get();
 				return result;
@@ -1,7 +1,9 @@
 package de.learnlib.ralib.oracles.io;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import de.learnlib.api.SULException;
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
@@ -9,19 +11,55 @@ import de.learnlib.ralib.exceptions.NonDeterminismException;
 import de.learnlib.ralib.exceptions.SULRestartException;
 import de.learnlib.ralib.sul.DataWordSUL;
 import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
 
+/**
+ * Recovers from non-determinism and SUL restarts at the step they occur in,
+ * instead of running the whole query again.
+ *
+ * The inputs and outputs of the current run are kept as a checkpoint. After
+ * an exception the SUL is restarted and the checkpoint is replayed, checking
+ * the outputs, before the failed step is tried again.
+ *
+ * Outputs are checked against a reference cache, if given. An output that
+ * differs from the cache, or an output of a flaky symbol that is not cached
+ * (see {@link NonDeterminismStatistics}), is resolved by majority vote: the
+ * step is replayed until one output has a majority of the votes of the
+ * {@link RecoveryPolicy}, the cached output counting as one vote.
+ * Non-determinism is signaled if the majority contradicts the cache.
+ */
 public class ExceptionHandlerSUL extends DataWordSUL implements ExceptionHandler {
 	private DataWordSUL sul;
+	private IOCache reference;
+	private RecoveryPolicy policy;
+	private NonDeterminismStatistics statistics;
 	private List<PSymbolInstance> inputs;
+	private List<PSymbolInstance> outputs;
+
+	/**
+	 * position of the run in the reference, null if the run left the reference.
+	 */
+	private IOCache.Cursor cursor;
 
 	public ExceptionHandlerSUL(DataWordSUL dwSul) {
+		this(dwSul, null, RecoveryPolicy.DEFAULT, new NonDeterminismStatistics());
+	}
+
+	public ExceptionHandlerSUL(DataWordSUL dwSul, IOCache reference, RecoveryPolicy policy,
+			NonDeterminismStatistics statistics) {
 		this.sul = dwSul;
+		this.reference = reference;
+		this.policy = policy;
+		this.statistics = statistics;
 		this.inputs = new ArrayList<>();
+		this.outputs = new ArrayList<>();
 	}
 
 	public void pre() {
 		this.sul.pre();
 		this.inputs = new ArrayList<>();
+		this.outputs = new ArrayList<>();
+		this.cursor = (reference == null) ? null : reference.cursor();
 	}
 
 	@Override
@@ -29,17 +67,61 @@ public class ExceptionHandlerSUL extends DataWordSUL implements ExceptionHandler
 		this.sul.post();
 	}
 
+	@Override
+	public boolean canSnapshot() {
+		return this.sul.canSnapshot();
+	}
+
+	@Override
+	public Object snapshot() {
+		return new Object[] {this.sul.snapshot(), new ArrayList<>(inputs), new ArrayList<>(outputs)};
+	}
+
+	/**
+	 * Restores the checkpoint of the snapshot and moves the reference cursor 
+	 * along its inputs.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void restore(Object snapshot) {
+		Object[] s = (Object[]) snapshot;
+		this.sul.restore(s[0]);
+		this.inputs = new ArrayList<>((List<PSymbolInstance>) s[1]);
+		this.outputs = new ArrayList<>((List<PSymbolInstance>) s[2]);
+		this.cursor = (reference == null) ? null : reference.cursor();
+		for (PSymbolInstance in : inputs) {
+			lookup(in);
+		}
+	}
+
+	@Override
+	public RecoveryPolicy getRecoveryPolicy() {
+		return policy;
+	}
+
+	public NonDeterminismStatistics getStatistics() {
+		return statistics;
+	}
+
 	@Override
 	public PSymbolInstance step(PSymbolInstance in) throws SULException {
+		PSymbolInstance expected = lookup(in);
 		int nonDet = 0, sulRest = 0;
 		DecoratedRuntimeException lastExc = null;
 
-		while (nonDet < NON_DET_ATTEMPTS && sulRest < SUL_RESTART_ATTEMPTS) {
+		while (nonDet < policy.getNonDetAttempts() && sulRest < policy.getRestartAttempts()) {
 			try {
-				if (lastExc != null) 
+				if (lastExc != null) {
+					policy.backoff(nonDet + sulRest);
 					recover();
-				PSymbolInstance out = this.sul.step(in);
+				}
+				PSymbolInstance out = run(in);
+				if ((expected != null && !out.equals(expected))
+						|| (expected == null && policy.getVotes() > 1 && statistics.isFlaky(in.getBaseSymbol()))) {
+					out = vote(in, expected, out);
+				}
 				this.inputs.add(in);
+				this.outputs.add(out);
 				return out;
 			} catch(NonDeterminismException exc) {
 				nonDet ++;
@@ -53,10 +135,73 @@ public class ExceptionHandlerSUL extends DataWordSUL implements ExceptionHandler
 		this.sul.post();
 		throw lastExc;
 	}
-	
+
+	private PSymbolInstance lookup(PSymbolInstance in) {
+		if (cursor == null) {
+			return null;
+		}
+		PSymbolInstance out = cursor.step(in);
+		if (out == null) {
+			cursor = null;
+		}
+		return out;
+	}
+
+	private PSymbolInstance run(PSymbolInstance in) {
+		PSymbolInstance out = this.sul.step(in);
+		statistics.recordStep(in.getBaseSymbol());
+		return out;
+	}
+
+	/**
+	 * Replays the step until the last output has a majority. Leaves the SUL
+	 * in the state after the winning output.
+	 */
+	private PSymbolInstance vote(PSymbolInstance in, PSymbolInstance expected, PSymbolInstance first) {
+		Map<PSymbolInstance, Integer> votes = new LinkedHashMap<>();
+		if (expected != null) {
+			votes.put(expected, 1);
+		}
+		votes.merge(first, 1, Integer::sum);
+		PSymbolInstance last = first;
+		int rounds = 1;
+		while (votes.get(last) < policy.getMajority() && rounds < policy.getVotes()) {
+			recover();
+			last = run(in);
+			votes.merge(last, 1, Integer::sum);
+			rounds++;
+		}
+		if (votes.size() > 1) {
+			statistics.recordNonDeterminism(in.getBaseSymbol());
+		}
+		if (votes.get(last) < policy.getMajority() || (expected != null && !last.equals(expected))) {
+			throw new NonDeterminismException(checkpoint(inputs.size()).append(in),
+					(expected != null) ? expected : first, last);
+		}
+		return last;
+	}
+
+	/**
+	 * Restarts the SUL and replays the checkpoint.
+	 */
 	private void recover() {
 		this.sul.post();
 		this.sul.pre();
-		this.inputs.forEach(in -> this.sul.step(in));
+		for (int i = 0; i < inputs.size(); i++) {
+			PSymbolInstance out = run(inputs.get(i));
+			if (!out.equals(outputs.get(i))) {
+				statistics.recordNonDeterminism(inputs.get(i).getBaseSymbol());
+				throw new NonDeterminismException(checkpoint(i).append(inputs.get(i)), outputs.get(i), out);
+			}
+		}
+	}
+
+	private Word<PSymbolInstance> checkpoint(int steps) {
+		List<PSymbolInstance> trace = new ArrayList<>();
+		for (int i = 0; i < steps; i++) {
+			trace.add(inputs.get(i));
+			trace.add(outputs.get(i));
+		}
+		return Word.fromList(trace);
 	}
 }
@@ -15,19 +15,33 @@ import net.automatalib.words.Word;
 public class ExceptionHandlers{
 	
 	public static IOOracle wrapIOOracle(IOOracle oracle) {
-		return new IOOracleWrapper(oracle);
+		return new IOOracleWrapper(oracle, RecoveryPolicy.DEFAULT);
+	}
+	
+	public static IOOracle wrapIOOracle(IOOracle oracle, RecoveryPolicy policy) {
+		return new IOOracleWrapper(oracle, policy);
 	}
 	
 	public static DataWordIOOracle wrapDataWordIOOracle(DataWordIOOracle oracle) {
-		return new DataWordIOOracleWrapper(oracle);
+		return new DataWordIOOracleWrapper(oracle, RecoveryPolicy.DEFAULT);
+	}
+	
+	public static DataWordIOOracle wrapDataWordIOOracle(DataWordIOOracle oracle, RecoveryPolicy policy) {
+		return new DataWordIOOracleWrapper(oracle, policy);
 	}
 	
 	
 	static class DataWordIOOracleWrapper implements DataWordIOOracle, ExceptionHandler {
 		private  DataWordIOOracle oracle;
-		public DataWordIOOracleWrapper(DataWordIOOracle oracle) {
+		private RecoveryPolicy policy;
+		public DataWordIOOracleWrapper(DataWordIOOracle oracle, RecoveryPolicy policy) {
 			this.oracle = oracle;
-			
+			this.policy = policy;
+		}
+		
+		@Override
+		public RecoveryPolicy getRecoveryPolicy() {
+			return policy;
 		}
 	
 		public void processQueries(Collection<? extends Query<PSymbolInstance, Boolean>> queries) {
@@ -47,6 +61,12 @@ public class ExceptionHandlers{
 			Word<PSymbolInstance> trace = this.exceptionHandler(() -> ((IOOracle) this.oracle).trace(query));
 			return trace;
 		}
+		
+		@Override
+		public List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> query) {
+			List<Word<PSymbolInstance>> traces = this.exceptionHandler(() -> ((IOOracle) this.oracle).traces(query));
+			return traces;
+		}
 	}
 	
 	
@@ -74,9 +94,16 @@ public class ExceptionHandlers{
 
 	static class IOOracleWrapper implements IOOracle, ExceptionHandler{
 		private IOOracle oracle;
+		private RecoveryPolicy policy;
 
-		public IOOracleWrapper(IOOracle oracle) {
+		public IOOracleWrapper(IOOracle oracle, RecoveryPolicy policy) {
 			this.oracle = oracle;
+			this.policy = policy;
+		}
+		
+		@Override
+		public RecoveryPolicy getRecoveryPolicy() {
+			return policy;
 		}
 		
 		@Override
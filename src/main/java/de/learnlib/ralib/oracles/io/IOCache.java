@@ -1,11 +1,15 @@
 package de.learnlib.ralib.oracles.io;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
 
@@ -14,31 +18,214 @@ import de.learnlib.ralib.oracles.TraceCanonizer;
 import de.learnlib.ralib.words.PSymbolInstance;
 import net.automatalib.words.Word;
 
+/**
+ * A cache of the traces of an SUL, stored as a trie from inputs to outputs.
+ * The cache can be shared between threads: lookups do not lock and adding a
+ * trace only locks the trie nodes it extends.
+ */
 public class IOCache {
 
 	private final CacheNode root;
 
+	// held shared while adding to the trie, exclusively while traversing it
+	private final ReadWriteLock updateLock = new ReentrantReadWriteLock();
+
+	private CacheJournal journal;
+
+	/**
+	 * A node of the cache trie. The inputs, outputs and successors of a node
+	 * are kept in flat arrays in insertion order, so leaves hold no tables.
+	 * Inputs are found by comparing their hash codes, nodes with many
+	 * successors also get an open addressing table over the hash codes.
+	 * 
+	 * Children are only appended. Appending locks the node and publishes a
+	 * new {@link Children} view, so lookups never lock and see a consistent
+	 * prefix of the children.
+	 */
 	static class CacheNode {
 
-		final Map<PSymbolInstance, PSymbolInstance> output = new LinkedHashMap<>();
-		final Map<PSymbolInstance, CacheNode> next = new LinkedHashMap<>();
+		private static final int INDEX_THRESHOLD = 8;
+
+		/**
+		 * The first {@code size} children of a node. The arrays are shared
+		 * with later views, which only write beyond {@code size}.
+		 */
+		private static final class Children {
+			// input, output and successor of every child
+			final Object[] entries;
+			final int[] hashes;
+			// positions of the children + 1 by hash code, once a node has many children
+			final int[] index;
+			final int size;
+
+			Children(Object[] entries, int[] hashes, int[] index, int size) {
+				this.entries = entries;
+				this.hashes = hashes;
+				this.index = index;
+				this.size = size;
+			}
+		}
+
+		private volatile Children children;
+
+		/**
+		 * Returns the output to an input, or null if the input is not cached.
+		 */
+		PSymbolInstance getOutput(PSymbolInstance in) {
+			int pos = find(in);
+			return pos < 0 ? null : outputAt(pos);
+		}
+
+		/**
+		 * Returns the successor of an input, or null if the input is not cached.
+		 */
+		CacheNode getNext(PSymbolInstance in) {
+			int pos = find(in);
+			return pos < 0 ? null : childAt(pos);
+		}
+
+		/**
+		 * Number of children. Nodes that are loaded lazily are loaded on the
+		 * first access.
+		 */
+		int childCount() {
+			ensureLoaded();
+			Children c = children;
+			return c == null ? 0 : c.size;
+		}
+
+		PSymbolInstance inputAt(int pos) {
+			ensureLoaded();
+			return (PSymbolInstance) children.entries[3 * pos];
+		}
+
+		PSymbolInstance outputAt(int pos) {
+			ensureLoaded();
+			return (PSymbolInstance) children.entries[3 * pos + 1];
+		}
+
+		CacheNode childAt(int pos) {
+			ensureLoaded();
+			return (CacheNode) children.entries[3 * pos + 2];
+		}
+
+		/**
+		 * Returns false for lazily loaded nodes that have not been accessed yet.
+		 */
+		boolean isLoaded() {
+			return true;
+		}
+
+		/**
+		 * Loads the children of lazily loaded nodes.
+		 */
+		void ensureLoaded() {
+		}
+
+		/**
+		 * Appends a child unless the input is cached already and returns the
+		 * position of the input.
+		 */
+		synchronized int addChildIfAbsent(PSymbolInstance in, PSymbolInstance out, CacheNode next) {
+			int pos = find(in);
+			if (pos < 0) {
+				addChild(in, out, next);
+			}
+			return pos < 0 ? childCount() - 1 : pos;
+		}
+
+		/**
+		 * Appends a child without checking whether the input is cached and
+		 * without loading the node.
+		 */
+		synchronized void addChild(PSymbolInstance in, PSymbolInstance out, CacheNode next) {
+			Children c = children;
+			int size = c == null ? 0 : c.size;
+			Object[] entries;
+			int[] hashes;
+			if (c == null) {
+				entries = new Object[3];
+				hashes = new int[1];
+			} else if (size == c.hashes.length) {
+				entries = Arrays.copyOf(c.entries, 6 * size);
+				hashes = Arrays.copyOf(c.hashes, 2 * size);
+			} else {
+				entries = c.entries;
+				hashes = c.hashes;
+			}
+			entries[3 * size] = in;
+			entries[3 * size + 1] = out;
+			entries[3 * size + 2] = next;
+			hashes[size] = in.hashCode();
+
+			int[] index = c == null ? null : c.index;
+			if (index != null && 2 * (size + 1) <= index.length) {
+				indexChild(index, hashes, size);
+			} else if (size + 1 > INDEX_THRESHOLD) {
+				index = new int[Integer.highestOneBit(size + 1) * 4];
+				for (int pos = 0; pos <= size; pos++) {
+					indexChild(index, hashes, pos);
+				}
+			}
+			children = new Children(entries, hashes, index, size + 1);
+		}
+
+		private static void indexChild(int[] index, int[] hashes, int pos) {
+			int mask = index.length - 1;
+			int slot = spread(hashes[pos]) & mask;
+			while (index[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			index[slot] = pos + 1;
+		}
+
+		private int find(PSymbolInstance in) {
+			ensureLoaded();
+			Children c = children;
+			if (c == null) {
+				return -1;
+			}
+			int hash = in.hashCode();
+			if (c.index == null) {
+				for (int pos = 0; pos < c.size; pos++) {
+					if (c.hashes[pos] == hash && in.equals(c.entries[3 * pos])) {
+						return pos;
+					}
+				}
+				return -1;
+			}
+			int mask = c.index.length - 1;
+			for (int slot = spread(hash) & mask; c.index[slot] != 0; slot = (slot + 1) & mask) {
+				// slots of children appended after this view are skipped
+				int pos = c.index[slot] - 1;
+				if (pos < c.size && c.hashes[pos] == hash && in.equals(c.entries[3 * pos])) {
+					return pos;
+				}
+			}
+			return -1;
+		}
+
+		private static int spread(int hash) {
+			return hash ^ (hash >>> 16);
+		}
 
 		public String toString() {
 			StringBuilder builder = new StringBuilder().append("(");
-			output.keySet().forEach(key -> builder.append(key).append("\n ").append(output.get(key)).append("\n ")
-					.append(next.get(key).toString()));
+			for (int pos = 0; pos < childCount(); pos++) {
+				builder.append(inputAt(pos)).append("\n ").append(outputAt(pos)).append("\n ")
+						.append(childAt(pos).toString());
+			}
 			builder.append(")");
 			return builder.toString();
 		}
 
 		public CacheNode getCacheExcluding(BiPredicate<PSymbolInstance, PSymbolInstance> exclusionPredicate) {
 			CacheNode node = new CacheNode();
-			for (PSymbolInstance in : this.next.keySet()) {
-				PSymbolInstance out = output.get(in);
-				CacheNode n = next.get(in);
+			for (int pos = 0; pos < childCount(); pos++) {
+				PSymbolInstance in = inputAt(pos);
+				PSymbolInstance out = outputAt(pos);
 				if (!exclusionPredicate.test(in, out)) {
-					node.output.put(in, out);
-					node.next.put(in, n.getCacheExcluding(exclusionPredicate));
+					node.addChild(in, out, childAt(pos).getCacheExcluding(exclusionPredicate));
 				}
 			}
 			return node;
@@ -57,26 +244,23 @@ public class IOCache {
 
 		private void collectWords(Collection<Word<PSymbolInstance>> collection, Word<PSymbolInstance> prefix,
 				Predicate<Word<PSymbolInstance>> selectionPredicate) {
-			for (PSymbolInstance in : this.next.keySet()) {
-				CacheNode n = next.get(in);
-				PSymbolInstance out = output.get(in);
-				Word<PSymbolInstance> newPrefix = prefix.append(in).append(out);
+			for (int pos = 0; pos < childCount(); pos++) {
+				Word<PSymbolInstance> newPrefix = prefix.append(inputAt(pos)).append(outputAt(pos));
 				if (selectionPredicate.test(newPrefix))
 					collection.add(newPrefix);
-				n.collectWords(collection, newPrefix, selectionPredicate);
+				childAt(pos).collectWords(collection, newPrefix, selectionPredicate);
 			}
 		}
 
 		private CacheNode getCacheExcluding(Word<PSymbolInstance> prefix,
 				Predicate<Word<PSymbolInstance>> exclusionPredicate) {
 			CacheNode node = new CacheNode();
-			for (PSymbolInstance in : this.next.keySet()) {
-				CacheNode n = next.get(in);
-				PSymbolInstance out = output.get(in);
+			for (int pos = 0; pos < childCount(); pos++) {
+				PSymbolInstance in = inputAt(pos);
+				PSymbolInstance out = outputAt(pos);
 				Word<PSymbolInstance> newPrefix = prefix.append(in).append(out);
 				if (!exclusionPredicate.test(newPrefix)) {
-					node.output.put(in, out);
-					node.next.put(in, n.getCacheExcluding(newPrefix, exclusionPredicate));
+					node.addChild(in, out, childAt(pos).getCacheExcluding(newPrefix, exclusionPredicate));
 				}
 			}
 			return node;
@@ -89,8 +273,11 @@ public class IOCache {
 		}
 
 		public int size() {
-			int childrenSize = this.next.values().stream().mapToInt(node -> node.size()).sum();
-			return childrenSize + 1;
+			int size = 1;
+			for (int pos = 0; pos < childCount(); pos++) {
+				size += childAt(pos).size();
+			}
+			return size;
 		}
 	}
 
@@ -102,6 +289,110 @@ public class IOCache {
 		this.root = root;
 	}
 
+	/**
+	 * Sets a journal to which traces are appended as they are added to the
+	 * cache.
+	 */
+	public void setJournal(CacheJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * A position in the cache trie, descending one input at a time. Steps
+	 * along cached inputs only read the trie, steps that extend it lock the
+	 * node extended, like {@link IOCache#addToCache(Word)}. The trace walked
+	 * is journaled once when the cursor is closed, if it extended the trie.
+	 */
+	public final class Cursor {
+
+		private CacheNode node = root;
+
+		private final List<PSymbolInstance> trace = new ArrayList<>();
+
+		private boolean updated;
+
+		private Cursor() {
+		}
+
+		/**
+		 * Descends along an input and returns its cached output, or returns
+		 * null and stays in place if the input is not cached.
+		 */
+		public PSymbolInstance step(PSymbolInstance in) {
+			int pos = node.find(in);
+			if (pos < 0) {
+				return null;
+			}
+			PSymbolInstance out = node.outputAt(pos);
+			node = node.childAt(pos);
+			trace.add(in);
+			trace.add(out);
+			return out;
+		}
+
+		/**
+		 * Descends along an input and its output, adding them to the cache if
+		 * the input is not cached.
+		 *
+		 * @throws NonDeterminismException if a different output is cached
+		 */
+		public void add(PSymbolInstance in, PSymbolInstance out) {
+			int pos = node.find(in);
+			if (pos < 0) {
+				updateLock.readLock().lock();
+				try {
+					CacheNode next = new CacheNode();
+					pos = node.addChildIfAbsent(in, out, next);
+					updated |= node.childAt(pos) == next;
+				} finally {
+					updateLock.readLock().unlock();
+				}
+			}
+			// check for non-determinism, also against a concurrently added output
+			if (!out.equals(node.outputAt(pos))) {
+				throw new NonDeterminismException(getTrace().append(in), node.outputAt(pos), out);
+			}
+			node = node.childAt(pos);
+			trace.add(in);
+			trace.add(out);
+		}
+
+		/**
+		 * The inputs and outputs walked so far.
+		 */
+		public Word<PSymbolInstance> getTrace() {
+			return Word.fromList(trace);
+		}
+
+		/**
+		 * Returns true if the cursor added to the cache.
+		 */
+		public boolean isUpdated() {
+			return updated;
+		}
+
+		/**
+		 * Journals the trace walked if it extended the cache.
+		 */
+		public void close() {
+			if (updated && journal != null) {
+				try {
+					journal.append(getTrace());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			updated = false;
+		}
+	}
+
+	/**
+	 * Returns a cursor at the root of the cache.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
 	/**
 	 * Adds query to cache. Returns true if the cache was updated with
 	 * information from the query, false, if the query was already found in the
@@ -109,30 +400,14 @@ public class IOCache {
 	 */
 	boolean addToCache(Word<PSymbolInstance> query) {
 		assert query.length() % 2 == 0;
+		Cursor cursor = new Cursor();
 		Iterator<PSymbolInstance> iter = query.iterator();
-		CacheNode cur = root;
-		boolean cacheUpdated = false;
-		int index = 0;
 		while (iter.hasNext()) {
 			PSymbolInstance in = iter.next();
-			PSymbolInstance out = iter.next();
-			index = index + 2;
-
-			CacheNode next = cur.next.get(in);
-			if (next != null) {
-				// check for non-determinism
-				if (!out.equals(cur.output.get(in))) {
-					throw new NonDeterminismException(query.prefix(index - 1), cur.output.get(in), out);
-				}
-			} else {
-				next = new CacheNode();
-				cur.next.put(in, next);
-				cur.output.put(in, out);
-				cacheUpdated = true;
-			}
-
-			cur = next;
+			cursor.add(in, iter.next());
 		}
+		boolean cacheUpdated = cursor.isUpdated();
+		cursor.close();
 		return cacheUpdated;
 	}
 
@@ -144,9 +419,9 @@ public class IOCache {
 		while (iter.hasNext()) {
 
 			PSymbolInstance in = iter.next();
-			out = cur.output.get(in);
+			int pos = cur.find(in);
 
-			if (out == null) {
+			if (pos < 0) {
 				return null;
 			}
 
@@ -155,7 +430,8 @@ public class IOCache {
 				return Boolean.TRUE;
 			}
 
-			cur = cur.next.get(in);
+			out = cur.outputAt(pos);
+			cur = cur.childAt(pos);
 
 			PSymbolInstance ref = iter.next();
 
@@ -179,13 +455,15 @@ public class IOCache {
 			PSymbolInstance in = iter.next();
 			PSymbolInstance ref = iter.next();
 
-			out = cur.output.get(in);
-			cur = cur.next.get(in);
+			int pos = cur.find(in);
 
-			if (out == null) {
+			if (pos < 0) {
 				return null;
 			}
 
+			out = cur.outputAt(pos);
+			cur = cur.childAt(pos);
+
 			trace = trace.append(in).append(out);
 
 		}
@@ -213,13 +491,15 @@ public class IOCache {
 			trace = traceCanonizer.canonize(trace);
 			PSymbolInstance canonizedIn = trace.lastSymbol();
 
-			out = cur.output.get(canonizedIn);
-			cur = cur.next.get(canonizedIn);
+			int pos = cur.find(canonizedIn);
 
-			if (out == null) {
+			if (pos < 0) {
 				return null;
 			}
 
+			out = cur.outputAt(pos);
+			cur = cur.childAt(pos);
+
 			trace = trace.append(out);
 
 		}
@@ -230,10 +510,20 @@ public class IOCache {
 		return this.root;
 	}
 
-	public IOCache asThreadSafeCache() {
-		ThreadSafeIOCache tCache = new ThreadSafeIOCache(this);
-		return tCache;
+	/**
+	 * Returns the lock to hold while traversing the nodes returned by
+	 * {@link #getRoot()}. It keeps the cache from being extended but does not
+	 * block lookups.
+	 */
+	Lock getTraversalLock() {
+		return updateLock.writeLock();
+	}
 
+	/**
+	 * The cache is safe for concurrent use, so it is returned unchanged.
+	 */
+	public IOCache asThreadSafeCache() {
+		return this;
 	}
 
 	public IOCache getCacheExcluding(BiPredicate<PSymbolInstance, PSymbolInstance> exclusionPredicate) {
@@ -248,31 +538,6 @@ public class IOCache {
 		return new IOCache(this.root.getCacheExcluding(exclusionPredicate));
 	}
 
-	class ThreadSafeIOCache extends IOCache {
-		public ThreadSafeIOCache(IOCache cache) {
-			super(cache.getRoot());
-		}
-
-		public Object lock = IOCache.class;
-
-		public boolean addToCache(Word<PSymbolInstance> query) {
-			synchronized (lock) {
-				Boolean res = this.answerFromCache(query);
-				if (res == null)
-					return super.addToCache(query);
-				else
-					return false;
-			}
-		}
-
-		public Boolean answerFromCache(Word<PSymbolInstance> query) {
-			synchronized (lock) {
-				Boolean res = super.answerFromCache(query);
-				return res;
-			}
-		}
-	}
-
 	public int getSize() {
 		return this.root.size();
 	}
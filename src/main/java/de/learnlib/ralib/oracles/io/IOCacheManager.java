@@ -13,9 +13,11 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 
@@ -47,6 +49,10 @@ public interface IOCacheManager {
 		switch(caching){
 		case "serialize":
 			return new JavaSerializeCacheManager();
+		case "binary":
+			return new BinaryCacheManager();
+		case "mapped":
+			return new MappedCacheManager();
 		default: 
 			return new MockCacheManager();
 		}
@@ -93,7 +99,14 @@ public interface IOCacheManager {
 
 		@Override
 		public void dumpCacheToFile(String fileName, IOCache cache, Constants consts) throws IOException {
-			SerializableCacheNode cacheNode = new SerializableCacheNode(cache.getRoot(), consts);
+			SerializableCacheNode cacheNode;
+			Lock lock = cache.getTraversalLock();
+			lock.lock();
+			try {
+				cacheNode = new SerializableCacheNode(cache.getRoot(), consts);
+			} finally {
+				lock.unlock();
+			}
 			OutputStream file = new FileOutputStream(fileName);
 			OutputStream buffer = new BufferedOutputStream(file);
 			ObjectOutput output = new ObjectOutputStream(buffer);
@@ -109,19 +122,21 @@ public interface IOCacheManager {
 	        public SerializableCacheNode(IOCache.CacheNode cache, Constants consts) {
 		        this.output = new LinkedHashMap<>();
 		        this.next = new LinkedHashMap<>();
-	        	cache.output.forEach((inp,out) 
-	        			-> this.output.put(new SerializablePSymbolInstance(inp, consts), new SerializablePSymbolInstance(out, consts)));
-	        	cache.next.forEach((inp,node) 
-	        			-> this.next.put(new SerializablePSymbolInstance(inp, consts), new SerializableCacheNode(node, consts)));
+	        	for (int pos = 0; pos < cache.childCount(); pos++) {
+	        		SerializablePSymbolInstance inp = new SerializablePSymbolInstance(cache.inputAt(pos), consts);
+	        		this.output.put(inp, new SerializablePSymbolInstance(cache.outputAt(pos), consts));
+	        		this.next.put(inp, new SerializableCacheNode(cache.childAt(pos), consts));
+	        	}
 	        	//System.out.println("Storing: "+ cache);
 	        }
 	        
 	        public IOCache.CacheNode toCacheNode(Constants consts) {
 	        	IOCache.CacheNode cache = new CacheNode();
-	        	this.output.forEach((inp,out) 
-	        			-> cache.output.put(inp.toPSymbolInstance(consts), out.toPSymbolInstance(consts)));
+	        	// both maps hold the children in the same order, their keys are not comparable
+	        	Iterator<SerializablePSymbolInstance> outputs = this.output.values().iterator();
 	        	this.next.forEach((inp,node) 
-	        			-> cache.next.put(inp.toPSymbolInstance(consts), node.toCacheNode(consts)));
+	        			-> cache.addChild(inp.toPSymbolInstance(consts), outputs.next().toPSymbolInstance(consts), 
+	        					node.toCacheNode(consts)));
 	        	//System.out.println("Loading: "+ cache);
 	        	return cache;
 	        }
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.oracles.io.BinaryCacheManager.Decoder;
+import de.learnlib.ralib.oracles.io.BinaryCacheManager.Encoder;
+import de.learnlib.ralib.oracles.io.IOCache.CacheNode;
+import de.learnlib.ralib.words.PSymbolInstance;
+
+/**
+ * A cache manager keeping the cache trie in a memory-mapped file. Nodes are 
+ * read from the file when they are first accessed, so loading a cache only 
+ * maps the file and reads the symbol tables. 
+ * 
+ * The file uses the indexed layout of the binary cache format. Nodes are 
+ * written after their children and refer to them by their distance in the 
+ * file. Each node starts with the length of its sub-trie and of its own record, 
+ * so a sub-trie that has not been accessed is copied unchanged when the 
+ * cache is dumped. The position of the root node is stored at the end of 
+ * the file.
+ * 
+ * Nodes stay in memory once they are accessed and new traces are only added
+ * to memory. Dumping writes a new file and replaces the mapped one.
+ */
+class MappedCacheManager implements IOCacheManager {
+
+	private static final int SEGMENT_BITS = 30;
+
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	@Override
+	public IOCache loadCacheFromFile(String fileName, Constants consts) throws IOException {
+		MappedCacheFile file = new MappedCacheFile(Paths.get(fileName), consts);
+		return new IOCache(new MappedCacheNode(file, file.rootPosition));
+	}
+
+	@Override
+	public void dumpCacheToFile(String fileName, IOCache cache, Constants consts) throws IOException {
+		Path target = Paths.get(fileName);
+		Path tmp = Paths.get(fileName + ".tmp");
+		Lock lock = cache.getTraversalLock();
+		lock.lock();
+		try {
+			CacheNode root = cache.getRoot();
+			MappedCacheFile source = root instanceof MappedCacheNode ? ((MappedCacheNode) root).file : null;
+			Encoder encoder = source == null ? new Encoder(consts) : new Encoder(consts, source.decoder);
+			encoder.collect(root);
+			try (CountingOutputStream counter = new CountingOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)));
+					DataOutputStream out = new DataOutputStream(counter)) {
+				BinaryCacheManager.writeHeader(out, BinaryCacheManager.LAYOUT_INDEXED);
+				encoder.writeTables(out);
+				long rootPosition = writeNode(out, counter, encoder, source, root);
+				out.writeLong(rootPosition);
+			}
+		} finally {
+			lock.unlock();
+		}
+		Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes the sub-trie of a node and returns the position of the node.
+	 */
+	private static long writeNode(DataOutputStream out, CountingOutputStream counter, Encoder encoder,
+			MappedCacheFile source, CacheNode node) throws IOException {
+		long start = counter.getCount();
+		if (!node.isLoaded() && ((MappedCacheNode) node).file == source) {
+			long position = ((MappedCacheNode) node).position;
+			long[] range = source.subtreeRange(position);
+			source.copy(range[0], range[1], out);
+			return start + position - range[0];
+		}
+
+		List<Long> children = new ArrayList<>(node.childCount());
+		for (int pos = 0; pos < node.childCount(); pos++) {
+			children.add(writeNode(out, counter, encoder, source, node.childAt(pos)));
+		}
+		long position = counter.getCount();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream body = new DataOutputStream(bytes);
+		BinaryCacheManager.writeVarInt(body, children.size());
+		for (int pos = 0; pos < node.childCount(); pos++) {
+			encoder.writeSymbolInstance(body, node.inputAt(pos));
+			encoder.writeSymbolInstance(body, node.outputAt(pos));
+			BinaryCacheManager.writeVarLong(body, position - children.get(pos));
+		}
+		BinaryCacheManager.writeVarLong(out, position - start);
+		BinaryCacheManager.writeVarInt(out, bytes.size());
+		bytes.writeTo(out);
+		return position;
+	}
+
+	/**
+	 * A read-only cache file mapped in segments of 1GB.
+	 */
+	static class MappedCacheFile {
+		private final MappedByteBuffer[] segments;
+		private final long size;
+		private final Decoder decoder;
+		private final long rootPosition;
+
+		MappedCacheFile(Path path, Constants consts) throws IOException {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				size = channel.size();
+				segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+				for (int i = 0; i < segments.length; i++) {
+					long offset = (long) i << SEGMENT_BITS;
+					segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, 
+							Math.min(SEGMENT_SIZE, size - offset));
+				}
+			}
+			DataInputStream in = new DataInputStream(new MappedInput(0));
+			BinaryCacheManager.readHeader(in, BinaryCacheManager.LAYOUT_INDEXED);
+			decoder = new Decoder(consts);
+			decoder.readTables(in);
+			rootPosition = new DataInputStream(new MappedInput(size - 8)).readLong();
+		}
+
+		private byte get(long pos) {
+			return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & (SEGMENT_SIZE - 1)));
+		}
+
+		/**
+		 * Returns the start of the sub-trie and the end of the record of 
+		 * the node at a position.
+		 */
+		long[] subtreeRange(long position) throws IOException {
+			MappedInput mi = new MappedInput(position);
+			DataInputStream in = new DataInputStream(mi);
+			long subtree = BinaryCacheManager.readVarLong(in);
+			int body = BinaryCacheManager.readVarInt(in);
+			return new long[] { position - subtree, mi.pos + body };
+		}
+
+		void copy(long from, long to, OutputStream out) throws IOException {
+			byte[] buf = new byte[1 << 16];
+			long pos = from;
+			while (pos < to) {
+				int offset = (int) (pos & (SEGMENT_SIZE - 1));
+				ByteBuffer segment = segments[(int) (pos >>> SEGMENT_BITS)].duplicate();
+				int len = (int) Math.min(Math.min(buf.length, to - pos), segment.limit() - offset);
+				segment.position(offset);
+				segment.get(buf, 0, len);
+				out.write(buf, 0, len);
+				pos += len;
+			}
+		}
+
+		private class MappedInput extends InputStream {
+			private long pos;
+
+			MappedInput(long pos) {
+				this.pos = pos;
+			}
+
+			@Override
+			public int read() {
+				if (pos >= size) {
+					return -1;
+				}
+				return get(pos++) & 0xff;
+			}
+		}
+	}
+
+	/**
+	 * A cache node that reads its outputs and successors from the mapped 
+	 * file on first access.
+	 */
+	static class MappedCacheNode extends CacheNode {
+		private final MappedCacheFile file;
+		private final long position;
+		private volatile boolean loaded = false;
+
+		MappedCacheNode(MappedCacheFile file, long position) {
+			this.file = file;
+			this.position = position;
+		}
+
+		@Override
+		boolean isLoaded() {
+			return loaded;
+		}
+
+		@Override
+		void ensureLoaded() {
+			if (loaded) {
+				return;
+			}
+			synchronized (this) {
+				if (!loaded) {
+					load();
+				}
+			}
+		}
+
+		private void load() {
+			try {
+				DataInputStream in = new DataInputStream(file.new MappedInput(position));
+				BinaryCacheManager.readVarLong(in);
+				BinaryCacheManager.readVarInt(in);
+				int children = BinaryCacheManager.readVarInt(in);
+				for (int i = 0; i < children; i++) {
+					PSymbolInstance input = file.decoder.readSymbolInstance(in);
+					PSymbolInstance output = file.decoder.readSymbolInstance(in);
+					long distance = BinaryCacheManager.readVarLong(in);
+					addChild(input, output, new MappedCacheNode(file, position - distance));
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			loaded = true;
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+}
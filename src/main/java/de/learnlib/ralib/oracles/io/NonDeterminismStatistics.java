@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.learnlib.ralib.words.ParameterizedSymbol;
+
+/**
+ * Counts per input symbol how often it was run on a SUL and how often its
+ * output was non-deterministic. Symbols that were non-deterministic before
+ * are flaky, their outputs are resolved by vote (see
+ * {@link ExceptionHandlerSUL}). The statistics can be shared by several
+ * SULs running in parallel.
+ */
+public class NonDeterminismStatistics {
+
+	private static final class Counts {
+		private final LongAdder steps = new LongAdder();
+		private final LongAdder nonDet = new LongAdder();
+	}
+
+	private final Map<ParameterizedSymbol, Counts> counts = new ConcurrentHashMap<>();
+
+	private Counts counts(ParameterizedSymbol ps) {
+		return counts.computeIfAbsent(ps, k -> new Counts());
+	}
+
+	public void recordStep(ParameterizedSymbol ps) {
+		counts(ps).steps.increment();
+	}
+
+	public void recordNonDeterminism(ParameterizedSymbol ps) {
+		counts(ps).nonDet.increment();
+	}
+
+	public long getSteps(ParameterizedSymbol ps) {
+		Counts c = counts.get(ps);
+		return (c == null) ? 0 : c.steps.sum();
+	}
+
+	public long getNonDeterminism(ParameterizedSymbol ps) {
+		Counts c = counts.get(ps);
+		return (c == null) ? 0 : c.nonDet.sum();
+	}
+
+	public boolean isFlaky(ParameterizedSymbol ps) {
+		return getNonDeterminism(ps) > 0;
+	}
+
+	/**
+	 * Prints the counts of the flaky symbols.
+	 */
+	public void print(PrintStream out) {
+		for (Entry<ParameterizedSymbol, Counts> e : counts.entrySet()) {
+			long nonDet = e.getValue().nonDet.sum();
+			if (nonDet > 0) {
+				out.println("Non-Determinism " + e.getKey() + ": " + nonDet + " of " + e.getValue().steps.sum());
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Schedules a batch of i/o queries as a depth-first walk over the prefix trie 
+ * of their input symbols. Only queries ending in a leaf of the trie are 
+ * executed. All other queries have their inputs executed as part of a longer 
+ * query, so their traces are taken as prefixes of its trace.
+ * 
+ * If the oracle steps a SUL that can snapshot its state (see 
+ * {@link SteppingIOOracle}), the walk is a single run: the state is saved at 
+ * every branch of the trie and restored before each further child, so every 
+ * input of the trie is executed once. Otherwise every leaf is executed from 
+ * a reset, so queries that share a prefix and then diverge each replay the 
+ * shared prefix.
+ * 
+ * This requires the traces produced by the oracle to be determined by the
+ * inputs of a query, which holds for SUL oracles on deterministic systems.
+ */
+public final class PrefixTrieScheduler {
+
+    private static final class Node {
+        private final Map<PSymbolInstance, Node> children = new LinkedHashMap<>();
+        private final List<Integer> queries = new ArrayList<>();
+        // a query through this node
+        private final Word<PSymbolInstance> query;
+
+        private Node(Word<PSymbolInstance> query) {
+            this.query = query;
+        }
+    }
+
+    private PrefixTrieScheduler() {
+    }
+
+    public static List<Word<PSymbolInstance>> traces(
+            List<Word<PSymbolInstance>> queries, IOOracle oracle) {
+        if (queries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Node root = new Node(queries.get(0));
+        for (int q = 0; q < queries.size(); q++) {
+            Word<PSymbolInstance> query = queries.get(q);
+            Node cur = root;
+            for (int i = 0; i < query.length(); i += 2) {
+                cur = cur.children.computeIfAbsent(query.getSymbol(i), k -> new Node(query));
+            }
+            cur.queries.add(q);
+        }
+
+        List<Word<PSymbolInstance>> traces = new ArrayList<>(
+                Collections.nCopies(queries.size(), null));
+        if (oracle instanceof SteppingIOOracle && ((SteppingIOOracle) oracle).canSnapshot()) {
+            SteppingIOOracle stepping = (SteppingIOOracle) oracle;
+            stepping.pre();
+            run(root, Word.epsilon(), traces, stepping);
+            stepping.post();
+        } else {
+            walk(root, new LinkedList<>(), queries, traces, oracle);
+        }
+        return traces;
+    }
+
+    private static void run(Node node, Word<PSymbolInstance> trace, 
+            List<Word<PSymbolInstance>> traces, SteppingIOOracle oracle) {
+        for (int q : node.queries) {
+            traces.set(q, trace);
+        }
+        Object snapshot = (node.children.size() > 1) ? oracle.snapshot() : null;
+        boolean first = true;
+        for (Node child : node.children.values()) {
+            if (!first) {
+                oracle.restore(snapshot);
+            }
+            first = false;
+            run(child, oracle.step(trace, child.query), traces, oracle);
+        }
+    }
+
+    private static void walk(Node node, Deque<Node> path, 
+            List<Word<PSymbolInstance>> queries, List<Word<PSymbolInstance>> traces, 
+            IOOracle oracle) {
+        path.addLast(node);
+        if (node.children.isEmpty()) {
+            Word<PSymbolInstance> trace = oracle.trace(queries.get(node.queries.get(0)));
+            int len = 0;
+            for (Node n : path) {
+                for (int q : n.queries) {
+                    traces.set(q, trace.prefix(len));
+                }
+                n.queries.clear();
+                len += 2;
+            }
+        } else {
+            for (Node child : node.children.values()) {
+                walk(child, path, queries, traces, oracle);
+            }
+        }
+        path.removeLast();
+    }
+}
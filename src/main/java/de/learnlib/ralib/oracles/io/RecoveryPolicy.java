@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+/**
+ * Decides how a SUL is queried again after it showed non-determinism or
+ * asked for a restart: how many attempts are made, how long to wait before
+ * each attempt, and how many observations of a step resolve a
+ * non-deterministic output by majority vote.
+ *
+ * The wait before the n-th retry is the initial backoff doubled n-1 times,
+ * capped by the maximal backoff.
+ */
+public class RecoveryPolicy {
+
+	/**
+	 * Retries as often as {@link ExceptionHandler} always did, without
+	 * waiting and without voting.
+	 */
+	public static final RecoveryPolicy DEFAULT = new RecoveryPolicy(ExceptionHandler.NON_DET_ATTEMPTS,
+			ExceptionHandler.SUL_RESTART_ATTEMPTS, 1, 0L, 0L);
+
+	private final int nonDetAttempts;
+
+	private final int restartAttempts;
+
+	private final int votes;
+
+	private final long backoffMillis;
+
+	private final long maxBackoffMillis;
+
+	public RecoveryPolicy(int nonDetAttempts, int restartAttempts, int votes, long backoffMillis,
+			long maxBackoffMillis) {
+		if (nonDetAttempts < 1 || restartAttempts < 1 || votes < 1) {
+			throw new IllegalArgumentException("Attempts and votes have to be positive");
+		}
+		if (backoffMillis < 0 || maxBackoffMillis < 0) {
+			throw new IllegalArgumentException("Backoff cannot be negative");
+		}
+		this.nonDetAttempts = nonDetAttempts;
+		this.restartAttempts = restartAttempts;
+		this.votes = votes;
+		this.backoffMillis = backoffMillis;
+		this.maxBackoffMillis = Math.max(backoffMillis, maxBackoffMillis);
+	}
+
+	/**
+	 * Returns this policy with a single attempt on non-determinism, for
+	 * handlers around an {@link ExceptionHandlerSUL} that has already
+	 * retried the failing step.
+	 */
+	public RecoveryPolicy withoutNonDetRetries() {
+		return new RecoveryPolicy(1, restartAttempts, votes, backoffMillis, maxBackoffMillis);
+	}
+
+	/**
+	 * How many attempts are made before non-determinism is signaled.
+	 */
+	public int getNonDetAttempts() {
+		return nonDetAttempts;
+	}
+
+	/**
+	 * How many attempts are made before a SUL restart is signaled.
+	 */
+	public int getRestartAttempts() {
+		return restartAttempts;
+	}
+
+	/**
+	 * The maximal number of observations of a step in a vote.
+	 */
+	public int getVotes() {
+		return votes;
+	}
+
+	/**
+	 * The number of equal observations that decide a vote.
+	 */
+	public int getMajority() {
+		return votes / 2 + 1;
+	}
+
+	/**
+	 * Returns the wait in milliseconds before a retry, counted from 1.
+	 */
+	public long getBackoff(int retry) {
+		long wait = backoffMillis;
+		for (int i = 1; i < retry && wait < maxBackoffMillis; i++) {
+			wait = wait * 2;
+		}
+		return Math.min(wait, maxBackoffMillis);
+	}
+
+	/**
+	 * Waits before a retry, counted from 1.
+	 */
+	public void backoff(int retry) {
+		long wait = getBackoff(retry);
+		if (wait > 0) {
+			try {
+				Thread.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "attempts: " + nonDetAttempts + "/" + restartAttempts + ", votes: " + votes + ", backoff: "
+				+ backoffMillis + "-" + maxBackoffMillis + "ms";
+	}
+}
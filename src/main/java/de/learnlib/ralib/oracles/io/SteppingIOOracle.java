@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * An i/o oracle that runs a query one input at a time on a SUL. If the SUL 
+ * can snapshot its state (see {@link DataWordSUL#canSnapshot()}), so can the 
+ * oracle, and runs can branch at a common prefix of their queries (see 
+ * {@link PrefixTrieScheduler}).
+ */
+public interface SteppingIOOracle extends IOOracle {
+
+    /**
+     * @return true if the state of a run can be saved and restored
+     */
+    boolean canSnapshot();
+
+    /**
+     * Starts a run.
+     */
+    void pre();
+
+    /**
+     * Runs the next input of a query.
+     * 
+     * @param trace the trace of the run so far
+     * @param query a query whose inputs start with the inputs of the trace
+     * @return the trace extended by the input at position 
+     * {@code trace.length()} of the query and its output
+     */
+    Word<PSymbolInstance> step(Word<PSymbolInstance> trace, Word<PSymbolInstance> query);
+
+    /**
+     * Saves the state of the run, see {@link DataWordSUL#snapshot()}.
+     */
+    Object snapshot();
+
+    /**
+     * Puts the run in the state of a snapshot, see 
+     * {@link DataWordSUL#restore(Object)}.
+     */
+    void restore(Object snapshot);
+
+    /**
+     * Ends a run.
+     */
+    void post();
+}
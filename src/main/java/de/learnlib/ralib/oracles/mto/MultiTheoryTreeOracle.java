@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -89,6 +91,10 @@ public class MultiTheoryTreeOracle implements TreeOracle, SDTConstructor {
     
     private boolean prefixValidationOpt = false;
     
+    private ForkJoinPool workerPool = null;
+    
+    private ThreadLocal<Pair<DataWordOracle, IOOracle>> workerOracles = null;
+    
     private static LearnLogger log
             = LearnLogger.getLogger(MultiTheoryTreeOracle.class);
 
@@ -111,6 +117,32 @@ public class MultiTheoryTreeOracle implements TreeOracle, SDTConstructor {
         this.prefixValidationOpt = enable;
     }
 
+    /**
+     * Answers the sibling branches of tree queries in parallel on the given pool.
+     * Each worker thread obtains its own oracles from the factory when it
+     * answers its first query. The cache shared by the worker oracles has to be
+     * thread safe.
+     * 
+     * @param pool
+     * @param workerFactory
+     */
+    public void setParallelTreeQueries(ForkJoinPool pool, TreeQueryWorkerFactory workerFactory) {
+        this.workerPool = pool;
+        this.workerOracles = ThreadLocal.withInitial(workerFactory::createWorkerOracles);
+    }
+
+    private boolean isWorkerThread() {
+        return workerPool != null && ForkJoinTask.getPool() == workerPool;
+    }
+
+    private DataWordOracle getMembershipOracle() {
+        return isWorkerThread() ? workerOracles.get().getFirst() : oracle;
+    }
+
+    private IOOracle getTraceOracle() {
+        return isWorkerThread() ? workerOracles.get().getSecond() : traceOracle;
+    }
+
     @Override
     public TreeQueryResult treeQuery(
             Word<PSymbolInstance> prefix, GeneralizedSymbolicSuffix suffix) {
@@ -147,6 +179,56 @@ public class MultiTheoryTreeOracle implements TreeOracle, SDTConstructor {
         return tqr;
     }
 
+    /**
+     * Answers a batch of tree queries. In parallel mode, the tree queries are
+     * answered as tasks on the worker pool. Within a tree query, the concrete
+     * queries of sibling leaves are submitted as one batch (see 
+     * {@link #treeQueries(Word, GeneralizedSymbolicSuffix, PIV, Constants, List)}).
+     */
+    @Override
+    public List<TreeQueryResult> treeQueries(
+            List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> queries) {
+        if (workerPool == null || queries.size() < 2) {
+            return TreeOracle.super.treeQueries(queries);
+        }
+
+        List<ForkJoinTask<TreeQueryResult>> tasks = new ArrayList<>(queries.size());
+        for (Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix> q : queries) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                try {
+                    return treeQuery(q.getFirst(), q.getSecond());
+                } catch(DecoratedRuntimeException exc) {
+                    throw exc.addDecoration("prefix", q.getFirst()).addDecoration("suffix", q.getSecond());
+                }
+            }));
+        }
+        try {
+            workerPool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(tasks);
+            }));
+        } catch(DecoratedRuntimeException exc) {
+            throw original(exc);
+        }
+
+        List<TreeQueryResult> results = new ArrayList<>(queries.size());
+        for (ForkJoinTask<TreeQueryResult> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    /**
+     * ForkJoinTask rethrows copies of exceptions raised on other threads, 
+     * which have the original exception as cause but lose its decorations.
+     */
+    private static DecoratedRuntimeException original(DecoratedRuntimeException exc) {
+        Throwable cause = exc.getCause();
+        if (cause != null && cause.getClass() == exc.getClass()) {
+            return (DecoratedRuntimeException) cause;
+        }
+        return exc;
+    }
+
     @Override
     public SDT treeQuery(
             Word<PSymbolInstance> prefix, GeneralizedSymbolicSuffix suffix,
@@ -162,7 +244,7 @@ public class MultiTheoryTreeOracle implements TreeOracle, SDTConstructor {
 
             DefaultQuery<PSymbolInstance, Boolean> query
                     = new DefaultQuery<>(prefix, concSuffix);
-            oracle.processQueries(Collections.singletonList(query));
+            getMembershipOracle().processQueries(Collections.singletonList(query));
             boolean qOut = query.getOutput();
 
 //            System.out.println("Trace = " + trace.toString() + " >>> "
@@ -194,7 +276,7 @@ public class MultiTheoryTreeOracle implements TreeOracle, SDTConstructor {
                         || (concSuffixPart.length() > 0 && concSuffixPart.lastSymbol().getBaseSymbol().getArity() == 0)) {
                     DefaultQuery<PSymbolInstance, Boolean> query = new DefaultQuery<>(prefix, concSuffixPart);
                     // Query whether oracle rejects this prefix earlier
-                    oracle.processQueries(Collections.singleton(query));
+                    getMembershipOracle().processQueries(Collections.singleton(query));
                     if (query.getOutput() == false) {
                         // construct a REJECT SDT
                         SDT result = SDTLeaf.REJECTING;
@@ -218,10 +300,85 @@ public class MultiTheoryTreeOracle implements TreeOracle, SDTConstructor {
         // make a new tree query for prefix, suffix, prefix valuation, ...
         // to the correct teacher (given by type of first DV in suffix)
         SDT sdt = teach.treeQuery(prefix, suffix, values, pir,
-                constants, suffixValues, this, solver, this.traceOracle);
+                constants, suffixValues, this, solver, getTraceOracle());
         return sdt;
     }
 
+    /**
+     * Branches that instantiate the whole suffix are answered by one batch of
+     * membership queries, so the membership oracle can submit their concrete
+     * queries to the SUL together (see {@link IOOracle#traces(List)}).
+     * 
+     * In parallel mode, each other branch is answered as a task on the worker 
+     * pool. Branches collect registers in a piv of their own, which are added 
+     * to the piv in the order of the queries, so the result does not depend 
+     * on the scheduling of the workers.
+     */
+    @Override
+    public void treeQueries(
+            Word<PSymbolInstance> prefix, GeneralizedSymbolicSuffix suffix,
+            PIV piv, Constants constants, List<SDTQuery> allQueries) {
+        List<SDTQuery> queries = answerLeaves(prefix, suffix, allQueries);
+        if (workerPool == null || queries.size() < 2) {
+            SDTConstructor.super.treeQueries(prefix, suffix, piv, constants, queries);
+            return;
+        }
+
+        List<PIV> branchPivs = new ArrayList<>(queries.size());
+        List<ForkJoinTask<SDT>> tasks = new ArrayList<>(queries.size());
+        for (SDTQuery query : queries) {
+            PIV branchPiv = new PIV();
+            branchPiv.putAll(piv);
+            branchPivs.add(branchPiv);
+            tasks.add(ForkJoinTask.adapt(() -> treeQuery(prefix, suffix,
+                    query.getWordValuation(), branchPiv, constants,
+                    query.getSuffValuation())));
+        }
+
+        if (isWorkerThread()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            workerPool.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(tasks);
+            }));
+        }
+
+        for (int i = 0; i < queries.size(); i++) {
+            queries.get(i).setAnswer(tasks.get(i).join());
+            piv.putAll(branchPivs.get(i));
+        }
+    }
+
+    /**
+     * Answers the queries that instantiate the whole suffix with one call to
+     * the membership oracle.
+     * 
+     * @return the queries not answered
+     */
+    private List<SDTQuery> answerLeaves(Word<PSymbolInstance> prefix, 
+            GeneralizedSymbolicSuffix suffix, List<SDTQuery> queries) {
+        int params = DataWords.paramLength(suffix.getActions());
+        List<SDTQuery> open = new ArrayList<>(queries.size());
+        List<SDTQuery> leaves = new ArrayList<>();
+        List<DefaultQuery<PSymbolInstance, Boolean>> concrete = new ArrayList<>();
+        for (SDTQuery query : queries) {
+            if (query.getWordValuation().size() == params) {
+                leaves.add(query);
+                concrete.add(new DefaultQuery<>(prefix, 
+                        DataWords.instantiate(suffix.getActions(), query.getWordValuation())));
+            } else {
+                open.add(query);
+            }
+        }
+        if (!concrete.isEmpty()) {
+            getMembershipOracle().processQueries(concrete);
+            for (int i = 0; i < leaves.size(); i++) {
+                leaves.get(i).setAnswer(concrete.get(i).getOutput() ? SDTLeaf.ACCEPTING : SDTLeaf.REJECTING);
+            }
+        }
+        return open;
+    }
+
     /**
      * This method computes the initial branching for an SDT. It re-uses
      * existing valuations where possible.
@@ -40,6 +40,24 @@ public interface SDTConstructor {
             WordValuation values, PIV piv,
             Constants constants, SuffixValuation suffixValues);
     
+    /**
+     * Answers a batch of independent tree queries which share prefix and suffix,
+     * usually the sibling branches for one suffix parameter. Each answer is stored
+     * in its {@link SDTQuery}. Registers found by the branches are added to the
+     * piv in the order of the queries.
+     * <p>
+     * By default, the queries are answered one after another.
+     */
+    public default void treeQueries(
+            Word<PSymbolInstance> prefix, GeneralizedSymbolicSuffix suffix,
+            PIV piv, Constants constants, List<SDTQuery> queries) {
+        for (SDTQuery query : queries) {
+            SDT sdt = treeQuery(prefix, suffix, query.getWordValuation(), piv,
+                    constants, query.getSuffValuation());
+            query.setAnswer(sdt);
+        }
+    }
+    
     public MultiTheoryBranching getInitialBranching(Word<PSymbolInstance> prefix, 
             ParameterizedSymbol ps, PIV piv, ParValuation pval, 
             List<SDTGuard> guards, SDT ... sdts);    
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.mto;
+
+import de.learnlib.ralib.oracles.DataWordOracle;
+import de.learnlib.ralib.oracles.io.IOOracle;
+import net.automatalib.commons.util.Pair;
+
+/**
+ * Creates the oracles used by one worker thread of a parallel
+ * {@link MultiTheoryTreeOracle}. The oracles returned by different calls
+ * must not share a SUL instance.
+ */
+public interface TreeQueryWorkerFactory {
+
+    /**
+     * Returns the membership oracle and the trace oracle of a new worker.
+     */
+    public Pair<DataWordOracle, IOOracle> createWorkerOracles();
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.learnlib.ralib.automata.guards.AtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.Conjunction;
+import de.learnlib.ralib.automata.guards.ConstantGuardExpression;
+import de.learnlib.ralib.automata.guards.Disjunction;
+import de.learnlib.ralib.automata.guards.FalseGuardExpression;
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.automata.guards.Negation;
+import de.learnlib.ralib.automata.guards.SumCAtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.TrueGuardExpression;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.SymbolicDataValue;
+
+/**
+ * Memoizes the results of a constraint solver. Expressions are normalized
+ * by renaming their symbolic data values in the order of their first
+ * occurrence, so expressions that only differ in the names of registers,
+ * parameters or constants share a result. The solvers treat symbolic data
+ * values as free variables, so renaming does not change satisfiability.
+ *
+ * Results are kept for the least recently used expressions, up to a maximum
+ * number of entries.
+ */
+public class CachingConstraintSolver implements ConstraintSolver {
+
+    private final ConstraintSolver solver;
+
+    private final Map<String, Boolean> results;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingConstraintSolver(ConstraintSolver solver, int capacity) {
+        this.solver = solver;
+        this.results = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public boolean isSatisfiable(GuardExpression expr) {
+        StringBuilder key = new StringBuilder();
+        if (!normalize(expr, new HashMap<>(), key)) {
+            // expressions of unknown classes are not cached
+            misses.incrementAndGet();
+            return solver.isSatisfiable(expr);
+        }
+        String normalized = key.toString();
+        Boolean result;
+        synchronized (results) {
+            result = results.get(normalized);
+        }
+        if (result != null) {
+            hits.incrementAndGet();
+            return result;
+        }
+        misses.incrementAndGet();
+        result = solver.isSatisfiable(expr);
+        synchronized (results) {
+            results.put(normalized, result);
+        }
+        return result;
+    }
+
+    /**
+     * Number of expressions answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of expressions passed on to the solver.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static boolean normalize(GuardExpression expr, Map<SymbolicDataValue, Integer> names, StringBuilder key) {
+        if (expr instanceof TrueGuardExpression) {
+            key.append('T');
+        } else if (expr instanceof FalseGuardExpression) {
+            key.append('F');
+        } else if (expr instanceof Negation) {
+            key.append('!');
+            return normalize(((Negation) expr).getNegated(), names, key);
+        } else if (expr instanceof Conjunction) {
+            return normalize('&', ((Conjunction) expr).getConjuncts(), names, key);
+        } else if (expr instanceof Disjunction) {
+            return normalize('|', ((Disjunction) expr).getDisjuncts(), names, key);
+        } else if (expr instanceof SumCAtomicGuardExpression) {
+            SumCAtomicGuardExpression<?, ?> atom = (SumCAtomicGuardExpression<?, ?>) expr;
+            key.append('(');
+            name(atom.getLeft(), names, key);
+            value(atom.getLeftConst(), key);
+            key.append(atom.getRelation());
+            name(atom.getRight(), names, key);
+            value(atom.getRightConst(), key);
+            key.append(')');
+        } else if (expr instanceof AtomicGuardExpression) {
+            AtomicGuardExpression<?, ?> atom = (AtomicGuardExpression<?, ?>) expr;
+            key.append('(');
+            name(atom.getLeft(), names, key);
+            key.append(atom.getRelation());
+            name(atom.getRight(), names, key);
+            key.append(')');
+        } else if (expr instanceof ConstantGuardExpression) {
+            ConstantGuardExpression c = (ConstantGuardExpression) expr;
+            key.append('(');
+            name(c.getVariable(), names, key);
+            key.append('=');
+            value(c.getConstant(), key);
+            key.append(')');
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean normalize(char op, GuardExpression[] operands, Map<SymbolicDataValue, Integer> names,
+            StringBuilder key) {
+        key.append(op).append('[');
+        for (GuardExpression e : operands) {
+            if (!normalize(e, names, key)) {
+                return false;
+            }
+            key.append(',');
+        }
+        key.append(']');
+        return true;
+    }
+
+    private static void name(SymbolicDataValue sdv, Map<SymbolicDataValue, Integer> names, StringBuilder key) {
+        Integer id = names.get(sdv);
+        if (id == null) {
+            id = names.size();
+            names.put(sdv, id);
+            // the type is only needed once per variable
+            key.append(sdv.getType().getName()).append(':').append(sdv.getType().getBase().getName()).append(':');
+        }
+        key.append('v').append(id);
+    }
+
+    private static void value(DataValue<?> dv, StringBuilder key) {
+        if (dv == null) {
+            key.append('_');
+        } else {
+            key.append('<').append(dv.getType().getName()).append(':').append(dv.getId()).append('>');
+        }
+    }
+}
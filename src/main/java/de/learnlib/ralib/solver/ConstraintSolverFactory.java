@@ -18,6 +18,7 @@
 package de.learnlib.ralib.solver;
 
 import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.solver.difference.DifferenceConstraintSolver;
 import de.learnlib.ralib.solver.jconstraints.JConstraintsConstraintSolver;
 import de.learnlib.ralib.solver.simple.SimpleConstraintSolver;
 
@@ -31,6 +32,8 @@ public class ConstraintSolverFactory {
 
     public final static String ID_Z3 = "z3";
 
+    public final static String ID_DIFFERENCE = "difference";
+
     public ConstraintSolverFactory(){
         // Do nothing
     }
@@ -42,6 +45,8 @@ public class ConstraintSolverFactory {
                 return createSimpleConstraintSolver();
             case ID_Z3:
                 return (ConstraintSolver) createZ3ConstraintSolver();
+            case ID_DIFFERENCE:
+                return createDifferenceConstraintSolver();
             default:
                 throw new RuntimeException("Unsupported constraint solver: " + id);
         }
@@ -57,4 +62,8 @@ public class ConstraintSolverFactory {
         return new JConstraintsConstraintSolver(innerSolver) ;
     }
     
+    public static DifferenceConstraintSolver createDifferenceConstraintSolver() {
+        return new DifferenceConstraintSolver();
+    }
+    
 }
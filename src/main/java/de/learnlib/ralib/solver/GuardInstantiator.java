@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver;
+
+import java.util.Collection;
+import java.util.List;
+
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.theory.SDTGuard;
+import gov.nasa.jpf.constraints.api.Valuation;
+
+/**
+ * Finds values for the parameter of a guard. Valuations map the variables of
+ * symbolic data values, named as by their toString method, to their values.
+ *
+ * @param <T> the domain of the values
+ */
+public interface GuardInstantiator<T> {
+
+    /**
+     * Returns a value for the parameter of a guard that satisfies the guard
+     * under a valuation and differs from the values already used, or null if
+     * there is none. If the valuation fixes the parameter, its value is
+     * returned if it satisfies the constraints.
+     */
+    public DataValue<T> instantiate(SDTGuard g, Valuation val, Constants c,
+            Collection<DataValue<T>> alreadyUsedValues);
+
+    /**
+     * Returns the index of the first candidate value for a parameter that
+     * satisfies a guard, or -1 if none does. Equivalent to instantiating the
+     * guard for every candidate in turn.
+     */
+    public int findSatisfying(SDTGuard g, SymbolicDataValue param, Valuation val,
+            Collection<DataValue<T>> alreadyUsedValues, List<DataValue<T>> candidates);
+}
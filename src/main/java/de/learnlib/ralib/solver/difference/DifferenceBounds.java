@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.difference;
+
+import java.util.Arrays;
+
+/**
+ * A difference bound matrix over a fixed number of variables, kept closed
+ * under shortest paths. Entry (i, j) bounds the difference x_i - x_j from
+ * above, strictly or not. Variable 0 stands for the value zero, so bounds of
+ * single variables are differences to it.
+ *
+ * Bounds are added one at a time and the closure is updated incrementally
+ * in quadratic time. Once a bound makes the constraints inconsistent, the
+ * matrix must no longer be used.
+ */
+class DifferenceBounds {
+
+    private final int size;
+
+    private final double[] bound;
+
+    private final boolean[] strict;
+
+    DifferenceBounds(int size) {
+        this.size = size;
+        this.bound = new double[size * size];
+        this.strict = new boolean[size * size];
+        Arrays.fill(bound, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < size; i++) {
+            bound[i * size + i] = 0;
+        }
+    }
+
+    private DifferenceBounds(DifferenceBounds other) {
+        this.size = other.size;
+        this.bound = other.bound.clone();
+        this.strict = other.strict.clone();
+    }
+
+    DifferenceBounds copy() {
+        return new DifferenceBounds(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Upper bound of x_i - x_j, infinite if there is none.
+     */
+    double upper(int i, int j) {
+        return bound[i * size + j];
+    }
+
+    boolean isStrict(int i, int j) {
+        return strict[i * size + j];
+    }
+
+    /**
+     * Adds the bound x_i - x_j < c or x_i - x_j <= c.
+     *
+     * @return false if the constraints become inconsistent
+     */
+    boolean add(int i, int j, double c, boolean isStrict) {
+        if (!tighter(c, isStrict, upper(i, j), isStrict(i, j))) {
+            return true;
+        }
+        // a cycle through the new bound must not be negative
+        double cycle = upper(j, i) + c;
+        if (cycle < 0 || (cycle == 0 && (isStrict || isStrict(j, i)))) {
+            return false;
+        }
+        double[] toI = new double[size];
+        boolean[] toIStrict = new boolean[size];
+        double[] fromJ = new double[size];
+        boolean[] fromJStrict = new boolean[size];
+        for (int k = 0; k < size; k++) {
+            toI[k] = upper(k, i);
+            toIStrict[k] = isStrict(k, i);
+            fromJ[k] = upper(j, k);
+            fromJStrict[k] = isStrict(j, k);
+        }
+        for (int a = 0; a < size; a++) {
+            if (toI[a] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            for (int b = 0; b < size; b++) {
+                if (fromJ[b] == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                double path = toI[a] + c + fromJ[b];
+                boolean pathStrict = toIStrict[a] || isStrict || fromJStrict[b];
+                if (tighter(path, pathStrict, upper(a, b), isStrict(a, b))) {
+                    bound[a * size + b] = path;
+                    strict[a * size + b] = pathStrict;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if x_i - x_j = c holds in every solution.
+     */
+    boolean forces(int i, int j, double c) {
+        return upper(i, j) == c && !isStrict(i, j) && upper(j, i) == -c && !isStrict(j, i);
+    }
+
+    /**
+     * Checks if x_i - x_j = c holds in some solution.
+     */
+    boolean admits(int i, int j, double c) {
+        return below(c, upper(i, j), isStrict(i, j)) && below(-c, upper(j, i), isStrict(j, i));
+    }
+
+    private static boolean below(double c, double upper, boolean isStrict) {
+        return c < upper || (c == upper && !isStrict);
+    }
+
+    private static boolean tighter(double c, boolean cStrict, double d, boolean dStrict) {
+        return c < d || (c == d && cStrict && !dStrict);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.difference;
+
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.solver.ConstraintSolver;
+
+/**
+ * Decides guards built from order, equality and offset comparisons in Java,
+ * without a native solver. Guards over integer types only are decided over
+ * the integers, all others over the reals.
+ */
+public class DifferenceConstraintSolver implements ConstraintSolver {
+
+    @Override
+    public boolean isSatisfiable(GuardExpression expr) {
+        boolean integral = true;
+        for (SymbolicDataValue sdv : expr.getSymbolicDataValues()) {
+            integral &= DifferenceConstraints.isIntegral(sdv.getType().getBase());
+        }
+        DifferenceConstraints constraints = new DifferenceConstraints(integral);
+        constraints.add(expr);
+        return constraints.solve() != null;
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.difference;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.learnlib.ralib.automata.guards.AtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.Conjunction;
+import de.learnlib.ralib.automata.guards.ConstantGuardExpression;
+import de.learnlib.ralib.automata.guards.Disjunction;
+import de.learnlib.ralib.automata.guards.FalseGuardExpression;
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.automata.guards.Negation;
+import de.learnlib.ralib.automata.guards.SumCAtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.TrueGuardExpression;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.SymbolicDataValue;
+
+/**
+ * A conjunction of difference constraints over numeric variables, decided
+ * with a difference bound matrix. Atoms of guards compare two symbolic data
+ * values, each plus an optional constant, and are normalized to bounds of
+ * their difference. Variables are identified by name, symbolic data values
+ * by their toString method.
+ *
+ * Atoms that hold unconditionally are added to a base matrix once, which is
+ * copied for every check. Disjunctions are decided by backtracking over
+ * their operands. Disequalities are checked when all other constraints have
+ * been added, splitting into a smaller and a greater case only if the
+ * difference may still take the excluded value.
+ *
+ * Over integral domains, strict bounds are tightened to non-strict ones, so
+ * the matrix only admits integer solutions.
+ */
+public class DifferenceConstraints {
+
+    /**
+     * The relations of normalized atoms x - y ~ c.
+     */
+    private enum Kind {
+        LE, LT, EQ, NE
+    }
+
+    private abstract static class Formula {
+        abstract Formula negate();
+    }
+
+    private static final class Atom extends Formula {
+        private final int left;
+        private final int right;
+        private final double c;
+        private final Kind kind;
+
+        private Atom(int left, int right, double c, Kind kind) {
+            this.left = left;
+            this.right = right;
+            this.c = c;
+            this.kind = kind;
+        }
+
+        @Override
+        Formula negate() {
+            switch (kind) {
+                case LE:
+                    return new Atom(right, left, -c, Kind.LT);
+                case LT:
+                    return new Atom(right, left, -c, Kind.LE);
+                case EQ:
+                    return new Atom(left, right, c, Kind.NE);
+                default:
+                    return new Atom(left, right, c, Kind.EQ);
+            }
+        }
+    }
+
+    private static final class Junction extends Formula {
+        private final boolean conjunctive;
+        private final List<Formula> operands;
+
+        private Junction(boolean conjunctive, List<Formula> operands) {
+            this.conjunctive = conjunctive;
+            this.operands = operands;
+        }
+
+        @Override
+        Formula negate() {
+            List<Formula> negated = new ArrayList<>(operands.size());
+            for (Formula f : operands) {
+                negated.add(f.negate());
+            }
+            return new Junction(!conjunctive, negated);
+        }
+    }
+
+    /**
+     * A solution of the constraints.
+     */
+    public final class Solution {
+
+        private final DifferenceBounds bounds;
+
+        private Solution(DifferenceBounds bounds) {
+            this.bounds = bounds;
+        }
+
+        /**
+         * Returns a value of a variable that can be extended to a solution of
+         * all variables.
+         */
+        public double valueOf(String name) {
+            Integer x = nodes.get(name);
+            if (x == null || x >= bounds.size()) {
+                return 0;
+            }
+            double hi = bounds.upper(x, 0);
+            // subtracted from 0 rather than negated, as -0.0 differs from 0.0 in data values
+            double lo = 0 - bounds.upper(0, x);
+            boolean hiStrict = bounds.isStrict(x, 0);
+            boolean loStrict = bounds.isStrict(0, x);
+            boolean hasHi = hi != Double.POSITIVE_INFINITY;
+            boolean hasLo = lo != Double.NEGATIVE_INFINITY;
+            if (hasLo && hasHi) {
+                // integral bounds are never strict
+                return (integral || lo == hi) ? lo : (lo + hi) / 2;
+            } else if (hasLo) {
+                return loStrict ? lo + 1 : lo;
+            } else if (hasHi) {
+                return hiStrict ? hi - 1 : hi;
+            }
+            return 0;
+        }
+    }
+
+    private final boolean integral;
+
+    /**
+     * Node 0 is the value zero.
+     */
+    private final Map<String, Integer> nodes = new HashMap<>();
+
+    private final List<Formula> formulas = new ArrayList<>();
+
+    private DifferenceBounds base;
+
+    private List<Formula> rest;
+
+    private boolean inconsistent;
+
+    public DifferenceConstraints(boolean integral) {
+        this.integral = integral;
+    }
+
+    /**
+     * Checks if values of a class are integers.
+     */
+    public static boolean isIntegral(Class<?> domain) {
+        return domain == Integer.class || domain == Long.class || domain == Short.class || domain == Byte.class;
+    }
+
+    public void add(GuardExpression expr) {
+        add(translate(expr));
+    }
+
+    public void addEquality(String name, Number value) {
+        add(new Atom(node(name), 0, value.doubleValue(), Kind.EQ));
+    }
+
+    public void addDisequality(String name, Number value) {
+        add(new Atom(node(name), 0, value.doubleValue(), Kind.NE));
+    }
+
+    /**
+     * Returns a solution of the constraints or null if they are
+     * unsatisfiable.
+     */
+    public Solution solve() {
+        prepare();
+        if (inconsistent) {
+            return null;
+        }
+        return search(new ArrayDeque<>(rest), base.copy(), new ArrayList<>());
+    }
+
+    /**
+     * Returns a solution of the constraints in which a variable has a value,
+     * or null if there is none. The value is not kept for later checks.
+     */
+    public Solution solve(String name, Number value) {
+        Atom fixed = new Atom(node(name), 0, value.doubleValue(), Kind.EQ);
+        prepare();
+        if (inconsistent) {
+            return null;
+        }
+        DifferenceBounds bounds = base.copy();
+        if (!assume(bounds, fixed)) {
+            return null;
+        }
+        return search(new ArrayDeque<>(rest), bounds, new ArrayList<>());
+    }
+
+    private void add(Formula f) {
+        formulas.add(f);
+        base = null;
+    }
+
+    private void prepare() {
+        if (base != null) {
+            return;
+        }
+        base = new DifferenceBounds(nodes.size() + 1);
+        rest = new ArrayList<>();
+        inconsistent = false;
+        Deque<Formula> pending = new ArrayDeque<>(formulas);
+        while (!pending.isEmpty() && !inconsistent) {
+            Formula f = pending.pop();
+            if (f instanceof Atom && ((Atom) f).kind != Kind.NE) {
+                inconsistent = !assume(base, (Atom) f);
+            } else if (f instanceof Junction && ((Junction) f).conjunctive) {
+                ((Junction) f).operands.forEach(pending::push);
+            } else {
+                rest.add(f);
+            }
+        }
+    }
+
+    private Solution search(Deque<Formula> pending, DifferenceBounds bounds, List<Atom> disequalities) {
+        while (!pending.isEmpty()) {
+            Formula f = pending.pop();
+            if (f instanceof Atom) {
+                Atom a = (Atom) f;
+                if (a.kind == Kind.NE) {
+                    disequalities.add(a);
+                } else if (!assume(bounds, a)) {
+                    return null;
+                }
+            } else {
+                Junction j = (Junction) f;
+                if (j.conjunctive) {
+                    j.operands.forEach(pending::push);
+                    continue;
+                }
+                for (Formula operand : j.operands) {
+                    Deque<Formula> branch = new ArrayDeque<>(pending);
+                    branch.push(operand);
+                    Solution s = search(branch, bounds.copy(), new ArrayList<>(disequalities));
+                    if (s != null) {
+                        return s;
+                    }
+                }
+                return null;
+            }
+        }
+
+        for (Atom ne : disequalities) {
+            if (bounds.forces(ne.left, ne.right, ne.c)) {
+                return null;
+            }
+        }
+        for (int i = 0; i < disequalities.size(); i++) {
+            Atom ne = disequalities.get(i);
+            if (!bounds.admits(ne.left, ne.right, ne.c)) {
+                continue;
+            }
+            List<Atom> others = new ArrayList<>(disequalities);
+            others.remove(i);
+            Atom[] sides = { new Atom(ne.left, ne.right, ne.c, Kind.LT), new Atom(ne.right, ne.left, -ne.c, Kind.LT) };
+            for (Atom side : sides) {
+                DifferenceBounds branch = bounds.copy();
+                if (assume(branch, side)) {
+                    Solution s = search(new ArrayDeque<>(), branch, others);
+                    if (s != null) {
+                        return s;
+                    }
+                }
+            }
+            return null;
+        }
+        return new Solution(bounds);
+    }
+
+    private boolean assume(DifferenceBounds bounds, Atom a) {
+        switch (a.kind) {
+            case LE:
+                return bounds.add(a.left, a.right, integral ? Math.floor(a.c) : a.c, false);
+            case LT:
+                return integral ? bounds.add(a.left, a.right, Math.ceil(a.c) - 1, false)
+                        : bounds.add(a.left, a.right, a.c, true);
+            case EQ:
+                return assume(bounds, new Atom(a.left, a.right, a.c, Kind.LE))
+                        && assume(bounds, new Atom(a.right, a.left, -a.c, Kind.LE));
+            default:
+                throw new IllegalArgumentException("Disequalities cannot be added as bounds");
+        }
+    }
+
+    private int node(String name) {
+        Integer id = nodes.get(name);
+        if (id == null) {
+            id = nodes.size() + 1;
+            nodes.put(name, id);
+            base = null;
+        }
+        return id;
+    }
+
+    private Formula translate(GuardExpression expr) {
+        if (expr instanceof TrueGuardExpression) {
+            return new Junction(true, new ArrayList<>());
+        } else if (expr instanceof FalseGuardExpression) {
+            return new Junction(false, new ArrayList<>());
+        } else if (expr instanceof Negation) {
+            return translate(((Negation) expr).getNegated()).negate();
+        } else if (expr instanceof Conjunction) {
+            return translate(true, ((Conjunction) expr).getConjuncts());
+        } else if (expr instanceof Disjunction) {
+            return translate(false, ((Disjunction) expr).getDisjuncts());
+        } else if (expr instanceof ConstantGuardExpression) {
+            ConstantGuardExpression c = (ConstantGuardExpression) expr;
+            return new Atom(node(c.getVariable()), 0, number(c.getConstant()), Kind.EQ);
+        } else if (expr instanceof SumCAtomicGuardExpression) {
+            SumCAtomicGuardExpression<?, ?> atom = (SumCAtomicGuardExpression<?, ?>) expr;
+            double d = number(atom.getRightConst()) - number(atom.getLeftConst());
+            return translate(node(atom.getLeft()), atom, node(atom.getRight()), d);
+        } else if (expr instanceof AtomicGuardExpression) {
+            AtomicGuardExpression<?, ?> atom = (AtomicGuardExpression<?, ?>) expr;
+            return translate(node(atom.getLeft()), atom, node(atom.getRight()), 0);
+        }
+        throw new UnsupportedOperationException("Unsupported Guard Expression: " + expr.getClass().getName());
+    }
+
+    private Formula translate(boolean conjunctive, GuardExpression[] operands) {
+        List<Formula> translated = new ArrayList<>(operands.length);
+        for (GuardExpression e : operands) {
+            translated.add(translate(e));
+        }
+        return new Junction(conjunctive, translated);
+    }
+
+    /**
+     * Translates the atom l + lc ~ r + rc, where d = rc - lc, to constraints
+     * on l - r.
+     */
+    private Formula translate(int l, AtomicGuardExpression<?, ?> atom, int r, double d) {
+        switch (atom.getRelation()) {
+            case EQUALS:
+                return new Atom(l, r, d, Kind.EQ);
+            case NOT_EQUALS:
+                return new Atom(l, r, d, Kind.NE);
+            case LESSER:
+                return new Atom(l, r, d, Kind.LT);
+            case LSREQUALS:
+                return new Atom(l, r, d, Kind.LE);
+            case GREATER:
+                return new Atom(r, l, -d, Kind.LT);
+            case GREQUALS:
+                return new Atom(r, l, -d, Kind.LE);
+            case SUCC:
+                return new Atom(l, r, d - 1, Kind.EQ);
+            case NOT_SUCC:
+                return new Atom(l, r, d - 1, Kind.NE);
+            case IN_WIN:
+                return window(l, r, d);
+            case NOT_IN_WIN:
+                return window(l, r, d).negate();
+            default:
+                throw new UnsupportedOperationException(
+                        "Relation " + atom.getRelation() + " is not suported in constraint conversion");
+        }
+    }
+
+    /**
+     * The right side exceeds the left one by more than 1 and at most 100.
+     */
+    private Formula window(int l, int r, double d) {
+        List<Formula> bounds = new ArrayList<>(2);
+        bounds.add(new Atom(l, r, d - 1, Kind.LT));
+        bounds.add(new Atom(r, l, 100 - d, Kind.LE));
+        return new Junction(true, bounds);
+    }
+
+    private int node(SymbolicDataValue sdv) {
+        return node(sdv.toString());
+    }
+
+    private static double number(DataValue<?> dv) {
+        if (dv == null) {
+            return 0;
+        }
+        if (!(dv.getId() instanceof Number)) {
+            throw new UnsupportedOperationException("Not a numeric value: " + dv);
+        }
+        return ((Number) dv.getId()).doubleValue();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.difference;
+
+import java.util.Collection;
+import java.util.List;
+
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.solver.GuardInstantiator;
+import de.learnlib.ralib.theory.SDTGuard;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.api.Variable;
+
+/**
+ * Instantiates guards over numeric domains with difference constraints,
+ * without a native solver.
+ *
+ * @param <T> the domain of the values
+ */
+public class DifferenceGuardInstantiator<T> implements GuardInstantiator<T> {
+
+    private final DataType type;
+
+    private final Class<T> domainType;
+
+    private final boolean integral;
+
+    public DifferenceGuardInstantiator(DataType type, Class<T> domainType) {
+        this.type = type;
+        this.domainType = domainType;
+        this.integral = DifferenceConstraints.isIntegral(domainType);
+    }
+
+    @Override
+    public DataValue<T> instantiate(SDTGuard g, Valuation val, Constants c,
+            Collection<DataValue<T>> alreadyUsedValues) {
+        String sp = g.getParameter().toString();
+        DifferenceConstraints.Solution solution = constraints(g, val, alreadyUsedValues).solve();
+        if (solution == null) {
+            return null;
+        }
+        for (Variable<?> var : val.getVariables()) {
+            if (var.getName().equals(sp)) {
+                return new DataValue<>(type, cast(val.getValue(var)));
+            }
+        }
+        return new DataValue<>(type, cast(solution.valueOf(sp)));
+    }
+
+    /**
+     * The guard, the valuation and the disequalities are added to a base
+     * matrix once, which is copied for each candidate.
+     */
+    @Override
+    public int findSatisfying(SDTGuard g, SymbolicDataValue param, Valuation val,
+            Collection<DataValue<T>> alreadyUsedValues, List<DataValue<T>> candidates) {
+        if (candidates.isEmpty()) {
+            return -1;
+        }
+        DifferenceConstraints constraints = constraints(g, val, alreadyUsedValues);
+        for (int i = 0; i < candidates.size(); i++) {
+            if (constraints.solve(param.toString(), number(candidates.get(i).getId())) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private DifferenceConstraints constraints(SDTGuard g, Valuation val, Collection<DataValue<T>> alreadyUsedValues) {
+        String sp = g.getParameter().toString();
+        DifferenceConstraints constraints = new DifferenceConstraints(integral);
+        constraints.add(g.toExpr());
+        for (DataValue<T> au : alreadyUsedValues) {
+            constraints.addDisequality(sp, number(au.getId()));
+        }
+        for (Variable<?> var : val.getVariables()) {
+            constraints.addEquality(var.getName(), number(val.getValue(var)));
+        }
+        return constraints;
+    }
+
+    private static Number number(Object value) {
+        if (!(value instanceof Number)) {
+            throw new UnsupportedOperationException("Not a numeric value: " + value);
+        }
+        return (Number) value;
+    }
+
+    private T cast(Object value) {
+        Number n = number(value);
+        Object ret;
+        if (domainType == Integer.class) {
+            ret = n.intValue();
+        } else if (domainType == Long.class) {
+            ret = n.longValue();
+        } else if (domainType == Short.class) {
+            ret = n.shortValue();
+        } else if (domainType == Byte.class) {
+            ret = n.byteValue();
+        } else if (domainType == Float.class) {
+            ret = n.floatValue();
+        } else {
+            ret = n.doubleValue();
+        }
+        return domainType.cast(ret);
+    }
+}
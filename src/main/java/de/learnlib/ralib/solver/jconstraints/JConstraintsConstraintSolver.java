@@ -34,8 +34,12 @@ public class JConstraintsConstraintSolver implements ConstraintSolver {
         this.solver = solver;
     }
     
+    /**
+     * Synchronized, since native solver sessions must not be used by
+     * several threads at once.
+     */
     @Override
-    public boolean isSatisfiable(GuardExpression expr) {
+    public synchronized boolean isSatisfiable(GuardExpression expr) {
         Expression<Boolean> jexpr = JContraintsUtil.toExpression(expr);
         Result r = solver.isSatisfiable(jexpr);
         return r == Result.SAT;
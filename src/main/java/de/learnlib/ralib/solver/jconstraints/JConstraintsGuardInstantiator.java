@@ -11,9 +11,11 @@ import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
 import de.learnlib.ralib.data.DataValue;
 import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.solver.GuardInstantiator;
 import de.learnlib.ralib.theory.SDTGuard;
 import gov.nasa.jpf.constraints.api.ConstraintSolver;
 import gov.nasa.jpf.constraints.api.ConstraintSolver.Result;
+import gov.nasa.jpf.constraints.api.SolverContext;
 import gov.nasa.jpf.constraints.api.Expression;
 import gov.nasa.jpf.constraints.api.Valuation;
 import gov.nasa.jpf.constraints.api.Variable;
@@ -22,12 +24,13 @@ import gov.nasa.jpf.constraints.expressions.NumericComparator;
 import gov.nasa.jpf.constraints.types.Type;
 import gov.nasa.jpf.constraints.util.ExpressionUtil;
 
-public class JConstraintsGuardInstantiator<T> {
+public class JConstraintsGuardInstantiator<T> implements GuardInstantiator<T> {
 
 	private final DataType type;
 	private final Type<T> jcType;
 	private final ConstraintSolver solver;
 	private Class<T> domainType;
+	private SolverContext context;
 
 	public JConstraintsGuardInstantiator(DataType type, gov.nasa.jpf.constraints.types.Type<T> jcType, ConstraintSolver solver) {
 		this.type = type;
@@ -49,7 +52,9 @@ public class JConstraintsGuardInstantiator<T> {
 	}
 
 	
-	public DataValue<T> instantiate(SDTGuard g, Valuation val, Constants c,
+	// synchronized, since the solver may be shared by parallel tree queries
+	@Override
+	public synchronized DataValue<T> instantiate(SDTGuard g, Valuation val, Constants c,
 			Collection<DataValue<T>> alreadyUsedValues) {
 		// System.out.println("INSTANTIATING: " + g.toString());
 		SymbolicDataValue.SuffixValue sp = g.getParameter();
@@ -110,4 +115,55 @@ public class JConstraintsGuardInstantiator<T> {
 		}
 	}
 	
+	/**
+	 * The guard, the valuation and the disequalities are asserted only once in a solver context 
+	 * that is kept across calls. Candidates are checked within a push and pop of that context.
+	 */
+	@Override
+	public synchronized int findSatisfying(SDTGuard g, SymbolicDataValue param, Valuation val, 
+			Collection<DataValue<T>> alreadyUsedValues, List<DataValue<T>> candidates) {
+		if (candidates.isEmpty()) {
+			return -1;
+		}
+		Variable sp = toVariable(g.getParameter());
+		Variable p = toVariable(param);
+		if (context == null) {
+			context = solver.createContext();
+		}
+		
+		List<Expression<Boolean>> eList = new ArrayList<>();
+		eList.add(toExpression(g.toExpr()));
+		for (DataValue<T> au : alreadyUsedValues) {
+			eList.add(new NumericBooleanExpression(constant(au), NumericComparator.NE, sp));
+		}
+		for (Variable var : val.getVariables()) {
+			eList.add(new NumericBooleanExpression(
+					new gov.nasa.jpf.constraints.expressions.Constant(getJCType(), val.getValue(var)), 
+					NumericComparator.EQ, var));
+		}
+		
+		context.push();
+		try {
+			context.add(eList);
+			for (int i = 0; i < candidates.size(); i++) {
+				context.push();
+				try {
+					context.add(new NumericBooleanExpression(constant(candidates.get(i)), NumericComparator.EQ, p));
+					if (context.isSatisfiable() == Result.SAT) {
+						return i;
+					}
+				} finally {
+					context.pop();
+				}
+			}
+			return -1;
+		} finally {
+			context.pop();
+		}
+	}
+	
+	private gov.nasa.jpf.constraints.expressions.Constant<T> constant(DataValue<T> dv) {
+		return new gov.nasa.jpf.constraints.expressions.Constant<T>(getJCType(), dv.getId());
+	}
+	
 }
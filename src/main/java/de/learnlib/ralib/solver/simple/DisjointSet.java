@@ -53,6 +53,21 @@ public class DisjointSet<T> {
 		return n;
 	}
 	
+	/**
+	 * Returns a disjoint set with the same partition that can be changed
+	 * independently of this one.
+	 */
+	public DisjointSet<T> copy() {
+		DisjointSet<T> copy = new DisjointSet<T>();
+		for(Node<T> n : nodes.values()) {
+			Node<T> c = copy.getNode(n.x);
+			c.rank = n.rank;
+			if(n.parent != null)
+				c.parent = copy.getNode(n.parent.x);
+		}
+		return copy;
+	}
+	
 	public T find(T x) {
 		Node<T> n = getNode(x);
 		return findRoot(n).x;
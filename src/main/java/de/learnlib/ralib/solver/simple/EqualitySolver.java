@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.simple;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import de.learnlib.ralib.automata.guards.AtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.Conjunction;
+import de.learnlib.ralib.automata.guards.ConstantGuardExpression;
+import de.learnlib.ralib.automata.guards.Disjunction;
+import de.learnlib.ralib.automata.guards.FalseGuardExpression;
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.automata.guards.Negation;
+import de.learnlib.ralib.automata.guards.TrueGuardExpression;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.SymbolicDataValue;
+
+/**
+ * Decides guards over equalities and disequalities with the semantics of the
+ * {@link SimpleSolver}, without expanding them into a disjunctive normal
+ * form. Constants are treated like the temporary constants of the
+ * {@link TranslationContext}, i.e., as variables shared by equal values.
+ *
+ * Guards are brought into negation normal form. Literals and conjunctions
+ * are asserted as soon as they are found, merging classes of a disjoint set
+ * for equalities and recording disequalities. A disjunction with a single
+ * operand left that is not refuted is asserted as well. Otherwise the search
+ * splits on the disjunction with the fewest such operands, assuming the
+ * negations of the operands tried before. Conflicts are detected as soon as a
+ * disequality connects two values of one class.
+ */
+public class EqualitySolver {
+	
+	private enum Value {
+		TRUE, FALSE, OPEN
+	}
+	
+	private abstract static class Formula {
+		abstract Formula negate();
+	}
+	
+	private static final class Literal extends Formula {
+		private final int lhs;
+		private final int rhs;
+		private final boolean equal;
+		
+		private Literal(int lhs, int rhs, boolean equal) {
+			this.lhs = lhs;
+			this.rhs = rhs;
+			this.equal = equal;
+		}
+		
+		@Override
+		Formula negate() {
+			return new Literal(lhs, rhs, !equal);
+		}
+	}
+	
+	private static final class Junction extends Formula {
+		private final boolean conjunctive;
+		private final List<Formula> operands;
+		
+		private Junction(boolean conjunctive, List<Formula> operands) {
+			this.conjunctive = conjunctive;
+			this.operands = operands;
+		}
+		
+		@Override
+		Formula negate() {
+			List<Formula> negated = new ArrayList<>(operands.size());
+			for (Formula f : operands) {
+				negated.add(f.negate());
+			}
+			return new Junction(!conjunctive, negated);
+		}
+	}
+	
+	/**
+	 * The asserted literals: classes of equal values and disequalities.
+	 */
+	private static final class State {
+		private final DisjointSet<Integer> classes;
+		private final List<Literal> disequalities;
+		
+		private State(DisjointSet<Integer> classes, List<Literal> disequalities) {
+			this.classes = classes;
+			this.disequalities = disequalities;
+		}
+		
+		private State copy() {
+			return new State(classes.copy(), new ArrayList<>(disequalities));
+		}
+		
+		private boolean same(int a, int b) {
+			return classes.find(a).equals(classes.find(b));
+		}
+		
+		private boolean distinct(int a, int b) {
+			Integer ra = classes.find(a);
+			Integer rb = classes.find(b);
+			for (Literal ne : disequalities) {
+				Integer l = classes.find(ne.lhs);
+				Integer r = classes.find(ne.rhs);
+				if ((l.equals(ra) && r.equals(rb)) || (l.equals(rb) && r.equals(ra))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * @return false on a conflict
+		 */
+		private boolean assume(Literal l) {
+			if (!l.equal) {
+				if (same(l.lhs, l.rhs)) {
+					return false;
+				}
+				disequalities.add(l);
+				return true;
+			}
+			classes.union(l.lhs, l.rhs);
+			for (Literal ne : disequalities) {
+				if (same(ne.lhs, ne.rhs)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+	
+	public boolean isSatisfiable(GuardExpression guard) {
+		Map<SymbolicDataValue, Integer> values = new HashMap<>();
+		Map<DataValue<?>, Integer> constants = new HashMap<>();
+		Formula f = translate(guard, values, constants);
+		List<Formula> pending = new LinkedList<>();
+		pending.add(f);
+		return search(new State(new DisjointSet<>(), new ArrayList<>()), pending);
+	}
+	
+	private static boolean search(State state, List<Formula> pending) {
+		Junction split = null;
+		int open = 0;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			split = null;
+			List<Formula> next = new LinkedList<>();
+			while (!pending.isEmpty()) {
+				Formula f = pending.remove(0);
+				switch (evaluate(state, f)) {
+				case TRUE:
+					continue;
+				case FALSE:
+					return false;
+				default:
+				}
+				if (f instanceof Literal) {
+					if (!state.assume((Literal) f)) {
+						return false;
+					}
+					changed = true;
+					continue;
+				}
+				Junction j = (Junction) f;
+				if (j.conjunctive) {
+					pending.addAll(0, j.operands);
+					continue;
+				}
+				List<Formula> operands = new ArrayList<>();
+				for (Formula o : j.operands) {
+					if (evaluate(state, o) != Value.FALSE) {
+						operands.add(o);
+					}
+				}
+				if (operands.size() == 1) {
+					pending.add(0, operands.get(0));
+					continue;
+				}
+				j = new Junction(false, operands);
+				if (split == null || operands.size() < open) {
+					split = j;
+					open = operands.size();
+				}
+				next.add(j);
+			}
+			pending = next;
+		}
+		if (split == null) {
+			return true;
+		}
+		
+		pending.remove(split);
+		List<Formula> refuted = new ArrayList<>();
+		for (Formula o : split.operands) {
+			List<Formula> branch = new LinkedList<>(pending);
+			branch.add(0, o);
+			branch.addAll(refuted);
+			if (search(state.copy(), branch)) {
+				return true;
+			}
+			refuted.add(o.negate());
+		}
+		return false;
+	}
+	
+	private static Value evaluate(State state, Formula f) {
+		if (f instanceof Literal) {
+			Literal l = (Literal) f;
+			if (state.same(l.lhs, l.rhs)) {
+				return l.equal ? Value.TRUE : Value.FALSE;
+			}
+			if (state.distinct(l.lhs, l.rhs)) {
+				return l.equal ? Value.FALSE : Value.TRUE;
+			}
+			return Value.OPEN;
+		}
+		Junction j = (Junction) f;
+		// the value deciding a conjunction is false, for a disjunction it is true
+		Value decisive = j.conjunctive ? Value.FALSE : Value.TRUE;
+		Value result = j.conjunctive ? Value.TRUE : Value.FALSE;
+		for (Formula o : j.operands) {
+			Value v = evaluate(state, o);
+			if (v == decisive) {
+				return v;
+			}
+			if (v == Value.OPEN) {
+				result = Value.OPEN;
+			}
+		}
+		return result;
+	}
+	
+	private static Formula translate(GuardExpression e, Map<SymbolicDataValue, Integer> values,
+			Map<DataValue<?>, Integer> constants) {
+		if (e instanceof TrueGuardExpression) {
+			return new Junction(true, new ArrayList<>());
+		}
+		if (e instanceof FalseGuardExpression) {
+			return new Junction(false, new ArrayList<>());
+		}
+		if (e instanceof Negation) {
+			return translate(((Negation) e).getNegated(), values, constants).negate();
+		}
+		if (e instanceof Conjunction) {
+			return translate(true, ((Conjunction) e).getConjuncts(), values, constants);
+		}
+		if (e instanceof Disjunction) {
+			return translate(false, ((Disjunction) e).getDisjuncts(), values, constants);
+		}
+		if (e instanceof AtomicGuardExpression) {
+			AtomicGuardExpression<?, ?> a = (AtomicGuardExpression<?, ?>) e;
+			int lhs = index(a.getLeft(), values, constants);
+			int rhs = index(a.getRight(), values, constants);
+			switch (a.getRelation()) {
+			case EQUALS:
+				return new Literal(lhs, rhs, true);
+			case NOT_EQUALS:
+				return new Literal(lhs, rhs, false);
+			default:
+				throw new IllegalArgumentException("Relation " + a.getRelation() + " is not supported");
+			}
+		}
+		if (e instanceof ConstantGuardExpression) {
+			ConstantGuardExpression c = (ConstantGuardExpression) e;
+			Integer rhs = constants.get(c.getConstant());
+			if (rhs == null) {
+				rhs = values.size() + constants.size();
+				constants.put(c.getConstant(), rhs);
+			}
+			return new Literal(index(c.getVariable(), values, constants), rhs, true);
+		}
+		throw new IllegalArgumentException();
+	}
+	
+	private static Formula translate(boolean conjunctive, GuardExpression[] operands,
+			Map<SymbolicDataValue, Integer> values, Map<DataValue<?>, Integer> constants) {
+		List<Formula> translated = new ArrayList<>(operands.length);
+		for (GuardExpression o : operands) {
+			translated.add(translate(o, values, constants));
+		}
+		return new Junction(conjunctive, translated);
+	}
+	
+	private static int index(SymbolicDataValue sdv, Map<SymbolicDataValue, Integer> values,
+			Map<DataValue<?>, Integer> constants) {
+		Integer i = values.get(sdv);
+		if (i == null) {
+			i = values.size() + constants.size();
+			values.put(sdv, i);
+		}
+		return i;
+	}
+}
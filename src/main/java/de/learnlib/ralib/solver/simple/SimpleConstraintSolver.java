@@ -21,15 +21,18 @@ import de.learnlib.ralib.solver.ConstraintSolver;
 
 
 /**
+ * Decides guards over equalities. Guards are decided lazily by an
+ * {@link EqualitySolver}, which agrees with the {@link SimpleSolver} but
+ * does not expand guards into a disjunctive normal form.
  *
  * @author falk
  */
 public class SimpleConstraintSolver implements ConstraintSolver {
     
-    private final SimpleSolver solver;
+    private final EqualitySolver solver;
     
     public SimpleConstraintSolver() {
-    	this.solver = new SimpleSolver();
+    	this.solver = new EqualitySolver();
     }
     
     @Override
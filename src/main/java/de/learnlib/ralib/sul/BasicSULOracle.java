@@ -18,13 +18,15 @@ package de.learnlib.ralib.sul;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 
 import de.learnlib.logging.LearnLogger;
 import de.learnlib.ralib.data.DataValue;
-import de.learnlib.ralib.oracles.io.IOOracle;
+import de.learnlib.ralib.oracles.io.PrefixTrieScheduler;
+import de.learnlib.ralib.oracles.io.SteppingIOOracle;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
 import net.automatalib.words.Word;
@@ -32,7 +34,7 @@ import net.automatalib.words.Word;
 /**
  * SUL Oracle for equalities for deterministic fresh output values.
  */
-public class BasicSULOracle implements IOOracle {
+public class BasicSULOracle implements SteppingIOOracle {
 
     private final DataWordSUL sul;
 
@@ -49,25 +51,78 @@ public class BasicSULOracle implements IOOracle {
 
     @Override
     public Word<PSymbolInstance> trace(Word<PSymbolInstance> query) {
-        Word<PSymbolInstance> act = query;
         log.log(Level.FINEST, "MQ: {0}", query);
-        sul.pre();
-        replacements.clear();
+        pre();
         Word<PSymbolInstance> trace = Word.epsilon();
         for (int i = 0; i < query.length(); i += 2) {
-            PSymbolInstance in = applyReplacements(act.getSymbol(i));
-            
-            PSymbolInstance out = sul.step(in);
-            updateReplacements(out);
-
-            trace = trace.append(in).append(out);
-
+            trace = step(trace, query);
         }
                 
-        sul.post();
+        post();
         return trace;
     }
 
+    @Override
+    public void pre() {
+        sul.pre();
+        replacements.clear();
+    }
+
+    @Override
+    public Word<PSymbolInstance> step(Word<PSymbolInstance> trace, Word<PSymbolInstance> query) {
+        PSymbolInstance in = applyReplacements(query.getSymbol(trace.length()));
+
+        PSymbolInstance out = sul.step(in);
+        updateReplacements(out);
+
+        return trace.append(in).append(out);
+    }
+
+    @Override
+    public void post() {
+        sul.post();
+    }
+
+    @Override
+    public boolean canSnapshot() {
+        return sul.canSnapshot();
+    }
+
+    /**
+     * Saves the state of the SUL along with the replacements of the run.
+     */
+    @Override
+    public Object snapshot() {
+        return new Object[] {sul.snapshot(), copy(replacements)};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void restore(Object snapshot) {
+        Object[] s = (Object[]) snapshot;
+        sul.restore(s[0]);
+        replacements.clear();
+        replacements.putAll(copy((Map<DataValue, Set<DataValue>>) s[1]));
+    }
+
+    private static Map<DataValue, Set<DataValue>> copy(Map<DataValue, Set<DataValue>> map) {
+        Map<DataValue, Set<DataValue>> ret = new HashMap<>();
+        for (Map.Entry<DataValue, Set<DataValue>> e : map.entrySet()) {
+            ret.put(e.getKey(), new HashSet<>(e.getValue()));
+        }
+        return ret;
+    }
+
+    /**
+     * Executes the queries along the prefix trie of their inputs, so
+     * queries that are prefixes of other queries are not executed, and 
+     * shared prefixes are executed once if the SUL can snapshot.
+     */
+    @Override
+    public List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> queries) {
+        return PrefixTrieScheduler.traces(queries, this);
+    }
+
     private PSymbolInstance applyReplacements(PSymbolInstance symbol) {
         DataValue[] vals = new DataValue[symbol.getBaseSymbol().getArity()];
         for (int i = 0; i < symbol.getBaseSymbol().getArity(); i++) {
@@ -16,9 +16,12 @@
  */
 package de.learnlib.ralib.sul;
 
+import java.util.List;
+
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
 import de.learnlib.ralib.oracles.TraceCanonizer;
-import de.learnlib.ralib.oracles.io.IOOracle;
+import de.learnlib.ralib.oracles.io.PrefixTrieScheduler;
+import de.learnlib.ralib.oracles.io.SteppingIOOracle;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
 import net.automatalib.words.Word;
@@ -27,7 +30,7 @@ import net.automatalib.words.Word;
  * A canonizing SULOracle generates single canonical traces for queries, by repeated application of the 
  * {@link TraceCanonizer#canonize(Word)} function.   
  */
-public class CanonizingSULOracle implements IOOracle{
+public class CanonizingSULOracle implements SteppingIOOracle{
 
     private final DataWordSUL canonizedSul;
 
@@ -58,17 +61,9 @@ public class CanonizingSULOracle implements IOOracle{
         	fixedQuery = trace.concat(fixedQuery.suffix(fixedQuery.size() - trace.size()));
         	fixedQuery = traceCanonizer.canonize(fixedQuery);
             PSymbolInstance in = fixedQuery.getSymbol(i);
-            trace = trace.append(in);
-            PSymbolInstance out = null;
-            try {
-            	out = canonizedSul.step(in);
-            } catch(DecoratedRuntimeException exc) {
-            	exc.addDecoration("trace", trace);
-            	throw exc;
-            }
-            trace = trace.append(out);
+            trace = run(trace, in);
 
-            if (out.getBaseSymbol().equals(error)) {
+            if (trace.lastSymbol().getBaseSymbol().equals(error)) {
                 break;
             }
         }
@@ -84,4 +79,65 @@ public class CanonizingSULOracle implements IOOracle{
         canonizedSul.post();
         return trace;
     }
+
+    @Override
+    public void pre() {
+        canonizedSul.pre();
+    }
+
+    /**
+     * Runs the next input of the canonized query, or fills in an error 
+     * after the run has produced an error.
+     */
+    @Override
+    public Word<PSymbolInstance> step(Word<PSymbolInstance> trace, Word<PSymbolInstance> query) {
+        if (trace.length() > 0 && trace.lastSymbol().getBaseSymbol().equals(error)) {
+            return trace.append(query.getSymbol(trace.length())).append(new PSymbolInstance(error));
+        }
+        Word<PSymbolInstance> fixedQuery = traceCanonizer.canonize(
+                trace.concat(query.suffix(query.size() - trace.size())));
+        return run(trace, fixedQuery.getSymbol(trace.length()));
+    }
+
+    private Word<PSymbolInstance> run(Word<PSymbolInstance> trace, PSymbolInstance in) {
+        trace = trace.append(in);
+        PSymbolInstance out = null;
+        try {
+        	out = canonizedSul.step(in);
+        } catch(DecoratedRuntimeException exc) {
+        	exc.addDecoration("trace", trace);
+        	throw exc;
+        }
+        return trace.append(out);
+    }
+
+    @Override
+    public void post() {
+        canonizedSul.post();
+    }
+
+    @Override
+    public boolean canSnapshot() {
+        return canonizedSul.canSnapshot();
+    }
+
+    @Override
+    public Object snapshot() {
+        return canonizedSul.snapshot();
+    }
+
+    @Override
+    public void restore(Object snapshot) {
+        canonizedSul.restore(snapshot);
+    }
+
+    /**
+     * Executes the queries along the prefix trie of their inputs, so
+     * queries that are prefixes of other queries are not executed, and 
+     * shared prefixes are executed once if the SUL can snapshot.
+     */
+    @Override
+    public List<Word<PSymbolInstance>> traces(List<Word<PSymbolInstance>> queries) {
+        return PrefixTrieScheduler.traces(queries, this);
+    }
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.sul;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.learnlib.api.SULException;
+import de.learnlib.ralib.automata.CompiledRegisterAutomaton;
+import de.learnlib.ralib.automata.CompiledRegisterAutomaton.CompiledTransition;
+import de.learnlib.ralib.automata.RALocation;
+import de.learnlib.ralib.automata.RegisterAutomaton;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.FreshValue;
+import de.learnlib.ralib.data.VarValuation;
+import de.learnlib.ralib.theory.Theory;
+import de.learnlib.ralib.words.DataWords;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.words.Word;
+
+/**
+ * Simulates a register automaton like {@link SimulatorSUL} on a compiled 
+ * form of the automaton (see {@link CompiledRegisterAutomaton}). 
+ * 
+ * The data values seen in the current trace are kept per type, so fresh 
+ * output values are computed without scanning the trace. Location, 
+ * registers and seen values can be queried at any point of a run, which 
+ * lets random walks follow the hypothesis without running it again for 
+ * every prefix.
+ */
+public class CompiledSimulatorSUL extends DataWordSUL {
+
+    private final CompiledRegisterAutomaton model;
+
+    private final Map<DataType, Theory> teachers;
+
+    private final DataValue<?>[] valuation;
+
+    private final List<PSymbolInstance> trace = new ArrayList<>();
+
+    private final Map<DataType, Set<DataValue<?>>> seen = new LinkedHashMap<>();
+
+    private int loc = -1;
+
+    private static final class Snapshot {
+        private final int loc;
+        private final DataValue<?>[] valuation;
+        private final List<PSymbolInstance> trace;
+
+        private Snapshot(int loc, DataValue<?>[] valuation, List<PSymbolInstance> trace) {
+            this.loc = loc;
+            this.valuation = valuation.clone();
+            this.trace = new ArrayList<>(trace);
+        }
+    }
+
+    public CompiledSimulatorSUL(RegisterAutomaton model, Map<DataType, Theory> teachers,
+            Constants consts) {
+        this.model = model.compile(consts);
+        this.teachers = teachers;
+        this.valuation = this.model.newValuation();
+    }
+
+    @Override
+    public void pre() {
+        countResets(1);
+        loc = model.getInitialLocation();
+        model.reset(valuation);
+        trace.clear();
+        seen.clear();
+    }
+
+    @Override
+    public void post() {
+        loc = -1;
+        trace.clear();
+        seen.clear();
+    }
+
+    @Override
+    public boolean canSnapshot() {
+        return true;
+    }
+
+    @Override
+    public Object snapshot() {
+        return new Snapshot(loc, valuation, trace);
+    }
+
+    /**
+     * Restores the seen values from the trace of the snapshot.
+     */
+    @Override
+    public void restore(Object snapshot) {
+        Snapshot s = (Snapshot) snapshot;
+        loc = s.loc;
+        System.arraycopy(s.valuation, 0, valuation, 0, valuation.length);
+        trace.clear();
+        seen.clear();
+        for (PSymbolInstance psi : s.trace) {
+            append(psi);
+        }
+    }
+
+    @Override
+    public PSymbolInstance step(PSymbolInstance i) throws SULException {
+        countInputs(1);
+        append(i);
+
+        model.setParameters(i, valuation);
+        CompiledTransition[] candidates = model.getTransitions(loc, i.getBaseSymbol());
+        CompiledTransition taken = null;
+        for (CompiledTransition t : candidates) {
+            if (t.isEnabled(valuation)) {
+                taken = t;
+                break;
+            }
+        }
+
+        if (taken == null) {
+            throw new IllegalStateException("No transition found after trace: "
+                    + Word.fromList(trace.subList(0, trace.size() - 1)) + "\n for input: " + i 
+                    + "\n candidate transitions: " + model.getLocation(loc).getOut(i.getBaseSymbol()));
+        }
+        taken.execute(valuation);
+        loc = taken.getDestination();
+
+        model.clearParameters(valuation);
+        CompiledTransition ot = getOutputTransition();
+        PSymbolInstance out = createOutputSymbol(ot);
+        append(out);
+
+        model.setParameters(out, valuation);
+        ot.execute(valuation);
+        loc = ot.getDestination();
+        return out;
+    }
+
+    private PSymbolInstance createOutputSymbol(CompiledTransition ot) {
+        ParameterizedSymbol ps = ot.getTransition().getLabel();
+        DataValue[] vals = new DataValue[ps.getArity()];
+        DataType[] types = ps.getPtypes();
+        for (int i = 0; i < vals.length; i++) {
+            if (ot.isFresh(i)) {
+                List<DataValue> old = computeOld(types[i], vals, i);
+                DataValue dv = teachers.get(types[i]).getFreshValue(old);
+                vals[i] = new FreshValue(dv.getType(), dv.getId());
+            } else {
+                vals[i] = ot.getOutput(i, valuation);
+            }
+            assert vals[i] != null;
+            model.setParameter(i, vals[i], valuation);
+        }
+        return new PSymbolInstance(ps, vals);
+    }
+
+    private CompiledTransition getOutputTransition() {
+        for (CompiledTransition t : model.getTransitions(loc)) {
+            if (!t.isOutput()) {
+                throw new ClassCastException(t.getTransition() + " is not an output transition");
+            }
+            if (t.isEnabled(valuation)) {
+                return t;
+            }
+        }
+        RALocation l = model.getLocation(loc);
+        throw new IllegalStateException("No suitable output transition. \n Location: " + l.getName() 
+                + "\n Transitions: " + l.getOut());
+    }
+
+    private List<DataValue> computeOld(DataType t, DataValue[] vals, int count) {
+        Set<DataValue> set = new LinkedHashSet<>(seen.getOrDefault(t, new LinkedHashSet<>()));
+        for (int i = 0; i < count; i++) {
+            if (vals[i].getType().equals(t)) {
+                set.add(vals[i]);
+            }
+        }
+        return new ArrayList<>(set);
+    }
+
+    private void append(PSymbolInstance psi) {
+        trace.add(psi);
+        for (DataValue<?> d : psi.getParameterValues()) {
+            seen.computeIfAbsent(d.getType(), k -> new LinkedHashSet<>()).add(d);
+        }
+    }
+
+    public RALocation getLocation() {
+        return (loc < 0) ? null : model.getLocation(loc);
+    }
+
+    /**
+     * returns the current valuation of the registers, null if the 
+     * simulation is not running.
+     * 
+     * @return 
+     */
+    public VarValuation getRegisterValuation() {
+        return (loc < 0) ? null : model.getRegisters(valuation);
+    }
+
+    /**
+     * returns the data values of a type in the current trace, in the order 
+     * of first occurrence (as in {@link DataWords#valSet(Word, DataType)}).
+     * 
+     * @param t
+     * @return 
+     */
+    public Set<DataValue<?>> getValues(DataType t) {
+        Set<DataValue<?>> vals = seen.get(t);
+        return (vals == null) ? Collections.emptySet() : Collections.unmodifiableSet(vals);
+    }
+}
@@ -23,6 +23,21 @@ public class CountingDataWordSUL extends DataWordSUL{
 		this.sul.post();
 	}
 
+	@Override
+	public boolean canSnapshot() {
+		return this.sul.canSnapshot();
+	}
+
+	@Override
+	public Object snapshot() {
+		return this.sul.snapshot();
+	}
+
+	@Override
+	public void restore(Object snapshot) {
+		this.sul.restore(snapshot);
+	}
+
 	@Override
 	public PSymbolInstance step(PSymbolInstance in) throws SULException {
 		this.inputCounter.countInputs(1);
@@ -28,5 +28,37 @@ public abstract class DataWordSUL extends InputCounter implements SUL<PSymbolIns
 
 	public DataWordSUL() {
 	}
-	
+
+    /**
+     * Returns true if the state of the current run can be saved by 
+     * {@link #snapshot()} and entered again by {@link #restore(Object)}.
+     * Runs that share a prefix can then continue from the state after the 
+     * prefix instead of running it again from a reset.
+     * 
+     * @return false by default
+     */
+    public boolean canSnapshot() {
+        return false;
+    }
+
+    /**
+     * Saves the state of the current run, i.e., the state reached by the 
+     * inputs stepped since {@link #pre()}.
+     * 
+     * @return a snapshot to be passed to {@link #restore(Object)}
+     */
+    public Object snapshot() {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot snapshot");
+    }
+
+    /**
+     * Puts the current run in the state saved by a snapshot of a run, taken 
+     * since the last {@link #pre()}. A snapshot can be restored any number 
+     * of times.
+     * 
+     * @param snapshot
+     */
+    public void restore(Object snapshot) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot snapshot");
+    }
 }
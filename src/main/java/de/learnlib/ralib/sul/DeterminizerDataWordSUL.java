@@ -1,5 +1,7 @@
 package de.learnlib.ralib.sul;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import de.learnlib.api.SULException;
@@ -16,6 +18,9 @@ public class DeterminizerDataWordSUL extends DataWordSUL{
 	private MultiTheoryDeterminizer mtDeterminizer;
 	private Map<DataType, Theory> teachers;
 	private Constants constants;
+
+	// symbols of the current run as sent to / received from the SUL, followed by their canonized form
+	private List<PSymbolInstance> mapped = new ArrayList<>();
 	
 	public DeterminizerDataWordSUL(Map<DataType, Theory> teachers, Constants constants, DataWordSUL sul) {
 		this.teachers = teachers;
@@ -28,6 +33,7 @@ public class DeterminizerDataWordSUL extends DataWordSUL{
 		 countResets(1);
 		 this.sul.pre();
 		 this.mtDeterminizer = new MultiTheoryDeterminizer(this.teachers, constants);
+		 this.mapped = new ArrayList<>();
 	}
 
 	@Override
@@ -35,16 +41,46 @@ public class DeterminizerDataWordSUL extends DataWordSUL{
 		this.sul.post();
 	}
 
+	@Override
+	public boolean canSnapshot() {
+		return this.sul.canSnapshot();
+	}
+
+	@Override
+	public Object snapshot() {
+		return new Object[] {this.sul.snapshot(), new ArrayList<>(mapped)};
+	}
+
+	/**
+	 * Rebuilds the determinizer from the symbols mapped up to the snapshot 
+	 * (see {@link MultiTheoryDeterminizer#restore(PSymbolInstance, PSymbolInstance)}).
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void restore(Object snapshot) {
+		Object[] s = (Object[]) snapshot;
+		this.sul.restore(s[0]);
+		this.mapped = new ArrayList<>((List<PSymbolInstance>) s[1]);
+		this.mtDeterminizer = new MultiTheoryDeterminizer(this.teachers, constants);
+		for (int i = 0; i < mapped.size(); i += 2) {
+			mtDeterminizer.restore(mapped.get(i), mapped.get(i + 1));
+		}
+	}
+
 	@Override
 	public PSymbolInstance step(PSymbolInstance input) throws SULException {
         countInputs(1);
         // de-canonize input before sending it to the SUL
-        input = mtDeterminizer.canonize(input, true);
+        PSymbolInstance sulInput = mtDeterminizer.canonize(input, true);
+        mapped.add(sulInput);
+        mapped.add(input);
         
-        PSymbolInstance output = this.sul.step(input);
+        PSymbolInstance sulOutput = this.sul.step(sulInput);
        
         // canonize output 
-        output = mtDeterminizer.canonize(output, false);
+        PSymbolInstance output = mtDeterminizer.canonize(sulOutput, false);
+        mapped.add(sulOutput);
+        mapped.add(output);
       
 
         return output;
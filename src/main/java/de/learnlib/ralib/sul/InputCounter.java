@@ -1,34 +1,39 @@
 package de.learnlib.ralib.sul;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts resets and inputs. Counters may be shared by SULs running in parallel.
+ */
 public class InputCounter {
-    private int resets = 0;
+    private final AtomicLong resets = new AtomicLong();
     
-    private int  inputs = 0;
+    private final AtomicLong inputs = new AtomicLong();
     
     public InputCounter() {
     	
     }
     
     protected void countResets(int n) {
-        resets += n;
+        resets.addAndGet(n);
     }
     
     protected void countInputs(int n) {
-        inputs += n;
+        inputs.addAndGet(n);
     }
 
     /**
      * @return the resets
      */
     public long getResets() {
-        return resets;
+        return resets.get();
     }
 
     /**
      * @return the inputs
      */
     public long getInputs() {
-        return inputs;
+        return inputs.get();
     }
     
 }
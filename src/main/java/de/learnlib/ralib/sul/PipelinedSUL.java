@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.sul;
+
+import java.util.List;
+
+import de.learnlib.api.SULException;
+import de.learnlib.ralib.words.PSymbolInstance;
+
+/**
+ * A SUL that can take all inputs of a query at once and send them ahead of
+ * their outputs, instead of waiting for an output after every input.
+ * Pipelining only works for queries whose inputs do not depend on earlier
+ * outputs, e.g., queries without fresh output values.
+ */
+public interface PipelinedSUL {
+
+    /**
+     * Runs inputs from the initial state.
+     *
+     * @param inputs
+     * @return one output per input
+     */
+    List<PSymbolInstance> run(List<PSymbolInstance> inputs) throws SULException;
+
+    /**
+     * @return true if queries should be run by {@link #run(List)}
+     */
+    boolean isPipelined();
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.sul;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.learnlib.ralib.oracles.io.IOOracle;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * IO Oracle that runs the inputs of a query on a pipelined SUL at once. 
+ * Resets and inputs are counted on an input counter, since the SUL is not 
+ * wrapped.
+ */
+public class PipelinedSULOracle implements IOOracle {
+
+    private final PipelinedSUL sul;
+
+    private final InputCounter counter;
+
+    public PipelinedSULOracle(PipelinedSUL sul, InputCounter counter) {
+        this.sul = sul;
+        this.counter = counter;
+    }
+
+    @Override
+    public Word<PSymbolInstance> trace(Word<PSymbolInstance> query) {
+        List<PSymbolInstance> inputs = new ArrayList<>(query.length() / 2);
+        for (int i = 0; i < query.length(); i += 2) {
+            inputs.add(query.getSymbol(i));
+        }
+        counter.countResets(1);
+        counter.countInputs(inputs.size());
+        List<PSymbolInstance> outputs = sul.run(inputs);
+
+        List<PSymbolInstance> trace = new ArrayList<>(query.length());
+        for (int i = 0; i < inputs.size(); i++) {
+            trace.add(inputs.get(i));
+            trace.add(outputs.get(i));
+        }
+        return Word.fromList(trace);
+    }
+}
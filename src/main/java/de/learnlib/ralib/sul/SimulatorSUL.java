@@ -61,6 +61,18 @@ public class SimulatorSUL extends DataWordSUL {
     private Word<PSymbolInstance> prefix = null;
     
     private static LearnLogger log = LearnLogger.getLogger(SimulatorSUL.class);
+
+    private static final class Snapshot {
+        private final RALocation loc;
+        private final VarValuation register;
+        private final Word<PSymbolInstance> prefix;
+
+        private Snapshot(RALocation loc, VarValuation register, Word<PSymbolInstance> prefix) {
+            this.loc = loc;
+            this.register = new VarValuation(register);
+            this.prefix = prefix;
+        }
+    }
     
     public SimulatorSUL(RegisterAutomaton model, Map<DataType, Theory> teachers,
             Constants consts) {
@@ -84,6 +96,24 @@ public class SimulatorSUL extends DataWordSUL {
         prefix = null;
     }
 
+    @Override
+    public boolean canSnapshot() {
+        return true;
+    }
+
+    @Override
+    public Object snapshot() {
+        return new Snapshot(loc, register, prefix);
+    }
+
+    @Override
+    public void restore(Object snapshot) {
+        Snapshot s = (Snapshot) snapshot;
+        loc = s.loc;
+        register = new VarValuation(s.register);
+        prefix = s.prefix;
+    }
+
     @Override
     public PSymbolInstance step(PSymbolInstance i) throws SULException {
         countInputs(1);
@@ -53,6 +53,7 @@ import de.learnlib.ralib.learning.SymbolicSuffix;
 import de.learnlib.ralib.oracles.io.IOOracle;
 import de.learnlib.ralib.oracles.mto.SDT;
 import de.learnlib.ralib.oracles.mto.SDTConstructor;
+import de.learnlib.ralib.oracles.mto.SDTQuery;
 import de.learnlib.ralib.oracles.mto.SemanticEquivalenceChecker;
 import de.learnlib.ralib.solver.ConstraintSolver;
 import de.learnlib.ralib.theory.DataRelation;
@@ -252,6 +253,8 @@ public abstract class EqualityTheory<T> implements Theory<T> {
 		DataValue fresh = getFreshValue(potential);
 
 		List<DisequalityGuard> diseqList = new ArrayList<DisequalityGuard>();
+		List<EqualityGuard> eqGuards = new ArrayList<>();
+		List<SDTQuery> queries = new ArrayList<>();
 		for (DataValue<T> newDv : potential) {
 			log.log(Level.FINEST, newDv.toString());
 
@@ -267,9 +270,8 @@ public abstract class EqualityTheory<T> implements Theory<T> {
 			// this is the valuation of the positions in the suffix
 			WordValuation ifValues = new WordValuation(values);
 			ifValues.put(pId, newDv);
-			SDT eqOracleSdt = oracle.treeQuery(prefix, suffix, ifValues, pir, constants, ifSuffixValues);
-
-			tempKids.put(eqGuard, eqOracleSdt);
+			eqGuards.add(eqGuard);
+			queries.add(new SDTQuery(ifValues, ifSuffixValues));
 		}
 
 		// process the 'else' case
@@ -280,8 +282,15 @@ public abstract class EqualityTheory<T> implements Theory<T> {
 		// this is the valuation of the suffixvalues in the suffix
 		SuffixValuation elseSuffixValues = new SuffixValuation(suffixValues);
 		elseSuffixValues.put(sv, fresh);
-		
-		SDT elseOracleSdt = oracle.treeQuery(prefix, suffix, elseValues, pir, constants, elseSuffixValues);
+		SDTQuery elseQuery = new SDTQuery(elseValues, elseSuffixValues);
+		queries.add(elseQuery);
+
+		// the 'if' and 'else' branches are independent and answered as one batch
+		oracle.treeQueries(prefix, suffix, pir, constants, queries);
+		for (int i = 0; i < eqGuards.size(); i++) {
+			tempKids.put(eqGuards.get(i), queries.get(i).getAnswer());
+		}
+		SDT elseOracleSdt = elseQuery.getAnswer();
 
 		SDTAndGuard deqGuard = new SDTAndGuard(currentParam, (diseqList.toArray(new DisequalityGuard[] {})));
 		log.log(Level.FINEST, "diseq guard = " + deqGuard.toString());
@@ -46,6 +46,7 @@ import de.learnlib.ralib.oracles.io.IOOracle;
 import de.learnlib.ralib.oracles.mto.SDT;
 import de.learnlib.ralib.oracles.mto.SDTConstructor;
 import de.learnlib.ralib.oracles.mto.SDTLeaf;
+import de.learnlib.ralib.oracles.mto.SDTQuery;
 import de.learnlib.ralib.oracles.mto.SemanticEquivalenceChecker;
 import de.learnlib.ralib.solver.ConstraintSolver;
 import de.learnlib.ralib.theory.DataRelation;
@@ -308,6 +309,8 @@ abstract public class SumCEqualityTheory<T extends Number & Comparable<T>> imple
 		DataValue fresh = getFreshValue(potential);
 
 		List<DisequalityGuard> diseqList = new ArrayList<DisequalityGuard>();
+		List<EqualityGuard> eqGuards = new ArrayList<>();
+		List<SDTQuery> queries = new ArrayList<>();
 		for (DataValue<T> newDv : potential) {
 			log.log(Level.FINEST, newDv.toString());
 
@@ -323,9 +326,8 @@ abstract public class SumCEqualityTheory<T extends Number & Comparable<T>> imple
 			// this is the valuation of the positions in the suffix
 			WordValuation ifValues = new WordValuation(values);
 			ifValues.put(pId, newDv);
-			SDT eqOracleSdt = oracle.treeQuery(prefix, suffix, ifValues, pir, constants, ifSuffixValues);
-
-			tempKids.put(eqGuard, eqOracleSdt);
+			eqGuards.add(eqGuard);
+			queries.add(new SDTQuery(ifValues, ifSuffixValues));
 		}
 
 		// process the 'else' case
@@ -336,8 +338,15 @@ abstract public class SumCEqualityTheory<T extends Number & Comparable<T>> imple
 		// this is the valuation of the suffixvalues in the suffix
 		SuffixValuation elseSuffixValues = new SuffixValuation(suffixValues);
 		elseSuffixValues.put(sv, fresh);
+		SDTQuery elseQuery = new SDTQuery(elseValues, elseSuffixValues);
+		queries.add(elseQuery);
 
-		SDT elseOracleSdt = oracle.treeQuery(prefix, suffix, elseValues, pir, constants, elseSuffixValues);
+		// the 'if' and 'else' branches are independent and answered as one batch
+		oracle.treeQueries(prefix, suffix, pir, constants, queries);
+		for (int i = 0; i < eqGuards.size(); i++) {
+			tempKids.put(eqGuards.get(i), queries.get(i).getAnswer());
+		}
+		SDT elseOracleSdt = elseQuery.getAnswer();
 
 		SDTAndGuard deqGuard = new SDTAndGuard(currentParam, (diseqList.toArray(new DisequalityGuard[] {})));
 		log.log(Level.FINEST, "diseq guard = " + deqGuard.toString());
@@ -62,6 +62,9 @@ import de.learnlib.ralib.oracles.mto.SDTLeaf;
 import de.learnlib.ralib.oracles.mto.SDTQuery;
 import de.learnlib.ralib.oracles.mto.SemanticEquivalenceChecker;
 import de.learnlib.ralib.solver.ConstraintSolver;
+import de.learnlib.ralib.solver.ConstraintSolverFactory;
+import de.learnlib.ralib.solver.GuardInstantiator;
+import de.learnlib.ralib.solver.difference.DifferenceGuardInstantiator;
 import de.learnlib.ralib.solver.jconstraints.JConstraintsGuardInstantiator;
 import de.learnlib.ralib.theory.DataRelation;
 import de.learnlib.ralib.theory.IfElseGuardMerger;
@@ -94,11 +97,15 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 	protected static final LearnLogger log = LearnLogger.getLogger(MethodHandles.lookup().lookupClass());
 
 	/**
-	 * Builds a guard instantiator.
+	 * Builds a guard instantiator. The difference solver instantiates guards natively,
+	 * all other names are passed on to jconstraints.
 	 */
-	protected static <P extends Comparable<P>> JConstraintsGuardInstantiator<P> getInstantiator(DataType type,
+	protected static <P extends Comparable<P>> GuardInstantiator<P> getInstantiator(DataType type,
 			String solverName,
 			Class<P> domainType) {
+		if (ConstraintSolverFactory.ID_DIFFERENCE.equals(solverName)) {
+			return new DifferenceGuardInstantiator<P>(type, domainType);
+		}
 		gov.nasa.jpf.constraints.api.ConstraintSolver solver = gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory.createSolver(solverName);
 		return new JConstraintsGuardInstantiator<P>(type, solver, domainType);
 	}
@@ -108,8 +115,8 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 	private final InequalityGuardMerger fullMerger;
 	private final IfElseGuardMerger ifElseMerger;
 	private boolean suffixOptimization;
-	private final String jSolverName; 
-	private JConstraintsGuardInstantiator<T> guardInstantiator;
+	private String jSolverName; 
+	private GuardInstantiator<T> guardInstantiator;
 
 	public InequalityTheoryWithEq(InequalityGuardMerger fullMerger) {
 		this.freshValues = false;
@@ -136,6 +143,17 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 		return type;
 	}
 
+	/**
+	 * Instantiates guards with the difference solver if it is selected, otherwise with z3.
+	 */
+	@Override
+	public void setConstraintSolver(String solverName) {
+		this.jSolverName = ConstraintSolverFactory.ID_DIFFERENCE.equals(solverName) ? solverName : "z3";
+		if (type != null) {
+			this.guardInstantiator = getInstantiator(type, jSolverName, getDomainType());
+		}
+	}
+
 	private Map<SDTGuard, SDT> mergeAllGuards(final Map<SDTGuard, SDT> tempGuards,
 			Map<SDTGuard, DataValue<T>> instantiations, SDTEquivalenceChecker sdtChecker,
 			Mapping<SymbolicDataValue, DataValue<?>> valuation) {
@@ -519,6 +537,7 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 		int pId = wordVals.size() + 1;
 		SuffixValue sv = suffix.getDataValue(pId);
 		final Map<SDTGuard, SDT> tempKids = new LinkedHashMap<>();
+		final Map<SDTGuard, SDTQuery> sdtQueries = new LinkedHashMap<>();
 
 		for (SDTGuard sdtGuard : guardDvs.keySet()) {
 			DataValue<T> dv = guardDvs.get(sdtGuard);
@@ -527,12 +546,12 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 			SuffixValuation newSuffixVals = new SuffixValuation(suffixVals);
 			newSuffixVals.put(sv, dv);
 			newSuffixVals.addSuffGuard(sdtGuard);
-			SDTQuery sdtQuery = new SDTQuery(newWordVals, newSuffixVals);
-			SDT sdt = oracle.treeQuery(prefix, suffix, sdtQuery.getWordValuation(), piv, constants,
-					sdtQuery.getSuffValuation());
-			tempKids.put(sdtGuard, sdt);
+			sdtQueries.put(sdtGuard, new SDTQuery(newWordVals, newSuffixVals));
 		}
 
+		oracle.treeQueries(prefix, suffix, piv, constants, new ArrayList<>(sdtQueries.values()));
+		sdtQueries.forEach((sdtGuard, sdtQuery) -> tempKids.put(sdtGuard, sdtQuery.getAnswer()));
+
 		return tempKids;
 	}
 
@@ -716,18 +735,11 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 		
 		Set<DataValue<T>> alreadyUsedValues = DataWords.<T>joinValsToSet(constants.<T>values(type));
 		
+		// candidates in the order of preference, checked in one solver session
+		List<DataValue<T>> candidates = new ArrayList<>();
+		
 		// can we use an old value?
-		if (!(oldDvs.isEmpty())) {
-			for (DataValue<T> oldDv : oldDvs) {
-				Valuation newVal = new Valuation();
-				newVal.putAll(val);
-				newVal.setValue(toVariable(new SuffixValue(param.getType(), param.getId())), oldDv.getId());
-				DataValue<T> inst = guardInstantiator.instantiate(guard, newVal, constants, alreadyUsedValues);
-				if (inst != null) {
-					return oldDv;
-				}
-			}
-		}
+		candidates.addAll(oldDvs);
 		
 		Collection<DataValue<T>> potentialSet = DataWords.<T>joinValsToSet(constants.<T>values(type),
 				DataWords.<T>valSet(prefix, type), pval.<T>values(type));
@@ -735,14 +747,7 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 		
 		// how about a Fresh Value ?
 		DataValue<T> freshValue = getFreshValue(potential);
-		Valuation freshVal = new Valuation();
-		freshVal.putAll(val);
-		freshVal.setValue(toVariable(new SuffixValue(param.getType(), param.getId())), freshValue.getId());
-		DataValue<T> freshInst = guardInstantiator.instantiate(guard, freshVal, constants, alreadyUsedValues);
-		if (freshInst != null) {
-			return new FreshValue<T>(freshValue.getType(), freshValue.getId());
-		}
-		
+		candidates.add(new FreshValue<T>(freshValue.getType(), freshValue.getId()));
 		
 		Set<DataValue> rawAlreadyUsedValues = new LinkedHashSet<>(alreadyUsedValues);
 		
@@ -750,23 +755,18 @@ public abstract class InequalityTheoryWithEq<T extends Comparable<T>> implements
 		List<Range<T>> ranges = generateRangesFromPotential(potential, true);
 		for (Range<T> range : ranges) {
 			IntervalDataValue<T> intValue = pickIntervalDataValue(range.left, range.right, rawAlreadyUsedValues);
-			Valuation intVal = new Valuation();
-			intVal.putAll(val);
-			intVal.setValue(toVariable(new SuffixValue(param.getType(), param.getId())), intValue.getId());
-			DataValue<T> intInst = guardInstantiator.instantiate(guard, intVal, constants, alreadyUsedValues);
-			if (intInst != null)
-				return intValue;
+			if (intValue != null) {
+				candidates.add(intValue);
+			}
 		}
 		
 		// how about a potential value ?
-		for (DataValue<T> potValue : potential) {
-			Valuation potVal = new Valuation();
-			potVal.putAll(val);
-			potVal.setValue(toVariable(new SuffixValue(param.getType(), param.getId())), potValue.getId());
-			DataValue<T> potInst = guardInstantiator.instantiate(guard, potVal, constants, alreadyUsedValues);
-			if (potInst != null) {
-				return potValue;
-			}
+		candidates.addAll(potential);
+		
+		int found = guardInstantiator.findSatisfying(guard, 
+				new SuffixValue(param.getType(), param.getId()), val, alreadyUsedValues, candidates);
+		if (found >= 0) {
+			return candidates.get(found);
 		}
 		
 		// ok, we have exhausted all possibilities, let's set no restrictions
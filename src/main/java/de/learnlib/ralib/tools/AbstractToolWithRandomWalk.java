@@ -17,6 +17,7 @@
 package de.learnlib.ralib.tools;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -43,8 +44,10 @@ import de.learnlib.ralib.data.DataValue;
 import de.learnlib.ralib.data.SumConstants;
 import de.learnlib.ralib.data.util.SymbolicDataValueGenerator;
 import de.learnlib.ralib.data.util.SymbolicDataValueGenerator.SumConstantGenerator;
+import de.learnlib.ralib.oracles.io.CacheJournal;
 import de.learnlib.ralib.oracles.io.IOCache;
 import de.learnlib.ralib.oracles.io.IOCacheManager;
+import de.learnlib.ralib.solver.CachingConstraintSolver;
 import de.learnlib.ralib.solver.ConstraintSolver;
 import de.learnlib.ralib.solver.ConstraintSolverFactory;
 import de.learnlib.ralib.theory.Theory;
@@ -142,8 +145,15 @@ public abstract class AbstractToolWithRandomWalk implements RaLibTool {
 	protected static final ConfigurationOption.StringOption OPTION_CACHE_LOAD = new ConfigurationOption.StringOption(
 			"cache.load", "Load cache from file if file exists", null, true);
 
+	protected static final ConfigurationOption.StringOption OPTION_CACHE_JOURNAL = new ConfigurationOption.StringOption(
+			"cache.journal", "Append new cache traces to a journal file, replayed after loading the cache", null, true);
+
+	protected static final ConfigurationOption.LongOption OPTION_CACHE_JOURNAL_SYNC = new ConfigurationOption.LongOption(
+			"cache.journal.sync", "Interval in ms at which the cache journal is synced to disk, 0 syncs every trace",
+			1000L, true);
+
 	protected static final ConfigurationOption.StringOption OPTION_CACHE_SYSTEM = new ConfigurationOption.StringOption(
-			"cache.system", "The type of caching employed: serialize|mock", "serialize", true);
+			"cache.system", "The type of caching employed: serialize|binary|mapped|mock", "serialize", true);
 
 	protected static final BooleanOption OPTION_CACHE_TESTS = new ConfigurationOption.BooleanOption("cache.tests",
 			"Are tests cached as well?", true, true);
@@ -162,9 +172,15 @@ public abstract class AbstractToolWithRandomWalk implements RaLibTool {
 
 	protected static final ConfigurationOption.StringOption OPTION_SOLVER = new ConfigurationOption.StringOption(
 			"solver", "Constraints Solver. Options: " + ConstraintSolverFactory.ID_SIMPLE + ", "
-					+ ConstraintSolverFactory.ID_Z3 + ".",
+					+ ConstraintSolverFactory.ID_Z3 + ", " + ConstraintSolverFactory.ID_DIFFERENCE
+					+ ". Inequality theories instantiate guards with z3 unless "
+					+ ConstraintSolverFactory.ID_DIFFERENCE + " is selected.",
 			ConstraintSolverFactory.ID_SIMPLE, true);
 
+	protected static final ConfigurationOption.IntegerOption OPTION_SOLVER_CACHE_SIZE = new ConfigurationOption.IntegerOption(
+			"solver.cache.size", "Number of solver results kept for repeated guard expressions. 0 disables the cache.",
+			10000, true);
+
 	protected static final ConfigurationOption.StringOption OPTION_CONSTANTS = new ConfigurationOption.StringOption(
 			"constants", "Regular constants of form [{\"type\":typeA,\"value\":\"valueA\"}, ...] ", null, true);
 
@@ -194,6 +210,8 @@ public abstract class AbstractToolWithRandomWalk implements RaLibTool {
 
 	protected ConstraintSolver solver;
 
+	protected String solverName;
+
 	@Override
 	public void setup(Configuration config) throws ConfigurationException {
 
@@ -239,7 +257,12 @@ public abstract class AbstractToolWithRandomWalk implements RaLibTool {
 
 		this.teacherClasses.putAll(buildTeachersFromConfig(config));
 
-		this.solver = ConstraintSolverFactory.createSolver(OPTION_SOLVER.parse(config));
+		this.solverName = OPTION_SOLVER.parse(config);
+		this.solver = ConstraintSolverFactory.createSolver(solverName);
+		int solverCacheSize = OPTION_SOLVER_CACHE_SIZE.parse(config);
+		if (solverCacheSize > 0) {
+			this.solver = new CachingConstraintSolver(this.solver, solverCacheSize);
+		}
 	}
 
 	protected Map<String, TypedTheory> buildTeachersFromConfig(Configuration config) throws ConfigurationException {
@@ -268,6 +291,8 @@ public abstract class AbstractToolWithRandomWalk implements RaLibTool {
 			DataType t = types.get(tName);
 			TypedTheory theory = teacherClasses.get(t.getName());
 			teachers.put(t, theory);
+			// before the type, so that no other solver is started
+			theory.setConstraintSolver(solverName);
 			theory.setType(t);
 		}
 		configureTheories(teachers, configuration, types, inputs, constants);
@@ -343,9 +368,15 @@ public abstract class AbstractToolWithRandomWalk implements RaLibTool {
 		IOCache ioCache = null;
 		String load = OPTION_CACHE_LOAD.parse(config);
 
+		String journalFile = OPTION_CACHE_JOURNAL.parse(config);
+		CacheJournal journal = null;
+
 		if (load != null && new File(load).exists()) {
 			try {
 				ioCache = cacheMgr.loadCacheFromFile(load, consts);
+				if (journalFile != null) {
+					journal = CacheJournal.open(journalFile, ioCache, consts, OPTION_CACHE_JOURNAL_SYNC.parse(config));
+				}
 				String excludedTraces = OPTION_CACHE_EXCLUDE.parse(config);
 				if (excludedTraces != null) {
 					List<Word<PSymbolInstance>> traces = getCanonizedWordsFromString(excludedTraces, alphabet, teachers,
@@ -363,17 +394,39 @@ public abstract class AbstractToolWithRandomWalk implements RaLibTool {
 			}
 		} else {
 			ioCache = new IOCache();
+			if (journalFile != null) {
+				try {
+					journal = CacheJournal.open(journalFile, ioCache, consts, OPTION_CACHE_JOURNAL_SYNC.parse(config));
+				} catch (IOException e) {
+					e.printStackTrace();
+					throw new ConfigurationException(e.getMessage());
+				}
+			}
 		}
 		//System.exit(0);
 		final String dump = OPTION_CACHE_DUMP.parse(config);
 		final IOCache finalCache = ioCache;
-		if (dump != null) {
+		final CacheJournal finalJournal = journal;
+		if (journal != null) {
+			ioCache.setJournal(journal);
+		}
+		if (dump != null || journal != null) {
 			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
 				public void run() {
 					try {
-						System.err.println("Dumping cache of size " + finalCache.getSize() + " to " + dump);
-						cacheMgr.dumpCacheToFile(dump, finalCache, consts);
-						System.err.println("Dumped successfully");
+						if (dump != null) {
+							// the size is not printed, computing it would load lazily loaded caches
+							System.err.println("Dumping cache to " + dump);
+							cacheMgr.dumpCacheToFile(dump, finalCache, consts);
+							System.err.println("Dumped successfully");
+						}
+						if (finalJournal != null) {
+							// once the loaded cache contains the journaled traces, the journal is emptied
+							if (dump != null && dump.equals(load)) {
+								finalJournal.reset();
+							}
+							finalJournal.close();
+						}
 					} catch (Exception e) {
 						e.printStackTrace();
 						throw new RuntimeException(e);
@@ -1,7 +1,11 @@
 package de.learnlib.ralib.tools;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
@@ -9,11 +13,14 @@ import de.learnlib.ralib.equivalence.AccessSequenceProvider;
 import de.learnlib.ralib.equivalence.BoundedIOEquivalenceOracle;
 import de.learnlib.ralib.equivalence.IOEquivalenceOracle;
 import de.learnlib.ralib.equivalence.IORWalkFromState;
+import de.learnlib.ralib.equivalence.IORWalkFromStateTraceGenerator;
 import de.learnlib.ralib.equivalence.IORandomWalk;
+import de.learnlib.ralib.equivalence.IORandomWalkTraceGenerator;
 import de.learnlib.ralib.equivalence.InputSelector;
 import de.learnlib.ralib.equivalence.RandomSymbolSelector;
 import de.learnlib.ralib.equivalence.RandomTransitionSelector;
 import de.learnlib.ralib.equivalence.TestPurpose;
+import de.learnlib.ralib.equivalence.TraceGenerator;
 import de.learnlib.ralib.oracles.TraceCanonizer;
 import de.learnlib.ralib.oracles.io.IOOracle;
 import de.learnlib.ralib.theory.Theory;
@@ -33,6 +40,10 @@ public class EquivalenceOracleFactory {
     		new ConfigurationOption.StringOption("test.purpose",
     				"Select test purpose class",null, true);
     
+	protected static final ConfigurationOption.IntegerOption OPTION_EQ_WORKERS = 
+			new ConfigurationOption.IntegerOption("eqoracle.workers",
+					"Number of parallel test workers, each with its own SUL and random walk", 1, true);
+    
 	protected static final ConfigurationOption.StringOption OPTION_EQ_ORACLE = 
     		new ConfigurationOption.StringOption("eqoracle",
     				"Select Equivalence Oracle [ " + rw + "," + rws + "]",rw, true);
@@ -103,7 +114,19 @@ public class EquivalenceOracleFactory {
 
 	public static IOEquivalenceOracle buildEquivalenceOracle(Configuration config,  IOOracle target, Map<DataType, Theory> teachers, 
 			Constants constants, Random random, ParameterizedSymbol...  inputSymbols) throws ConfigurationException {
+		return buildEquivalenceOracle(config, target, null, teachers, constants, random, inputSymbols);
+	}
+
+	/**
+	 * Builds an equivalence oracle. If more than one test worker is configured, every worker runs its random walks 
+	 * on a target from {@code workerTargets}, with a random number generator seeded from {@code random}.
+	 */
+	public static IOEquivalenceOracle buildEquivalenceOracle(Configuration config,  IOOracle target, 
+			Supplier<IOOracle> workerTargets, Map<DataType, Theory> teachers, 
+			Constants constants, Random random, ParameterizedSymbol...  inputSymbols) throws ConfigurationException {
 		String eqOracle = OPTION_EQ_ORACLE.parse(config);
+		int workers = OPTION_EQ_WORKERS.parse(config);
+		Function<Random, TraceGenerator> workerGenerator;
 		TraceCanonizer traceCanonizer = new SymbolicTraceCanonizer(teachers, constants);
 		BoundedIOEquivalenceOracle equOracle = null; 
 		if (eqOracle.equals(rw)) {
@@ -117,6 +140,9 @@ public class EquivalenceOracleFactory {
 			long maxTestRuns = OPTION_RWALK_MAX_RUNS.parse(config);
 			int maxDepth = OPTION_RWALK_MAX_DEPTH.parse(config);
 			boolean resetRuns = OPTION_RWALK_RESET.parse(config);
+			workerGenerator = (rand) -> new IORandomWalkTraceGenerator(rand, stopProbabilty, maxDepth, 
+					new RandomSymbolSelector(rand, teachers, constants, drawUniformly, drawRegister, drawHistory, drawRelated, inputSymbols), 
+					constants, teachers, inputSymbols);
 
 			IORandomWalk rwalk = new IORandomWalk(random, target,  
 					stopProbabilty, // reset probability
@@ -143,6 +169,11 @@ public class EquivalenceOracleFactory {
 					new RandomTransitionSelector(random, teachers, constants, drawRegister, drawHistory, drawRelated, inputSymbols);
 			int maxDepth = OPTION_RWALKFROMSTATE_MAX_DEPTH.parse(config);
 			boolean resetRuns = OPTION_RWALKFROMSTATE_RESET.parse(config);
+			workerGenerator = (rand) -> new IORWalkFromStateTraceGenerator(rand, resetProbabilty, maxDepth, 
+					!transWalk ? 
+					new RandomSymbolSelector(rand, teachers, constants, drawUniformly, drawRegister, drawHistory, drawRelated, inputSymbols) :
+					new RandomTransitionSelector(rand, teachers, constants, drawRegister, drawHistory, drawRelated, inputSymbols), 
+					constants, teachers, new AccessSequenceProvider.HypAccessSequenceProvider(), inputSymbols);
 			IORWalkFromState rwalk  = new IORWalkFromState(random, target, 
 					resetProbabilty, // reset probability
 					maxTestRuns, // 1000 runs
@@ -155,6 +186,19 @@ public class EquivalenceOracleFactory {
 					traceCanonizer, new AccessSequenceProvider.HypAccessSequenceProvider(), inputSymbols);
 			equOracle =rwalk;
 		}
+		if (workers > 1) {
+			if (workerTargets == null) {
+				throw new ConfigurationException("SUL cannot be forked, " + OPTION_EQ_WORKERS.getKey() + " must be 1");
+			}
+			List<TraceGenerator> generators = new ArrayList<>();
+			List<IOOracle> targets = new ArrayList<>();
+			for (int i = 0; i < workers; i++) {
+				// seeds are drawn in order, so runs are reproducible for a given random.seed
+				generators.add(workerGenerator.apply(new Random(random.nextLong())));
+				targets.add(workerTargets.get());
+			}
+			equOracle.setParallelTesting(generators, targets);
+		}
 		String testPurposeCls = OPTION_TEST_PURPOSE.parse(config);
 		if (testPurposeCls != null) {
 			try {
@@ -26,6 +26,21 @@ public class InputLimitOracle extends DataWordSUL{
 		this.sul.post();
 	}
 
+	@Override
+	public boolean canSnapshot() {
+		return this.sul.canSnapshot();
+	}
+
+	@Override
+	public Object snapshot() {
+		return this.sul.snapshot();
+	}
+
+	@Override
+	public void restore(Object snapshot) {
+		this.sul.restore(snapshot);
+	}
+
 	@Override
 	public PSymbolInstance step(PSymbolInstance in) throws SULException {
 		if (this.counters.getTotalNumInputs() > limit) {
@@ -7,5 +7,10 @@ public interface SULFactory {
 	 *  Constructs new SUL
 	 */
 	DataWordSUL newSUL();
-	
+
+	/**
+	 *  Releases the resources shared by the SULs of this factory
+	 */
+	default void close() {
+	}
 }
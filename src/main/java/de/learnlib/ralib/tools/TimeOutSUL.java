@@ -48,6 +48,21 @@ public class TimeOutSUL extends DataWordSUL {
         back.post();
     }
 
+    @Override
+    public boolean canSnapshot() {
+        return back.canSnapshot();
+    }
+
+    @Override
+    public Object snapshot() {
+        return back.snapshot();
+    }
+
+    @Override
+    public void restore(Object snapshot) {
+        back.restore(snapshot);
+    }
+
     @Override
     public PSymbolInstance step(PSymbolInstance i) throws SULException {
         return back.step(i);
@@ -11,6 +11,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -25,6 +27,9 @@ import de.learnlib.ralib.data.DataValue;
 import de.learnlib.ralib.data.SumConstants;
 import de.learnlib.ralib.data.util.SymbolicDataValueGenerator;
 import de.learnlib.ralib.data.util.SymbolicDataValueGenerator.SumConstantGenerator;
+import de.learnlib.ralib.equivalence.BoundedIOEquivalenceOracle;
+import de.learnlib.ralib.equivalence.CounterExampleReducer;
+import de.learnlib.ralib.equivalence.CounterExampleTester;
 import de.learnlib.ralib.equivalence.HypVerifier;
 import de.learnlib.ralib.equivalence.IOCounterExampleLoopRemover;
 import de.learnlib.ralib.equivalence.IOCounterExamplePrefixFinder;
@@ -33,34 +38,45 @@ import de.learnlib.ralib.equivalence.IOCounterExampleRelationRemover;
 import de.learnlib.ralib.equivalence.IOCounterExampleSingleTransitionRemover;
 import de.learnlib.ralib.equivalence.IOEquivalenceOracle;
 import de.learnlib.ralib.equivalence.TracesEquivalenceOracle;
+import de.learnlib.ralib.learning.CounterexampleAnalysis;
 import de.learnlib.ralib.learning.GeneralizedSymbolicSuffix;
 import de.learnlib.ralib.learning.Hypothesis;
 import de.learnlib.ralib.learning.RaStar;
+import de.learnlib.ralib.oracles.CachingTreeOracle;
 import de.learnlib.ralib.oracles.CountingDataWordOracle;
 import de.learnlib.ralib.oracles.DataWordOracle;
 import de.learnlib.ralib.oracles.QueryCounter;
 import de.learnlib.ralib.oracles.SimulatorOracle;
+import de.learnlib.ralib.oracles.TraceCanonizer;
 import de.learnlib.ralib.oracles.TreeOracle;
 import de.learnlib.ralib.oracles.TreeOracleFactory;
 import de.learnlib.ralib.oracles.TreeQueryResult;
 import de.learnlib.ralib.oracles.io.BasicIOCacheOracle;
 import de.learnlib.ralib.oracles.io.CachingSUL;
 import de.learnlib.ralib.oracles.io.DataWordIOOracle;
+import de.learnlib.ralib.oracles.io.ExceptionHandler;
+import de.learnlib.ralib.oracles.io.ExceptionHandlerSUL;
 import de.learnlib.ralib.oracles.io.ExceptionHandlers;
 import de.learnlib.ralib.oracles.io.IOCache;
 import de.learnlib.ralib.oracles.io.IOCacheManager;
 import de.learnlib.ralib.oracles.io.CanonizingIOCacheOracle;
+import de.learnlib.ralib.oracles.io.NonDeterminismStatistics;
+import de.learnlib.ralib.oracles.io.RecoveryPolicy;
 import de.learnlib.ralib.oracles.io.IOFilter;
 import de.learnlib.ralib.oracles.io.IOOracle;
 import de.learnlib.ralib.oracles.mto.MultiTheorySDTLogicOracle;
 import de.learnlib.ralib.oracles.mto.MultiTheoryTreeOracle;
+import de.learnlib.ralib.oracles.mto.TreeQueryWorkerFactory;
+import de.learnlib.ralib.solver.CachingConstraintSolver;
 import de.learnlib.ralib.sul.BasicSULOracle;
 import de.learnlib.ralib.sul.CanonizingSULOracle;
+import de.learnlib.ralib.sul.CompiledSimulatorSUL;
 import de.learnlib.ralib.sul.CountingDataWordSUL;
 import de.learnlib.ralib.sul.DataWordSUL;
 import de.learnlib.ralib.sul.DeterminizerDataWordSUL;
 import de.learnlib.ralib.sul.InputCounter;
-import de.learnlib.ralib.sul.SimulatorSUL;
+import de.learnlib.ralib.sul.PipelinedSUL;
+import de.learnlib.ralib.sul.PipelinedSULOracle;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.tools.classanalyzer.SpecialSymbols;
 import de.learnlib.ralib.tools.config.Configuration;
@@ -69,6 +85,7 @@ import de.learnlib.ralib.tools.config.ConfigurationOption;
 import de.learnlib.ralib.tools.theories.SymbolicTraceCanonizer;
 import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.statistics.SimpleProfiler;
+import net.automatalib.commons.util.Pair;
 import net.automatalib.words.Word;
 
 // This template can be used to define analyzers by connecting it
@@ -103,6 +120,50 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 	protected static final ConfigurationOption.LongOption OPTION_MAX_INPUTS = new ConfigurationOption.LongOption(
 			"max.inputs", "Maximum number of inputs that can be run", null, true);
 
+	protected static final ConfigurationOption.IntegerOption OPTION_SUL_INSTANCES = new ConfigurationOption.IntegerOption(
+			"sul.instances",
+			"Number of SUL instances answering tree queries in parallel. Instances are forked from the SUL, "
+					+ "so values above 1 require a SUL which can be forked.",
+			1, true);
+
+	protected static final ConfigurationOption.IntegerOption OPTION_TREE_CACHE_SIZE = new ConfigurationOption.IntegerOption(
+			"tree.cache.size",
+			"Number of tree query results kept for repeated tree queries of the learner and of the ce analysis. "
+					+ "0 disables the cache.",
+			10000, true);
+
+	protected static final ConfigurationOption.StringOption OPTION_CE_SEARCH = new ConfigurationOption.StringOption(
+			"ce.search",
+			"Search for the index of a counterexample [linear, binary, exponential, parallel]", "linear", true);
+
+	protected static final ConfigurationOption.IntegerOption OPTION_CE_SEARCH_PROBES = new ConfigurationOption.IntegerOption(
+			"ce.search.probes",
+			"Number of indices probed at once by the parallel search. The tree queries of the indices are answered "
+					+ "in parallel if sul.instances is above 1. Defaults to sul.instances.",
+			null, true);
+
+	protected static final ConfigurationOption.IntegerOption OPTION_CEOPT_BATCH = new ConfigurationOption.IntegerOption(
+			"ceopt.batch",
+			"Number of candidates the counterexample optimizers test at once. The candidates are run in parallel "
+					+ "if sul.instances is above 1. Defaults to sul.instances.",
+			null, true);
+
+	protected static final ConfigurationOption.IntegerOption OPTION_NONDET_VOTES = new ConfigurationOption.IntegerOption(
+			"sul.nondet.votes",
+			"Number of observations of a step that resolve a non-deterministic output by majority. Outputs that "
+					+ "differ from the cache and outputs of symbols that were non-deterministic before are queried "
+					+ "again until one has a majority. 1 disables voting.",
+			1, true);
+
+	protected static final ConfigurationOption.LongOption OPTION_RETRY_BACKOFF = new ConfigurationOption.LongOption(
+			"sul.retry.backoff",
+			"Milliseconds to wait before retrying after non-determinism or a SUL restart. The wait doubles with "
+					+ "every retry, up to sul.retry.backoff.max.",
+			0L, true);
+
+	protected static final ConfigurationOption.LongOption OPTION_RETRY_BACKOFF_MAX = new ConfigurationOption.LongOption(
+			"sul.retry.backoff.max", "Maximal milliseconds to wait before a retry.", 10000L, true);
+
 	private DataWordIOOracle learnOracle;
 	private Map<DataType, Theory> teachers;
 	private DataWordIOOracle ceAnalysisOracle;
@@ -111,11 +172,7 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 	private IOOracle sulReductionTraceOracle;
 	private RaStar rastar;
 	private TracesEquivalenceOracle traceTester;
-	private IOCounterExampleLoopRemover ceOptLoops;
-	private IOCounterExamplePrefixReplacer ceOptAsrep;
-	private IOCounterExamplePrefixFinder ceOptPref;
-	private IOCounterExampleSingleTransitionRemover ceOptSTR;
-	private IOCounterExampleRelationRemover ceOptRelation;
+	private CounterExampleReducer ceReducer;
 	private String targetName;
 	private IOEquivalenceOracle equOracle;
 
@@ -133,6 +190,8 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 	private IOCache ioCache;
 
 	private SULFactory sulFactory;
+	private DataWordSUL prototype;
+	private ForkJoinPool workerPool;
 
 	// TODO remove this field/uses of this field after case study
 	// determines if cache is set at SUL level or at IOOracle level
@@ -142,6 +201,12 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 
 	private Long maxInputs;
 
+	private int sulInstances;
+
+	private RecoveryPolicy recoveryPolicy;
+
+	private NonDeterminismStatistics nonDetStatistics;
+
 	public ToolTemplate(SULParser parser) throws ConfigurationException {
 		OPTIONS = getOptions(parser.getClass(), AbstractToolWithRandomWalk.class, 
 				this.getClass(), EquivalenceOracleFactory.class);
@@ -155,6 +220,7 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		targetName = sulParser.targetName();
 		types = sulParser.getTypes();
 		maxInputs = OPTION_MAX_INPUTS.parse(config);
+		sulInstances = OPTION_SUL_INSTANCES.parse(config);
 
 		final Constants consts = new Constants();
 
@@ -184,6 +250,10 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 
 		boolean determinize = useFresh;
 		boolean handleExceptions = true;
+		recoveryPolicy = new RecoveryPolicy(ExceptionHandler.NON_DET_ATTEMPTS, ExceptionHandler.SUL_RESTART_ATTEMPTS,
+				OPTION_NONDET_VOTES.parse(config), OPTION_RETRY_BACKOFF.parse(config),
+				OPTION_RETRY_BACKOFF_MAX.parse(config));
+		nonDetStatistics = new NonDeterminismStatistics();
 		counters = new Counters();
 
 		String debugTraces = OPTION_DEBUG_TRACES.parse(config);
@@ -200,6 +270,9 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		String cacheSystem = OPTION_CACHE_SYSTEM.parse(config);
 		cacheManager = IOCacheManager.getCacheManager(cacheSystem);
 		ioCache = setupCache(config, sulParser.getAlphabet(), teachers, cacheManager, consts);
+		if (sulInstances > 1) {
+			ioCache = ioCache.asThreadSafeCache();
+		}
 
 		IOOracle learnIOOracle = setupIOOracle(sulFactory, teachers, consts, counters.learnerInput, determinize,
 				timeoutMillis, handleExceptions);
@@ -213,7 +286,7 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		sulReductionTraceOracle = setupDataWordIOOracle(ceAnalysisIOOracle, consts, ioCache, true, handleExceptions);
 
 		IOFilter ioOracle = new IOFilter(learnOracle, sulParser.getInputs());
-		TreeOracle mto = new MultiTheoryTreeOracle(ioOracle, learnOracle, teachers, consts, solver);
+		MultiTheoryTreeOracle mto = new MultiTheoryTreeOracle(ioOracle, learnOracle, teachers, consts, solver);
 		if (debugSuffixes != null) {
 			if (debugTraces == null) {
 				System.err.println("No debug traces given");
@@ -224,7 +297,31 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		}
 
 		IOFilter ioCeOracle = new IOFilter(ceAnalysisOracle, sulParser.getInputs());
-		TreeOracle ceMto = new MultiTheoryTreeOracle(ioCeOracle, ceAnalysisOracle, teachers, consts, solver);
+		MultiTheoryTreeOracle ceMto = new MultiTheoryTreeOracle(ioCeOracle, ceAnalysisOracle, teachers, consts, solver);
+
+		if (sulInstances > 1) {
+			prototype = sulFactory.newSUL();
+			if (!prototype.canFork()) {
+				throw new ConfigurationException("SUL cannot be forked, " + OPTION_SUL_INSTANCES.getKey()
+						+ " must be 1 for " + prototype.getClass().getName());
+			}
+			workerPool = new ForkJoinPool(sulInstances);
+			mto.setParallelTreeQueries(workerPool, setupTreeQueryWorkers(prototype, counters.learnerInput,
+					counters.learnerQuery, determinize, handleExceptions));
+			ceMto.setParallelTreeQueries(workerPool, setupTreeQueryWorkers(prototype, counters.ceInput,
+					counters.ceQuery, determinize, handleExceptions));
+		}
+
+		TreeOracle learnTreeOracle = mto;
+		TreeOracle ceTreeOracle = ceMto;
+		int treeCacheSize = OPTION_TREE_CACHE_SIZE.parse(config);
+		if (treeCacheSize > 0) {
+			TraceCanonizer canonizer = determinize ? new SymbolicTraceCanonizer(teachers, consts) : null;
+			counters.learnerTreeCache = new CachingTreeOracle(mto, treeCacheSize, canonizer);
+			counters.ceTreeCache = new CachingTreeOracle(ceMto, treeCacheSize, canonizer);
+			learnTreeOracle = counters.learnerTreeCache;
+			ceTreeOracle = counters.ceTreeCache;
+		}
 
 		MultiTheorySDTLogicOracle mlo = new MultiTheorySDTLogicOracle(consts, solver);
 
@@ -237,33 +334,34 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 				if (timeout > 0L) {
 					hypOracle = new TimeOutOracle(hypOracle, timeout);
 				}
-				SimulatorSUL hypDataWordSimulation = new SimulatorSUL(hyp, teachers, consts);
+				DataWordSUL hypDataWordSimulation = new CompiledSimulatorSUL(hyp, teachers, consts);
 				IOOracle hypTraceOracle = new BasicSULOracle(hypDataWordSimulation, SpecialSymbols.ERROR);
 
 				return new MultiTheoryTreeOracle(hypOracle, hypTraceOracle, teachers, consts, solver);
 			}
 		};
 
-		rastar = new RaStar(mto, ceMto, hypFactory, mlo, consts, true, teachers, solver, sulParser.getAlphabet());
+		rastar = new RaStar(learnTreeOracle, ceTreeOracle, hypFactory, mlo, consts, true, teachers, solver, sulParser.getAlphabet());
+		String ceSearch = OPTION_CE_SEARCH.parse(config);
+		Integer ceProbes = OPTION_CE_SEARCH_PROBES.parse(config);
+		try {
+			rastar.setCounterexampleSearch(CounterexampleAnalysis.Search.valueOf(ceSearch.toUpperCase()),
+					ceProbes == null ? sulInstances : ceProbes);
+		} catch (IllegalArgumentException e) {
+			throw new ConfigurationException("Unknown counterexample search " + ceSearch);
+		}
 
 		if (findCounterexamples) {
-			testOracle = setupIOOracle(sulFactory, teachers, constants, counters.testInput, determinize, timeoutMillis,
-					handleExceptions);
 			boolean cacheTests = OPTION_CACHE_TESTS.parse(config);
+			IOCache testCache = preCache ? new IOCache() : this.ioCache;
+			DataWordSUL testSUL = sulFactory.newSUL();
+			testOracle = setupTestOracle(testSUL, testCache, cacheTests, determinize, handleExceptions);
 
-			IOCache ioCache = preCache ? new IOCache() : this.ioCache;
-			if (cacheTests) {
-				if (determinize) {
-					testOracle = new CanonizingIOCacheOracle(testOracle, ioCache);
-				} else {
-					testOracle = new BasicIOCacheOracle(testOracle, ioCache);
-				}
-			}
-			
-			if (handleExceptions)
-				testOracle = ExceptionHandlers.wrapIOOracle(testOracle);
-			equOracle = EquivalenceOracleFactory.buildEquivalenceOracle(config, testOracle, teach, consts, random,
-					sulParser.getInputs());
+			// parallel test workers run on SULs forked from the test SUL
+			Supplier<IOOracle> workerTestOracles = !testSUL.canFork() ? null :
+				() -> setupTestOracle((DataWordSUL) testSUL.fork(), testCache, cacheTests, determinize, handleExceptions);
+			equOracle = EquivalenceOracleFactory.buildEquivalenceOracle(config, testOracle, workerTestOracles, teach, 
+					consts, random, sulParser.getInputs());
 
 			String ver = OPTION_TEST_TRACES.parse(config);
 			if (ver != null) {
@@ -275,11 +373,29 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		
 		HypVerifier hypVerifier = HypVerifier.getVerifier(true, teachers, consts);
 
-		ceOptLoops = new IOCounterExampleLoopRemover(sulReductionTraceOracle, hypVerifier);
-		ceOptAsrep = new IOCounterExamplePrefixReplacer(sulReductionTraceOracle, hypVerifier);
-		ceOptPref = new IOCounterExamplePrefixFinder(sulReductionTraceOracle, hypVerifier);
-		ceOptSTR = new IOCounterExampleSingleTransitionRemover(sulReductionTraceOracle, hypVerifier);
-		ceOptRelation = new IOCounterExampleRelationRemover(teachers, consts, solver, sulReductionTraceOracle, hypVerifier);
+		Integer ceOptBatch = OPTION_CEOPT_BATCH.parse(config);
+		CounterExampleTester ceTester = new CounterExampleTester(sulReductionTraceOracle, hypVerifier, 
+				ceOptBatch == null ? sulInstances : ceOptBatch);
+		if (sulInstances > 1) {
+			// every worker runs on a SUL forked from the prototype, but shares the cache
+			List<IOOracle> workerOracles = new ArrayList<>();
+			for (int i = 0; i < sulInstances; i++) {
+				IOOracle workerIOOracle = setupIOOracle((DataWordSUL) prototype.fork(), teachers, consts, 
+						counters.ceInput, determinize, timeoutMillis, handleExceptions);
+				workerOracles.add(setupDataWordIOOracle(workerIOOracle, consts, ioCache, true, handleExceptions));
+			}
+			ceTester.setParallelTraces(workerOracles);
+		}
+		ceReducer = new CounterExampleReducer(ceTester);
+		ceReducer.setInputCounter(counters.ceInput::getInputs);
+		ceReducer.setOutput(System.out);
+		ceReducer.addOptimizer("Loops", "Shorter CE Loops: ", new IOCounterExampleLoopRemover(ceTester));
+		ceReducer.addOptimizer("Single Transition Removal", "Shorter CE Single Transition Removal: ", 
+				new IOCounterExampleSingleTransitionRemover(ceTester));
+		ceReducer.addOptimizer("Prefix Replacement", "New Prefix CE: ", new IOCounterExamplePrefixReplacer(ceTester));
+		ceReducer.addOptimizer("Prefix", "Prefix of CE is CE: ", new IOCounterExamplePrefixFinder(ceTester));
+		ceReducer.addOptimizer("Relation Removal", "Relation reduced CE : ", 
+				new IOCounterExampleRelationRemover(teachers, consts, solver, ceTester));
 	}
 
 	private SULFactory instantiateCustomFactory(String facString, SULParser parser) throws ConfigurationException {
@@ -339,19 +455,73 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		}
 
 		if (handleExceptions) {
-			return ExceptionHandlers.wrapDataWordIOOracle(ioCacheOracle);
+			// without determinization, the SUL checks its outputs against the same cache
+			RecoveryPolicy policy = (determinize || preCache) ? recoveryPolicy : recoveryPolicy.withoutNonDetRetries();
+			return ExceptionHandlers.wrapDataWordIOOracle(ioCacheOracle, policy);
 		} else {
 			return ioCacheOracle;
 		}
 	}
 
+	// every worker runs on a SUL forked from the prototype, but shares cache
+	// and counters with the other workers
+	private TreeQueryWorkerFactory setupTreeQueryWorkers(DataWordSUL prototype, InputCounter inputCounter,
+			QueryCounter queryCounter, boolean determinize, boolean handleExceptions) {
+		return () -> {
+			DataWordSUL forked = (DataWordSUL) prototype.fork();
+			IOOracle workerIOOracle = setupIOOracle(forked, teachers, constants, inputCounter, determinize,
+					timeoutMillis, handleExceptions);
+			DataWordIOOracle workerOracle = setupDataWordIOOracle(workerIOOracle, constants, ioCache, determinize,
+					handleExceptions);
+			workerOracle = new CountingDataWordOracle(workerOracle, queryCounter);
+			return new Pair<>(new IOFilter(workerOracle, sulParser.getInputs()), workerOracle);
+		};
+	}
+
+	private IOOracle setupTestOracle(DataWordSUL sul, IOCache testCache, boolean cacheTests, boolean determinize,
+			boolean handleExceptions) {
+		IOOracle oracle = setupIOOracle(sul, teachers, constants, counters.testInput, determinize, timeoutMillis,
+				handleExceptions);
+		if (cacheTests) {
+			if (determinize) {
+				oracle = new CanonizingIOCacheOracle(oracle, testCache);
+			} else {
+				oracle = new BasicIOCacheOracle(oracle, testCache);
+			}
+		}
+		
+		if (handleExceptions)
+			oracle = ExceptionHandlers.wrapIOOracle(oracle, 
+					cacheTests ? recoveryPolicy : recoveryPolicy.withoutNonDetRetries());
+		return oracle;
+	}
+
 	private IOOracle setupIOOracle(SULFactory sulFactory, Map<DataType, Theory> teachers, Constants consts,
 			InputCounter inputCounter, boolean determinize, long timeoutMillis, boolean handleExceptions) {
+		return setupIOOracle(sulFactory.newSUL(), teachers, consts, inputCounter, determinize, timeoutMillis,
+				handleExceptions);
+	}
+
+	private IOOracle setupIOOracle(DataWordSUL singleSUL, Map<DataType, Theory> teachers, Constants consts,
+			InputCounter inputCounter, boolean determinize, long timeoutMillis, boolean handleExceptions) {
 		IOOracle ioOracle;
 
-		DataWordSUL singleSUL = sulFactory.newSUL();
+		// the inputs of a query are known ahead only without fresh values, 
+		// a pipelined SUL is not wrapped
+		if (singleSUL instanceof PipelinedSUL && ((PipelinedSUL) singleSUL).isPipelined()) {
+			if (!determinize && !preCache && maxInputs == null && timeoutMillis <= 0) {
+				ioOracle = new PipelinedSULOracle((PipelinedSUL) singleSUL, inputCounter);
+				if (handleExceptions) {
+					ioOracle = ExceptionHandlers.wrapIOOracle(ioOracle, recoveryPolicy);
+				}
+				return ioOracle;
+			}
+			System.err.println("Pipelining disabled: not supported with determinization, "
+					+ "pre-caching, input limits or timeouts");
+		}
+
 		DataWordSUL wrappedSUL = setupDataWordOracle(singleSUL, teachers, consts, inputCounter, determinize,
-				timeoutMillis);
+				timeoutMillis, handleExceptions);
 		if (determinize) {
 			ioOracle = new CanonizingSULOracle(wrappedSUL, SpecialSymbols.ERROR,
 					new SymbolicTraceCanonizer(teachers, consts));
@@ -359,7 +529,8 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 			ioOracle = new BasicSULOracle(wrappedSUL, SpecialSymbols.ERROR);
 		}
 		if (handleExceptions) {
-			ioOracle = ExceptionHandlers.wrapIOOracle(ioOracle);
+			// non-determinism has been retried by the ExceptionHandlerSUL
+			ioOracle = ExceptionHandlers.wrapIOOracle(ioOracle, recoveryPolicy.withoutNonDetRetries());
 		}
 
 		return ioOracle;
@@ -367,11 +538,16 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 
 	// could use a builder pattern here
 	private DataWordSUL setupDataWordOracle(DataWordSUL sulInstance, Map<DataType, Theory> teachers, Constants consts,
-			InputCounter inputCounter, boolean determinize, long timeoutMillis) {
+			InputCounter inputCounter, boolean determinize, long timeoutMillis, boolean handleExceptions) {
 		DataWordSUL sul = sulInstance;
 		if (determinize) {
 			sul = new DeterminizerDataWordSUL(teachers, consts, sul);
 		}
+		if (handleExceptions) {
+			// canonized traces in the cache cannot be compared to the outputs of the SUL
+			IOCache reference = (preCache || !determinize) ? ioCache : null;
+			sul = new ExceptionHandlerSUL(sul, reference, recoveryPolicy, nonDetStatistics);
+		}
 		if (preCache) {
 			sul = new CachingSUL(sul, ioCache);
 		}
@@ -447,16 +623,7 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 			ceLengths.add(ce.getInput().length());
 
 			if (useCeOptimizers) {
-				ce = ceOptLoops.optimizeCE(ce.getInput(), hyp);
-				System.out.println("Shorter CE Loops: " + ce);
-				ce = ceOptSTR.optimizeCE(ce.getInput(), hyp);
-				System.out.println("Shorter CE Single Transition Removal: " + ce);
-				ce = ceOptAsrep.optimizeCE(ce.getInput(), hyp);
-				System.out.println("New Prefix CE: " + ce);
-				ce = ceOptPref.optimizeCE(ce.getInput(), hyp);
-				System.out.println("Prefix of CE is CE: " + ce);
-				ce = ceOptRelation.optimizeCE(ce.getInput(), hyp);
-				System.out.println("Relation reduced CE : " + ce);
+				ce = ceReducer.optimizeCE(ce.getInput(), hyp);
 
 			}
 
@@ -466,7 +633,7 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 			System.out.println("### SYS TRACE: " + sysTrace);
 			assert sysTrace.equals(ce.getInput());
 
-			SimulatorSUL hypSul = new SimulatorSUL(hyp, teachers, this.constants);
+			DataWordSUL hypSul = new CompiledSimulatorSUL(hyp, teachers, this.constants);
 			IOOracle iosul = new BasicSULOracle(hypSul, SpecialSymbols.ERROR);
 
 			Word<PSymbolInstance> hypTrace = iosul.trace(ce.getInput());
@@ -521,11 +688,32 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		}
 
 		counters.print(System.out);
+		if (useCeOptimizers) {
+			System.out.print(ceReducer.getStatistics());
+		}
 
 		// + sums
 		System.out.println("Resets: " + (resets + counters.learnerInput.getResets() + counters.ceInput.getResets()));
 		System.out.println("Inputs: " + (inputs + counters.learnerInput.getInputs() + counters.ceInput.getInputs()));
 
+		shutdown();
+	}
+
+	/**
+	 * Stops the workers and closes the SULs of the factory, including the
+	 * SULs forked from the prototype.
+	 */
+	private void shutdown() {
+		if (workerPool != null) {
+			workerPool.shutdown();
+			workerPool = null;
+		}
+		ceReducer.getTester().shutdown();
+		if (equOracle instanceof BoundedIOEquivalenceOracle) {
+			((BoundedIOEquivalenceOracle) equOracle).shutdown();
+		}
+		prototype = null;
+		sulFactory.close();
 	}
 
 	@Override
@@ -546,6 +734,8 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 		final InputCounter ceInput;
 		final QueryCounter ceQuery;
 		final InputCounter testInput;
+		CachingTreeOracle learnerTreeCache;
+		CachingTreeOracle ceTreeCache;
 
 		public Counters() {
 			this.learnerInput = new InputCounter();
@@ -575,6 +765,23 @@ public abstract class ToolTemplate extends AbstractToolWithRandomWalk {
 			// resets + inputs
 			out.println("Resets Testing: " + counters.testInput.getResets());
 			out.println("Inputs Testing: " + counters.testInput.getInputs());
+
+			// tree queries answered from the tree query cache
+			if (learnerTreeCache != null) {
+				out.println("Tree Cache Hits Learning: " + learnerTreeCache.getHits());
+				out.println("Tree Cache Misses Learning: " + learnerTreeCache.getMisses());
+				out.println("Tree Cache Hits Ce Analysis: " + ceTreeCache.getHits());
+				out.println("Tree Cache Misses Ce Analysis: " + ceTreeCache.getMisses());
+			}
+
+			// steps resolved by vote or retried
+			nonDetStatistics.print(out);
+
+			// guard expressions answered from the solver cache
+			if (solver instanceof CachingConstraintSolver) {
+				out.println("Solver Cache Hits: " + ((CachingConstraintSolver) solver).getHits());
+				out.println("Solver Cache Misses: " + ((CachingConstraintSolver) solver).getMisses());
+			}
 		}
 	}
 
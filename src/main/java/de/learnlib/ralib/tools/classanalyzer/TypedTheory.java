@@ -38,6 +38,13 @@ public interface TypedTheory<T> extends Theory<T> {
 		return raLibSolver;
 	}
     
+    /**
+     * Selects the constraint solver by its id in the ConstraintSolverFactory.
+     * Theories that do not solve constraints ignore it.
+     */
+    public default void setConstraintSolver(String solverName) {
+    }
+    
     public default void setUseSuffixOpt(boolean useit) {
         System.err.println("Suffix Optimization currently not implemented for theory " + 
                 this.getClass().getName());
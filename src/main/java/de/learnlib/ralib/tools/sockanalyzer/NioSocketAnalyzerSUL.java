@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.tools.sockanalyzer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.learnlib.api.SUL;
+import de.learnlib.api.SULException;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.sul.PipelinedSUL;
+import de.learnlib.ralib.tools.classanalyzer.SpecialSymbols;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+
+/**
+ * SUL for communicating over sockets, like {@link SocketAnalyzerSUL}, on
+ * pooled non-blocking connections.
+ *
+ * A query takes a connection from the pool at {@link #pre()} and returns it at
+ * {@link #post()}. Forked SULs share the pool, so they run queries on
+ * different connections concurrently. In pipelined mode all inputs of a
+ * query are sent ahead and the outputs are matched as they arrive (see
+ * {@link PipelinedSUL}).
+ *
+ * Symbols are serialized into buffers that are reused for every input and
+ * output.
+ *
+ * The state of the remote system cannot be saved, so a snapshot holds the
+ * inputs sent in the run and is restored by a reset followed by these inputs,
+ * sent ahead of their outputs. This saves round trips only in pipelined
+ * mode, so snapshots are offered only in that mode.
+ */
+public class NioSocketAnalyzerSUL extends DataWordSUL implements PipelinedSUL {
+	private final SocketChannelPool pool;
+	private final int maxDepth;
+	private final boolean pipelined;
+	private final Set<ParameterizedSymbol> inputs;
+	private final Map<String, ParameterizedSymbol> outputLookupMap;
+	private final StringBuilder serializedInput = new StringBuilder();
+	private final StringBuilder serializedOutput = new StringBuilder();
+	private final List<PSymbolInstance> sent = new ArrayList<>();
+	private SocketChannelConnection connection;
+	private int depth;
+
+	NioSocketAnalyzerSUL(SocketChannelPool pool, int maxDepth, boolean pipelined, Set<ParameterizedSymbol> inputs,
+			Map<String, ParameterizedSymbol> outputLookupMap) {
+		this.pool = pool;
+		this.maxDepth = maxDepth;
+		this.pipelined = pipelined;
+		this.inputs = inputs;
+		this.outputLookupMap = outputLookupMap;
+	}
+
+	@Override
+	public void pre() {
+		countResets(1);
+		connect();
+		depth = 0;
+	}
+
+	/**
+	 * Writes what is still queued, e.g. the reset of a query without inputs,
+	 * before the connection is returned to the pool.
+	 */
+	@Override
+	public void post() {
+		if (connection != null) {
+			try {
+				connection.flush();
+			} catch (IOException e) {
+				throw fail(e);
+			}
+			pool.release(connection);
+			connection = null;
+		}
+	}
+
+	@Override
+	public PSymbolInstance step(PSymbolInstance input) throws SULException {
+		countInputs(1);
+
+		if (depth > maxDepth && (maxDepth > 0)) {
+			return new PSymbolInstance(SpecialSymbols.DEPTH);
+		}
+		depth++;
+		sent.add(input);
+
+		try {
+			serialize(input, serializedInput);
+			connection.send(serializedInput);
+			connection.receive(serializedOutput);
+		} catch (IOException e) {
+			throw fail(e);
+		} catch (RuntimeException | Error e) {
+			discard();
+			throw e;
+		}
+		return deserialize(serializedOutput, outputLookupMap);
+	}
+
+	@Override
+	public boolean canSnapshot() {
+		return pipelined;
+	}
+
+	@Override
+	public Object snapshot() {
+		return new ArrayList<>(sent);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void restore(Object snapshot) {
+		List<PSymbolInstance> prefix = (List<PSymbolInstance>) snapshot;
+		countResets(1);
+		countInputs(prefix.size());
+		connect();
+		try {
+			for (PSymbolInstance input : prefix) {
+				serialize(input, serializedInput);
+				connection.send(serializedInput);
+			}
+			for (int i = 0; i < prefix.size(); i++) {
+				connection.receive(serializedOutput);
+			}
+		} catch (IOException e) {
+			throw fail(e);
+		} catch (RuntimeException | Error e) {
+			discard();
+			throw e;
+		}
+		sent.addAll(prefix);
+		depth = prefix.size();
+	}
+
+	@Override
+	public boolean isPipelined() {
+		return pipelined;
+	}
+
+	@Override
+	public List<PSymbolInstance> run(List<PSymbolInstance> query) throws SULException {
+		connect();
+		// inputs beyond the maximal depth are not sent
+		int sent = (maxDepth > 0) ? Math.min(query.size(), maxDepth + 1) : query.size();
+		List<PSymbolInstance> outputs = new ArrayList<>(query.size());
+		try {
+			for (int i = 0; i < sent; i++) {
+				serialize(query.get(i), serializedInput);
+				connection.send(serializedInput);
+			}
+			for (int i = 0; i < sent; i++) {
+				connection.receive(serializedOutput);
+				outputs.add(deserialize(serializedOutput, outputLookupMap));
+			}
+		} catch (IOException e) {
+			throw fail(e);
+		} catch (RuntimeException | Error e) {
+			// replies may be left unread, the connection cannot be reused
+			discard();
+			throw e;
+		}
+		post();
+		for (int i = sent; i < query.size(); i++) {
+			outputs.add(new PSymbolInstance(SpecialSymbols.DEPTH));
+		}
+		return outputs;
+	}
+
+	/**
+	 * Takes a connection and sends a reset. The reset is written with the
+	 * first input.
+	 */
+	private void connect() {
+		post();
+		try {
+			connection = pool.acquire();
+		} catch (IOException e) {
+			throw new SULException(e);
+		}
+		connection.send("reset");
+		sent.clear();
+	}
+
+	private SULException fail(IOException e) {
+		discard();
+		return new SULException(e);
+	}
+
+	private void discard() {
+		if (connection != null) {
+			pool.discard(connection);
+			connection = null;
+		}
+	}
+
+	@Override
+	public boolean canFork() {
+		return true;
+	}
+
+	@Override
+	public SUL<PSymbolInstance, PSymbolInstance> fork() {
+		return new NioSocketAnalyzerSUL(pool, maxDepth, pipelined, inputs, outputLookupMap);
+	}
+
+	// serialization uses the toString method for all parameters. This works
+	// since our parameter types are primitives/ primitive wrappers
+	private void serialize(PSymbolInstance action, StringBuilder result) {
+		assert this.inputs.contains(action.getBaseSymbol());
+		result.setLength(0);
+		result.append(action.getBaseSymbol().getName());
+		for (DataValue<?> parameter : action.getParameterValues()) {
+			result.append('_').append(parameter.getId());
+		}
+	}
+
+	/*
+	 * parses an output in the format of SocketAnalyzerSUL#deserialize without
+	 * splitting the string
+	 */
+	static PSymbolInstance deserialize(CharSequence actionString, Map<String, ParameterizedSymbol> outputSymbolMap) {
+		int end = indexOf(actionString, 0);
+		String methodName = actionString.subSequence(0, end).toString();
+		ParameterizedSymbol outputSignature = outputSymbolMap.get(methodName);
+		if (outputSignature == null) {
+			throw new DecoratedRuntimeException("Output method not registered").addDecoration("output", actionString.toString());
+		}
+
+		DataValue[] parameters = new DataValue[outputSignature.getArity()];
+		DataType[] paramTypes = outputSignature.getPtypes();
+		int i = 0;
+		while (end < actionString.length()) {
+			int begin = end + 1;
+			end = indexOf(actionString, begin);
+			if (i >= parameters.length) {
+				i++;
+				break;
+			}
+			DataType paramType = paramTypes[i];
+			Object paramValue = (paramType.getBase() == Integer.class)
+					? Integer.parseInt(actionString, begin, end, 10)
+					: SocketAnalyzerSUL.valueOf(actionString.subSequence(begin, end).toString(), paramType);
+			parameters[i++] = new DataValue(paramType, paramValue);
+		}
+		if (i != parameters.length || end < actionString.length()) {
+			throw new DecoratedRuntimeException("Output method registered with wrong arity")
+					.addDecoration("output", actionString.toString()).addDecoration("expected arity", outputSignature.getArity());
+		}
+		return new PSymbolInstance(outputSignature, parameters);
+	}
+
+	private static int indexOf(CharSequence s, int from) {
+		for (int i = from; i < s.length(); i++) {
+			if (s.charAt(i) == '_') {
+				return i;
+			}
+		}
+		return s.length();
+	}
+}
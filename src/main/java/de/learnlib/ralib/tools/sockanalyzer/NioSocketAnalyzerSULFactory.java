@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.tools.sockanalyzer;
+
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.tools.SULFactory;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+
+/**
+ * Creates {@link NioSocketAnalyzerSUL}s sharing a pool of connections to the
+ * target. The connections are closed on shutdown.
+ */
+public class NioSocketAnalyzerSULFactory implements SULFactory {
+	private SocketChannelPool pool;
+	private int maxDepth;
+	private boolean pipelined;
+	private LinkedHashSet<ParameterizedSymbol> inputs;
+	private Map<String, ParameterizedSymbol> outputSymbolsMap;
+
+	/**
+	 * @param connections maximal number of connections used concurrently
+	 * @param pipelined send all inputs of a query ahead of their outputs
+	 * @param timeoutMillis time to wait for an output, 0 waits forever
+	 */
+	public NioSocketAnalyzerSULFactory(String ipAddress, int portNumber, int maxDepth, int connections,
+			boolean pipelined, long timeoutMillis, List<ParameterizedSymbol> inputs,
+			List<ParameterizedSymbol> outputs) {
+		this.maxDepth = maxDepth;
+		this.pipelined = pipelined;
+		this.pool = new SocketChannelPool(new InetSocketAddress(ipAddress, portNumber), connections, timeoutMillis);
+		this.inputs = new LinkedHashSet<>(inputs);
+		this.outputSymbolsMap = new LinkedHashMap<>();
+		outputs.forEach(out -> this.outputSymbolsMap.put(out.getName(), out));
+		Runtime.getRuntime().addShutdownHook(new Thread(pool::close));
+	}
+
+	public DataWordSUL newSUL() {
+		return new NioSocketAnalyzerSUL(this.pool, this.maxDepth, this.pipelined, this.inputs, this.outputSymbolsMap);
+	}
+
+	/**
+	 * The number of connections opened so far.
+	 */
+	public int getOpenConnections() {
+		return pool.getOpenConnections();
+	}
+
+	/**
+	 * Closes all connections.
+	 */
+	@Override
+	public void close() {
+		pool.close();
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.tools.sockanalyzer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A line-based connection on a non-blocking socket channel.
+ *
+ * Lines are encoded into a write buffer by {@link #send(CharSequence)} and
+ * written while waiting for input in {@link #receive(StringBuilder)}, so any
+ * number of lines can be sent ahead of their replies without blocking on a
+ * full socket buffer. All buffers are reused across lines.
+ */
+final class SocketChannelConnection implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final SocketChannel channel;
+
+	private final Selector selector;
+
+	private final SelectionKey key;
+
+	private final long timeoutMillis;
+
+	/**
+	 * encoded lines not yet written, in write mode.
+	 */
+	private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/**
+	 * bytes read and not yet consumed, in read mode.
+	 */
+	private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/**
+	 * bytes of the line being received.
+	 */
+	private ByteBuffer line = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE);
+
+	/**
+	 * @param timeoutMillis time to wait for a line, 0 waits forever
+	 */
+	SocketChannelConnection(InetSocketAddress address, long timeoutMillis) throws IOException {
+		this.channel = SocketChannel.open(address);
+		this.timeoutMillis = timeoutMillis;
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		channel.configureBlocking(false);
+		this.selector = Selector.open();
+		this.key = channel.register(selector, SelectionKey.OP_READ);
+		in.flip();
+	}
+
+	/**
+	 * Queues a line for sending.
+	 */
+	void send(CharSequence text) {
+		encoder.reset();
+		CharBuffer src = CharBuffer.wrap(text);
+		while (true) {
+			CoderResult result = encoder.encode(src, out, true);
+			if (result.isOverflow()) {
+				out = grow(out);
+			} else {
+				break;
+			}
+		}
+		encoder.flush(out);
+		if (!out.hasRemaining()) {
+			out = grow(out);
+		}
+		out.put((byte) '\n');
+	}
+
+	/**
+	 * Writes all queued lines.
+	 */
+	void flush() throws IOException {
+		while (out.position() > 0) {
+			await();
+		}
+	}
+
+	/**
+	 * Receives the next line into text, without the line terminator.
+	 * Queued lines are written while waiting.
+	 *
+	 * @throws EOFException if the connection was closed by the peer
+	 * @throws SocketTimeoutException if no line arrived in time
+	 */
+	void receive(StringBuilder text) throws IOException {
+		while (!nextLine()) {
+			await();
+		}
+		line.flip();
+		if (line.limit() > 0 && line.get(line.limit() - 1) == '\r') {
+			line.limit(line.limit() - 1);
+		}
+		text.setLength(0);
+		decoder.reset();
+		CoderResult result;
+		do {
+			chars.clear();
+			result = decoder.decode(line, chars, true);
+			chars.flip();
+			text.append(chars);
+		} while (result.isOverflow());
+		chars.clear();
+		decoder.flush(chars);
+		chars.flip();
+		text.append(chars);
+		line.clear();
+	}
+
+	/**
+	 * Moves read bytes to the current line, returns true at the end of the line.
+	 */
+	private boolean nextLine() {
+		while (in.hasRemaining()) {
+			byte b = in.get();
+			if (b == '\n') {
+				return true;
+			}
+			if (!line.hasRemaining()) {
+				line = grow(line);
+			}
+			line.put(b);
+		}
+		return false;
+	}
+
+	/**
+	 * Waits until the channel can be read, writing queued lines meanwhile.
+	 */
+	private void await() throws IOException {
+		key.interestOps(SelectionKey.OP_READ | (out.position() > 0 ? SelectionKey.OP_WRITE : 0));
+		if (selector.select(timeoutMillis) == 0) {
+			throw new SocketTimeoutException("No reply from " + channel.getRemoteAddress() + " after "
+					+ timeoutMillis + "ms");
+		}
+		selector.selectedKeys().clear();
+		if (key.isWritable()) {
+			out.flip();
+			channel.write(out);
+			out.compact();
+		}
+		if (key.isReadable()) {
+			in.compact();
+			int read = channel.read(in);
+			in.flip();
+			if (read < 0) {
+				throw new EOFException("Connection closed by " + channel.getRemoteAddress());
+			}
+		}
+	}
+
+	private static ByteBuffer grow(ByteBuffer buffer) {
+		ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+		buffer.flip();
+		larger.put(buffer);
+		return larger;
+	}
+
+	@Override
+	public void close() {
+		try {
+			selector.close();
+			channel.close();
+		} catch (IOException e) {
+			// nothing to do
+		}
+	}
+}
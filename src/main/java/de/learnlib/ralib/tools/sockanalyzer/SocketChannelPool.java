@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.tools.sockanalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Connections to one target, opened on demand up to a maximal number. A
+ * connection is used by one query at a time, so queries on different
+ * connections run concurrently.
+ */
+final class SocketChannelPool implements Closeable {
+
+	private final InetSocketAddress address;
+
+	private final int maxConnections;
+
+	private final long timeoutMillis;
+
+	private final Deque<SocketChannelConnection> idle = new ArrayDeque<>();
+
+	private final List<SocketChannelConnection> open = new ArrayList<>();
+
+	SocketChannelPool(InetSocketAddress address, int maxConnections, long timeoutMillis) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("At least one connection is needed");
+		}
+		this.address = address;
+		this.maxConnections = maxConnections;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Takes an idle connection, opens a new one or waits for one to be
+	 * released.
+	 */
+	synchronized SocketChannelConnection acquire() throws IOException {
+		while (idle.isEmpty() && open.size() >= maxConnections) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted waiting for a connection to " + address);
+			}
+		}
+		if (!idle.isEmpty()) {
+			return idle.pop();
+		}
+		SocketChannelConnection connection = new SocketChannelConnection(address, timeoutMillis);
+		open.add(connection);
+		return connection;
+	}
+
+	synchronized void release(SocketChannelConnection connection) {
+		idle.push(connection);
+		notifyAll();
+	}
+
+	/**
+	 * Closes a connection that failed, so it is not used again.
+	 */
+	synchronized void discard(SocketChannelConnection connection) {
+		open.remove(connection);
+		connection.close();
+		notifyAll();
+	}
+
+	synchronized int getOpenConnections() {
+		return open.size();
+	}
+
+	@Override
+	public synchronized void close() {
+		open.forEach(SocketChannelConnection::close);
+		open.clear();
+		idle.clear();
+	}
+}
@@ -31,6 +31,19 @@ public class SocketParser extends SULParser{
 	protected static final ConfigurationOption.IntegerOption OPTION_MAX_DEPTH = new ConfigurationOption.IntegerOption(
 			"max.depth", "Maximum depth to explore", -1, true);
 	
+	private static final ConfigurationOption.BooleanOption OPTION_NIO = new ConfigurationOption.BooleanOption(
+			"socket.nio", "Communicate over pooled non-blocking connections", false, true);
+	
+	private static final ConfigurationOption.IntegerOption OPTION_CONNECTIONS = new ConfigurationOption.IntegerOption(
+			"socket.connections", "Maximal number of connections running queries concurrently (requires socket.nio)", 1, true);
+	
+	private static final ConfigurationOption.BooleanOption OPTION_PIPELINED = new ConfigurationOption.BooleanOption(
+			"socket.pipelined", "Send all inputs of a query ahead of their outputs (requires socket.nio, "
+					+ "not used with fresh values)", false, true);
+	
+	private static final ConfigurationOption.LongOption OPTION_SOCKET_TIMEOUT = new ConfigurationOption.LongOption(
+			"socket.timeout", "Milliseconds to wait for an output, 0 waits forever (requires socket.nio)", 0L, true);
+	
 	private String systemIP;
 
 	private Integer systemPort;
@@ -43,6 +56,14 @@ public class SocketParser extends SULParser{
 	
 	private int maxDepth;
 	
+	private boolean nio;
+	
+	private int connections;
+	
+	private boolean pipelined;
+	
+	private long timeoutMillis;
+	
 	public void parseConfig(Configuration config) throws ConfigurationException {
 		this.systemIP = OPTION_TARGET_IP.parse(config);
 		this.systemPort = OPTION_TARGET_PORT.parse(config);
@@ -53,6 +74,10 @@ public class SocketParser extends SULParser{
 		String[] outStrings = OPTION_OUTPUTS.parse(config).split("\\+");
 		this.outputs = parseSymbols(outStrings, types, false);
 		this.maxDepth = OPTION_MAX_DEPTH.parse(config);
+		this.nio = OPTION_NIO.parse(config);
+		this.connections = OPTION_CONNECTIONS.parse(config);
+		this.pipelined = OPTION_PIPELINED.parse(config);
+		this.timeoutMillis = OPTION_SOCKET_TIMEOUT.parse(config);
 	}
 	
 	private ParameterizedSymbol [] parseSymbols(String [] symStrings, Map<String, DataType> types, boolean isInput) throws ConfigurationException {
@@ -134,6 +159,10 @@ public class SocketParser extends SULParser{
 
 	@Override
 	public SULFactory newSULFactory() {
+		if (nio) {
+			return new NioSocketAnalyzerSULFactory(systemIP, systemPort, maxDepth, connections, pipelined,
+					timeoutMillis, Arrays.asList(this.inputs), Arrays.asList(this.outputs));
+		}
 		SULFactory sulFactory = new SocketAnalyzerSULFactory(systemIP, systemPort, maxDepth, Arrays.asList(this.inputs), Arrays.asList(this.outputs));
 		return sulFactory;
 	}
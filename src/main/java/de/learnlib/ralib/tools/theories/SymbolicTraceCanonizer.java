@@ -1,27 +1,40 @@
 package de.learnlib.ralib.tools.theories;
 
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
 import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
 import de.learnlib.ralib.mapper.Determinizer;
 import de.learnlib.ralib.mapper.MultiTheoryDeterminizer;
 import de.learnlib.ralib.mapper.SymbolicDeterminizer;
 import de.learnlib.ralib.oracles.TraceCanonizer;
 import de.learnlib.ralib.theory.Theory;
+import de.learnlib.ralib.theory.inequality.IntervalDataValue;
+import de.learnlib.ralib.theory.inequality.SumCDataValue;
 import de.learnlib.ralib.words.PSymbolInstance;
 import net.automatalib.words.Word;
 
 /**
  * Canonizes a symbolic data trace produced after reduction techniques. 
+ * 
+ * The canonical forms of canonized traces are memoized in a trie. A trace 
+ * is only canonized from the end of its longest memoized prefix, the state 
+ * of the canonizer at that prefix is restored from the memoized symbols. 
  */
 public class SymbolicTraceCanonizer implements TraceCanonizer{
 	
+	private static final int MAX_MEMOIZED_SYMBOLS = 100000;
+	
 	private final Constants constants;
 	private final Map<DataType, Theory> theories;
 	
+	private CanonNode root = new CanonNode(null, null);
+	private int memoized = 0;
+	
 	public SymbolicTraceCanonizer(Map<DataType, Theory> theories, Constants constants) {
 		this.theories = theories;
 		this.constants = constants;
@@ -37,18 +50,106 @@ public class SymbolicTraceCanonizer implements TraceCanonizer{
 	 * after: FV 10 FV 20 SUMC 20 1 
 	 */
 	public Word<PSymbolInstance> canonize(Word<PSymbolInstance> trace) {
+		PSymbolInstance[] canonicalTrace = new PSymbolInstance[trace.length()];
+		int memoizedLength = 0;
+		CanonNode node;
+		synchronized (this) {
+			node = root;
+			for (PSymbolInstance symbol : trace) {
+				CanonNode next = node.children.get(symbol);
+				if (next == null || !sameSymbol(next.symbol, symbol)) {
+					break;
+				}
+				canonicalTrace[memoizedLength++] = next.canonical;
+				node = next;
+			}
+		}
+		if (memoizedLength == trace.length()) {
+			return Word.fromSymbols(canonicalTrace);
+		}
+
 		Map<DataType, Determinizer> determinizers = new LinkedHashMap<>();
 		theories.forEach( (dt, th) -> determinizers.put(dt, new SymbolicDeterminizer(th, dt)));
 		MultiTheoryDeterminizer canonizer = MultiTheoryDeterminizer.newCustom(determinizers, constants);
+		for (int i = 0; i < memoizedLength; i++) {
+			canonizer.restore(trace.getSymbol(i), canonicalTrace[i]);
+		}
 
 		try {
-			Word<PSymbolInstance> canonicalTrace = canonizer.canonize(trace, false); 
-			
-			return canonicalTrace;
+			for (int i = memoizedLength; i < trace.length(); i++) {
+				canonicalTrace[i] = canonizer.canonize(trace.getSymbol(i), false);
+			}
 		}catch(DecoratedRuntimeException e) {
 			e.addDecoration("trace to be canonized", trace);
 			throw e;
 		}
+		
+		memoize(node, trace, canonicalTrace, memoizedLength);
+		return Word.fromSymbols(canonicalTrace);
 	}
 	
+	private synchronized void memoize(CanonNode node, Word<PSymbolInstance> trace, PSymbolInstance[] canonicalTrace, 
+			int from) {
+		if (memoized > MAX_MEMOIZED_SYMBOLS) {
+			root = new CanonNode(null, null);
+			memoized = 0;
+			return;
+		}
+		for (int i = from; i < trace.length(); i++) {
+			PSymbolInstance symbol = trace.getSymbol(i);
+			CanonNode next = node.children.get(symbol);
+			if (next == null) {
+				next = new CanonNode(symbol, canonicalTrace[i]);
+				node.children.put(symbol, next);
+				memoized++;
+			} else if (!sameSymbol(next.symbol, symbol)) {
+				// equal symbols with values of different kinds
+				return;
+			}
+			node = next;
+		}
+	}
+	
+	/**
+	 * Data values are equal if their types and ids are, whereas the canonizer also depends on the kind of value.
+	 */
+	private static boolean sameSymbol(PSymbolInstance a, PSymbolInstance b) {
+		DataValue[] as = a.getParameterValues();
+		DataValue[] bs = b.getParameterValues();
+		for (int i = 0; i < as.length; i++) {
+			if (!sameValue(as[i], bs[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean sameValue(DataValue<?> a, DataValue<?> b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		if (a.getClass() != b.getClass() || !a.equals(b)) {
+			return false;
+		}
+		if (a instanceof SumCDataValue) {
+			return sameValue(((SumCDataValue<?>) a).getOperand(), ((SumCDataValue<?>) b).getOperand()) && 
+					sameValue(((SumCDataValue<?>) a).getConstant(), ((SumCDataValue<?>) b).getConstant());
+		}
+		if (a instanceof IntervalDataValue) {
+			return sameValue(((IntervalDataValue<?>) a).getLeft(), ((IntervalDataValue<?>) b).getLeft()) && 
+					sameValue(((IntervalDataValue<?>) a).getRight(), ((IntervalDataValue<?>) b).getRight());
+		}
+		return true;
+	}
+	
+	private static class CanonNode {
+		private final PSymbolInstance symbol;
+		private final PSymbolInstance canonical;
+		private final Map<PSymbolInstance, CanonNode> children = new HashMap<>();
+		
+		private CanonNode(PSymbolInstance symbol, PSymbolInstance canonical) {
+			this.symbol = symbol;
+			this.canonical = canonical;
+		}
+	}
 }
@@ -67,6 +67,9 @@ public class PSymbolInstance implements Serializable {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
@@ -74,6 +77,9 @@ public class PSymbolInstance implements Serializable {
             return false;
         }
         final PSymbolInstance other = (PSymbolInstance) obj;
+        if (hashCode() != other.hashCode()) {
+            return false;
+        }
         if (this.baseSymbol != other.baseSymbol && (this.baseSymbol == null || !this.baseSymbol.equals(other.baseSymbol))) {
             return false;
         }
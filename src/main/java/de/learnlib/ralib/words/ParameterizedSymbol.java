@@ -40,6 +40,9 @@ public abstract class ParameterizedSymbol implements Serializable {
      */
     private final DataType[] ptypes;
 
+    // cache
+    private transient int hashCode = 0;
+
     public ParameterizedSymbol(String name, DataType ... ptypes) {
         this.name = name;
         this.ptypes = ptypes;
@@ -47,14 +50,20 @@ public abstract class ParameterizedSymbol implements Serializable {
 
     @Override
     public int hashCode() {
-        int hash = 5;
-        hash = 71 * hash + (this.name != null ? this.name.hashCode() : 0);
-        hash = 71 * hash + Arrays.deepHashCode(this.ptypes);
-        return hash;
+        if (this.hashCode == 0) {
+            int hash = 5;
+            hash = 71 * hash + (this.name != null ? this.name.hashCode() : 0);
+            hash = 71 * hash + Arrays.deepHashCode(this.ptypes);
+            this.hashCode = hash;
+        }
+        return this.hashCode;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj == null) {
             return false;
         }
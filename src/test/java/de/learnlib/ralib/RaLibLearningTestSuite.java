@@ -18,6 +18,7 @@ import de.learnlib.ralib.equivalence.IOCounterExampleLoopRemover;
 import de.learnlib.ralib.equivalence.IOCounterExamplePrefixFinder;
 import de.learnlib.ralib.equivalence.IOCounterExamplePrefixReplacer;
 import de.learnlib.ralib.equivalence.IOEquivalenceOracle;
+import de.learnlib.ralib.learning.CounterexampleAnalysis;
 import de.learnlib.ralib.learning.Hypothesis;
 import de.learnlib.ralib.learning.RaStar;
 import de.learnlib.ralib.oracles.TreeOracleFactory;
@@ -43,6 +44,8 @@ public class RaLibLearningTestSuite extends RaLibTestSuite {
 	private Consumer<RegisterAutomaton> hypValidator;
 	private IOEquivalenceOracleBuilder equOracleBuilder;
 	private long[] seeds;
+	private CounterexampleAnalysis.Search ceSearch;
+	private int ceProbes;
 	
 	public RaLibLearningTestSuite() {
 	}
@@ -53,6 +56,8 @@ public class RaLibLearningTestSuite extends RaLibTestSuite {
 		this.hypValidator = (hyp) -> {};
 		this.equOracleBuilder = new IOEquivalenceOracleBuilder();
 		this.seeds = super.getTestConfig().getSeeds();
+		this.ceSearch = CounterexampleAnalysis.Search.LINEAR;
+		this.ceProbes = 1;
 	}
 	
 	protected void setHypValidator(Consumer<RegisterAutomaton> hypValidator) {
@@ -70,6 +75,11 @@ public class RaLibLearningTestSuite extends RaLibTestSuite {
 	protected void setSeeds(long[] seeds) {
 		this.seeds = seeds;
 	}
+	
+	protected void setCounterexampleSearch(CounterexampleAnalysis.Search search, int probes) {
+		this.ceSearch = search;
+		this.ceProbes = probes;
+	}
  	
 
 	/**
@@ -124,6 +134,7 @@ public class RaLibLearningTestSuite extends RaLibTestSuite {
 			}
 
 			RaStar rastar = new RaStar(mto, hypFactory, mlo, consts, true, teachers, solver, actionSymbols);
+			rastar.setCounterexampleSearch(ceSearch, ceProbes);
 			
 			IOEquivalenceOracle equOracle = equOracleBuilder.build(random, ioOracle, teachers, consts, inputSymbols);
 			
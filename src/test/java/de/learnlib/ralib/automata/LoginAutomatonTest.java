@@ -66,4 +66,31 @@ public class LoginAutomatonTest extends RaLibTestSuite {
         Assert.assertFalse(ra.accepts(test3));          
     }
 
+    @Test
+    public void testRun() {
+
+        RegisterAutomaton ra = AUTOMATON;
+        PSymbolInstance reg = new PSymbolInstance(I_REGISTER, 
+                new DataValue(T_UID, 1), new DataValue(T_PWD, 2));
+        PSymbolInstance login = new PSymbolInstance(I_LOGIN, 
+                new DataValue(T_UID, 1), new DataValue(T_PWD, 2));
+        PSymbolInstance wrong = new PSymbolInstance(I_LOGIN, 
+                new DataValue(T_UID, 1), new DataValue(T_PWD, 3));
+
+        RARun registered = ra.getInitialRun().step(reg);
+        Assert.assertEquals(registered.length(), 1);
+
+        // the run of the prefix is advanced with two continuations
+        RARun loggedIn = registered.step(login);
+        RARun rejected = registered.step(wrong);
+        Assert.assertTrue(loggedIn.isAccepting());
+        Assert.assertFalse(rejected.isAccepting());
+        Assert.assertEquals(registered.getLocation(), ra.getLocation(Word.fromSymbols(reg)));
+
+        Word<PSymbolInstance> trace = Word.fromSymbols(reg, login);
+        Assert.assertEquals(loggedIn.getLocation(), ra.getLocation(trace));
+        Assert.assertEquals(loggedIn.getTransitions().size(), 2);
+        Assert.assertTrue(loggedIn.getRegisters().equals(ra.getRegisterValuation(trace)));
+    }
+
 }
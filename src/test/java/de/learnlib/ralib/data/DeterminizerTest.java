@@ -3,7 +3,9 @@ package de.learnlib.ralib.data;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -18,8 +20,11 @@ import de.learnlib.ralib.theory.inequality.IntervalDataValue;
 import de.learnlib.ralib.theory.inequality.SumCDataValue;
 import de.learnlib.ralib.tools.theories.IntegerEqualityTheory;
 import de.learnlib.ralib.tools.theories.IntegerSumCInequalityTheory;
+import de.learnlib.ralib.tools.theories.SymbolicTraceCanonizer;
 import de.learnlib.ralib.utils.DataValueConstructor;
 import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
 
 public class DeterminizerTest  extends RaLibTestSuite {
     public static final DataType T_INT = new DataType("T_uid", Integer.class);
@@ -107,6 +112,43 @@ public class DeterminizerTest  extends RaLibTestSuite {
 	}
     
 
+    @Test
+	public void testMemoizedSymbolicCanonizer() {
+        final Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        DataValue [] sumConsts = new DataValue [] {
+				new DataValue<Integer>(T_INT, 1),
+				new DataValue<Integer>(T_INT, 1000)};
+        IntegerSumCInequalityTheory sumCTheory = new IntegerSumCInequalityTheory(T_INT,
+        		Arrays.asList(sumConsts), Collections.emptyList());
+        teachers.put(T_INT, sumCTheory);
+        Constants consts = new Constants(new SumConstants(sumConsts));
+    	DataValueConstructor<Integer> b = new DataValueConstructor<>(T_INT);
+
+    	Word<PSymbolInstance> prefix = trace(b.fv(0), b.sumcv(0, 1), b.fv(10000), b.fv(20000));
+    	List<Word<PSymbolInstance>> traces = Arrays.asList(
+    			prefix.concat(trace(b.intv(15000, 10000, 20000), b.sumcv(15000, 1))),
+    			prefix.concat(trace(b.fv(30000), b.sumcv(30000, 1000))),
+    			prefix,
+    			// equal to the first trace, but the interval is a plain value
+    			prefix.concat(trace(b.dv(15000), b.sumcv(15000, 1))),
+    			prefix.concat(trace(b.intv(15000, 10000, 20000), b.sumcv(15000, 1))));
+
+    	SymbolicTraceCanonizer memoizing = new SymbolicTraceCanonizer(teachers, consts);
+    	for (Word<PSymbolInstance> trace : traces) {
+    		Word<PSymbolInstance> expected = new SymbolicTraceCanonizer(teachers, consts).canonize(trace);
+    		Word<PSymbolInstance> canonical = memoizing.canonize(trace);
+    		Assert.assertEquals(canonical, expected);
+    		for (int i = 0; i < trace.length(); i++) {
+    			Assert.assertEquals(canonical.getSymbol(i).getParameterValues()[0].getClass(), 
+    					expected.getSymbol(i).getParameterValues()[0].getClass());
+    		}
+    	}
+	}
+    
+    private Word<PSymbolInstance> trace(DataValue ... dvs) {
+    	return Word.fromList(Arrays.stream(dvs).map(dv -> new PSymbolInstance(IN, dv)).collect(Collectors.toList()));
+    }
+
 	private DataValue [] dv(DataType dType, int ... nums) {
 		DataValue[] dvs = Arrays.stream(nums).mapToObj(num -> new DataValue<Integer>(dType, new Integer(num))).toArray(DataValue []::new);
 		return dvs;
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.equivalence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.oracles.DefaultQuery;
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.TestUtil;
+import de.learnlib.ralib.automata.RegisterAutomaton;
+import de.learnlib.ralib.automata.xml.RegisterAutomatonImporter;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.learning.Hypothesis;
+import de.learnlib.ralib.learning.RaStar;
+import de.learnlib.ralib.oracles.TreeOracleFactory;
+import de.learnlib.ralib.oracles.io.IOOracle;
+import de.learnlib.ralib.oracles.mto.MultiTheorySDTLogicOracle;
+import de.learnlib.ralib.oracles.mto.MultiTheoryTreeOracle;
+import de.learnlib.ralib.solver.ConstraintSolver;
+import de.learnlib.ralib.solver.simple.SimpleConstraintSolver;
+import de.learnlib.ralib.sul.BasicSULOracle;
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.sul.SimulatorSUL;
+import de.learnlib.ralib.theory.Theory;
+import de.learnlib.ralib.tools.classanalyzer.SpecialSymbols;
+import de.learnlib.ralib.tools.theories.IntegerEqualityTheory;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that reducing a counterexample in batches yields the counterexample
+ * found when testing candidates one at a time, and that optimizers sharing a
+ * tester do not repeat queries.
+ */
+public class CounterExampleReducerTest extends RaLibTestSuite {
+
+    @Test
+    public void testReduceInBatches() {
+
+        RegisterAutomatonImporter loader = TestUtil.getLoader(
+                "/de/learnlib/ralib/automata/xml/sip.xml");
+
+        RegisterAutomaton model = loader.getRegisterAutomaton();
+        ParameterizedSymbol[] inputs = loader.getInputs().toArray(
+                new ParameterizedSymbol[]{});
+        ParameterizedSymbol[] actions = loader.getActions().toArray(
+                new ParameterizedSymbol[]{});
+        Constants consts = loader.getConstants();
+
+        Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        loader.getDataTypes().stream().forEach((t) -> {
+            teachers.put(t, new IntegerEqualityTheory(t));
+        });
+        ConstraintSolver solver = new SimpleConstraintSolver();
+
+        DataWordSUL sul = new SimulatorSUL(model, teachers, consts);
+        MultiTheoryTreeOracle mto = TestUtil.createBasicMTO(sul, SpecialSymbols.ERROR, teachers, consts, solver, inputs);
+        TreeOracleFactory hypFactory = (RegisterAutomaton h) -> TestUtil.createSimulatorMTO(h, teachers, consts, solver);
+        RaStar rastar = new RaStar(mto, hypFactory, new MultiTheorySDTLogicOracle(consts, solver), consts, true, 
+                teachers, solver, actions);
+        rastar.learn();
+        Hypothesis hyp = rastar.getHypothesis();
+
+        AtomicInteger queries = new AtomicInteger();
+        IOOracle sulOracle = new BasicSULOracle(new SimulatorSUL(model, teachers, consts), SpecialSymbols.ERROR);
+        IOOracle countingOracle = (query) -> {
+            queries.incrementAndGet();
+            return sulOracle.trace(query);
+        };
+        HypVerifier hypVerifier = HypVerifier.getVerifier(true, teachers, consts);
+
+        IORandomWalk rwalk = new IORandomWalk(new Random(0), sulOracle, false, 0.1, 0.5, 10000, 50, consts, 
+                false, teachers, inputs);
+        DefaultQuery<PSymbolInstance, Boolean> ce = rwalk.findCounterExample(hyp, null);
+        Assert.assertNotNull(ce);
+
+        // every optimizer on its own
+        Word<PSymbolInstance> unshared = ce.getInput();
+        for (IOCounterExampleOptimizer optimizer : List.of(
+                new IOCounterExampleLoopRemover(countingOracle, hypVerifier),
+                new IOCounterExampleSingleTransitionRemover(countingOracle, hypVerifier),
+                new IOCounterExamplePrefixReplacer(countingOracle, hypVerifier),
+                new IOCounterExamplePrefixFinder(countingOracle, hypVerifier),
+                new IOCounterExampleRelationRemover(teachers, consts, solver, countingOracle, hypVerifier))) {
+            unshared = optimizer.optimizeCE(unshared, hyp).getInput();
+        }
+        int unsharedQueries = queries.getAndSet(0);
+        Assert.assertTrue(hypVerifier.isCEForHyp(new DefaultQuery<>(unshared, Boolean.TRUE), hyp));
+
+        for (int batch : new int[] {1, 4}) {
+            CounterExampleTester tester = new CounterExampleTester(countingOracle, hypVerifier, batch);
+            if (batch > 1) {
+                List<IOOracle> workers = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    IOOracle workerOracle = new BasicSULOracle(new SimulatorSUL(model, teachers, consts), 
+                            SpecialSymbols.ERROR);
+                    workers.add((query) -> {
+                        queries.incrementAndGet();
+                        return workerOracle.trace(query);
+                    });
+                }
+                tester.setParallelTraces(workers);
+            }
+            CounterExampleReducer reducer = new CounterExampleReducer(tester);
+            reducer.addOptimizer("Loops", new IOCounterExampleLoopRemover(tester));
+            reducer.addOptimizer("Single Transition Removal", new IOCounterExampleSingleTransitionRemover(tester));
+            reducer.addOptimizer("Prefix Replacement", new IOCounterExamplePrefixReplacer(tester));
+            reducer.addOptimizer("Prefix", new IOCounterExamplePrefixFinder(tester));
+            reducer.addOptimizer("Relation Removal", new IOCounterExampleRelationRemover(teachers, consts, solver, tester));
+
+            Word<PSymbolInstance> reduced = reducer.optimizeCE(ce.getInput(), hyp).getInput();
+            Assert.assertEquals(reduced, unshared);
+            Assert.assertEquals(tester.getQueries(), queries.getAndSet(0));
+            if (batch == 1) {
+                Assert.assertTrue(tester.getQueries() <= unsharedQueries);
+            }
+            tester.shutdown();
+        }
+    }
+}
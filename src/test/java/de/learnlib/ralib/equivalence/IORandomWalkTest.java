@@ -18,9 +18,12 @@ package de.learnlib.ralib.equivalence;
 
 import de.learnlib.ralib.RaLibTestSuite;
 import de.learnlib.ralib.TestUtil;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
@@ -28,13 +31,18 @@ import de.learnlib.ralib.automata.RegisterAutomaton;
 import de.learnlib.ralib.automata.xml.RegisterAutomatonImporter;
 import de.learnlib.ralib.data.Constants;
 import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.oracles.io.IOOracle;
 import de.learnlib.ralib.sul.BasicSULOracle;
+import de.learnlib.ralib.sul.CompiledSimulatorSUL;
 import de.learnlib.ralib.sul.DataWordSUL;
 import de.learnlib.ralib.sul.SimulatorSUL;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.tools.classanalyzer.SpecialSymbols;
 import de.learnlib.ralib.tools.theories.IntegerEqualityTheory;
+import de.learnlib.ralib.words.DataWords;
+import de.learnlib.ralib.words.PSymbolInstance;
 import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.words.Word;
 import org.testng.Assert;
 
 /**
@@ -77,4 +85,111 @@ public class IORandomWalkTest extends RaLibTestSuite {
         Object o = iowalk.findCounterExample(model, null);        
         Assert.assertNull(o);
     }
+
+    @Test
+    public void testParallelRandomWalk() {
+
+        RegisterAutomatonImporter loader = TestUtil.getLoader(
+                "/de/learnlib/ralib/automata/xml/login.xml");
+
+        RegisterAutomaton model = loader.getRegisterAutomaton();
+        ParameterizedSymbol[] inputs = loader.getInputs().toArray(
+                new ParameterizedSymbol[]{});
+
+        Constants consts = loader.getConstants();
+
+        Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        loader.getDataTypes().stream().forEach((t) -> {
+            teachers.put(t, new IntegerEqualityTheory(t));
+        });
+
+        IORandomWalk iowalk = new IORandomWalk(new Random(0),
+        		new BasicSULOracle(new SimulatorSUL(model, teachers, consts), SpecialSymbols.ERROR),
+                false, 0.1, 0.5, 1000, 20, consts, true, teachers, inputs);
+
+        // every worker has its own SUL and random walk
+        AtomicInteger tests = new AtomicInteger();
+        List<TraceGenerator> generators = new ArrayList<>();
+        List<IOOracle> targets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Random rand = new Random(i);
+            generators.add(new IORandomWalkTraceGenerator(rand, 0.1, 20,
+                    new RandomSymbolSelector(rand, teachers, consts, false, 0.5/3, 0.5/3, 0.5/3, inputs),
+                    consts, teachers, inputs));
+            IOOracle target = new BasicSULOracle(new SimulatorSUL(model, teachers, consts), SpecialSymbols.ERROR);
+            targets.add((query) -> {
+                tests.incrementAndGet();
+                return target.trace(query);
+            });
+        }
+        iowalk.setParallelTesting(generators, targets);
+
+        Assert.assertNull(iowalk.findCounterExample(model, null));
+        Assert.assertEquals(tests.get(), 1000);
+
+        // runs are reset for the next equivalence query
+        Assert.assertNull(iowalk.findCounterExample(model, null));
+        Assert.assertEquals(tests.get(), 2000);
+
+        // after a shutdown the tests run on the sequential target
+        iowalk.shutdown();
+        Assert.assertNull(iowalk.findCounterExample(model, null));
+        Assert.assertEquals(tests.get(), 2000);
+    }
+
+    @Test
+    public void testSelectorStateFollowsHypothesis() {
+
+        RegisterAutomatonImporter loader = TestUtil.getLoader(
+                "/de/learnlib/ralib/automata/xml/login.xml");
+
+        RegisterAutomaton model = loader.getRegisterAutomaton();
+        ParameterizedSymbol[] inputs = loader.getInputs().toArray(
+                new ParameterizedSymbol[]{});
+
+        Constants consts = loader.getConstants();
+
+        Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        loader.getDataTypes().stream().forEach((t) -> {
+            teachers.put(t, new IntegerEqualityTheory(t));
+        });
+
+        Random rand = new Random(0);
+        InputSelector[] selectors = new InputSelector[] {
+            new RandomSymbolSelector(rand, teachers, consts, false, 0.3, 0.3, 0.2, inputs),
+            new RandomTransitionSelector(rand, teachers, consts, 0.3, 0.3, 0.2, inputs)
+        };
+
+        AtomicInteger steps = new AtomicInteger();
+        for (InputSelector selector : selectors) {
+            // compares the state of the walk to a run of the hypothesis
+            InputSelector checking = new InputSelector(rand, teachers, consts, inputs) {
+                @Override
+                protected PSymbolInstance nextInput(Word<PSymbolInstance> run, RegisterAutomaton hyp) {
+                    throw new IllegalStateException("state of the walk was not used");
+                }
+
+                @Override
+                protected PSymbolInstance nextInput(Word<PSymbolInstance> run, RegisterAutomaton hyp,
+                        CompiledSimulatorSUL state) {
+                    steps.incrementAndGet();
+                    Assert.assertEquals(state.getLocation(), hyp.getLocation(run));
+                    Assert.assertEquals((Map<?, ?>) state.getRegisterValuation(), hyp.getRegisterValuation(run));
+                    for (DataType t : teachers.keySet()) {
+                        Assert.assertEquals(new ArrayList<>(state.getValues(t)),
+                                new ArrayList<>(DataWords.valSet(run, t)));
+                    }
+                    return selector.nextInput(run, hyp, state);
+                }
+            };
+
+            TraceGenerator generator = new IORandomWalkTraceGenerator(rand, 0.05, 20,
+                    checking, consts, teachers, inputs);
+            for (int i = 0; i < 100; i++) {
+                Word<PSymbolInstance> trace = generator.generateTrace(model);
+                Assert.assertNotNull(model.getLocation(trace));
+            }
+        }
+        Assert.assertTrue(steps.get() > 200);
+    }
 }
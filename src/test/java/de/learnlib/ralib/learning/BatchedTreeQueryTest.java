@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.learning;
+
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.AUTOMATON;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.I_LOGIN;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.I_LOGOUT;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.I_REGISTER;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.T_PWD;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.T_UID;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.oracles.DefaultQuery;
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.TestUtil;
+import de.learnlib.ralib.automata.RegisterAutomaton;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.PIV;
+import de.learnlib.ralib.oracles.Branching;
+import de.learnlib.ralib.oracles.DataWordOracle;
+import de.learnlib.ralib.oracles.SDTLogicOracle;
+import de.learnlib.ralib.oracles.TreeOracle;
+import de.learnlib.ralib.oracles.TreeOracleFactory;
+import de.learnlib.ralib.oracles.SimulatorOracle;
+import de.learnlib.ralib.oracles.TreeQueryResult;
+import de.learnlib.ralib.oracles.mto.MultiTheorySDTLogicOracle;
+import de.learnlib.ralib.oracles.mto.MultiTheoryTreeOracle;
+import de.learnlib.ralib.solver.ConstraintSolver;
+import de.learnlib.ralib.solver.simple.SimpleConstraintSolver;
+import de.learnlib.ralib.theory.Theory;
+import de.learnlib.ralib.tools.theories.IntegerEqualityTheory;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.commons.util.Pair;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that the observation table submits the tree queries of a round
+ * as batches without duplicates, and that the concrete queries of sibling
+ * leaves reach the membership oracle as one batch.
+ */
+public class BatchedTreeQueryTest extends RaLibTestSuite {
+
+    private static class BatchRecordingOracle implements TreeOracle {
+
+        private final TreeOracle treeOracle;
+
+        private final List<Integer> batchSizes = new ArrayList<>();
+
+        BatchRecordingOracle(TreeOracle treeOracle) {
+            this.treeOracle = treeOracle;
+        }
+
+        @Override
+        public TreeQueryResult treeQuery(Word<PSymbolInstance> prefix, GeneralizedSymbolicSuffix suffix) {
+            return treeOracle.treeQuery(prefix, suffix);
+        }
+
+        @Override
+        public List<TreeQueryResult> treeQueries(
+                List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> queries) {
+            Assert.assertEquals(new HashSet<>(queries).size(), queries.size());
+            batchSizes.add(queries.size());
+            return treeOracle.treeQueries(queries);
+        }
+
+        @Override
+        public Branching getInitialBranching(Word<PSymbolInstance> prefix,
+                ParameterizedSymbol ps, PIV piv, SymbolicDecisionTree... sdts) {
+            return treeOracle.getInitialBranching(prefix, ps, piv, sdts);
+        }
+
+        @Override
+        public Branching updateBranching(Word<PSymbolInstance> prefix,
+                ParameterizedSymbol ps, Branching current,
+                PIV piv, SymbolicDecisionTree... sdts) {
+            return treeOracle.updateBranching(prefix, ps, current, piv, sdts);
+        }
+    }
+
+    @Test
+    public void testSiblingLeavesInOneBatch() {
+        final Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        teachers.put(T_UID, new IntegerEqualityTheory(T_UID));
+        teachers.put(T_PWD, new IntegerEqualityTheory(T_PWD));
+        ConstraintSolver solver = new SimpleConstraintSolver();
+
+        List<Integer> batchSizes = new ArrayList<>();
+        DataWordOracle simulator = new SimulatorOracle(AUTOMATON);
+        DataWordOracle recording = (queries) -> {
+            batchSizes.add(queries.size());
+            simulator.processQueries(queries);
+        };
+        MultiTheoryTreeOracle mto = new MultiTheoryTreeOracle(recording, null, teachers, new Constants(), solver);
+
+        Word<PSymbolInstance> prefix = Word.fromSymbols(
+                new PSymbolInstance(I_REGISTER, new DataValue(T_UID, 1), new DataValue(T_PWD, 1)));
+        GeneralizedSymbolicSuffix suffix = GeneralizedSymbolicSuffix.fullSuffix(
+                Word.<ParameterizedSymbol>fromSymbols(I_LOGIN), teachers);
+        TreeQueryResult batched = mto.treeQuery(prefix, suffix);
+        TreeQueryResult expected = TestUtil.createSimulatorMTO(AUTOMATON, teachers, new Constants(), solver)
+                .treeQuery(prefix, suffix);
+        logger.log(Level.FINE, "Batches: {0}", batchSizes);
+
+        Assert.assertEquals(batched.getSdt().toString(), expected.getSdt().toString());
+        // the password is compared to the registered one and to a fresh value
+        Assert.assertFalse(batchSizes.isEmpty());
+        Assert.assertTrue(batchSizes.stream().allMatch(n -> n == 2));
+    }
+
+    @Test
+    public void learnLoginWithBatches() {
+
+        Constants consts = new Constants();
+        RegisterAutomaton sul = AUTOMATON;
+
+        final Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        teachers.put(T_UID, new IntegerEqualityTheory(T_UID));
+        teachers.put(T_PWD, new IntegerEqualityTheory(T_PWD));
+
+        ConstraintSolver solver = new SimpleConstraintSolver();
+
+        BatchRecordingOracle mto = new BatchRecordingOracle(
+                TestUtil.createSimulatorMTO(sul, teachers, new Constants(), solver));
+        SDTLogicOracle slo = new MultiTheorySDTLogicOracle(consts, solver);
+
+        TreeOracleFactory hypFactory = (RegisterAutomaton hyp) -> TestUtil.createSimulatorMTO(hyp, teachers,
+                new Constants(), solver);
+
+        RaStar rastar = new RaStar(mto, hypFactory, slo, consts, teachers, solver, I_LOGIN, I_LOGOUT, I_REGISTER);
+
+        rastar.learn();
+
+        Word<PSymbolInstance> ce = Word.fromSymbols(
+                new PSymbolInstance(I_REGISTER, new DataValue(T_UID, 1), new DataValue(T_PWD, 1)),
+                new PSymbolInstance(I_LOGIN, new DataValue(T_UID, 1), new DataValue(T_PWD, 1)));
+
+        rastar.addCounterexample(new DefaultQuery<>(ce, sul.accepts(ce)));
+
+        rastar.learn();
+        RegisterAutomaton hyp = rastar.getHypothesis();
+        logger.log(Level.FINE, "HYP: {0}", hyp);
+        logger.log(Level.FINE, "Batches: {0}", mto.batchSizes);
+
+        Assert.assertEquals(hyp.getStates().size(), 3);
+        Assert.assertEquals(hyp.getTransitions().size(), 11);
+        Assert.assertTrue(mto.batchSizes.stream().anyMatch(s -> s > 1));
+    }
+}
@@ -44,7 +44,9 @@ import de.learnlib.ralib.oracles.SDTLogicOracle;
 import de.learnlib.ralib.oracles.TreeOracleFactory;
 import de.learnlib.ralib.oracles.mto.MultiTheorySDTLogicOracle;
 import de.learnlib.ralib.oracles.mto.MultiTheoryTreeOracle;
-import de.learnlib.ralib.solver.jconstraints.JConstraintsConstraintSolver;
+import de.learnlib.ralib.solver.ConstraintSolver;
+import de.learnlib.ralib.solver.ConstraintSolverFactory;
+import de.learnlib.ralib.solver.difference.DifferenceConstraintSolver;
 import de.learnlib.ralib.theory.Theory;
 import de.learnlib.ralib.tools.theories.DoubleInequalityTheory;
 import de.learnlib.ralib.words.PSymbolInstance;
@@ -58,6 +60,18 @@ public class LearnPQTest extends RaLibTestSuite {
 
     @Test
     public void PQExample() {
+        learnPQ(TestUtil.getZ3Solver(), ConstraintSolverFactory.ID_Z3);
+    }
+
+    @Test
+    public void PQExampleWithDifferenceSolver() {
+        RegisterAutomaton hyp = learnPQ(new DifferenceConstraintSolver(), ConstraintSolverFactory.ID_DIFFERENCE);
+        RegisterAutomaton z3Hyp = learnPQ(TestUtil.getZ3Solver(), ConstraintSolverFactory.ID_Z3);
+        Assert.assertEquals(hyp.getStates().size(), z3Hyp.getStates().size());
+        Assert.assertEquals(hyp.getTransitions().size(), z3Hyp.getTransitions().size());
+    }
+
+    private RegisterAutomaton learnPQ(ConstraintSolver jsolv, String solverName) {
 
         Constants consts = new Constants();
         PriorityQueueOracle dwOracle = new PriorityQueueOracle(3);
@@ -65,10 +79,9 @@ public class LearnPQTest extends RaLibTestSuite {
         final Map<DataType, Theory> teachers = new LinkedHashMap<>();
         DoubleInequalityTheory dit = new DoubleInequalityTheory(doubleType);
         dit.setUseSuffixOpt(true);
+        dit.setConstraintSolver(solverName);
         teachers.put(doubleType, dit);
 
-        
-        JConstraintsConstraintSolver jsolv = TestUtil.getZ3Solver();       
         MultiTheoryTreeOracle mto = new MultiTheoryTreeOracle(
                 dwOracle, null, teachers, new Constants(), jsolv);
         
@@ -128,6 +141,6 @@ public class LearnPQTest extends RaLibTestSuite {
         hyp = rastar.getHypothesis();
         logger.log(Level.FINE, "HYP3: {0}", hyp);
         Assert.assertFalse(hypVerifier.isCEForHyp(ceQuery, hyp));
-        
+        return hyp;
     }
 }
@@ -43,6 +43,19 @@ public class LearnSipIOTest extends RaLibLearningTestSuite {
 
     @Test
     public void learnLoginExampleIO() {
+        learnSip();
+    }
+
+    @Test
+    public void learnSipIOWithCounterexampleSearches() {
+        super.setSeeds(new long[] {0});
+        for (CounterexampleAnalysis.Search search : CounterexampleAnalysis.Search.values()) {
+            super.setCounterexampleSearch(search, 3);
+            learnSip();
+        }
+    }
+
+    private void learnSip() {
 
         RegisterAutomatonImporter loader = TestUtil.getLoader(
                 "/de/learnlib/ralib/automata/xml/sip.xml");
@@ -108,7 +108,16 @@ public class RowTest extends RaLibTestSuite {
         Assert.assertNotNull(renaming);
         Assert.assertTrue(r1.couldBeEquivalentTo(r2));
         Assert.assertTrue(r1.isEquivalentTo(r2, renaming, solver));
+        Assert.assertEquals(r1.fingerprint(), r2.fingerprint());
+
+        VarMapping found = r1.findRemapping(r2, solver);
+        Assert.assertNotNull(found);
+        Assert.assertTrue(r1.isEquivalentTo(r2, found, solver));
         
+        Row r3 = Row.computeRow(oracle, prefix1.prefix(1), Arrays.asList(suffixes), false);
+        Assert.assertFalse(r1.couldBeEquivalentTo(r3));
+        Assert.assertNotEquals(r1.fingerprint(), r3.fingerprint());
+        Assert.assertNull(r1.findRemapping(r3, solver));
     }
     
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles;
+
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.AUTOMATON;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.I_LOGIN;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.I_LOGOUT;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.I_REGISTER;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.T_PWD;
+import static de.learnlib.ralib.example.login.LoginAutomatonExample.T_UID;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.oracles.DefaultQuery;
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.TestUtil;
+import de.learnlib.ralib.automata.RegisterAutomaton;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.learning.GeneralizedSymbolicSuffix;
+import de.learnlib.ralib.learning.RaStar;
+import de.learnlib.ralib.oracles.mto.MultiTheorySDTLogicOracle;
+import de.learnlib.ralib.solver.ConstraintSolver;
+import de.learnlib.ralib.solver.simple.SimpleConstraintSolver;
+import de.learnlib.ralib.theory.Theory;
+import de.learnlib.ralib.tools.theories.IntegerEqualityTheory;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that cached tree query results are reused and evicted and that
+ * learning with the cache yields the same model.
+ */
+public class CachingTreeOracleTest extends RaLibTestSuite {
+
+    private static Map<DataType, Theory> teachers() {
+        final Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        teachers.put(T_UID, new IntegerEqualityTheory(T_UID));
+        teachers.put(T_PWD, new IntegerEqualityTheory(T_PWD));
+        return teachers;
+    }
+
+    @Test
+    public void testReuseAndEviction() {
+        Map<DataType, Theory> teachers = teachers();
+        CachingTreeOracle oracle = new CachingTreeOracle(TestUtil.createSimulatorMTO(AUTOMATON, teachers,
+                new Constants(), new SimpleConstraintSolver()), 1);
+
+        Word<PSymbolInstance> prefix = Word.fromSymbols(
+                new PSymbolInstance(I_REGISTER, new DataValue(T_UID, 1), new DataValue(T_PWD, 1)));
+        Word<PSymbolInstance> login = Word.fromSymbols(
+                new PSymbolInstance(I_LOGIN, new DataValue(T_UID, 1), new DataValue(T_PWD, 1)));
+        Word<PSymbolInstance> logout = Word.fromSymbols(new PSymbolInstance(I_LOGOUT));
+        GeneralizedSymbolicSuffix loginSuffix = new GeneralizedSymbolicSuffix(prefix, login, new Constants(), teachers);
+        GeneralizedSymbolicSuffix logoutSuffix = new GeneralizedSymbolicSuffix(prefix, logout, new Constants(), teachers);
+
+        TreeQueryResult first = oracle.treeQuery(prefix, loginSuffix);
+        Assert.assertSame(oracle.treeQuery(prefix, loginSuffix), first);
+        Assert.assertEquals(oracle.getHits(), 1);
+        Assert.assertEquals(oracle.getMisses(), 1);
+
+        // the capacity of one entry evicts the first result
+        oracle.treeQuery(prefix, logoutSuffix);
+        Assert.assertNotSame(oracle.treeQuery(prefix, loginSuffix), first);
+        Assert.assertEquals(oracle.getHits(), 1);
+        Assert.assertEquals(oracle.getMisses(), 3);
+    }
+
+    @Test
+    public void learnLoginWithCache() {
+
+        Constants consts = new Constants();
+        RegisterAutomaton sul = AUTOMATON;
+        Map<DataType, Theory> teachers = teachers();
+        ConstraintSolver solver = new SimpleConstraintSolver();
+
+        CachingTreeOracle mto = new CachingTreeOracle(
+                TestUtil.createSimulatorMTO(sul, teachers, new Constants(), solver), 1000);
+        SDTLogicOracle slo = new MultiTheorySDTLogicOracle(consts, solver);
+
+        TreeOracleFactory hypFactory = (RegisterAutomaton hyp) -> TestUtil.createSimulatorMTO(hyp, teachers,
+                new Constants(), solver);
+
+        RaStar rastar = new RaStar(mto, hypFactory, slo, consts, teachers, solver, I_LOGIN, I_LOGOUT, I_REGISTER);
+
+        rastar.learn();
+
+        Word<PSymbolInstance> ce = Word.fromSymbols(
+                new PSymbolInstance(I_REGISTER, new DataValue(T_UID, 1), new DataValue(T_PWD, 1)),
+                new PSymbolInstance(I_LOGIN, new DataValue(T_UID, 1), new DataValue(T_PWD, 1)));
+
+        rastar.addCounterexample(new DefaultQuery<>(ce, sul.accepts(ce)));
+
+        rastar.learn();
+        RegisterAutomaton hyp = rastar.getHypothesis();
+        logger.log(Level.FINE, "HYP: {0}", hyp);
+        logger.log(Level.FINE, "Hits: {0}, misses: {1}", new Object[] {mto.getHits(), mto.getMisses()});
+
+        Assert.assertEquals(hyp.getStates().size(), 3);
+        Assert.assertEquals(hyp.getTransitions().size(), 11);
+        Assert.assertTrue(mto.getMisses() > 0);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.FreshValue;
+import de.learnlib.ralib.data.SumConstants;
+import de.learnlib.ralib.theory.inequality.IntervalDataValue;
+import de.learnlib.ralib.theory.inequality.SumCDataValue;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that caches survive a round trip through the binary cache format.
+ */
+public class BinaryCacheManagerTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final DataType T_DBL = new DataType("double", Double.class);
+
+    private static final InputSymbol I_PUT = new InputSymbol("IPut", T_INT, T_DBL);
+
+    private static final InputSymbol I_GET = new InputSymbol("IGet");
+
+    private static final OutputSymbol O_VAL = new OutputSymbol("OVal", T_INT);
+
+    private static final OutputSymbol O_OK = new OutputSymbol("OOK");
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        DataValue<Integer> one = new DataValue<>(T_INT, 1);
+        SumConstants sumCs = new SumConstants(one);
+        Constants consts = new Constants(sumCs);
+
+        IOCache cache = new IOCache();
+        cache.addToCache(Word.fromSymbols(
+                new PSymbolInstance(I_PUT, new DataValue<>(T_INT, -3), new DataValue<>(T_DBL, 0.5)),
+                new PSymbolInstance(O_OK),
+                new PSymbolInstance(I_GET),
+                new PSymbolInstance(O_VAL, new FreshValue<>(T_INT, 300000))));
+        cache.addToCache(Word.fromSymbols(
+                new PSymbolInstance(I_PUT, new DataValue<>(T_INT, -3), new DataValue<>(T_DBL, 0.5)),
+                new PSymbolInstance(O_OK),
+                new PSymbolInstance(I_PUT, new SumCDataValue<>(new DataValue<>(T_INT, -3), one), 
+                        new IntervalDataValue<>(new DataValue<>(T_DBL, 1.5), new DataValue<>(T_DBL, 0.5), null)),
+                new PSymbolInstance(O_OK)));
+        cache.addToCache(Word.fromSymbols(
+                new PSymbolInstance(I_GET),
+                new PSymbolInstance(O_VAL, new DataValue<>(T_INT, Integer.MIN_VALUE))));
+
+        File file = File.createTempFile("cache", ".bin");
+        file.deleteOnExit();
+        IOCacheManager manager = IOCacheManager.getCacheManager("binary");
+        manager.dumpCacheToFile(file.getPath(), cache, consts);
+        IOCache loaded = manager.loadCacheFromFile(file.getPath(), consts);
+
+        List<Word<PSymbolInstance>> expected = cache.getWords(w -> true);
+        List<Word<PSymbolInstance>> actual = loaded.getWords(w -> true);
+        Assert.assertEquals(loaded.getSize(), cache.getSize());
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(actual.toString(), expected.toString());
+        for (int i = 0; i < expected.size(); i++) {
+            for (int j = 0; j < expected.get(i).length(); j++) {
+                DataValue<?>[] exp = expected.get(i).getSymbol(j).getParameterValues();
+                DataValue<?>[] act = actual.get(i).getSymbol(j).getParameterValues();
+                for (int k = 0; k < exp.length; k++) {
+                    Assert.assertEquals(act[k].getClass(), exp[k].getClass());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.FreshValue;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that journaled traces are replayed and that the journal survives
+ * a partly written record.
+ */
+public class CacheJournalTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final InputSymbol I_PUT = new InputSymbol("IPut", T_INT);
+
+    private static final InputSymbol I_GET = new InputSymbol("IGet");
+
+    private static final OutputSymbol O_VAL = new OutputSymbol("OVal", T_INT);
+
+    private static final OutputSymbol O_OK = new OutputSymbol("OOK");
+
+    private static Word<PSymbolInstance> putGet(int put, int get) {
+        return Word.fromSymbols(
+                new PSymbolInstance(I_PUT, new DataValue<>(T_INT, put)),
+                new PSymbolInstance(O_OK),
+                new PSymbolInstance(I_GET),
+                new PSymbolInstance(O_VAL, new FreshValue<>(T_INT, get)));
+    }
+
+    private static IOCache replay(File file, Constants consts) throws IOException {
+        IOCache cache = new IOCache();
+        CacheJournal.open(file.getPath(), cache, consts, 0).close();
+        return cache;
+    }
+
+    @Test
+    public void testReplayAndCompact() throws IOException {
+        Constants consts = new Constants();
+        File file = File.createTempFile("cache", ".journal");
+        file.delete();
+        file.deleteOnExit();
+
+        IOCache cache = new IOCache();
+        CacheJournal journal = CacheJournal.open(file.getPath(), cache, consts, 0);
+        cache.setJournal(journal);
+        for (int i = 0; i < 5; i++) {
+            cache.addToCache(putGet(i, 100 + i));
+            // prefixes of journaled traces do not change the cache
+            cache.addToCache(putGet(i, 100 + i).prefix(2));
+        }
+        cache.addToCache(putGet(7, 107).prefix(2));
+        cache.addToCache(putGet(7, 107));
+        journal.close();
+        long journalLength = file.length();
+
+        IOCache replayed = replay(file, consts);
+        Assert.assertEquals(new HashSet<>(replayed.getWords(w -> true)), new HashSet<>(cache.getWords(w -> true)));
+        Assert.assertEquals(replayed.traceFromCache(putGet(7, 0)), putGet(7, 107));
+
+        // the prefix of the last trace was journaled separately and is dropped
+        Assert.assertTrue(file.length() < journalLength);
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        Constants consts = new Constants();
+        File file = File.createTempFile("cache", ".journal");
+        file.delete();
+        file.deleteOnExit();
+
+        IOCache cache = new IOCache();
+        CacheJournal journal = CacheJournal.open(file.getPath(), cache, consts, 1000);
+        cache.setJournal(journal);
+        cache.addToCache(putGet(1, 101));
+        cache.addToCache(putGet(2, 102));
+        journal.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        IOCache replayed = replay(file, consts);
+        Assert.assertEquals(replayed.traceFromCache(putGet(1, 0)), putGet(1, 101));
+        Assert.assertNull(replayed.traceFromCache(putGet(2, 0)));
+
+        // appending after the dropped record keeps the journal readable
+        journal = CacheJournal.open(file.getPath(), replayed, consts, 1000);
+        replayed.setJournal(journal);
+        replayed.addToCache(putGet(3, 103));
+        journal.reset();
+        replayed.addToCache(putGet(4, 104));
+        journal.close();
+
+        IOCache afterReset = replay(file, consts);
+        Assert.assertEquals(afterReset.getWords(w -> w.length() == 4), List.of(putGet(4, 104)));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.api.SULException;
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.exceptions.NonDeterminismException;
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+
+/**
+ * Checks that the wrapped SUL is started only at the first input missing in
+ * the cache and replays only the cached prefix.
+ */
+public class CachingSULTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final InputSymbol I_IN = new InputSymbol("in", T_INT);
+
+    private static final OutputSymbol O_SUM = new OutputSymbol("sum", T_INT);
+
+    /**
+     * Outputs the sum of all inputs since the last reset, plus an offset.
+     */
+    private static class SumSUL extends DataWordSUL {
+
+        private int sum;
+
+        private int offset;
+
+        @Override
+        public void pre() {
+            countResets(1);
+            sum = offset;
+        }
+
+        @Override
+        public void post() {
+        }
+
+        @Override
+        public PSymbolInstance step(PSymbolInstance in) throws SULException {
+            countInputs(1);
+            sum += (Integer) in.getParameterValues()[0].getId();
+            return new PSymbolInstance(O_SUM, new DataValue<>(T_INT, sum));
+        }
+    }
+
+    private static List<Integer> run(DataWordSUL sul, int ... values) {
+        List<Integer> outputs = new ArrayList<>();
+        sul.pre();
+        try {
+            for (int v : values) {
+                PSymbolInstance out = sul.step(new PSymbolInstance(I_IN, new DataValue<>(T_INT, v)));
+                outputs.add((Integer) out.getParameterValues()[0].getId());
+            }
+        } finally {
+            sul.post();
+        }
+        return outputs;
+    }
+
+    @Test
+    public void testStartsAtFirstMiss() {
+        SumSUL sul = new SumSUL();
+        IOCache cache = new IOCache();
+        CachingSUL caching = new CachingSUL(sul, cache);
+
+        Assert.assertEquals(run(caching, 1, 2), List.of(1, 3));
+        Assert.assertEquals(sul.getResets(), 1);
+        Assert.assertEquals(sul.getInputs(), 2);
+
+        // answered from the cache
+        Assert.assertEquals(run(caching, 1, 2), List.of(1, 3));
+        Assert.assertEquals(run(caching, 1), List.of(1));
+        Assert.assertEquals(sul.getResets(), 1);
+        Assert.assertEquals(sul.getInputs(), 2);
+
+        // the cached prefix is replayed once
+        Assert.assertEquals(run(caching, 1, 2, 3, 4), List.of(1, 3, 6, 10));
+        Assert.assertEquals(sul.getResets(), 2);
+        Assert.assertEquals(sul.getInputs(), 6);
+        Assert.assertEquals(cache.getSize(), 5);
+
+        Assert.assertEquals(run(caching, 5), List.of(5));
+        Assert.assertEquals(sul.getResets(), 3);
+        Assert.assertEquals(sul.getInputs(), 7);
+    }
+
+    @Test(expectedExceptions = NonDeterminismException.class)
+    public void testNonDeterministicReplay() {
+        SumSUL sul = new SumSUL();
+        CachingSUL caching = new CachingSUL(sul, new IOCache());
+        run(caching, 1, 2);
+        sul.offset = 1;
+        run(caching, 1, 2, 3);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.api.SULException;
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.exceptions.NonDeterminismException;
+import de.learnlib.ralib.exceptions.SULRestartException;
+import de.learnlib.ralib.sul.BasicSULOracle;
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that non-deterministic outputs are resolved by vote against the
+ * cache and that only the failed step is retried.
+ */
+public class ExceptionHandlerSULTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final InputSymbol I_IN = new InputSymbol("in", T_INT);
+
+    private static final OutputSymbol O_SUM = new OutputSymbol("sum", T_INT);
+
+    /**
+     * Outputs the sum of all inputs since the last reset. Outputs a wrong sum
+     * or asks for a restart at given steps, counted over all runs.
+     */
+    private static class FlakySUL extends DataWordSUL {
+
+        private int sum;
+
+        private int steps;
+
+        private final Set<Integer> glitches = new HashSet<>();
+
+        private final Set<Integer> restarts = new HashSet<>();
+
+        @Override
+        public void pre() {
+            countResets(1);
+            sum = 0;
+        }
+
+        @Override
+        public void post() {
+        }
+
+        @Override
+        public PSymbolInstance step(PSymbolInstance in) throws SULException {
+            countInputs(1);
+            steps++;
+            if (restarts.contains(steps)) {
+                throw new SULRestartException();
+            }
+            sum += (Integer) in.getParameterValues()[0].getId();
+            int out = glitches.contains(steps) ? sum + 100 : sum;
+            return new PSymbolInstance(O_SUM, new DataValue<>(T_INT, out));
+        }
+    }
+
+    private static List<Integer> run(DataWordSUL sul, int ... values) {
+        List<Integer> outputs = new ArrayList<>();
+        sul.pre();
+        try {
+            for (int v : values) {
+                PSymbolInstance out = sul.step(new PSymbolInstance(I_IN, new DataValue<>(T_INT, v)));
+                outputs.add((Integer) out.getParameterValues()[0].getId());
+            }
+        } finally {
+            sul.post();
+        }
+        return outputs;
+    }
+
+    @Test
+    public void testVoteAgainstCache() {
+        FlakySUL sul = new FlakySUL();
+        IOCache cache = new IOCache();
+        Assert.assertTrue(cache.addToCache(trace(1, 1, 2, 3)));
+
+        ExceptionHandlerSUL handler = new ExceptionHandlerSUL(sul, cache,
+                new RecoveryPolicy(3, 20, 3, 0L, 0L), new NonDeterminismStatistics());
+
+        // the second step glitches, a replay confirms the cached output
+        sul.glitches.add(2);
+        Assert.assertEquals(run(handler, 1, 2), List.of(1, 3));
+        Assert.assertEquals(sul.getResets(), 2);
+        Assert.assertEquals(sul.getInputs(), 4);
+        Assert.assertEquals(handler.getStatistics().getNonDeterminism(I_IN), 1);
+        Assert.assertTrue(handler.getStatistics().isFlaky(I_IN));
+
+        // beyond the cache the flaky symbol is replayed until two outputs agree
+        Assert.assertEquals(run(handler, 1, 2, 3), List.of(1, 3, 6));
+        Assert.assertEquals(sul.getResets(), 4);
+        Assert.assertEquals(sul.getInputs(), 10);
+        Assert.assertEquals(handler.getStatistics().getNonDeterminism(I_IN), 1);
+    }
+
+    @Test(expectedExceptions = NonDeterminismException.class)
+    public void testMajorityContradictsCache() {
+        FlakySUL sul = new FlakySUL();
+        IOCache cache = new IOCache();
+        Assert.assertTrue(cache.addToCache(trace(1, 1, 2, 4)));
+
+        ExceptionHandlerSUL handler = new ExceptionHandlerSUL(sul, cache,
+                new RecoveryPolicy(3, 20, 3, 0L, 0L), new NonDeterminismStatistics());
+        run(handler, 1, 2);
+    }
+
+    @Test
+    public void testRetryFailedStep() {
+        FlakySUL sul = new FlakySUL();
+        ExceptionHandlerSUL handler = new ExceptionHandlerSUL(sul);
+
+        // the restart replays the first two steps and retries the third
+        sul.restarts.add(3);
+        Assert.assertEquals(run(handler, 1, 2, 3), List.of(1, 3, 6));
+        Assert.assertEquals(sul.getResets(), 2);
+        Assert.assertEquals(sul.getInputs(), 6);
+    }
+
+    @Test
+    public void testNoNestedNonDetRetries() {
+        FlakySUL sul = new FlakySUL();
+        IOCache cache = new IOCache();
+        Assert.assertTrue(cache.addToCache(trace(1, 1, 2, 4)));
+
+        RecoveryPolicy policy = new RecoveryPolicy(3, 20, 1, 0L, 0L);
+        ExceptionHandlerSUL handler = new ExceptionHandlerSUL(sul, cache, policy, new NonDeterminismStatistics());
+        IOOracle oracle = ExceptionHandlers.wrapIOOracle(
+                new BasicSULOracle(handler, null), policy.withoutNonDetRetries());
+        try {
+            oracle.trace(trace(1, 0, 2, 0));
+            Assert.fail("non-determinism was not signaled");
+        } catch (NonDeterminismException e) {
+            // expected
+        }
+        // only the SUL retries the failing step
+        Assert.assertEquals(sul.getResets(), 3);
+    }
+
+    @Test
+    public void testBackoff() {
+        RecoveryPolicy policy = new RecoveryPolicy(3, 20, 1, 10L, 50L);
+        Assert.assertEquals(policy.getBackoff(1), 10L);
+        Assert.assertEquals(policy.getBackoff(2), 20L);
+        Assert.assertEquals(policy.getBackoff(3), 40L);
+        Assert.assertEquals(policy.getBackoff(4), 50L);
+        Assert.assertEquals(RecoveryPolicy.DEFAULT.getBackoff(5), 0L);
+        Assert.assertEquals(new RecoveryPolicy(3, 20, 4, 0L, 0L).getMajority(), 3);
+    }
+
+    private static Word<PSymbolInstance> trace(int ... values) {
+        List<PSymbolInstance> trace = new ArrayList<>();
+        for (int i = 0; i < values.length; i = i + 2) {
+            trace.add(new PSymbolInstance(I_IN, new DataValue<>(T_INT, values[i])));
+            trace.add(new PSymbolInstance(O_SUM, new DataValue<>(T_INT, values[i + 1])));
+        }
+        return Word.fromList(trace);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.FreshValue;
+import de.learnlib.ralib.exceptions.NonDeterminismException;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Checks lookups in cache nodes with few and with many children and
+ * concurrent updates of the cache.
+ */
+public class IOCacheTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final InputSymbol I_PUT = new InputSymbol("IPut", T_INT);
+
+    private static final InputSymbol I_GET = new InputSymbol("IGet");
+
+    private static final OutputSymbol O_VAL = new OutputSymbol("OVal", T_INT);
+
+    private static final OutputSymbol O_OK = new OutputSymbol("OOK");
+
+    private static Word<PSymbolInstance> putGet(int put, int get) {
+        return Word.fromSymbols(
+                new PSymbolInstance(I_PUT, new DataValue<>(T_INT, put)),
+                new PSymbolInstance(O_OK),
+                new PSymbolInstance(I_GET),
+                new PSymbolInstance(O_VAL, new FreshValue<>(T_INT, get)));
+    }
+
+    @Test
+    public void testManyChildren() {
+        IOCache cache = new IOCache();
+        List<Word<PSymbolInstance>> traces = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            traces.add(putGet(i, 1000 + i));
+            cache.addToCache(traces.get(i));
+            Assert.assertFalse(cache.addToCache(traces.get(i)));
+        }
+
+        Assert.assertEquals(cache.getRoot().childCount(), 100);
+        Assert.assertEquals(cache.getSize(), 1 + 100 * 2);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(cache.traceFromCache(putGet(i, 0)), traces.get(i));
+            Assert.assertEquals(cache.answerFromCache(traces.get(i)), Boolean.TRUE);
+            Assert.assertEquals(cache.answerFromCache(putGet(i, 0)), Boolean.FALSE);
+        }
+        Assert.assertNull(cache.traceFromCache(putGet(100, 0)));
+
+        // children are kept in insertion order
+        Assert.assertEquals(cache.getWords(w -> w.length() == 4), traces);
+        Assert.assertEquals(cache.getCacheExcluding(putGet(50, 1050).prefix(2)).getRoot().childCount(), 99);
+    }
+
+    @Test
+    public void testConcurrentInserts() throws Exception {
+        IOCache cache = new IOCache();
+        int threads = 8;
+        int traces = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<int[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            results.add(pool.submit(() -> {
+                // updates and non-determinism exceptions seen by this thread
+                int[] counts = new int[2];
+                for (int i = 0; i < traces; i++) {
+                    int put = (i * 7 + thread * 31) % traces;
+                    // every second thread sees different outputs for the odd values
+                    int get = put % 2 == 1 && thread % 2 == 1 ? 2000 + put : 1000 + put;
+                    try {
+                        if (cache.addToCache(putGet(put, get))) {
+                            counts[0]++;
+                        }
+                    } catch (NonDeterminismException e) {
+                        counts[1]++;
+                    }
+                }
+                return counts;
+            }));
+        }
+        int updates = 0;
+        int conflicts = 0;
+        for (Future<int[]> f : results) {
+            updates += f.get()[0];
+            conflicts += f.get()[1];
+        }
+        pool.shutdown();
+
+        Assert.assertEquals(cache.getSize(), 1 + traces * 2);
+        Assert.assertTrue(updates >= traces);
+        // for each odd value, one half of the threads disagrees with the cached output
+        Assert.assertEquals(conflicts, traces / 2 * threads / 2);
+        for (int i = 0; i < traces; i += 2) {
+            Assert.assertEquals(cache.traceFromCache(putGet(i, 0)), putGet(i, 1000 + i));
+        }
+    }
+}
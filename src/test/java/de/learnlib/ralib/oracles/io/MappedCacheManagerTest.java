@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.FreshValue;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that memory-mapped caches are loaded lazily and can be extended and 
+ * dumped again.
+ */
+public class MappedCacheManagerTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final InputSymbol I_PUT = new InputSymbol("IPut", T_INT);
+
+    private static final InputSymbol I_GET = new InputSymbol("IGet");
+
+    private static final OutputSymbol O_VAL = new OutputSymbol("OVal", T_INT);
+
+    private static final OutputSymbol O_OK = new OutputSymbol("OOK");
+
+    private static Word<PSymbolInstance> putGet(int put, int get) {
+        return Word.fromSymbols(
+                new PSymbolInstance(I_PUT, new DataValue<>(T_INT, put)),
+                new PSymbolInstance(O_OK),
+                new PSymbolInstance(I_GET),
+                new PSymbolInstance(O_VAL, new FreshValue<>(T_INT, get)));
+    }
+
+    @Test
+    public void testLazyLoadAndDump() throws IOException {
+        Constants consts = new Constants();
+        IOCache cache = new IOCache();
+        for (int i = 0; i < 10; i++) {
+            cache.addToCache(putGet(i, 100 + i));
+        }
+
+        File file = File.createTempFile("cache", ".map");
+        file.deleteOnExit();
+        IOCacheManager manager = IOCacheManager.getCacheManager("mapped");
+        manager.dumpCacheToFile(file.getPath(), cache, consts);
+
+        IOCache loaded = manager.loadCacheFromFile(file.getPath(), consts);
+        Assert.assertFalse(loaded.getRoot().isLoaded());
+
+        Word<PSymbolInstance> query = putGet(3, 0);
+        Assert.assertEquals(loaded.traceFromCache(query), putGet(3, 103));
+        Assert.assertTrue(loaded.getRoot().isLoaded());
+        Assert.assertFalse(loaded.getRoot().getNext(putGet(4, 0).firstSymbol()).isLoaded());
+
+        // extend the cache and replace the mapped file, untouched nodes are copied
+        Assert.assertTrue(loaded.addToCache(putGet(3, 103).concat(putGet(5, 7))));
+        manager.dumpCacheToFile(file.getPath(), loaded, consts);
+
+        IOCache reloaded = manager.loadCacheFromFile(file.getPath(), consts);
+        cache.addToCache(putGet(3, 103).concat(putGet(5, 7)));
+        List<Word<PSymbolInstance>> expected = cache.getWords(w -> true);
+        Assert.assertEquals(reloaded.getWords(w -> true), expected);
+        Assert.assertEquals(reloaded.getSize(), cache.getSize());
+    }
+}
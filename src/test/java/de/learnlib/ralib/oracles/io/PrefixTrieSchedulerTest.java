@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.api.SULException;
+import de.learnlib.oracles.DefaultQuery;
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.sul.BasicSULOracle;
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that batches of traces share the execution of common prefixes, 
+ * and run them once if the SUL can snapshot.
+ */
+public class PrefixTrieSchedulerTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final InputSymbol I_IN = new InputSymbol("in", T_INT);
+
+    private static final OutputSymbol O_SUM = new OutputSymbol("sum", T_INT);
+
+    /**
+     * Outputs the sum of all inputs since the last reset.
+     */
+    private static class SumSUL extends DataWordSUL {
+
+        int sum;
+
+        @Override
+        public void pre() {
+            countResets(1);
+            sum = 0;
+        }
+
+        @Override
+        public void post() {
+        }
+
+        @Override
+        public PSymbolInstance step(PSymbolInstance in) throws SULException {
+            countInputs(1);
+            sum += (Integer) in.getParameterValues()[0].getId();
+            return new PSymbolInstance(O_SUM, new DataValue<>(T_INT, sum));
+        }
+    }
+
+    /**
+     * A {@link SumSUL} that saves its sum as snapshot.
+     */
+    private static class SnapshotSumSUL extends SumSUL {
+
+        @Override
+        public boolean canSnapshot() {
+            return true;
+        }
+
+        @Override
+        public Object snapshot() {
+            return sum;
+        }
+
+        @Override
+        public void restore(Object snapshot) {
+            sum = (Integer) snapshot;
+        }
+    }
+
+    private static Word<PSymbolInstance> query(int ... values) {
+        Word<PSymbolInstance> query = Word.epsilon();
+        for (int v : values) {
+            query = query.append(new PSymbolInstance(I_IN, new DataValue<>(T_INT, v)))
+                    .append(new PSymbolInstance(O_SUM, new DataValue<>(T_INT, 0)));
+        }
+        return query;
+    }
+
+    @Test
+    public void testSharedPrefixes() {
+        List<Word<PSymbolInstance>> queries = Arrays.asList(
+                query(1), query(1, 2, 3), query(1, 2), query(2, 1),
+                query(1, 2, 3), query(1, 4), query());
+
+        SumSUL single = new SumSUL();
+        BasicSULOracle singleOracle = new BasicSULOracle(single, null);
+        List<Word<PSymbolInstance>> expected = new ArrayList<>();
+        for (Word<PSymbolInstance> q : queries) {
+            expected.add(singleOracle.trace(q));
+        }
+
+        SumSUL batch = new SumSUL();
+        List<Word<PSymbolInstance>> traces = new BasicSULOracle(batch, null).traces(queries);
+
+        Assert.assertEquals(traces, expected);
+        // leaves of the trie: (1,2,3), (1,4), (2,1)
+        Assert.assertEquals(batch.getResets(), 3);
+        Assert.assertEquals(batch.getInputs(), 7);
+        Assert.assertEquals(single.getResets(), 7);
+    }
+
+    @Test
+    public void testBranchFromSnapshots() {
+        List<Word<PSymbolInstance>> queries = Arrays.asList(
+                query(1), query(1, 2, 3), query(1, 2), query(2, 1),
+                query(1, 2, 3), query(1, 4), query());
+
+        BasicSULOracle singleOracle = new BasicSULOracle(new SumSUL(), null);
+        List<Word<PSymbolInstance>> expected = new ArrayList<>();
+        for (Word<PSymbolInstance> q : queries) {
+            expected.add(singleOracle.trace(q));
+        }
+
+        SnapshotSumSUL batch = new SnapshotSumSUL();
+        List<Word<PSymbolInstance>> traces = new BasicSULOracle(batch, null).traces(queries);
+
+        Assert.assertEquals(traces, expected);
+        // one run over the edges of the trie: 1, 2, 3, 4 and 2, 1
+        Assert.assertEquals(batch.getResets(), 1);
+        Assert.assertEquals(batch.getInputs(), 6);
+    }
+
+    @Test
+    public void testMembershipQueries() {
+        List<Word<PSymbolInstance>> words = Arrays.asList(
+                query(1), query(1, 2, 3), query(1, 2).prefix(3), query(2, 1),
+                query(1, 4), query(0, 0));
+
+        BasicIOCacheOracle singleOracle = new BasicIOCacheOracle(new BasicSULOracle(new SumSUL(), null));
+        List<Boolean> expected = new ArrayList<>();
+        for (Word<PSymbolInstance> w : words) {
+            DefaultQuery<PSymbolInstance, Boolean> q = new DefaultQuery<>(w);
+            singleOracle.processQueries(Collections.singletonList(q));
+            expected.add(q.getOutput());
+        }
+
+        SnapshotSumSUL batch = new SnapshotSumSUL();
+        BasicIOCacheOracle batchOracle = new BasicIOCacheOracle(new BasicSULOracle(batch, null));
+        List<DefaultQuery<PSymbolInstance, Boolean>> queries = new ArrayList<>();
+        for (Word<PSymbolInstance> w : words) {
+            queries.add(new DefaultQuery<>(w));
+        }
+        batchOracle.processQueries(queries);
+
+        for (int i = 0; i < words.size(); i++) {
+            Assert.assertEquals(queries.get(i).getOutput(), expected.get(i), words.get(i).toString());
+        }
+        // one run over the edges of the trie: 1, 2, 3, 4 and 2, 1 and 0, 0
+        Assert.assertEquals(batch.getResets(), 1);
+        Assert.assertEquals(batch.getInputs(), 8);
+    }
+}
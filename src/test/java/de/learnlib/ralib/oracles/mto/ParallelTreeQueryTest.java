@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.oracles.mto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.TestUtil;
+import de.learnlib.ralib.automata.RegisterAutomaton;
+import de.learnlib.ralib.automata.xml.RegisterAutomatonImporter;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
+import de.learnlib.ralib.learning.GeneralizedSymbolicSuffix;
+import de.learnlib.ralib.learning.Hypothesis;
+import de.learnlib.ralib.learning.RaStar;
+import de.learnlib.ralib.oracles.TreeOracleFactory;
+import de.learnlib.ralib.oracles.io.BasicIOCacheOracle;
+import de.learnlib.ralib.oracles.io.IOCache;
+import de.learnlib.ralib.oracles.io.IOFilter;
+import de.learnlib.ralib.solver.ConstraintSolver;
+import de.learnlib.ralib.solver.simple.SimpleConstraintSolver;
+import de.learnlib.ralib.sul.BasicSULOracle;
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.sul.SimulatorSUL;
+import de.learnlib.ralib.theory.Theory;
+import de.learnlib.ralib.tools.theories.IntegerEqualityTheory;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.commons.util.Pair;
+import net.automatalib.words.Word;
+
+/**
+ * Checks that parallel tree queries yield the same hypothesis as sequential ones.
+ */
+public class ParallelTreeQueryTest extends RaLibTestSuite {
+
+    @Test
+    public void testParallelTreeQueries() {
+
+        RegisterAutomatonImporter loader = TestUtil.getLoader(
+                "/de/learnlib/ralib/automata/xml/sip.xml");
+
+        RegisterAutomaton model = loader.getRegisterAutomaton();
+        ParameterizedSymbol[] inputs = loader.getInputs().toArray(
+                new ParameterizedSymbol[]{});
+        ParameterizedSymbol[] actions = loader.getActions().toArray(
+                new ParameterizedSymbol[]{});
+        Constants consts = loader.getConstants();
+
+        final Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        loader.getDataTypes().stream().forEach((t) -> {
+            teachers.put(t, new IntegerEqualityTheory(t));
+        });
+        ConstraintSolver solver = new SimpleConstraintSolver();
+
+        MultiTheoryTreeOracle sequential = TestUtil.createBasicMTO(
+                new SimulatorSUL(model, teachers, consts), ERROR, teachers,
+                consts, solver, inputs);
+
+        IOCache cache = new IOCache().asThreadSafeCache();
+        BasicIOCacheOracle ioCache = new BasicIOCacheOracle(
+                new BasicSULOracle(new SimulatorSUL(model, teachers, consts), ERROR), cache);
+        MultiTheoryTreeOracle parallel = new MultiTheoryTreeOracle(
+                new IOFilter(ioCache, inputs), ioCache, teachers, consts, solver);
+        parallel.setPrefixValidationOpt(true);
+
+        AtomicInteger workers = new AtomicInteger();
+        parallel.setParallelTreeQueries(new ForkJoinPool(4), () -> {
+            workers.incrementAndGet();
+            BasicIOCacheOracle workerCache = new BasicIOCacheOracle(
+                    new BasicSULOracle(new SimulatorSUL(model, teachers, consts), ERROR), cache);
+            return new Pair<>(new IOFilter(workerCache, inputs), workerCache);
+        });
+
+        Hypothesis seqHyp = learn(sequential, teachers, consts, solver, actions);
+        Hypothesis parHyp = learn(parallel, teachers, consts, solver, actions);
+
+        logger.log(Level.FINE, "HYP: {0}", parHyp);
+        Assert.assertTrue(workers.get() > 0);
+        Assert.assertEquals(parHyp.toString(), seqHyp.toString());
+    }
+
+    @Test
+    public void testParallelFailureIsDecorated() {
+
+        RegisterAutomatonImporter loader = TestUtil.getLoader(
+                "/de/learnlib/ralib/automata/xml/sip.xml");
+
+        RegisterAutomaton model = loader.getRegisterAutomaton();
+        ParameterizedSymbol[] inputs = loader.getInputs().toArray(
+                new ParameterizedSymbol[]{});
+        Constants consts = loader.getConstants();
+
+        final Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        loader.getDataTypes().stream().forEach((t) -> {
+            teachers.put(t, new IntegerEqualityTheory(t));
+        });
+        ConstraintSolver solver = new SimpleConstraintSolver();
+
+        IOCache cache = new IOCache().asThreadSafeCache();
+        BasicIOCacheOracle ioCache = new BasicIOCacheOracle(
+                new BasicSULOracle(new SimulatorSUL(model, teachers, consts), ERROR), cache);
+        MultiTheoryTreeOracle parallel = new MultiTheoryTreeOracle(
+                new IOFilter(ioCache, inputs), ioCache, teachers, consts, solver);
+
+        // the workers run on a SUL that fails on every step
+        DataWordSUL broken = new DataWordSUL() {
+            @Override
+            public void pre() {
+            }
+
+            @Override
+            public void post() {
+            }
+
+            @Override
+            public PSymbolInstance step(PSymbolInstance in) {
+                throw new DecoratedRuntimeException("broken SUL");
+            }
+        };
+        parallel.setParallelTreeQueries(new ForkJoinPool(2), () -> {
+            BasicIOCacheOracle workerCache = new BasicIOCacheOracle(
+                    new BasicSULOracle(broken, ERROR), new IOCache());
+            return new Pair<>(new IOFilter(workerCache, inputs), workerCache);
+        });
+
+        List<Pair<Word<PSymbolInstance>, GeneralizedSymbolicSuffix>> queries = new ArrayList<>();
+        for (ParameterizedSymbol in : inputs) {
+            queries.add(new Pair<>(Word.epsilon(), new GeneralizedSymbolicSuffix(in, teachers)));
+        }
+        try {
+            parallel.treeQueries(queries);
+            Assert.fail("failure of the SUL was not signaled");
+        } catch (DecoratedRuntimeException exc) {
+            Assert.assertTrue(exc.toString().contains("prefix:"), exc.toString());
+            Assert.assertTrue(exc.toString().contains("suffix:"), exc.toString());
+        }
+    }
+
+    private Hypothesis learn(MultiTheoryTreeOracle mto, Map<DataType, Theory> teachers,
+            Constants consts, ConstraintSolver solver, ParameterizedSymbol[] actions) {
+        MultiTheorySDTLogicOracle mlo = new MultiTheorySDTLogicOracle(consts, solver);
+        TreeOracleFactory hypFactory = (RegisterAutomaton hyp) -> 
+                TestUtil.createSimulatorMTO(hyp, teachers, consts, solver);
+        RaStar rastar = new RaStar(mto, hypFactory, mlo, consts, true, teachers, solver, actions);
+        rastar.learn();
+        return rastar.getHypothesis();
+    }
+}
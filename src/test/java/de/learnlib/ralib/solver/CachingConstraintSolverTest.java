@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.automata.guards.AtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.Conjunction;
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.automata.guards.Negation;
+import de.learnlib.ralib.automata.guards.Relation;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.data.SymbolicDataValue.Parameter;
+import de.learnlib.ralib.data.SymbolicDataValue.Register;
+import de.learnlib.ralib.solver.simple.SimpleConstraintSolver;
+
+/**
+ * Checks that solver results are shared by expressions differing only in
+ * the names of their symbolic data values.
+ */
+public class CachingConstraintSolverTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final DataType T_UID = new DataType("uid", Integer.class);
+
+    private static GuardExpression eqAndNotEq(SymbolicDataValue a, SymbolicDataValue b) {
+        return new Conjunction(
+                new AtomicGuardExpression<>(a, Relation.EQUALS, b),
+                new Negation(new AtomicGuardExpression<>(a, Relation.EQUALS, b)));
+    }
+
+    @Test
+    public void testRenamedExpressions() {
+        CachingConstraintSolver solver = new CachingConstraintSolver(new SimpleConstraintSolver(), 100);
+
+        Assert.assertFalse(solver.isSatisfiable(eqAndNotEq(new Register(T_INT, 1), new Parameter(T_INT, 1))));
+        Assert.assertFalse(solver.isSatisfiable(eqAndNotEq(new Register(T_INT, 2), new Parameter(T_INT, 3))));
+        Assert.assertEquals(solver.getHits(), 1);
+        Assert.assertEquals(solver.getMisses(), 1);
+
+        // a different type or structure is solved again
+        solver.isSatisfiable(eqAndNotEq(new Register(T_UID, 2), new Parameter(T_UID, 3)));
+        Assert.assertTrue(solver.isSatisfiable(
+                new AtomicGuardExpression<>(new Register(T_INT, 1), Relation.EQUALS, new Parameter(T_INT, 1))));
+        Assert.assertEquals(solver.getHits(), 1);
+        Assert.assertEquals(solver.getMisses(), 3);
+    }
+
+    @Test
+    public void testEviction() {
+        CachingConstraintSolver solver = new CachingConstraintSolver(new SimpleConstraintSolver(), 1);
+        Register r = new Register(T_INT, 1);
+        Parameter p = new Parameter(T_INT, 1);
+
+        solver.isSatisfiable(eqAndNotEq(r, p));
+        solver.isSatisfiable(new AtomicGuardExpression<>(r, Relation.EQUALS, p));
+        solver.isSatisfiable(eqAndNotEq(r, p));
+        Assert.assertEquals(solver.getHits(), 0);
+        Assert.assertEquals(solver.getMisses(), 3);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.difference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.TestUtil;
+import de.learnlib.ralib.automata.guards.AtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.Conjunction;
+import de.learnlib.ralib.automata.guards.ConstantGuardExpression;
+import de.learnlib.ralib.automata.guards.Disjunction;
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.automata.guards.Negation;
+import de.learnlib.ralib.automata.guards.Relation;
+import de.learnlib.ralib.automata.guards.SumCAtomicGuardExpression;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.Mapping;
+import de.learnlib.ralib.data.SumCDataExpression;
+import de.learnlib.ralib.data.SymbolicDataExpression;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.data.SymbolicDataValue.Register;
+import de.learnlib.ralib.data.SymbolicDataValue.SuffixValue;
+import de.learnlib.ralib.solver.ConstraintSolver;
+import de.learnlib.ralib.solver.jconstraints.JConstraintsGuardInstantiator;
+import de.learnlib.ralib.solver.jconstraints.JContraintsUtil;
+import de.learnlib.ralib.theory.SDTGuard;
+import de.learnlib.ralib.theory.equality.EqualityGuard;
+import de.learnlib.ralib.theory.inequality.IntervalGuard;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+
+/**
+ * Compares the difference solver to z3 on random guards. Satisfiability is
+ * compared over the integers only, as z3 decides doubles as floating point
+ * numbers, where for instance x + 1 = x holds for infinite x.
+ */
+public class DifferenceConstraintSolverTest extends RaLibTestSuite {
+
+    private static final DataType T_DBL = new DataType("double", Double.class);
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final Relation[] RELATIONS = { Relation.EQUALS, Relation.NOT_EQUALS, Relation.LESSER,
+            Relation.GREATER, Relation.LSREQUALS, Relation.GREQUALS };
+
+    private static GuardExpression randomExpression(Random r, DataType t, SymbolicDataValue[] vars, int depth) {
+        SymbolicDataValue a = vars[r.nextInt(vars.length)];
+        SymbolicDataValue b = vars[r.nextInt(vars.length)];
+        Relation rel = RELATIONS[r.nextInt(RELATIONS.length)];
+        switch (r.nextInt(depth > 0 ? 6 : 3)) {
+            case 0:
+                return new AtomicGuardExpression<>(a, rel, b);
+            case 1:
+                return new SumCAtomicGuardExpression<>(a, r.nextBoolean() ? new DataValue<>(t, r.nextInt(3)) : null, rel, b,
+                        r.nextBoolean() ? new DataValue<>(t, r.nextInt(3)) : null);
+            case 2:
+                return new ConstantGuardExpression(a, new DataValue<>(t, r.nextInt(5)));
+            case 3:
+                return new Conjunction(randomExpression(r, t, vars, depth - 1), randomExpression(r, t, vars, depth - 1));
+            case 4:
+                return new Disjunction(randomExpression(r, t, vars, depth - 1), randomExpression(r, t, vars, depth - 1));
+            default:
+                return new Negation(randomExpression(r, t, vars, depth - 1));
+        }
+    }
+
+    @Test
+    public void testSatisfiabilityAgreesWithZ3() {
+        ConstraintSolver z3 = TestUtil.getZ3Solver();
+        ConstraintSolver difference = new DifferenceConstraintSolver();
+        Random r = new Random(42);
+        SymbolicDataValue[] vars = { new Register(T_INT, 1), new Register(T_INT, 2), new SuffixValue(T_INT, 1) };
+        for (int i = 0; i < 1000; i++) {
+            GuardExpression expr = randomExpression(r, T_INT, vars, 3);
+            Assert.assertEquals(difference.isSatisfiable(expr), z3.isSatisfiable(expr), expr.toString());
+        }
+    }
+
+    private static SymbolicDataExpression randomEnd(Random r, Register reg) {
+        switch (r.nextInt(3)) {
+            case 0:
+                return null;
+            case 1:
+                return reg;
+            default:
+                return new SumCDataExpression(reg, new DataValue<>(T_DBL, (double) r.nextInt(3)));
+        }
+    }
+
+    @Test
+    public void testInstantiationAgreesWithZ3() {
+        JConstraintsGuardInstantiator<Double> z3 = new JConstraintsGuardInstantiator<>(T_DBL,
+                ConstraintSolverFactory.createSolver("z3"), Double.class);
+        DifferenceGuardInstantiator<Double> difference = new DifferenceGuardInstantiator<>(T_DBL, Double.class);
+        Register r1 = new Register(T_DBL, 1);
+        Register r2 = new Register(T_DBL, 2);
+        SuffixValue p = new SuffixValue(T_DBL, 1);
+        Random r = new Random(7);
+
+        for (int i = 0; i < 300; i++) {
+            SDTGuard guard;
+            SymbolicDataExpression left = randomEnd(r, r1);
+            SymbolicDataExpression right = randomEnd(r, r2);
+            if (left == null && right == null) {
+                guard = new EqualityGuard(p, r1);
+            } else {
+                guard = new IntervalGuard(p, left, r.nextBoolean(), right, r.nextBoolean());
+            }
+            Valuation val = new Valuation();
+            Mapping<SymbolicDataValue, DataValue<?>> mapping = new Mapping<>();
+            for (Register reg : new Register[] { r1, r2 }) {
+                double v = r.nextInt(8);
+                val.setValue(JContraintsUtil.toVariable(reg), v);
+                mapping.put(reg, new DataValue<>(T_DBL, v));
+            }
+            List<DataValue<Double>> used = new ArrayList<>();
+            List<DataValue<Double>> candidates = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                used.add(new DataValue<>(T_DBL, (double) r.nextInt(10)));
+                candidates.add(new DataValue<>(T_DBL, (double) r.nextInt(10)));
+            }
+
+            DataValue<Double> expected = z3.instantiate(guard, val, new Constants(), used);
+            DataValue<Double> actual = difference.instantiate(guard, val, new Constants(), used);
+            String msg = guard + " " + mapping + " " + used;
+            Assert.assertEquals(actual == null, expected == null, msg);
+            if (actual != null) {
+                mapping.put(p, actual);
+                Assert.assertTrue(guard.toExpr().isSatisfied(mapping), msg + " " + actual);
+                Assert.assertFalse(used.contains(actual), msg + " " + actual);
+            }
+            Assert.assertEquals(difference.findSatisfying(guard, p, val, used, candidates),
+                    z3.findSatisfying(guard, p, val, used, candidates), msg + " " + candidates);
+        }
+    }
+
+    @Test
+    public void testIntegralInstantiation() {
+        DifferenceGuardInstantiator<Integer> difference = new DifferenceGuardInstantiator<>(T_INT, Integer.class);
+        Register r1 = new Register(T_INT, 1);
+        Register r2 = new Register(T_INT, 2);
+        SuffixValue p = new SuffixValue(T_INT, 1);
+        SDTGuard guard = new IntervalGuard(p, r1, r2);
+
+        Valuation val = new Valuation();
+        val.setValue(JContraintsUtil.toVariable(r1), 1);
+        val.setValue(JContraintsUtil.toVariable(r2), 4);
+        List<DataValue<Integer>> used = new ArrayList<>();
+        used.add(new DataValue<>(T_INT, 2));
+        Assert.assertEquals(difference.instantiate(guard, val, new Constants(), used), new DataValue<>(T_INT, 3));
+
+        // no integer lies strictly between 1 and 4 besides the used ones
+        used.add(new DataValue<>(T_INT, 3));
+        Assert.assertNull(difference.instantiate(guard, val, new Constants(), used));
+    }
+}
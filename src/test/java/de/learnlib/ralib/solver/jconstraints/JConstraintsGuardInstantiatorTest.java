@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.jconstraints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.data.SymbolicDataValue.SuffixValue;
+import de.learnlib.ralib.data.util.SymbolicDataValueGenerator;
+import de.learnlib.ralib.theory.SDTGuard;
+import de.learnlib.ralib.theory.inequality.IntervalGuard;
+import gov.nasa.jpf.constraints.api.Valuation;
+import gov.nasa.jpf.constraints.solvers.ConstraintSolverFactory;
+
+/**
+ * Checks that candidates checked in one solver session are accepted as by
+ * instantiating the guard for each of them.
+ */
+public class JConstraintsGuardInstantiatorTest extends RaLibTestSuite {
+
+    private static final DataType T_DBL = new DataType("double", Double.class);
+
+    @Test
+    public void testFindSatisfying() {
+        JConstraintsGuardInstantiator<Double> instantiator = new JConstraintsGuardInstantiator<>(T_DBL,
+                ConstraintSolverFactory.createSolver("z3"), Double.class);
+
+        SymbolicDataValueGenerator.RegisterGenerator rgen = new SymbolicDataValueGenerator.RegisterGenerator();
+        SymbolicDataValue r1 = rgen.next(T_DBL);
+        SymbolicDataValue r2 = rgen.next(T_DBL);
+        SuffixValue p = new SymbolicDataValueGenerator.SuffixValueGenerator().next(T_DBL);
+        SDTGuard guard = new IntervalGuard(p, r1, r2);
+
+        Valuation val = new Valuation();
+        val.setValue(JContraintsUtil.toVariable(r1), 10.0);
+        val.setValue(JContraintsUtil.toVariable(r2), 20.0);
+        List<DataValue<Double>> used = Collections.singletonList(new DataValue<>(T_DBL, 15.0));
+
+        List<List<Double>> candidateLists = Arrays.asList(
+                Arrays.asList(5.0, 10.0, 15.0, 17.0),
+                Arrays.asList(25.0, 30.0),
+                Arrays.asList(12.0),
+                Arrays.asList(20.0, 15.0, 19.0));
+        // the solver session is reused across calls
+        for (List<Double> ids : candidateLists) {
+            List<DataValue<Double>> candidates = new ArrayList<>();
+            ids.forEach(id -> candidates.add(new DataValue<>(T_DBL, id)));
+
+            int expected = -1;
+            for (int i = 0; i < candidates.size() && expected < 0; i++) {
+                Valuation candidateVal = new Valuation();
+                candidateVal.putAll(val);
+                candidateVal.setValue(JContraintsUtil.toVariable(p), candidates.get(i).getId());
+                if (instantiator.instantiate(guard, candidateVal, new Constants(), used) != null) {
+                    expected = i;
+                }
+            }
+            Assert.assertEquals(instantiator.findSatisfying(guard, p, val, used, candidates), expected);
+        }
+    }
+}
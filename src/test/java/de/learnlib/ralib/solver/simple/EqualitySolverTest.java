@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.solver.simple;
+
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.automata.guards.AtomicGuardExpression;
+import de.learnlib.ralib.automata.guards.Conjunction;
+import de.learnlib.ralib.automata.guards.ConstantGuardExpression;
+import de.learnlib.ralib.automata.guards.Disjunction;
+import de.learnlib.ralib.automata.guards.GuardExpression;
+import de.learnlib.ralib.automata.guards.Negation;
+import de.learnlib.ralib.automata.guards.Relation;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.data.SymbolicDataValue;
+import de.learnlib.ralib.data.SymbolicDataValue.Register;
+import de.learnlib.ralib.data.SymbolicDataValue.SuffixValue;
+
+/**
+ * Compares the lazy equality solver to the simple solver on random guards
+ * and checks that wide guards are decided without expanding them.
+ */
+public class EqualitySolverTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static GuardExpression randomExpression(Random r, SymbolicDataValue[] vars, int depth) {
+        // distinct operands, as the simple solver fails on x != x
+        int i = r.nextInt(vars.length);
+        SymbolicDataValue a = vars[i];
+        SymbolicDataValue b = vars[(i + 1 + r.nextInt(vars.length - 1)) % vars.length];
+        switch (r.nextInt(depth > 0 ? 6 : 3)) {
+            case 0:
+                return new AtomicGuardExpression<>(a, Relation.EQUALS, b);
+            case 1:
+                return new AtomicGuardExpression<>(a, Relation.NOT_EQUALS, b);
+            case 2:
+                return new ConstantGuardExpression(a, new DataValue<>(T_INT, r.nextInt(2)));
+            case 3:
+                return new Conjunction(randomExpression(r, vars, depth - 1), randomExpression(r, vars, depth - 1),
+                        randomExpression(r, vars, depth - 1));
+            case 4:
+                return new Disjunction(randomExpression(r, vars, depth - 1), randomExpression(r, vars, depth - 1));
+            default:
+                return new Negation(randomExpression(r, vars, depth - 1));
+        }
+    }
+
+    @Test
+    public void testAgreesWithSimpleSolver() {
+        SimpleSolver simple = new SimpleSolver();
+        EqualitySolver lazy = new EqualitySolver();
+        SymbolicDataValue[] vars = { new Register(T_INT, 1), new Register(T_INT, 2), new SuffixValue(T_INT, 1) };
+        Random r = new Random(42);
+        int sat = 0;
+        for (int i = 0; i < 2000; i++) {
+            GuardExpression expr = randomExpression(r, vars, 3);
+            boolean expected = simple.isSatisfiable(expr);
+            Assert.assertEquals(lazy.isSatisfiable(expr), expected, expr.toString());
+            sat += expected ? 1 : 0;
+        }
+        // both outcomes are covered
+        Assert.assertTrue(sat > 100 && sat < 1900, "satisfiable: " + sat);
+
+        Register r1 = new Register(T_INT, 1);
+        Assert.assertFalse(lazy.isSatisfiable(new AtomicGuardExpression<>(r1, Relation.NOT_EQUALS, r1)));
+    }
+
+    @Test
+    public void testWideConjunctionOfDisjunctions() {
+        // (s_i = r1 || s_i = r2 || s_i = r3) for 40 parameters, each distinct from the next:
+        // 3^40 monomials in disjunctive normal form
+        int n = 40;
+        Register[] regs = { new Register(T_INT, 1), new Register(T_INT, 2), new Register(T_INT, 3) };
+        GuardExpression[] conjuncts = new GuardExpression[2 * n - 1];
+        for (int i = 0; i < n; i++) {
+            SuffixValue s = new SuffixValue(T_INT, i + 1);
+            conjuncts[i] = new Disjunction(
+                    new AtomicGuardExpression<>(s, Relation.EQUALS, regs[0]),
+                    new AtomicGuardExpression<>(s, Relation.EQUALS, regs[1]),
+                    new AtomicGuardExpression<>(s, Relation.EQUALS, regs[2]));
+            if (i > 0) {
+                conjuncts[n + i - 1] = new AtomicGuardExpression<>(new SuffixValue(T_INT, i), Relation.NOT_EQUALS, s);
+            }
+        }
+        EqualitySolver lazy = new EqualitySolver();
+        Assert.assertTrue(lazy.isSatisfiable(new Conjunction(conjuncts)));
+
+        GuardExpression[] pigeons = new GuardExpression[7];
+        SuffixValue[] s = new SuffixValue[4];
+        for (int i = 0; i < 4; i++) {
+            s[i] = new SuffixValue(T_INT, i + 1);
+            pigeons[i] = new Disjunction(
+                    new AtomicGuardExpression<>(s[i], Relation.EQUALS, regs[0]),
+                    new AtomicGuardExpression<>(s[i], Relation.EQUALS, regs[1]),
+                    new AtomicGuardExpression<>(s[i], Relation.EQUALS, regs[2]));
+        }
+        pigeons[4] = new Conjunction(new AtomicGuardExpression<>(s[0], Relation.NOT_EQUALS, s[1]),
+                new AtomicGuardExpression<>(s[0], Relation.NOT_EQUALS, s[2]),
+                new AtomicGuardExpression<>(s[0], Relation.NOT_EQUALS, s[3]));
+        pigeons[5] = new Conjunction(new AtomicGuardExpression<>(s[1], Relation.NOT_EQUALS, s[2]),
+                new AtomicGuardExpression<>(s[1], Relation.NOT_EQUALS, s[3]));
+        pigeons[6] = new AtomicGuardExpression<>(s[2], Relation.NOT_EQUALS, s[3]);
+        // four pairwise distinct parameters among three registers
+        Assert.assertFalse(lazy.isSatisfiable(new Conjunction(pigeons)));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2014-2015 The LearnLib Contributors
+ * This file is part of LearnLib, http://www.learnlib.de/.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.learnlib.ralib.sul;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.TestUtil;
+import de.learnlib.ralib.automata.RegisterAutomaton;
+import de.learnlib.ralib.automata.xml.RegisterAutomatonImporter;
+import de.learnlib.ralib.data.Constants;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.theory.Theory;
+import de.learnlib.ralib.tools.theories.DoubleInequalityTheory;
+import de.learnlib.ralib.tools.theories.IntegerEqualityTheory;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+
+/**
+ * Checks that the compiled simulator produces the same outputs as the 
+ * simulator on random inputs, and that both continue correctly from 
+ * snapshots.
+ */
+public class CompiledSimulatorSULTest extends RaLibTestSuite {
+
+    @Test
+    public void testEqualityModels() {
+        for (String model : new String[] {"sip.xml", "keygen.xml", "abp.output.xml", "login.xml"}) {
+            compareOnRandomInputs(model, IntegerEqualityTheory::new, k -> k);
+        }
+    }
+
+    @Test
+    public void testInequalityModel() {
+        compareOnRandomInputs("pq3.xml", DoubleInequalityTheory::new, k -> (double) k);
+    }
+
+    @Test
+    public void testSnapshots() {
+        for (String model : new String[] {"sip.xml", "keygen.xml", "abp.output.xml", "login.xml"}) {
+            compareAfterRestore(model, IntegerEqualityTheory::new, k -> k);
+        }
+        compareAfterRestore("pq3.xml", DoubleInequalityTheory::new, k -> (double) k);
+    }
+
+    /**
+     * Runs two random continuations of a random prefix from a snapshot after 
+     * the prefix and compares them to runs from a reset.
+     */
+    private void compareAfterRestore(String file, Function<DataType, Theory> theory, 
+            Function<Integer, Object> value) {
+        RegisterAutomatonImporter loader = TestUtil.getLoader(
+                "/de/learnlib/ralib/automata/xml/" + file);
+        RegisterAutomaton model = loader.getRegisterAutomaton();
+        ParameterizedSymbol[] inputs = loader.getInputs().toArray(
+                new ParameterizedSymbol[]{});
+        Constants consts = loader.getConstants();
+        Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        loader.getDataTypes().stream().forEach((t) -> {
+            teachers.put(t, theory.apply(t));
+        });
+
+        DataWordSUL reference = new SimulatorSUL(model, teachers, consts);
+        DataWordSUL[] suls = {new SimulatorSUL(model, teachers, consts), 
+            new CompiledSimulatorSUL(model, teachers, consts)};
+        Random r = new Random(42);
+        int checked = 0;
+        for (int run = 0; run < 200; run++) {
+            List<PSymbolInstance> prefix = randomInputs(inputs, r, value);
+            List<List<PSymbolInstance>> branches = Arrays.asList(
+                    randomInputs(inputs, r, value), randomInputs(inputs, r, value));
+            List<List<PSymbolInstance>> expected = new ArrayList<>();
+            for (List<PSymbolInstance> branch : branches) {
+                List<PSymbolInstance> query = new ArrayList<>(prefix);
+                query.addAll(branch);
+                List<PSymbolInstance> outputs = run(reference, query);
+                if (outputs == null) {
+                    break;
+                }
+                expected.add(outputs.subList(prefix.size(), query.size()));
+            }
+            if (expected.size() < branches.size()) {
+                continue;
+            }
+            for (DataWordSUL sul : suls) {
+                sul.pre();
+                for (PSymbolInstance in : prefix) {
+                    sul.step(in);
+                }
+                Object snapshot = sul.snapshot();
+                for (int b = 0; b < branches.size(); b++) {
+                    sul.restore(snapshot);
+                    List<PSymbolInstance> outputs = new ArrayList<>();
+                    for (PSymbolInstance in : branches.get(b)) {
+                        outputs.add(sul.step(in));
+                    }
+                    Assert.assertEquals(outputs, expected.get(b), file);
+                }
+                sul.post();
+            }
+            checked++;
+        }
+        Assert.assertTrue(checked > 20, file);
+    }
+
+    private static List<PSymbolInstance> randomInputs(ParameterizedSymbol[] inputs, Random r, 
+            Function<Integer, Object> value) {
+        List<PSymbolInstance> ret = new ArrayList<>();
+        for (int depth = 0; depth < 3; depth++) {
+            ParameterizedSymbol ps = inputs[r.nextInt(inputs.length)];
+            DataValue[] vals = new DataValue[ps.getArity()];
+            for (int i = 0; i < vals.length; i++) {
+                vals[i] = new DataValue(ps.getPtypes()[i], value.apply(r.nextInt(4)));
+            }
+            ret.add(new PSymbolInstance(ps, vals));
+        }
+        return ret;
+    }
+
+    /**
+     * @return the outputs, or null if an input is not enabled
+     */
+    private static List<PSymbolInstance> run(DataWordSUL sul, List<PSymbolInstance> query) {
+        List<PSymbolInstance> outputs = new ArrayList<>();
+        sul.pre();
+        try {
+            for (PSymbolInstance in : query) {
+                outputs.add(sul.step(in));
+            }
+        } catch (IllegalStateException e) {
+            outputs = null;
+        }
+        sul.post();
+        return outputs;
+    }
+
+    private void compareOnRandomInputs(String file, Function<DataType, Theory> theory, 
+            Function<Integer, Object> value) {
+        RegisterAutomatonImporter loader = TestUtil.getLoader(
+                "/de/learnlib/ralib/automata/xml/" + file);
+        RegisterAutomaton model = loader.getRegisterAutomaton();
+        ParameterizedSymbol[] inputs = loader.getInputs().toArray(
+                new ParameterizedSymbol[]{});
+        Constants consts = loader.getConstants();
+        Map<DataType, Theory> teachers = new LinkedHashMap<>();
+        loader.getDataTypes().stream().forEach((t) -> {
+            teachers.put(t, theory.apply(t));
+        });
+
+        DataWordSUL expected = new SimulatorSUL(model, teachers, consts);
+        DataWordSUL actual = new CompiledSimulatorSUL(model, teachers, consts);
+        Random r = new Random(42);
+        int steps = 0;
+        for (int run = 0; run < 200; run++) {
+            expected.pre();
+            actual.pre();
+            for (int depth = 0; depth < 8; depth++) {
+                ParameterizedSymbol ps = inputs[r.nextInt(inputs.length)];
+                DataValue[] vals = new DataValue[ps.getArity()];
+                for (int i = 0; i < vals.length; i++) {
+                    vals[i] = new DataValue(ps.getPtypes()[i], value.apply(r.nextInt(4)));
+                }
+                PSymbolInstance in = new PSymbolInstance(ps, vals);
+                PSymbolInstance out;
+                try {
+                    out = expected.step(in);
+                } catch (IllegalStateException e) {
+                    Assert.assertThrows(IllegalStateException.class, () -> actual.step(in));
+                    break;
+                }
+                Assert.assertEquals(actual.step(in), out, file);
+                steps++;
+            }
+            expected.post();
+            actual.post();
+        }
+        Assert.assertTrue(steps > 200, file);
+    }
+}
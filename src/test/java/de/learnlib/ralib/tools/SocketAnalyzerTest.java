@@ -1,5 +1,272 @@
 package de.learnlib.ralib.tools;
 
-public class SocketAnalyzerTest {
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import de.learnlib.ralib.RaLibTestSuite;
+import de.learnlib.ralib.data.DataType;
+import de.learnlib.ralib.data.DataValue;
+import de.learnlib.ralib.exceptions.DecoratedRuntimeException;
+import de.learnlib.ralib.sul.DataWordSUL;
+import de.learnlib.ralib.sul.InputCounter;
+import de.learnlib.ralib.sul.PipelinedSULOracle;
+import de.learnlib.ralib.tools.classanalyzer.SpecialSymbols;
+import de.learnlib.ralib.tools.sockanalyzer.NioSocketAnalyzerSUL;
+import de.learnlib.ralib.tools.sockanalyzer.NioSocketAnalyzerSULFactory;
+import de.learnlib.ralib.words.InputSymbol;
+import de.learnlib.ralib.words.OutputSymbol;
+import de.learnlib.ralib.words.PSymbolInstance;
+import de.learnlib.ralib.words.ParameterizedSymbol;
+import net.automatalib.words.Word;
+
+/**
+ * Runs the non-blocking socket SUL against a local echo server, which
+ * answers every line but reset with the line itself.
+ */
+public class SocketAnalyzerTest extends RaLibTestSuite {
+
+    private static final DataType T_INT = new DataType("int", Integer.class);
+
+    private static final InputSymbol I_MSG = new InputSymbol("msg", T_INT);
+
+    private static final InputSymbol I_PAIR = new InputSymbol("pair", T_INT, T_INT);
+
+    private static final List<ParameterizedSymbol> OUTPUTS = Arrays.asList(
+            new OutputSymbol("msg", T_INT), new OutputSymbol("pair", T_INT, T_INT));
+
+    private ServerSocket server;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicInteger resets = new AtomicInteger();
+
+    @BeforeMethod
+    public void startEchoServer() throws IOException {
+        server = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket client = server.accept();
+                    connections.incrementAndGet();
+                    Thread echo = new Thread(() -> echo(client, resets));
+                    echo.setDaemon(true);
+                    echo.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private static void echo(Socket client, AtomicInteger resets) {
+        try (Socket s = client;
+                BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+                PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.equals("reset")) {
+                    out.println(line);
+                } else {
+                    resets.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            // client closed
+        }
+    }
+
+    @AfterMethod
+    public void stopEchoServer() throws IOException {
+        server.close();
+    }
+
+    private NioSocketAnalyzerSULFactory factory(int maxDepth, int connections, boolean pipelined) {
+        return new NioSocketAnalyzerSULFactory("localhost", server.getLocalPort(), maxDepth, connections,
+                pipelined, 10000L, Arrays.asList(I_MSG, I_PAIR), OUTPUTS);
+    }
+
+    private static PSymbolInstance msg(int v) {
+        return new PSymbolInstance(I_MSG, new DataValue<>(T_INT, v));
+    }
+
+    private static void assertEcho(PSymbolInstance in, PSymbolInstance out) {
+        Assert.assertEquals(out.getBaseSymbol().getName(), in.getBaseSymbol().getName());
+        Assert.assertTrue(out.getBaseSymbol() instanceof OutputSymbol);
+        Assert.assertEquals(out.getParameterValues(), in.getParameterValues());
+    }
+
+    @Test
+    public void testStepwise() {
+        NioSocketAnalyzerSULFactory factory = factory(-1, 1, false);
+        DataWordSUL sul = factory.newSUL();
+        PSymbolInstance pair = new PSymbolInstance(I_PAIR,
+                new DataValue<>(T_INT, 2), new DataValue<>(T_INT, -3));
+        for (int i = 0; i < 3; i++) {
+            sul.pre();
+            assertEcho(msg(i), sul.step(msg(i)));
+            assertEcho(pair, sul.step(pair));
+            sul.post();
+        }
+        Assert.assertEquals(sul.getResets(), 3);
+        Assert.assertEquals(sul.getInputs(), 6);
+        Assert.assertEquals(factory.getOpenConnections(), 1);
+        factory.close();
+    }
+
+    @Test
+    public void testPipelined() {
+        NioSocketAnalyzerSULFactory factory = factory(50, 1, true);
+        NioSocketAnalyzerSUL sul = (NioSocketAnalyzerSUL) factory.newSUL();
+        Assert.assertTrue(sul.isPipelined());
+        InputCounter counter = new InputCounter();
+        PipelinedSULOracle oracle = new PipelinedSULOracle(sul, counter);
+
+        List<PSymbolInstance> query = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            query.add(msg(i));
+            query.add(msg(i));
+        }
+        for (int r = 0; r < 2; r++) {
+            Word<PSymbolInstance> trace = oracle.trace(Word.fromList(query));
+            Assert.assertEquals(trace.length(), query.size());
+            for (int i = 0; i < trace.length(); i += 2) {
+                Assert.assertEquals(trace.getSymbol(i), query.get(i));
+                if (i / 2 <= 50) {
+                    assertEcho(trace.getSymbol(i), trace.getSymbol(i + 1));
+                } else {
+                    // beyond the maximal depth
+                    Assert.assertEquals(trace.getSymbol(i + 1).getBaseSymbol(), SpecialSymbols.DEPTH);
+                }
+            }
+        }
+        Assert.assertEquals(counter.getResets(), 2);
+        Assert.assertEquals(counter.getInputs(), 120);
+        Assert.assertEquals(factory.getOpenConnections(), 1);
+        factory.close();
+    }
+
+    @Test
+    public void testFailedRunDiscardsConnection() {
+        // the pair output is not registered, so its reply cannot be parsed
+        NioSocketAnalyzerSULFactory factory = new NioSocketAnalyzerSULFactory("localhost",
+                server.getLocalPort(), -1, 1, true, 10000L, Arrays.asList(I_MSG, I_PAIR), OUTPUTS.subList(0, 1));
+        NioSocketAnalyzerSUL sul = (NioSocketAnalyzerSUL) factory.newSUL();
+        int accepted = connections.get();
+        PSymbolInstance pair = new PSymbolInstance(I_PAIR,
+                new DataValue<>(T_INT, 2), new DataValue<>(T_INT, -3));
+        try {
+            sul.run(Arrays.asList(pair, msg(1)));
+            Assert.fail("unregistered output was parsed");
+        } catch (DecoratedRuntimeException e) {
+            // expected
+        }
+        // the reply to msg(1) was not read, the connection is not reused
+        Assert.assertEquals(factory.getOpenConnections(), 0);
+
+        List<PSymbolInstance> outputs = sul.run(Arrays.asList(msg(2), msg(3)));
+        assertEcho(msg(2), outputs.get(0));
+        assertEcho(msg(3), outputs.get(1));
+        Assert.assertEquals(factory.getOpenConnections(), 1);
+        Assert.assertEquals(connections.get() - accepted, 2);
+        factory.close();
+    }
+
+    @Test
+    public void testResetWithoutInputs() throws InterruptedException {
+        NioSocketAnalyzerSULFactory factory = factory(-1, 1, false);
+        DataWordSUL sul = factory.newSUL();
+        int received = resets.get();
+        sul.pre();
+        sul.post();
+        // the reset is written before the connection is returned to the pool
+        for (int i = 0; i < 100 && resets.get() == received; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(resets.get() - received, 1);
+
+        sul.pre();
+        assertEcho(msg(1), sul.step(msg(1)));
+        sul.post();
+        Assert.assertEquals(resets.get() - received, 2);
+        Assert.assertEquals(factory.getOpenConnections(), 1);
+        factory.close();
+    }
+
+    @Test
+    public void testRestoreReplaysInputs() {
+        NioSocketAnalyzerSULFactory factory = factory(-1, 1, true);
+        DataWordSUL sul = factory.newSUL();
+        Assert.assertTrue(sul.canSnapshot());
+        int received = resets.get();
+        sul.pre();
+        assertEcho(msg(1), sul.step(msg(1)));
+        assertEcho(msg(2), sul.step(msg(2)));
+        Object snapshot = sul.snapshot();
+        assertEcho(msg(3), sul.step(msg(3)));
+        sul.restore(snapshot);
+        // the replies to the replayed inputs are consumed by the restore
+        assertEcho(msg(4), sul.step(msg(4)));
+        sul.post();
+        Assert.assertEquals(resets.get() - received, 2);
+        Assert.assertEquals(sul.getResets(), 2);
+        Assert.assertEquals(sul.getInputs(), 6);
+        factory.close();
+
+        NioSocketAnalyzerSULFactory stepwise = factory(-1, 1, false);
+        Assert.assertFalse(stepwise.newSUL().canSnapshot());
+        stepwise.close();
+    }
+
+    @Test
+    public void testConcurrentConnections() throws Exception {
+        NioSocketAnalyzerSULFactory factory = factory(-1, 3, false);
+        DataWordSUL prototype = factory.newSUL();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                DataWordSUL sul = (DataWordSUL) prototype.fork();
+                int worker = w;
+                results.add(executor.submit(() -> {
+                    int answered = 0;
+                    for (int q = 0; q < 25; q++) {
+                        sul.pre();
+                        for (int i = 0; i < 4; i++) {
+                            PSymbolInstance in = msg(worker * 1000 + q * 10 + i);
+                            assertEcho(in, sul.step(in));
+                            answered++;
+                        }
+                        sul.post();
+                    }
+                    return answered;
+                }));
+            }
+            for (Future<Integer> f : results) {
+                Assert.assertEquals(f.get().intValue(), 100);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(factory.getOpenConnections() <= 3);
+        Assert.assertTrue(connections.get() <= 3);
+        factory.close();
+    }
 }